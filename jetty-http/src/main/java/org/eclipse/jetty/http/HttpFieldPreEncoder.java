@@ -18,6 +18,9 @@
 
 package org.eclipse.jetty.http;
 
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
 /**
  * Interface to pre-encode HttpFields.  Used by {@link PreEncodedHttpField}
  */
@@ -34,4 +37,22 @@ public interface HttpFieldPreEncoder
     HttpVersion getHttpVersion();
 
     byte[] getEncodedField(HttpHeader header, String headerString, String value);
+
+    /**
+     * <p>Encodes a block of fields that is always sent as a whole, and that must therefore
+     * not alter any encoding state of the connection, such as an HPACK dynamic table.</p>
+     *
+     * @param fields the fields to encode
+     * @return the encoded fields
+     * @see PreEncodedHttpFields
+     */
+    default byte[] getEncodedFields(List<HttpField> fields)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (HttpField field : fields)
+        {
+            out.writeBytes(getEncodedField(field.getHeader(), field.getName(), field.getValue()));
+        }
+        return out.toByteArray();
+    }
 }
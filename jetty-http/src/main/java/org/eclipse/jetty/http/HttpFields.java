@@ -44,13 +44,32 @@ import org.eclipse.jetty.util.log.Logger;
  * single thread.
  *
  * <p>The cookie handling provided by this class is guided by the Servlet specification and RFC6265.
+ *
+ * <p>Lookups by {@link HttpHeader} use a small open addressed index keyed by the header ordinal
+ * once there are enough fields, so that instances recycled per connection can be queried
+ * repeatedly without scanning all the fields.
  */
 public class HttpFields implements Iterable<HttpField>
 {
     private static final Logger LOG = Log.getLogger(HttpFields.class);
+    /**
+     * The number of fields below which lookups by {@link HttpHeader} just scan the fields.
+     */
+    private static final int INDEX_THRESHOLD = 8;
+    private static final int MAX_INDEXED_POSITION = 0xFFFF;
 
     private HttpField[] _fields;
     private int _size;
+    /**
+     * <p>Open addressed index of the position of the first field for each {@link HttpHeader}.</p>
+     * <p>Each entry is the header ordinal plus one in the upper 16 bits and the field position
+     * in the lower 16 bits, with 0 meaning an empty slot.
+     * The index is built lazily on the first lookup and is discarded ({@code null}) by any
+     * modification that moves fields, while fields appended by {@link #add(HttpField)} are
+     * added to the index. {@link #clear()} empties the index but keeps it, so that fields
+     * recycled across requests do not allocate a new index for every request.</p>
+     */
+    private int[] _index;
 
     /**
      * Initialize an empty HttpFields.
@@ -146,13 +165,8 @@ public class HttpFields implements Iterable<HttpField>
 
     public HttpField getField(HttpHeader header)
     {
-        for (int i = 0; i < _size; i++)
-        {
-            HttpField f = _fields[i];
-            if (f.getHeader() == header)
-                return f;
-        }
-        return null;
+        int i = indexOf(header);
+        return i < 0 ? null : _fields[i];
     }
 
     public HttpField getField(String name)
@@ -169,7 +183,7 @@ public class HttpFields implements Iterable<HttpField>
     public List<HttpField> getFields(HttpHeader header)
     {
         List<HttpField> fields = null;
-        for (int i = 0; i < _size; i++)
+        for (int i = Math.max(0, indexOf(header)); i < _size; i++)
         {
             HttpField f = _fields[i];
             if (f.getHeader() == header)
@@ -195,7 +209,10 @@ public class HttpFields implements Iterable<HttpField>
 
     public boolean contains(HttpHeader header, String value)
     {
-        for (int i = _size; i-- > 0; )
+        int first = indexOf(header);
+        if (first < 0)
+            return false;
+        for (int i = _size; i-- > first; )
         {
             HttpField f = _fields[i];
             if (f.getHeader() == header && f.contains(value))
@@ -217,13 +234,7 @@ public class HttpFields implements Iterable<HttpField>
 
     public boolean contains(HttpHeader header)
     {
-        for (int i = _size; i-- > 0; )
-        {
-            HttpField f = _fields[i];
-            if (f.getHeader() == header)
-                return true;
-        }
-        return false;
+        return indexOf(header) >= 0;
     }
 
     public boolean containsKey(String name)
@@ -239,13 +250,8 @@ public class HttpFields implements Iterable<HttpField>
 
     public String get(HttpHeader header)
     {
-        for (int i = 0; i < _size; i++)
-        {
-            HttpField f = _fields[i];
-            if (f.getHeader() == header)
-                return f.getValue();
-        }
-        return null;
+        int i = indexOf(header);
+        return i < 0 ? null : _fields[i].getValue();
     }
 
     public String get(String header)
@@ -268,7 +274,7 @@ public class HttpFields implements Iterable<HttpField>
     public List<String> getValuesList(HttpHeader header)
     {
         final List<String> list = new ArrayList<>();
-        for (int i = 0; i < _size; i++)
+        for (int i = Math.max(0, indexOf(header)); i < _size; i++)
         {
             HttpField f = _fields[i];
             if (f.getHeader() == header)
@@ -563,9 +569,12 @@ public class HttpFields implements Iterable<HttpField>
                 if (put)
                 {
                     System.arraycopy(_fields, i + 1, _fields, i, --_size - i);
+                    _index = null;
                 }
                 else
                 {
+                    if (f.getHeader() != field.getHeader())
+                        _index = null;
                     _fields[i] = field;
                     put = true;
                 }
@@ -668,6 +677,11 @@ public class HttpFields implements Iterable<HttpField>
             if (_size == _fields.length)
                 _fields = Arrays.copyOf(_fields, _size * 2);
             _fields[_size++] = field;
+            // Keep the index load and probe sequences small, otherwise
+            // discard it so that it is rebuilt larger by the next lookup.
+            int position = _size - 1;
+            if (_index != null && (position >= _index.length >> 1 || position > MAX_INDEXED_POSITION || index(_index, field.getHeader(), position) > 4))
+                _index = null;
         }
     }
 
@@ -702,8 +716,11 @@ public class HttpFields implements Iterable<HttpField>
      */
     public HttpField remove(HttpHeader name)
     {
+        int first = indexOf(name);
+        if (first < 0)
+            return null;
         HttpField removed = null;
-        for (int i = _size; i-- > 0; )
+        for (int i = _size; i-- > first; )
         {
             HttpField f = _fields[i];
             if (f.getHeader() == name)
@@ -712,6 +729,7 @@ public class HttpFields implements Iterable<HttpField>
                 System.arraycopy(_fields, i + 1, _fields, i, --_size - i);
             }
         }
+        _index = null;
         return removed;
     }
 
@@ -731,6 +749,7 @@ public class HttpFields implements Iterable<HttpField>
             {
                 removed = f;
                 System.arraycopy(_fields, i + 1, _fields, i, --_size - i);
+                _index = null;
             }
         }
         return removed;
@@ -903,7 +922,11 @@ public class HttpFields implements Iterable<HttpField>
 
     public void clear()
     {
+        // Release the fields, as instances may be recycled across requests.
+        Arrays.fill(_fields, 0, _size, null);
         _size = 0;
+        if (_index != null)
+            Arrays.fill(_index, 0);
     }
 
     public void addAll(HttpFields fields)
@@ -914,6 +937,80 @@ public class HttpFields implements Iterable<HttpField>
         }
     }
 
+    /**
+     * @param header the header to look up
+     * @return the position of the first field with the given header, or -1 if there is no such field
+     */
+    private int indexOf(HttpHeader header)
+    {
+        if (header == null)
+            return -1;
+
+        if (_size < INDEX_THRESHOLD || _size > MAX_INDEXED_POSITION)
+        {
+            for (int i = 0; i < _size; i++)
+            {
+                if (_fields[i].getHeader() == header)
+                    return i;
+            }
+            return -1;
+        }
+
+        if (_index == null)
+        {
+            _index = new int[Integer.highestOneBit(_size) << 2];
+            for (int i = 0; i < _size; i++)
+            {
+                index(_index, _fields[i].getHeader(), i);
+            }
+        }
+
+        int key = header.ordinal() + 1;
+        int mask = _index.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask)
+        {
+            int entry = _index[slot];
+            if (entry == 0)
+                return -1;
+            if (entry >>> 16 == key)
+                return entry & MAX_INDEXED_POSITION;
+        }
+    }
+
+    /**
+     * @param index the index to add the field position to
+     * @param header the header of the field
+     * @param position the position of the field
+     * @return the number of occupied slots probed before finding the slot for the header
+     */
+    private static int index(int[] index, HttpHeader header, int position)
+    {
+        if (header == null)
+            return 0;
+
+        int key = header.ordinal() + 1;
+        int mask = index.length - 1;
+        int probes = 0;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask)
+        {
+            int entry = index[slot];
+            if (entry == 0)
+            {
+                index[slot] = key << 16 | position;
+                return probes;
+            }
+            // Only the first field of each header is indexed.
+            if (entry >>> 16 == key)
+                return probes;
+            ++probes;
+        }
+    }
+
+    private static int hash(int key)
+    {
+        return key * 0x9E3779B9 >>> 16;
+    }
+
     /**
      * Get field value without parameters. Some field values can have parameters. This method separates the
      * value from the parameters and optionally populates a map with the parameters. For example:
@@ -1009,6 +1106,7 @@ public class HttpFields implements Iterable<HttpField>
             _size--;
             System.arraycopy(_fields, _current + 1, _fields, _current, _size - _current);
             _fields[_size] = null;
+            _index = null;
             _cursor = _current;
             _current = -1;
         }
@@ -1046,6 +1144,7 @@ public class HttpFields implements Iterable<HttpField>
             if (_current < 0)
                 throw new IllegalStateException();
             _fields[_current] = field;
+            _index = null;
         }
 
         @Override
@@ -1055,6 +1154,7 @@ public class HttpFields implements Iterable<HttpField>
             System.arraycopy(_fields, _cursor, _fields, _cursor + 1, _size++);
             _fields[_cursor++] = field;
             _current = -1;
+            _index = null;
         }
     }
 }
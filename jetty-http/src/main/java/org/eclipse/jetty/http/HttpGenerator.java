@@ -605,7 +605,17 @@ public class HttpGenerator
                 HttpField field = fields.getField(f);
                 HttpHeader h = field.getHeader();
                 if (h == null)
+                {
+                    if (field instanceof PreEncodedHttpFields)
+                    {
+                        PreEncodedHttpFields template = (PreEncodedHttpFields)field;
+                        if (template.hasField(HttpHeader.SERVER))
+                            send = send & ~SEND_SERVER;
+                        if (template.hasField(HttpHeader.CONTENT_TYPE))
+                            contentType = true;
+                    }
                     putTo(field, header);
+                }
                 else
                 {
                     switch (h)
@@ -18,6 +18,8 @@
 
 package org.eclipse.jetty.http;
 
+import java.nio.ByteBuffer;
+
 import org.eclipse.jetty.util.TypeUtil;
 
 /**
@@ -119,6 +121,7 @@ public class HttpTokens
     }
 
     public static final Token[] TOKENS = new Token[256];
+    private static final boolean[] TCHARS = new boolean[256];
 
     static
     {
@@ -186,7 +189,60 @@ public class HttpTokens
                     else
                         TOKENS[b] = new Token((byte)b, Type.CNTL);
             }
+
+            Type type = TOKENS[b].getType();
+            TCHARS[b] = type == Type.ALPHA || type == Type.DIGIT || type == Type.TCHAR;
+        }
+    }
+
+    /**
+     * <p>Counts the bytes, starting at the given index, that are field value characters
+     * that need no special handling, that is SPACE, COLON, DIGIT, ALPHA, TCHAR or VCHAR.</p>
+     * <p>The bytes are scanned a word at a time: a word of 8 bytes contains only such characters
+     * if none of its bytes is below SPACE (which includes CR, LF and HTAB), equal to DEL or
+     * greater than DEL (obs-text), which is tested with a few arithmetic operations on the word.</p>
+     *
+     * @param buffer the buffer to scan
+     * @param index the index of the first byte to scan
+     * @param limit the index after the last byte to scan
+     * @return the number of field value characters found before a byte that needs special handling
+     */
+    static int countFieldValueChars(ByteBuffer buffer, int index, int limit)
+    {
+        int i = index;
+        while (i + Long.BYTES <= limit)
+        {
+            long word = buffer.getLong(i);
+            // The high bit of a byte is set if the byte is obs-text, below SPACE or DEL.
+            long special = word | (word - 0x2020202020202020L) | ((word ^ 0x7F7F7F7F7F7F7F7FL) - 0x0101010101010101L);
+            if ((special & 0x8080808080808080L) != 0)
+                break;
+            i += Long.BYTES;
+        }
+        while (i < limit)
+        {
+            int b = buffer.get(i) & 0xFF;
+            if (b < SPACE || b >= 0x7F)
+                break;
+            ++i;
+        }
+        return i - index;
+    }
+
+    /**
+     * @param buffer the buffer to scan
+     * @param index the index of the first byte to scan
+     * @param limit the index after the last byte to scan
+     * @return the number of token characters (ALPHA, DIGIT or TCHAR) found before any other byte
+     */
+    static int countTokenChars(ByteBuffer buffer, int index, int limit)
+    {
+        int i = index;
+        while (i < limit && TCHARS[buffer.get(i) & 0xFF])
+        {
+            ++i;
         }
+        return i - index;
     }
 }
 
@@ -47,6 +47,11 @@ import org.eclipse.jetty.util.UrlEncoded;
  * <p>Any parameters will be returned from {@link #getPath()}, but are excluded from the
  * return value of {@link #getDecodedPath()}.   If there are multiple parameters, the
  * {@link #getParam()} method returns only the last one.
+ *
+ * <p>Parsing only records the offsets of the path, param, query and fragment in the parsed
+ * string, and the corresponding strings are only created when they are first requested.
+ * When the path has no encoded characters, parameters or dot segments, {@link #getDecodedPath()}
+ * returns the raw path itself, or a substring of the parsed string, without decoding.
  */
 public class HttpURI
 {
@@ -67,6 +72,8 @@ public class HttpURI
 
     ;
 
+    private static final long NO_SPAN = -1L;
+
     private String _scheme;
     private String _user;
     private String _host;
@@ -75,6 +82,22 @@ public class HttpURI
     private String _param;
     private String _query;
     private String _fragment;
+    /**
+     * The string the spans below are offsets into.
+     */
+    private String _source;
+    /**
+     * Each span is the start offset in the upper 32 bits and the end offset in the lower 32 bits
+     * of a component not yet materialized from {@link #_source}, or {@link #NO_SPAN}.
+     */
+    private long _pathSpan = NO_SPAN;
+    private long _paramSpan = NO_SPAN;
+    private long _querySpan = NO_SPAN;
+    private long _fragmentSpan = NO_SPAN;
+    /**
+     * Whether the decoded path is the raw path without the parameters.
+     */
+    private boolean _rawDecodedPath;
 
     String _uri;
     String _decodedPath;
@@ -119,6 +142,11 @@ public class HttpURI
     public HttpURI(HttpURI uri)
     {
         this(uri._scheme, uri._host, uri._port, uri._path, uri._param, uri._query, uri._fragment);
+        _source = uri._source;
+        _pathSpan = uri._pathSpan;
+        _paramSpan = uri._paramSpan;
+        _querySpan = uri._querySpan;
+        _fragmentSpan = uri._fragmentSpan;
         _uri = uri._uri;
     }
 
@@ -182,6 +210,13 @@ public class HttpURI
 
     private void parse(State state, final String uri)
     {
+        if (_source != uri)
+        {
+            // Components not overwritten by this parse must not refer to the previous source.
+            materialize();
+            _source = uri;
+        }
+
         boolean encoded = false;
         int end = uri.length();
         int mark = 0;
@@ -208,6 +243,7 @@ public class HttpURI
                         case '?':
                             // assume empty path (if seen at start)
                             _path = "";
+                            _pathSpan = NO_SPAN;
                             mark = i + 1;
                             state = State.QUERY;
                             break;
@@ -217,6 +253,7 @@ public class HttpURI
                             break;
                         case '*':
                             _path = "*";
+                            _pathSpan = NO_SPAN;
                             state = State.ASTERISK;
                             break;
 
@@ -265,7 +302,7 @@ public class HttpURI
 
                         case '?':
                             // must have been in a path 
-                            _path = uri.substring(mark, i);
+                            setPathSpan(mark, i);
                             mark = i + 1;
                             state = State.QUERY;
                             break;
@@ -278,7 +315,7 @@ public class HttpURI
 
                         case '#':
                             // must have been in a path 
-                            _path = uri.substring(mark, i);
+                            setPathSpan(mark, i);
                             state = State.FRAGMENT;
                             break;
 
@@ -412,12 +449,12 @@ public class HttpURI
                             state = State.PARAM;
                             break;
                         case '?':
-                            _path = uri.substring(pathMark, i);
+                            setPathSpan(pathMark, i);
                             mark = i + 1;
                             state = State.QUERY;
                             break;
                         case '#':
-                            _path = uri.substring(pathMark, i);
+                            setPathSpan(pathMark, i);
                             mark = i + 1;
                             state = State.FRAGMENT;
                             break;
@@ -439,14 +476,14 @@ public class HttpURI
                     switch (c)
                     {
                         case '?':
-                            _path = uri.substring(pathMark, i);
-                            _param = uri.substring(mark, i);
+                            setPathSpan(pathMark, i);
+                            _paramSpan = span(mark, i);
                             mark = i + 1;
                             state = State.QUERY;
                             break;
                         case '#':
-                            _path = uri.substring(pathMark, i);
-                            _param = uri.substring(mark, i);
+                            setPathSpan(pathMark, i);
+                            _paramSpan = span(mark, i);
                             mark = i + 1;
                             state = State.FRAGMENT;
                             break;
@@ -469,7 +506,7 @@ public class HttpURI
                 {
                     if (c == '#')
                     {
-                        _query = uri.substring(mark, i);
+                        _querySpan = span(mark, i);
                         mark = i + 1;
                         state = State.FRAGMENT;
                     }
@@ -483,7 +520,7 @@ public class HttpURI
 
                 case FRAGMENT:
                 {
-                    _fragment = uri.substring(mark, end);
+                    _fragmentSpan = span(mark, end);
                     i = end;
                     break;
                 }
@@ -499,11 +536,11 @@ public class HttpURI
             case START:
                 break;
             case SCHEME_OR_PATH:
-                _path = uri.substring(mark, end);
+                setPathSpan(mark, end);
                 break;
 
             case HOST_OR_PATH:
-                _path = uri.substring(mark, end);
+                setPathSpan(mark, end);
                 break;
 
             case HOST:
@@ -522,33 +559,54 @@ public class HttpURI
                 break;
 
             case FRAGMENT:
-                _fragment = uri.substring(mark, end);
+                _fragmentSpan = span(mark, end);
                 break;
 
             case PARAM:
-                _path = uri.substring(pathMark, end);
-                _param = uri.substring(mark, end);
+                setPathSpan(pathMark, end);
+                _paramSpan = span(mark, end);
                 break;
 
             case PATH:
-                _path = uri.substring(pathMark, end);
+                setPathSpan(pathMark, end);
                 break;
 
             case QUERY:
-                _query = uri.substring(mark, end);
+                _querySpan = span(mark, end);
                 break;
 
             default:
                 throw new IllegalStateException(state.toString());
         }
 
-        if (!encoded)
-        {
-            if (_param == null)
-                _decodedPath = _path;
-            else
-                _decodedPath = _path.substring(0, _path.length() - _param.length() - 1);
-        }
+        _rawDecodedPath = !encoded;
+    }
+
+    private static long span(int start, int end)
+    {
+        return ((long)start << 32) | end;
+    }
+
+    private String substring(long span)
+    {
+        return _source.substring((int)(span >>> 32), (int)span);
+    }
+
+    private void setPathSpan(int start, int end)
+    {
+        _path = null;
+        _pathSpan = span(start, end);
+    }
+
+    /**
+     * Creates the strings of the components that are still only spans of the source.
+     */
+    private void materialize()
+    {
+        getPath();
+        getParam();
+        getQuery();
+        getFragment();
     }
 
     /**
@@ -593,50 +651,92 @@ public class HttpURI
      */
     public String getPath()
     {
+        if (_pathSpan != NO_SPAN)
+        {
+            _path = substring(_pathSpan);
+            _pathSpan = NO_SPAN;
+        }
         return _path;
     }
 
     public String getDecodedPath()
     {
-        if (_decodedPath == null && _path != null)
-            _decodedPath = URIUtil.canonicalPath(URIUtil.decodePath(_path));
+        if (_decodedPath == null)
+        {
+            String path = getPath();
+            if (path != null)
+            {
+                if (_rawDecodedPath)
+                {
+                    String param = getParam();
+                    _decodedPath = param == null ? path : path.substring(0, path.length() - param.length() - 1);
+                }
+                else
+                {
+                    _decodedPath = URIUtil.canonicalPath(URIUtil.decodePath(path));
+                }
+            }
+        }
         return _decodedPath;
     }
 
     public String getParam()
     {
+        if (_paramSpan != NO_SPAN)
+        {
+            _param = substring(_paramSpan);
+            _paramSpan = NO_SPAN;
+        }
         return _param;
     }
 
     public void setParam(String param)
     {
+        // The decoded path does not change with the param.
+        if (_rawDecodedPath)
+            getDecodedPath();
+        String path = getPath();
         _param = param;
-        if (_path != null && !_path.contains(_param))
+        _paramSpan = NO_SPAN;
+        if (path != null && !path.contains(_param))
         {
-            _path += ";" + _param;
+            _path = path + ";" + _param;
         }
     }
 
     public String getQuery()
     {
+        if (_querySpan != NO_SPAN)
+        {
+            _query = substring(_querySpan);
+            _querySpan = NO_SPAN;
+        }
         return _query;
     }
 
     public boolean hasQuery()
     {
+        if (_querySpan != NO_SPAN)
+            return (int)(_querySpan >>> 32) < (int)_querySpan;
         return _query != null && !_query.isEmpty();
     }
 
     public String getFragment()
     {
+        if (_fragmentSpan != NO_SPAN)
+        {
+            _fragment = substring(_fragmentSpan);
+            _fragmentSpan = NO_SPAN;
+        }
         return _fragment;
     }
 
     public void decodeQueryTo(MultiMap<String> parameters)
     {
-        if (_query == null)
+        String query = getQuery();
+        if (query == null)
             return;
-        UrlEncoded.decodeUtf8To(_query, parameters);
+        UrlEncoded.decodeUtf8To(query, parameters);
     }
 
     public void decodeQueryTo(MultiMap<String> parameters, String encoding) throws UnsupportedEncodingException
@@ -646,13 +746,14 @@ public class HttpURI
 
     public void decodeQueryTo(MultiMap<String> parameters, Charset encoding) throws UnsupportedEncodingException
     {
-        if (_query == null)
+        String query = getQuery();
+        if (query == null)
             return;
 
         if (encoding == null || StandardCharsets.UTF_8.equals(encoding))
-            UrlEncoded.decodeUtf8To(_query, parameters);
+            UrlEncoded.decodeUtf8To(query, parameters);
         else
-            UrlEncoded.decodeTo(_query, parameters, encoding);
+            UrlEncoded.decodeTo(query, parameters, encoding);
     }
 
     public void clear()
@@ -667,7 +768,14 @@ public class HttpURI
         _query = null;
         _fragment = null;
 
+        _source = null;
+        _pathSpan = NO_SPAN;
+        _paramSpan = NO_SPAN;
+        _querySpan = NO_SPAN;
+        _fragmentSpan = NO_SPAN;
+
         _decodedPath = null;
+        _rawDecodedPath = false;
     }
 
     public boolean isAbsolute()
@@ -696,14 +804,17 @@ public class HttpURI
             if (_port > 0)
                 out.append(':').append(_port);
 
-            if (_path != null)
-                out.append(_path);
+            String path = getPath();
+            if (path != null)
+                out.append(path);
 
-            if (_query != null)
-                out.append('?').append(_query);
+            String query = getQuery();
+            if (query != null)
+                out.append('?').append(query);
 
-            if (_fragment != null)
-                out.append('#').append(_fragment);
+            String fragment = getFragment();
+            if (fragment != null)
+                out.append('#').append(fragment);
 
             if (out.length() > 0)
                 _uri = out.toString();
@@ -747,7 +858,9 @@ public class HttpURI
     {
         _uri = null;
         _path = path;
+        _pathSpan = NO_SPAN;
         _decodedPath = null;
+        _rawDecodedPath = false;
     }
 
     /**
@@ -755,18 +868,17 @@ public class HttpURI
      */
     public void setDecodedPath(String path)
     {
-        _uri = null;
-        _path = URIUtil.encodePath(path);
+        setPath(URIUtil.encodePath(path));
         _decodedPath = path;
     }
 
     public void setPathQuery(String path)
     {
-        _uri = null;
-        _path = null;
-        _decodedPath = null;
+        setPath(null);
         _param = null;
+        _paramSpan = NO_SPAN;
         _fragment = null;
+        _fragmentSpan = NO_SPAN;
         if (path != null)
             parse(State.PATH, path);
     }
@@ -774,6 +886,7 @@ public class HttpURI
     public void setQuery(String query)
     {
         _query = query;
+        _querySpan = NO_SPAN;
         _uri = null;
     }
 
@@ -781,7 +894,8 @@ public class HttpURI
     {
         try
         {
-            return new URI(_scheme, null, _host, _port, _path, _query == null ? null : UrlEncoded.decodeString(_query), _fragment);
+            String query = getQuery();
+            return new URI(_scheme, null, _host, _port, getPath(), query == null ? null : UrlEncoded.decodeString(query), getFragment());
         }
         catch (URISyntaxException x)
         {
@@ -791,9 +905,10 @@ public class HttpURI
 
     public String getPathQuery()
     {
-        if (_query == null)
-            return _path;
-        return _path + "?" + _query;
+        String query = getQuery();
+        if (query == null)
+            return getPath();
+        return getPath() + "?" + query;
     }
 
     public boolean hasAuthority()
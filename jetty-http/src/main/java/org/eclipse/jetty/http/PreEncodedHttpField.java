@@ -103,6 +103,23 @@ public class PreEncodedHttpField extends HttpField
         }
     }
 
+    /**
+     * <p>Creates a field whose encodings are the encodings of the given block of fields.</p>
+     *
+     * @param name the name of the field
+     * @param value the value of the field
+     * @param fields the block of fields to encode
+     * @see HttpFieldPreEncoder#getEncodedFields(List)
+     */
+    PreEncodedHttpField(String name, String value, List<HttpField> fields)
+    {
+        super(null, name, value);
+        for (int i = 0; i < __encoders.length; i++)
+        {
+            _encodedField[i] = __encoders[i].getEncodedFields(fields);
+        }
+    }
+
     public PreEncodedHttpField(HttpHeader header, String value)
     {
         this(header, header.asString(), value);
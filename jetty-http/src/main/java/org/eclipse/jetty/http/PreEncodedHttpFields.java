@@ -0,0 +1,142 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>A template of response fields, pre-encoded once for each version of HTTP.</p>
+ * <p>A template is a fixed set of fields, for example {@code Server}, {@code Content-Type},
+ * {@code Cache-Control} and {@code Vary}, that many responses have in common.
+ * It is added to the response {@link HttpFields} as a single {@link HttpField}, and
+ * the generators write all its fields with a single buffer put, rather than encoding
+ * each field for every response.</p>
+ * <p>The HTTP/2 encoding of the template uses literal representations without indexing,
+ * so that it does not depend on nor modify the HPACK dynamic table of the connection:
+ * this trades some header bytes on the wire for no encoding cost.</p>
+ * <p>The fields of the single template field are not visible to lookups by name in
+ * {@link HttpFields}. {@link #putTo(HttpFields)} removes the fields with the same names
+ * before adding the template, and the few fields that the generators or the server must
+ * see, such as {@code Content-Type} or {@code Server}, are indexed by {@link #getField(HttpHeader)}.
+ * Fields of the template must not be set again once the template has been put.</p>
+ * <p>Templates must not contain fields that the server manages per message, such as
+ * {@code Content-Length}, {@code Transfer-Encoding}, {@code Connection} or {@code Date}.</p>
+ */
+public class PreEncodedHttpFields extends PreEncodedHttpField
+{
+    private static final EnumSet<HttpHeader> FORBIDDEN = EnumSet.of(
+        HttpHeader.CONTENT_LENGTH,
+        HttpHeader.TRANSFER_ENCODING,
+        HttpHeader.CONNECTION,
+        HttpHeader.KEEP_ALIVE,
+        HttpHeader.PROXY_CONNECTION,
+        HttpHeader.UPGRADE,
+        HttpHeader.TE,
+        HttpHeader.DATE);
+
+    private final List<HttpField> _fields;
+    private final Map<HttpHeader, HttpField> _index = new EnumMap<>(HttpHeader.class);
+
+    public PreEncodedHttpFields(HttpField... fields)
+    {
+        this(Arrays.asList(fields));
+    }
+
+    public PreEncodedHttpFields(List<HttpField> fields)
+    {
+        super(join(validate(fields), HttpField::getName), join(fields, HttpField::getValue), fields);
+        _fields = fields.stream()
+            .map(field -> field instanceof PreEncodedHttpField ? field : new PreEncodedHttpField(field.getHeader(), field.getName(), field.getValue()))
+            .collect(Collectors.toUnmodifiableList());
+        for (HttpField field : _fields)
+        {
+            if (field.getHeader() != null)
+                _index.putIfAbsent(field.getHeader(), field);
+        }
+    }
+
+    private static List<HttpField> validate(List<HttpField> fields)
+    {
+        if (fields.isEmpty())
+            throw new IllegalArgumentException("No fields");
+        for (HttpField field : fields)
+        {
+            if (field.getValue() == null)
+                throw new IllegalArgumentException("No value for " + field.getName());
+            if (field.getName().startsWith(":") || FORBIDDEN.contains(field.getHeader()))
+                throw new IllegalArgumentException("Field not allowed in a template: " + field.getName());
+        }
+        return fields;
+    }
+
+    private static String join(List<HttpField> fields, Function<HttpField, String> property)
+    {
+        return fields.stream().map(property).collect(Collectors.joining(","));
+    }
+
+    /**
+     * @return the fields of this template, each pre-encoded
+     */
+    public List<HttpField> getFields()
+    {
+        return _fields;
+    }
+
+    /**
+     * @param header the header to look for
+     * @return the first field of this template for the given header, or null
+     */
+    public HttpField getField(HttpHeader header)
+    {
+        return _index.get(header);
+    }
+
+    /**
+     * @param header the header to look for
+     * @return whether this template has a field for the given header
+     */
+    public boolean hasField(HttpHeader header)
+    {
+        return _index.containsKey(header);
+    }
+
+    /**
+     * <p>Puts this template into the given fields as a single field, after removing
+     * the fields with the same names as the fields of this template.</p>
+     *
+     * @param fields the fields to put this template into
+     */
+    public void putTo(HttpFields fields)
+    {
+        for (HttpField field : _fields)
+        {
+            if (field.getHeader() != null)
+                fields.remove(field.getHeader());
+            else
+                fields.remove(field.getName());
+        }
+        fields.add(this);
+    }
+}
@@ -764,4 +764,88 @@ public class HttpFieldsTest
         assertThat(i.next().getName(), is("name4"));
         assertThat(i.hasNext(), is(false));
     }
+
+    @Test
+    public void testIndexedLookups()
+    {
+        HttpFields fields = new HttpFields();
+        HttpHeader[] headers = HttpHeader.values();
+        for (int i = 0; i < 40; ++i)
+        {
+            fields.add(headers[i], "value" + i);
+            fields.add("X-Custom-" + i, "custom" + i);
+        }
+        fields.add(headers[3], "again");
+
+        for (int i = 0; i < 40; ++i)
+        {
+            assertEquals("value" + i, fields.get(headers[i]));
+            assertTrue(fields.contains(headers[i]));
+        }
+        assertFalse(fields.contains(headers[41]));
+        assertNull(fields.getField(headers[42]));
+        assertThat(fields.getValuesList(headers[3]), Matchers.contains("value3", "again"));
+        assertTrue(fields.contains(headers[3], "again"));
+
+        // Appending keeps the index up to date.
+        fields.add(headers[41], "late");
+        assertEquals("late", fields.get(headers[41]));
+
+        // Removing moves the fields after the removed ones.
+        assertEquals("value3", fields.remove(headers[3]).getValue());
+        assertNull(fields.get(headers[3]));
+        assertFalse(fields.contains(headers[3]));
+        for (int i = 4; i < 40; ++i)
+        {
+            assertEquals("value" + i, fields.get(headers[i]));
+        }
+
+        fields.put(headers[5], "put");
+        assertEquals("put", fields.get(headers[5]));
+
+        fields.remove("X-Custom-0");
+        assertEquals("value0", fields.get(headers[0]));
+        assertEquals("value10", fields.get(headers[10]));
+
+        ListIterator<HttpField> iterator = fields.listIterator();
+        iterator.next();
+        iterator.remove();
+        assertNull(fields.get(headers[0]));
+        assertEquals("value1", fields.get(headers[1]));
+
+        fields.clear();
+        assertEquals(0, fields.size());
+        assertNull(fields.get(headers[1]));
+        fields.add(headers[1], "recycled");
+        assertEquals("recycled", fields.get(headers[1]));
+    }
+
+    @Test
+    public void testIndexedLookupsAfterClear()
+    {
+        HttpFields fields = new HttpFields();
+        HttpHeader[] headers = HttpHeader.values();
+        for (int i = 0; i < 12; ++i)
+        {
+            fields.add(headers[i], "first" + i);
+        }
+        assertEquals("first11", fields.get(headers[11]));
+
+        // The recycled index must not see the fields of the previous request.
+        fields.clear();
+        for (int i = 12; i-- > 0; )
+        {
+            fields.add(headers[i + 6], "second" + i);
+            if (i > 6)
+                assertNull(fields.get(headers[0]));
+        }
+        for (int i = 0; i < 6; ++i)
+        {
+            assertNull(fields.get(headers[i]));
+        }
+        for (int i = 0; i < 12; ++i)
+        {
+            assertEquals("second" + i, fields.get(headers[i + 6]));
+        }
+    }
 }
@@ -110,6 +110,84 @@ public class HttpGeneratorServerTest
         assertThat(response, containsString("\r\n0123456789"));
     }
 
+    @Test
+    public void testPreEncodedTemplate() throws Exception
+    {
+        ByteBuffer header = BufferUtil.allocate(8096);
+        ByteBuffer content = BufferUtil.toBuffer("{}");
+
+        PreEncodedHttpFields template = new PreEncodedHttpFields(
+            new HttpField(HttpHeader.SERVER, "api"),
+            new HttpField(HttpHeader.CONTENT_TYPE, "application/json"),
+            new HttpField(HttpHeader.VARY, "Accept-Encoding"),
+            new HttpField("X-Api-Version", "2"));
+
+        HttpGenerator gen = new HttpGenerator(true, false);
+        MetaData.Response info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, null, new HttpFields(), 2);
+        info.getFields().add(template);
+        info.getFields().add("X-Request-Id", "42");
+
+        HttpGenerator.Result result = gen.generateResponse(info, false, header, null, content, true);
+        assertEquals(HttpGenerator.Result.FLUSH, result);
+        String response = BufferUtil.toString(header);
+
+        assertThat(response, startsWith("HTTP/1.1 200 OK\r\n" +
+            "Server: api\r\n" +
+            "Content-Type: application/json\r\n" +
+            "Vary: Accept-Encoding\r\n" +
+            "X-Api-Version: 2\r\n" +
+            "X-Request-Id: 42\r\n"));
+        assertThat(response, containsString("Content-Length: 2"));
+        // The template Server field replaces the default one.
+        assertThat(response, not(containsString("Jetty")));
+    }
+
+    @Test
+    public void testPreEncodedTemplateReplacesFields() throws Exception
+    {
+        PreEncodedHttpFields template = new PreEncodedHttpFields(
+            new HttpField(HttpHeader.SERVER, "api"),
+            new HttpField(HttpHeader.CONTENT_TYPE, "application/json"),
+            new HttpField(HttpHeader.CACHE_CONTROL, "max-age=60"),
+            new HttpField(HttpHeader.VARY, "Accept-Encoding"));
+        assertEquals("application/json", template.getField(HttpHeader.CONTENT_TYPE).getValue());
+
+        HttpFields fields = new HttpFields();
+        fields.put(HttpHeader.CONTENT_TYPE, "text/plain");
+        fields.put(HttpHeader.CACHE_CONTROL, "no-cache");
+        fields.put("X-Request-Id", "42");
+        template.putTo(fields);
+
+        // The template is put as a single field, in place of the fields it replaces.
+        assertEquals(2, fields.size());
+        assertEquals("X-Request-Id", fields.getField(0).getName());
+        assertSame(template, fields.getField(1));
+
+        ByteBuffer header = BufferUtil.allocate(8096);
+        HttpGenerator gen = new HttpGenerator();
+        MetaData.Response info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, null, fields, 0);
+        HttpGenerator.Result result = gen.generateResponse(info, false, header, null, null, true);
+        assertEquals(HttpGenerator.Result.FLUSH, result);
+        String response = BufferUtil.toString(header);
+
+        assertThat(response, containsString("X-Request-Id: 42\r\n" +
+            "Server: api\r\n" +
+            "Content-Type: application/json\r\n" +
+            "Cache-Control: max-age=60\r\n" +
+            "Vary: Accept-Encoding\r\n"));
+        assertThat(response, not(containsString("text/plain")));
+        assertThat(response, not(containsString("no-cache")));
+        assertThat(response, not(containsString("Jetty")));
+    }
+
+    @Test
+    public void testPreEncodedTemplateForbiddenFields()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new PreEncodedHttpFields(new HttpField(HttpHeader.CONTENT_LENGTH, "10")));
+        assertThrows(IllegalArgumentException.class, () -> new PreEncodedHttpFields(new HttpField(HttpHeader.CONNECTION, "close")));
+        assertThrows(IllegalArgumentException.class, () -> new PreEncodedHttpFields());
+    }
+
     @Test
     public void testHeaderOverflow() throws Exception
     {
@@ -535,6 +535,48 @@ public class HttpParserTest
         assertEquals(9, _headers);
     }
 
+    @Test
+    public void testLongHeaderSplitParse()
+    {
+        String value = "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+        String request = "GET / HTTP/1.0\r\n" +
+            "Accept-Language-Override-Header: " + value + "   \r\n" +
+            "X-Tab: one\ttwo three\r\n" +
+            "\r\n";
+
+        for (int split = 1; split < request.length(); ++split)
+        {
+            _headers = 0;
+            _bad = null;
+            HttpParser.RequestHandler handler = new Handler();
+            HttpParser parser = new HttpParser(handler);
+            parser.parseNext(BufferUtil.toBuffer(request.substring(0, split)));
+            parser.parseNext(BufferUtil.toBuffer(request.substring(split)));
+
+            assertNull(_bad);
+            assertEquals("Accept-Language-Override-Header", _hdr[0]);
+            assertEquals(value, _val[0]);
+            assertEquals("X-Tab", _hdr[1]);
+            assertEquals("one\ttwo three", _val[1]);
+            assertEquals(1, _headers);
+        }
+    }
+
+    @Test
+    public void testLongHeaderTooLarge()
+    {
+        ByteBuffer buffer = BufferUtil.toBuffer(
+            "GET / HTTP/1.0\r\n" +
+                "Header: 0123456789012345678901234567890123456789012345678901234567890123456789\r\n" +
+                "\r\n");
+
+        HttpParser.RequestHandler handler = new Handler();
+        HttpParser parser = new HttpParser(handler, 64);
+        parseAll(parser, buffer);
+
+        assertEquals("431", _bad);
+    }
+
     @Test
     public void testHeaderParseCRLF()
     {
@@ -27,6 +27,7 @@ import org.junit.jupiter.api.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -116,6 +117,39 @@ public class HttpURITest
         assertThat(uri.getPath(), is("/bar"));
     }
 
+    @Test
+    public void testLazyComponents()
+    {
+        HttpURI uri = new HttpURI();
+        uri.parseRequestTarget("GET", "/context/path;jsessionid=12?a=1&b=2#frag");
+
+        assertTrue(uri.hasQuery());
+        assertThat(uri.getDecodedPath(), is("/context/path"));
+        assertThat(uri.getPath(), is("/context/path;jsessionid=12"));
+        assertThat(uri.getParam(), is("jsessionid=12"));
+        assertThat(uri.getQuery(), is("a=1&b=2"));
+        assertThat(uri.getFragment(), is("frag"));
+
+        // The raw path is returned as the decoded path.
+        uri.parseRequestTarget("GET", "/static/app.js");
+        assertThat(uri.getDecodedPath(), sameInstance(uri.getPath()));
+        assertThat(uri.getQuery(), nullValue());
+
+        // A copy keeps the components that are not yet materialized.
+        uri.parseRequestTarget("GET", "/a/b?x=y");
+        HttpURI copy = new HttpURI(uri);
+        assertThat(copy.getPath(), is("/a/b"));
+        assertThat(copy.getQuery(), is("x=y"));
+
+        // Re-parsing only the path keeps the query of the previous source.
+        uri.setPathQuery("/c/d");
+        assertThat(uri.getPath(), is("/c/d"));
+        assertThat(uri.getQuery(), is("x=y"));
+
+        uri.parseRequestTarget("GET", "/a/./b/%2E%2E/c");
+        assertThat(uri.getDecodedPath(), is("/a/c"));
+    }
+
     @Test
     public void testExtB() throws Exception
     {
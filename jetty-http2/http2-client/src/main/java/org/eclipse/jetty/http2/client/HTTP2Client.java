@@ -30,6 +30,7 @@ import java.util.concurrent.Executor;
 import org.eclipse.jetty.alpn.client.ALPNClientConnectionFactory;
 import org.eclipse.jetty.http2.BufferingFlowControlStrategy;
 import org.eclipse.jetty.http2.FlowControlStrategy;
+import org.eclipse.jetty.http2.FrameScheduler;
 import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.SettingsFrame;
@@ -115,6 +116,9 @@ public class HTTP2Client extends ContainerLifeCycle
     private int maxConcurrentPushedStreams = 32;
     private int maxSettingsKeys = SettingsFrame.DEFAULT_MAX_KEYS;
     private FlowControlStrategy.Factory flowControlStrategyFactory = () -> new BufferingFlowControlStrategy(0.5F);
+    private FrameScheduler frameScheduler = FrameScheduler.WEIGHTED;
+    private int coalesceBufferSize = 16 * 1024;
+    private int coalesceThreshold = 2 * 1024;
     private long streamIdleTimeout;
     private boolean useInputDirectByteBuffers = true;
     private boolean useOutputDirectByteBuffers = true;
@@ -175,6 +179,38 @@ public class HTTP2Client extends ContainerLifeCycle
         this.flowControlStrategyFactory = flowControlStrategyFactory;
     }
 
+    public FrameScheduler getFrameScheduler()
+    {
+        return frameScheduler;
+    }
+
+    public void setFrameScheduler(FrameScheduler frameScheduler)
+    {
+        this.frameScheduler = frameScheduler;
+    }
+
+    @ManagedAttribute("The size of the buffers small frames are coalesced into before writing, or 0 to disable coalescing")
+    public int getCoalesceBufferSize()
+    {
+        return coalesceBufferSize;
+    }
+
+    public void setCoalesceBufferSize(int coalesceBufferSize)
+    {
+        this.coalesceBufferSize = coalesceBufferSize;
+    }
+
+    @ManagedAttribute("The max size of the frame buffers that are coalesced before writing")
+    public int getCoalesceThreshold()
+    {
+        return coalesceThreshold;
+    }
+
+    public void setCoalesceThreshold(int coalesceThreshold)
+    {
+        this.coalesceThreshold = coalesceThreshold;
+    }
+
     @ManagedAttribute("The number of selectors")
     public int getSelectors()
     {
@@ -66,6 +66,9 @@ public class HTTP2ClientConnectionFactory implements ClientConnectionFactory
         long streamIdleTimeout = client.getStreamIdleTimeout();
         if (streamIdleTimeout > 0)
             session.setStreamIdleTimeout(streamIdleTimeout);
+        session.setFrameScheduler(client.getFrameScheduler());
+        session.setCoalesceBufferSize(client.getCoalesceBufferSize());
+        session.setCoalesceThreshold(client.getCoalesceThreshold());
 
         Parser parser = new Parser(byteBufferPool, session, 4096, 8192);
         parser.setMaxFrameLength(client.getMaxFrameLength());
@@ -32,6 +32,7 @@ import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
 import org.eclipse.jetty.http2.server.HTTP2ServerConnectionFactory;
 import org.eclipse.jetty.http2.server.RawHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.io.ClientConnector;
 import org.eclipse.jetty.server.ConnectionFactory;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.Server;
@@ -91,7 +92,7 @@ public class AbstractTest
 
     protected void prepareClient()
     {
-        client = new HTTP2Client();
+        client = new HTTP2Client(newClientConnector());
         QueuedThreadPool clientExecutor = new QueuedThreadPool();
         clientExecutor.setName("client");
         client.setExecutor(clientExecutor);
@@ -99,6 +100,11 @@ public class AbstractTest
         client.setInitialStreamRecvWindow(FlowControlStrategy.DEFAULT_WINDOW_SIZE);
     }
 
+    protected ClientConnector newClientConnector()
+    {
+        return new ClientConnector();
+    }
+
     protected Session newClient(Session.Listener listener) throws Exception
     {
         String host = "localhost";
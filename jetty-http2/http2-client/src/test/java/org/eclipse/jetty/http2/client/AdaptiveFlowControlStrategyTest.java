@@ -0,0 +1,152 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.client;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpVersion;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.AdaptiveFlowControlStrategy;
+import org.eclipse.jetty.http2.FlowControlStrategy;
+import org.eclipse.jetty.http2.HTTP2Session;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.api.server.ServerSessionListener;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.server.RawHTTP2ServerConnectionFactory;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.FuturePromise;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveFlowControlStrategyTest extends FlowControlStrategyTest
+{
+    private final AdaptiveFlowControlStrategy.Factory factory = new AdaptiveFlowControlStrategy.Factory(16 * 1024 * 1024, Long.MAX_VALUE);
+
+    @Override
+    protected FlowControlStrategy newFlowControlStrategy()
+    {
+        return factory.newFlowControlStrategy();
+    }
+
+    @Test
+    public void testRecvWindowGrowsWithUpload() throws Exception
+    {
+        AtomicReference<AdaptiveFlowControlStrategy> serverStrategy = upload(new AdaptiveFlowControlStrategy.Factory(16 * 1024 * 1024, Long.MAX_VALUE));
+
+        assertThat(serverStrategy.get().getRecvWindow(), greaterThan(FlowControlStrategy.DEFAULT_WINDOW_SIZE));
+        assertThat(serverStrategy.get().getRecvWindow(), lessThanOrEqualTo(16 * 1024 * 1024));
+    }
+
+    @Test
+    public void testRecvWindowGrowthIsCappedByBudget() throws Exception
+    {
+        int maxMemory = 32 * 1024;
+        AdaptiveFlowControlStrategy.Factory serverFactory = new AdaptiveFlowControlStrategy.Factory(16 * 1024 * 1024, maxMemory);
+        AtomicReference<AdaptiveFlowControlStrategy> serverStrategy = upload(serverFactory);
+
+        assertThat(serverStrategy.get().getRecvWindow(), lessThanOrEqualTo(FlowControlStrategy.DEFAULT_WINDOW_SIZE + maxMemory));
+        assertEquals(maxMemory, serverFactory.getBudget().getReservedMemory());
+
+        // A session started after the budget is used up cannot grow its window.
+        AdaptiveFlowControlStrategy firstStrategy = serverStrategy.get();
+        upload(newClient(new Session.Listener.Adapter()));
+        assertThat(serverStrategy.get(), not(sameInstance(firstStrategy)));
+        assertEquals(FlowControlStrategy.DEFAULT_WINDOW_SIZE, serverStrategy.get().getRecvWindow());
+        assertEquals(maxMemory, serverFactory.getBudget().getReservedMemory());
+
+        // Closing the session releases the reserved memory.
+        client.stop();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (serverFactory.getBudget().getReservedMemory() > 0 && System.nanoTime() < end)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(0, serverFactory.getBudget().getReservedMemory());
+    }
+
+    private AtomicReference<AdaptiveFlowControlStrategy> upload(AdaptiveFlowControlStrategy.Factory serverFactory) throws Exception
+    {
+        AtomicReference<AdaptiveFlowControlStrategy> serverStrategy = new AtomicReference<>();
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                HTTP2Session session = (HTTP2Session)stream.getSession();
+                serverStrategy.set((AdaptiveFlowControlStrategy)session.getFlowControlStrategy());
+                return new Stream.Listener.Adapter()
+                {
+                    @Override
+                    public void onData(Stream stream, DataFrame frame, Callback callback)
+                    {
+                        callback.succeeded();
+                        if (frame.isEndStream())
+                        {
+                            MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields());
+                            stream.headers(new HeadersFrame(stream.getId(), response, null, true), Callback.NOOP);
+                        }
+                    }
+                };
+            }
+        });
+        connector.getConnectionFactory(RawHTTP2ServerConnectionFactory.class).setFlowControlStrategyFactory(serverFactory);
+
+        upload(newClient(new Session.Listener.Adapter()));
+        return serverStrategy;
+    }
+
+    private void upload(Session session) throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        MetaData.Request request = newRequest("POST", new HttpFields());
+        FuturePromise<Stream> promise = new FuturePromise<>();
+        session.newStream(new HeadersFrame(request, null, false), promise, new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                latch.countDown();
+            }
+        });
+        Stream stream = promise.get(5, TimeUnit.SECONDS);
+
+        int chunk = 16 * 1024;
+        for (int i = 0; i < 512; ++i)
+        {
+            boolean last = i == 511;
+            Callback.Completable completable = new Callback.Completable();
+            stream.data(new DataFrame(stream.getId(), ByteBuffer.allocate(chunk), last), completable);
+            completable.get(5, TimeUnit.SECONDS);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -18,21 +18,40 @@
 
 package org.eclipse.jetty.http2.client;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.WritePendingException;
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import org.eclipse.jetty.http2.HTTP2Session;
 import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
 import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.io.ClientConnector;
+import org.eclipse.jetty.io.EndPoint;
+import org.eclipse.jetty.io.ManagedSelector;
+import org.eclipse.jetty.io.SelectorManager;
+import org.eclipse.jetty.io.SocketChannelEndPoint;
 import org.eclipse.jetty.util.Callback;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PingTest extends AbstractTest
 {
+    private final List<Integer> writes = new CopyOnWriteArrayList<>();
+
     @Test
     public void testPing() throws Exception
     {
@@ -57,4 +76,84 @@ public class PingTest extends AbstractTest
 
         assertTrue(latch.await(5, TimeUnit.SECONDS));
     }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testPingsWrittenTogetherAreCoalesced(boolean coalesce) throws Exception
+    {
+        start(new ServerSessionListener.Adapter());
+
+        CountDownLatch warmupLatch = new CountDownLatch(1);
+        int count = 16;
+        Set<Long> replies = ConcurrentHashMap.newKeySet();
+        CountDownLatch latch = new CountDownLatch(count);
+        HTTP2Session session = (HTTP2Session)newClient(new Session.Listener.Adapter()
+        {
+            @Override
+            public void onPing(Session session, PingFrame frame)
+            {
+                if (frame.getPayloadAsLong() < 0)
+                {
+                    warmupLatch.countDown();
+                }
+                else
+                {
+                    replies.add(frame.getPayloadAsLong());
+                    latch.countDown();
+                }
+            }
+        });
+        if (!coalesce)
+            session.setCoalesceBufferSize(0);
+
+        // Make sure that the SETTINGS reply has been written.
+        session.ping(new PingFrame(-1, false), Callback.NOOP);
+        assertTrue(warmupLatch.await(5, TimeUnit.SECONDS));
+        writes.clear();
+
+        // Queue all the PING frames so that they are written together.
+        PingFrame[] frames = new PingFrame[count - 1];
+        for (int i = 1; i < count; ++i)
+        {
+            frames[i - 1] = new PingFrame(i, false);
+        }
+        session.frames(null, Callback.NOOP, new PingFrame(0, false), frames);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(count, replies.size());
+        // All the frames are written in one write, either as
+        // one coalesced buffer or as one buffer per frame.
+        assertEquals(List.of(coalesce ? 1 : count), writes);
+    }
+
+    @Override
+    protected ClientConnector newClientConnector()
+    {
+        return new ClientConnector()
+        {
+            @Override
+            protected SelectorManager newSelectorManager()
+            {
+                return new ClientSelectorManager(getExecutor(), getScheduler(), getSelectors())
+                {
+                    @Override
+                    protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey selectionKey)
+                    {
+                        SocketChannelEndPoint endPoint = new SocketChannelEndPoint(channel, selector, selectionKey, getScheduler())
+                        {
+                            @Override
+                            public void write(Callback callback, ByteBuffer... buffers) throws WritePendingException
+                            {
+                                // Record the number of buffers of each write.
+                                writes.add(buffers.length);
+                                super.write(callback, buffers);
+                            }
+                        };
+                        endPoint.setIdleTimeout(getIdleTimeout().toMillis());
+                        return endPoint;
+                    }
+                };
+            }
+        };
+    }
 }
@@ -18,28 +18,142 @@
 
 package org.eclipse.jetty.http2.client;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritePendingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http2.HTTP2Session;
+import org.eclipse.jetty.http2.IStream;
 import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.http2.api.Stream;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
+import org.eclipse.jetty.http2.frames.DataFrame;
+import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.FrameType;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PingFrame;
 import org.eclipse.jetty.http2.frames.PriorityFrame;
+import org.eclipse.jetty.http2.frames.SettingsFrame;
+import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
+import org.eclipse.jetty.io.ChannelEndPoint;
+import org.eclipse.jetty.io.ManagedSelector;
+import org.eclipse.jetty.io.SocketChannelEndPoint;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.FuturePromise;
 import org.eclipse.jetty.util.Promise;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.junit.jupiter.api.Test;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PriorityTest extends AbstractTest
 {
+    private final Queue<Runnable> heldWrites = new ConcurrentLinkedQueue<>();
+    private final ByteArrayOutputStream serverOutput = new ByteArrayOutputStream();
+    private final CountDownLatch heldLatch = new CountDownLatch(1);
+    private volatile boolean holdWrites;
+
+    @Override
+    protected void prepareServer(ConnectionFactory... connectionFactories)
+    {
+        QueuedThreadPool serverExecutor = new QueuedThreadPool();
+        serverExecutor.setName("server");
+        server = new Server(serverExecutor);
+        connector = new ServerConnector(server, 1, 1, connectionFactories)
+        {
+            @Override
+            protected ChannelEndPoint newEndPoint(SocketChannel channel, ManagedSelector selectSet, SelectionKey key)
+            {
+                SocketChannelEndPoint endPoint = new SocketChannelEndPoint(channel, selectSet, key, getScheduler())
+                {
+                    @Override
+                    public void write(Callback callback, ByteBuffer... buffers) throws WritePendingException
+                    {
+                        // Record the bytes written by the server, to check the order of the frames.
+                        synchronized (serverOutput)
+                        {
+                            for (ByteBuffer buffer : buffers)
+                            {
+                                serverOutput.writeBytes(BufferUtil.toArray(buffer));
+                            }
+                        }
+                        // Hold the write, so that the frames queued meanwhile are scheduled together.
+                        if (holdWrites)
+                        {
+                            heldWrites.offer(() -> super.write(callback, buffers));
+                            heldLatch.countDown();
+                        }
+                        else
+                            super.write(callback, buffers);
+                    }
+                };
+                endPoint.setIdleTimeout(getIdleTimeout());
+                return endPoint;
+            }
+        };
+        server.addConnector(connector);
+    }
+
+    private void releaseWrites()
+    {
+        holdWrites = false;
+        Runnable write;
+        while ((write = heldWrites.poll()) != null)
+        {
+            write.run();
+        }
+    }
+
+    /**
+     * @return the type and the stream id of each frame written by the server
+     */
+    private List<int[]> serverFrames()
+    {
+        byte[] bytes;
+        synchronized (serverOutput)
+        {
+            bytes = serverOutput.toByteArray();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        List<int[]> frames = new ArrayList<>();
+        while (buffer.remaining() >= Frame.HEADER_LENGTH)
+        {
+            int length = (buffer.get() & 0xFF) << 16 | (buffer.get() & 0xFF) << 8 | (buffer.get() & 0xFF);
+            int type = buffer.get() & 0xFF;
+            buffer.get();
+            int streamId = buffer.getInt() & 0x7F_FF_FF_FF;
+            frames.add(new int[]{type, streamId});
+            buffer.position(buffer.position() + length);
+        }
+        return frames;
+    }
+
     @Test
     public void testPriorityBeforeHeaders() throws Exception
     {
@@ -184,4 +298,260 @@ public class PriorityTest extends AbstractTest
 
         assertTrue(latch.await(5, TimeUnit.SECONDS));
     }
+
+    @Test
+    public void testPriorityUpdatesStreamWeight() throws Exception
+    {
+        CountDownLatch headersLatch = new CountDownLatch(1);
+        AtomicInteger headersWeight = new AtomicInteger();
+        AtomicInteger dataWeight = new AtomicInteger();
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                headersWeight.set(((IStream)stream).getWeight());
+                headersLatch.countDown();
+                return new Stream.Listener.Adapter()
+                {
+                    @Override
+                    public void onData(Stream stream, DataFrame frame, Callback callback)
+                    {
+                        callback.succeeded();
+                        if (frame.isEndStream())
+                        {
+                            dataWeight.set(((IStream)stream).getWeight());
+                            MetaData.Response metaData = new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields());
+                            stream.headers(new HeadersFrame(stream.getId(), metaData, null, true), Callback.NOOP);
+                        }
+                    }
+                };
+            }
+        });
+
+        Session session = newClient(new Session.Listener.Adapter());
+        MetaData metaData = newRequest("POST", new HttpFields());
+        HeadersFrame headersFrame = new HeadersFrame(metaData, new PriorityFrame(0, 200, false), false);
+        CountDownLatch responseLatch = new CountDownLatch(1);
+        FuturePromise<Stream> promise = new FuturePromise<>();
+        session.newStream(headersFrame, promise, new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                if (frame.isEndStream())
+                    responseLatch.countDown();
+            }
+        });
+        Stream stream = promise.get(5, TimeUnit.SECONDS);
+        assertTrue(headersLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(200, headersWeight.get());
+
+        session.priority(new PriorityFrame(stream.getId(), 0, 32, false), Callback.NOOP);
+        stream.data(new DataFrame(stream.getId(), BufferUtil.EMPTY_BUFFER, true), Callback.NOOP);
+
+        assertTrue(responseLatch.await(5, TimeUnit.SECONDS));
+        assertEquals(32, dataWeight.get());
+    }
+
+    @Test
+    public void testHeavyStreamRespectsWriteThreshold() throws Exception
+    {
+        // With weight 256, the stream may generate 16 frames per pass,
+        // but the write threshold is checked after every frame.
+        int frames = 16;
+        AtomicLong writes = new AtomicLong();
+        AtomicReference<HTTP2Session> serverSessionRef = new AtomicReference<>();
+        CountDownLatch serverLatch = new CountDownLatch(1);
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                HTTP2Session session = (HTTP2Session)stream.getSession();
+                serverSessionRef.set(session);
+                // Every frame exceeds the write threshold.
+                session.setWriteThreshold(1);
+                long initialWrites = session.getWriteCount();
+                MetaData.Response metaData = new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields());
+                stream.headers(new HeadersFrame(stream.getId(), metaData, null, false), Callback.from(() ->
+                {
+                    ByteBuffer content = ByteBuffer.allocate(frames * Frame.DEFAULT_MAX_LENGTH);
+                    stream.data(new DataFrame(stream.getId(), content, true), Callback.from(() ->
+                    {
+                        writes.set(session.getWriteCount() - initialWrites);
+                        serverLatch.countDown();
+                    }));
+                }));
+                return null;
+            }
+        });
+        // Large windows, so that the server is not stalled by flow control.
+        client.setInitialSessionRecvWindow(1024 * 1024);
+        client.setInitialStreamRecvWindow(1024 * 1024);
+
+        Session session = newClient(new Session.Listener.Adapter());
+        MetaData metaData = newRequest("GET", new HttpFields());
+        HeadersFrame headersFrame = new HeadersFrame(metaData, new PriorityFrame(0, 256, false), true);
+        CountDownLatch latch = new CountDownLatch(1);
+        session.newStream(headersFrame, new Promise.Adapter<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                callback.succeeded();
+                if (frame.isEndStream())
+                    latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(serverLatch.await(5, TimeUnit.SECONDS));
+        assertThat(writes.get(), greaterThanOrEqualTo((long)frames));
+
+        HTTP2Session serverSession = serverSessionRef.get();
+        assertThat(serverSession.getMaxQueueDelay(), greaterThan(0L));
+        assertThat(serverSession.getAverageQueueDelay(), greaterThan(0L));
+        assertThat(serverSession.getAverageQueueDelay(), lessThanOrEqualTo(serverSession.getMaxQueueDelay()));
+    }
+
+    @Test
+    public void testHeavyStreamInterleavedByWeight() throws Exception
+    {
+        // 256 / 16 = 16 frames of the heavy stream for each frame of the light stream.
+        int frames = 64;
+        AtomicReference<Stream> heavyRef = new AtomicReference<>();
+        AtomicReference<Stream> lightRef = new AtomicReference<>();
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                int weight = ((IStream)stream).getWeight();
+                (weight == 256 ? heavyRef : lightRef).set(stream);
+                if (heavyRef.get() != null && lightRef.get() != null)
+                {
+                    Stream heavy = heavyRef.get();
+                    Stream light = lightRef.get();
+                    MetaData.Response metaData = new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields());
+                    heavy.headers(new HeadersFrame(heavy.getId(), metaData, null, false), Callback.from(() ->
+                        light.headers(new HeadersFrame(light.getId(), metaData, null, false), Callback.from(() ->
+                        {
+                            // Hold the first write of DATA frames, so that
+                            // the DATA frames of both streams are queued.
+                            holdWrites = true;
+                            heavy.data(new DataFrame(heavy.getId(), ByteBuffer.allocate(frames * Frame.DEFAULT_MAX_LENGTH), true), Callback.NOOP);
+                            light.data(new DataFrame(light.getId(), ByteBuffer.allocate(frames * Frame.DEFAULT_MAX_LENGTH), true), Callback.NOOP);
+                        }))));
+                }
+                return null;
+            }
+        });
+        // Large windows, so that the server is not stalled by flow control.
+        client.setInitialSessionRecvWindow(16 * 1024 * 1024);
+        client.setInitialStreamRecvWindow(16 * 1024 * 1024);
+
+        Session session = newClient(new Session.Listener.Adapter());
+        CountDownLatch latch = new CountDownLatch(2);
+        for (int weight : new int[]{256, 16})
+        {
+            HeadersFrame headersFrame = new HeadersFrame(newRequest("GET", new HttpFields()), new PriorityFrame(0, weight, false), true);
+            session.newStream(headersFrame, new Promise.Adapter<>(), new Stream.Listener.Adapter()
+            {
+                @Override
+                public void onData(Stream stream, DataFrame frame, Callback callback)
+                {
+                    callback.succeeded();
+                    if (frame.isEndStream())
+                        latch.countDown();
+                }
+            });
+        }
+
+        assertTrue(heldLatch.await(5, TimeUnit.SECONDS));
+        releaseWrites();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        // Count the DATA frames of each stream until one of them is complete.
+        int heavyId = heavyRef.get().getId();
+        int heavy = 0;
+        int light = 0;
+        for (int[] frame : serverFrames())
+        {
+            if (frame[0] != FrameType.DATA.getType())
+                continue;
+            if (frame[1] == heavyId)
+                ++heavy;
+            else
+                ++light;
+            if (heavy == frames || light == frames)
+                break;
+        }
+        assertEquals(frames, heavy);
+        // With a write threshold of 2 frames, the heavy stream still generates
+        // 16 frames for each frame of the light stream, not 2.
+        assertThat(light, greaterThanOrEqualTo(frames / 16 - 1));
+        assertThat(light, lessThanOrEqualTo(frames / 16 + 1));
+    }
+
+    @Test
+    public void testControlFramesOvertakeQueuedData() throws Exception
+    {
+        int frames = 8;
+        AtomicReference<HTTP2Session> sessionRef = new AtomicReference<>();
+        start(new ServerSessionListener.Adapter()
+        {
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame)
+            {
+                sessionRef.set((HTTP2Session)stream.getSession());
+                MetaData.Response metaData = new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields());
+                stream.headers(new HeadersFrame(stream.getId(), metaData, null, false), Callback.from(() ->
+                {
+                    // Hold the first write of DATA frames, so that
+                    // the control frames are queued after the DATA frames.
+                    holdWrites = true;
+                    ByteBuffer content = ByteBuffer.allocate(frames * Frame.DEFAULT_MAX_LENGTH);
+                    stream.data(new DataFrame(stream.getId(), content, true), Callback.NOOP);
+                }));
+                return null;
+            }
+        });
+        client.setInitialSessionRecvWindow(16 * 1024 * 1024);
+        client.setInitialStreamRecvWindow(16 * 1024 * 1024);
+
+        Session session = newClient(new Session.Listener.Adapter());
+        CountDownLatch latch = new CountDownLatch(1);
+        session.newStream(new HeadersFrame(newRequest("GET", new HttpFields()), null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onData(Stream stream, DataFrame frame, Callback callback)
+            {
+                callback.succeeded();
+                if (frame.isEndStream())
+                    latch.countDown();
+            }
+        });
+
+        assertTrue(heldLatch.await(5, TimeUnit.SECONDS));
+        HTTP2Session serverSession = sessionRef.get();
+        serverSession.ping(new PingFrame(0, false), Callback.NOOP);
+        serverSession.settings(new SettingsFrame(new HashMap<>(), false), Callback.NOOP);
+        serverSession.frames(null, Callback.NOOP, new WindowUpdateFrame(0, 1024));
+        int held = serverFrames().size();
+        releaseWrites();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        // The control frames are written right after the held DATA frames,
+        // before the DATA frames that were queued before them.
+        List<int[]> written = serverFrames();
+        assertEquals(FrameType.DATA.getType(), written.get(held - 1)[0]);
+        List<FrameType> next = new ArrayList<>();
+        for (int i = held; i < held + 3; ++i)
+        {
+            next.add(FrameType.from(written.get(i)[0]));
+        }
+        assertThat(next, containsInAnyOrder(FrameType.PING, FrameType.SETTINGS, FrameType.WINDOW_UPDATE));
+        assertEquals(FrameType.DATA.getType(), written.get(held + 3)[0]);
+    }
 }
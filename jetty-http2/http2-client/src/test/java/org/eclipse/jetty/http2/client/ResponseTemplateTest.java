@@ -0,0 +1,203 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2.client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.MetaData;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http.PreEncodedHttpFields;
+import org.eclipse.jetty.http2.api.Session;
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.ResourceService;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.server.handler.ResourceHandler;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDir;
+import org.eclipse.jetty.toolchain.test.jupiter.WorkDirExtension;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.Promise;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(WorkDirExtension.class)
+public class ResponseTemplateTest extends AbstractTest
+{
+    public WorkDir workDir;
+    private final List<List<HttpField>> responseFields = new CopyOnWriteArrayList<>();
+    private final CountDownLatch handledLatch = new CountDownLatch(2);
+
+    private void start(PreEncodedHttpFields template) throws Exception
+    {
+        Path docRoot = workDir.getEmptyPathDir();
+        Files.writeString(docRoot.resolve("file.txt"), "Hello World");
+
+        ResourceService resourceService = new ResourceService();
+        resourceService.setCacheControl(new PreEncodedHttpField(HttpHeader.CACHE_CONTROL, "max-age=60"));
+        resourceService.setResponseTemplate(template);
+        ResourceHandler handler = new ResourceHandler(resourceService);
+        handler.setResourceBase(docRoot.toString());
+
+        HttpConfiguration config = new HttpConfiguration();
+        prepareServer(new HttpConnectionFactory(config), new HTTP2CServerConnectionFactory(config));
+        HandlerWrapper wrapper = new HandlerWrapper()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException
+            {
+                super.handle(target, baseRequest, request, response);
+                responseFields.add(baseRequest.getResponse().getHttpFields().stream().collect(Collectors.toList()));
+                handledLatch.countDown();
+            }
+        };
+        wrapper.setHandler(handler);
+        server.setHandler(wrapper);
+        server.start();
+
+        prepareClient();
+        client.start();
+    }
+
+    @Test
+    public void testTemplateIsWrittenFromSharedBuffer() throws Exception
+    {
+        PreEncodedHttpFields template = new PreEncodedHttpFields(
+            new HttpField(HttpHeader.SERVER, "template"),
+            new HttpField(HttpHeader.CONTENT_TYPE, "application/octet-stream"),
+            new HttpField(HttpHeader.CACHE_CONTROL, "max-age=3600"),
+            new HttpField(HttpHeader.VARY, "Accept-Encoding"),
+            new HttpField("X-Template", "true"));
+        start(template);
+
+        for (HttpFields fields : new HttpFields[]{http11Fields(), http2Fields()})
+        {
+            assertThat(fields.getValuesList(HttpHeader.SERVER), contains("template"));
+            assertThat(fields.getValuesList(HttpHeader.CONTENT_TYPE), contains("application/octet-stream"));
+            assertThat(fields.getValuesList(HttpHeader.CACHE_CONTROL), contains("max-age=3600"));
+            assertThat(fields.getValuesList(HttpHeader.VARY), contains("Accept-Encoding"));
+            assertThat(fields.getValuesList("X-Template"), contains("true"));
+        }
+
+        // The response had the template as a single field, written
+        // from its pre-encoded buffer, and no separate field it replaces.
+        assertTrue(handledLatch.await(5, TimeUnit.SECONDS));
+        assertThat(responseFields.size(), is(2));
+        for (List<HttpField> fields : responseFields)
+        {
+            assertThat(fields.stream().filter(field -> field == template).count(), is(1L));
+            assertThat(fields.stream().filter(field -> field != template && template.getFields().stream()
+                .anyMatch(t -> t.getName().equalsIgnoreCase(field.getName()))).collect(Collectors.toList()), empty());
+        }
+    }
+
+    @Test
+    public void testTemplateFieldsAreSentOnce() throws Exception
+    {
+        PreEncodedHttpFields template = new PreEncodedHttpFields(
+            new HttpField("X-Frame-Options", "DENY"),
+            new HttpField("X-Template", "true"));
+        start(template);
+
+        for (HttpFields fields : new HttpFields[]{http11Fields(), http2Fields()})
+        {
+            assertThat(fields.getValuesList(HttpHeader.SERVER).size(), is(1));
+            assertThat(fields.getValuesList(HttpHeader.SERVER).get(0), startsWith("Jetty"));
+            assertThat(fields.getValuesList(HttpHeader.CONTENT_TYPE), contains("text/plain"));
+            assertThat(fields.getValuesList(HttpHeader.CACHE_CONTROL), contains("max-age=60"));
+            assertThat(fields.getValuesList("X-Frame-Options"), contains("DENY"));
+            assertThat(fields.getValuesList("X-Template"), contains("true"));
+        }
+    }
+
+    private HttpFields http11Fields() throws Exception
+    {
+        try (Socket socket = new Socket("localhost", connector.getLocalPort()))
+        {
+            OutputStream output = socket.getOutputStream();
+            output.write((
+                "GET /file.txt HTTP/1.1\r\n" +
+                "Host: localhost\r\n" +
+                "Connection: close\r\n" +
+                "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            output.flush();
+
+            String response = IO.toString(socket.getInputStream(), StandardCharsets.ISO_8859_1);
+            assertThat(response, startsWith("HTTP/1.1 200 "));
+            HttpFields fields = new HttpFields();
+            String head = response.substring(0, response.indexOf("\r\n\r\n"));
+            String[] lines = head.split("\r\n");
+            for (int i = 1; i < lines.length; ++i)
+            {
+                int colon = lines[i].indexOf(':');
+                fields.add(lines[i].substring(0, colon), lines[i].substring(colon + 1).trim());
+            }
+            return fields;
+        }
+    }
+
+    private HttpFields http2Fields() throws Exception
+    {
+        servletPath = "";
+        Session session = newClient(new Session.Listener.Adapter());
+        MetaData.Request request = newRequest("GET", "/file.txt", new HttpFields());
+        AtomicReference<MetaData.Response> responseRef = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        session.newStream(new HeadersFrame(request, null, true), new Promise.Adapter<>(), new Stream.Listener.Adapter()
+        {
+            @Override
+            public void onHeaders(Stream stream, HeadersFrame frame)
+            {
+                responseRef.set((MetaData.Response)frame.getMetaData());
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        MetaData.Response response = responseRef.get();
+        assertThat(response.getStatus(), is(200));
+        return response.getFields();
+    }
+}
@@ -25,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.frames.PingFrame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
@@ -183,6 +184,17 @@ public abstract class AbstractFlowControlStrategy implements FlowControlStrategy
     {
     }
 
+    @Override
+    public boolean onPingReply(ISession session, PingFrame frame)
+    {
+        return false;
+    }
+
+    @Override
+    public void onSessionClosed(ISession session)
+    {
+    }
+
     protected void onSessionStalled(ISession session)
     {
         sessionStall.set(System.nanoTime());
@@ -0,0 +1,504 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jetty.http2.api.Stream;
+import org.eclipse.jetty.http2.frames.Frame;
+import org.eclipse.jetty.http2.frames.PingFrame;
+import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
+import org.eclipse.jetty.util.Atomics;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * <p>A flow control strategy that sizes the receive windows after the
+ * bandwidth-delay product (BDP) of the connection.</p>
+ * <p>When data is received, this strategy sends a PING frame and counts the
+ * bytes received until the PING reply arrives: that count is a sample of
+ * the BDP, since it is the data that the sender was able to put in flight
+ * during one round trip.</p>
+ * <p>When a sample fills most of the current receive window, the window is
+ * likely to be what limits the throughput, so the window is grown to twice
+ * the sample. When consecutive samples use only a small fraction of the
+ * window, the window is halved, down to {@link #DEFAULT_WINDOW_SIZE}.</p>
+ * <p>PING frames are sent at most once per {@code pingInterval}, to stay below
+ * the PING rate that peers accept before they close the connection.</p>
+ * <p>Window changes are applied when the application consumes data: growth
+ * is added to the credit of the next WINDOW_UPDATE frames, while shrinking
+ * withholds the credit of consumed data until the window has the new size.
+ * The stream receive windows follow the session receive window, so that a
+ * single stream can use the whole BDP.</p>
+ * <p>The growth beyond the initial session receive window is reserved from
+ * a {@link Budget} that is typically shared by all the sessions created by
+ * the same {@link Factory}, and released when the window shrinks or the
+ * session is closed, so that the memory that peers may make the sessions
+ * buffer is capped.</p>
+ */
+@ManagedObject
+public class AdaptiveFlowControlStrategy extends AbstractFlowControlStrategy
+{
+    private final AtomicInteger sessionCapacity = new AtomicInteger(DEFAULT_WINDOW_SIZE);
+    private final AtomicInteger sessionLevel = new AtomicInteger();
+    private final Map<IStream, StreamWindow> streamWindows = new ConcurrentHashMap<>();
+    private final AtomicLong pingTime = new AtomicLong();
+    private final AtomicInteger sample = new AtomicInteger();
+    private final long pingPayload = ThreadLocalRandom.current().nextLong();
+    private final Budget budget;
+    private final int maxRecvWindow;
+    private final float bufferRatio;
+    private final long pingIntervalNanos;
+    private volatile int recvWindow;
+    private volatile long lastPingTime;
+    private volatile long rtt;
+    private int initialRecvWindow;
+    private double maxBandwidth;
+    private int smallSamples;
+    private int reserved;
+    private boolean closed;
+
+    public AdaptiveFlowControlStrategy(int maxRecvWindow)
+    {
+        this(DEFAULT_WINDOW_SIZE, maxRecvWindow, 0.5F, 100, null);
+    }
+
+    /**
+     * @param initialStreamSendWindow the initial stream send window
+     * @param maxRecvWindow the max size of the session and stream receive windows
+     * @param bufferRatio the ratio of the window that must be consumed before sending a WINDOW_UPDATE frame
+     * @param pingInterval the min interval, in milliseconds, between BDP samples
+     * @param budget the budget to reserve window growth from, or null for no memory cap
+     */
+    public AdaptiveFlowControlStrategy(int initialStreamSendWindow, int maxRecvWindow, float bufferRatio, long pingInterval, Budget budget)
+    {
+        super(initialStreamSendWindow);
+        if (maxRecvWindow < DEFAULT_WINDOW_SIZE)
+            throw new IllegalArgumentException("Invalid max receive window " + maxRecvWindow);
+        this.maxRecvWindow = maxRecvWindow;
+        this.bufferRatio = bufferRatio;
+        this.pingIntervalNanos = TimeUnit.MILLISECONDS.toNanos(pingInterval);
+        this.budget = budget;
+        this.lastPingTime = System.nanoTime() - pingIntervalNanos;
+    }
+
+    @ManagedAttribute(value = "The max size of the receive windows", readonly = true)
+    public int getMaxRecvWindow()
+    {
+        return maxRecvWindow;
+    }
+
+    @ManagedAttribute(value = "The ratio between the receive buffer and the consume buffer", readonly = true)
+    public float getBufferRatio()
+    {
+        return bufferRatio;
+    }
+
+    @ManagedAttribute(value = "The size of the receive windows estimated from the BDP, or 0 if not yet estimated", readonly = true)
+    public int getRecvWindow()
+    {
+        return recvWindow;
+    }
+
+    @ManagedAttribute(value = "The last round trip time, in microseconds", readonly = true)
+    public long getRoundTripTime()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(rtt);
+    }
+
+    @Override
+    public void onStreamCreated(IStream stream)
+    {
+        super.onStreamCreated(stream);
+        streamWindows.put(stream, new StreamWindow(getInitialStreamRecvWindow()));
+    }
+
+    @Override
+    public void onStreamDestroyed(IStream stream)
+    {
+        streamWindows.remove(stream);
+        super.onStreamDestroyed(stream);
+    }
+
+    @Override
+    public void updateInitialStreamWindow(ISession session, int initialStreamWindow, boolean local)
+    {
+        int delta = initialStreamWindow - getInitialStreamRecvWindow();
+        super.updateInitialStreamWindow(session, initialStreamWindow, local);
+        if (local && delta != 0)
+        {
+            for (Stream stream : session.getStreams())
+            {
+                StreamWindow streamWindow = streamWindows.get((IStream)stream);
+                if (streamWindow != null)
+                    streamWindow.capacity.addAndGet(delta);
+            }
+        }
+    }
+
+    @Override
+    public void onDataReceived(ISession session, IStream stream, int length)
+    {
+        super.onDataReceived(session, stream, length);
+        if (length <= 0)
+            return;
+        // Do not sample if the peer exceeded the windows, the session is going to fail.
+        if (session.updateRecvWindow(0) < 0 || (stream != null && stream.updateRecvWindow(0) < 0))
+            return;
+
+        if (pingTime.get() != 0)
+        {
+            sample.addAndGet(length);
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (now - lastPingTime < pingIntervalNanos)
+            return;
+        if (!pingTime.compareAndSet(0, now))
+        {
+            sample.addAndGet(length);
+            return;
+        }
+        sample.set(length);
+        lastPingTime = now;
+        if (LOG.isDebugEnabled())
+            LOG.debug("Sampling BDP for {}", session);
+        session.ping(new PingFrame(pingPayload, false), new Callback()
+        {
+            @Override
+            public void failed(Throwable x)
+            {
+                pingTime.set(0);
+            }
+        });
+    }
+
+    @Override
+    public boolean onPingReply(ISession session, PingFrame frame)
+    {
+        if (frame.getPayloadAsLong() != pingPayload)
+            return false;
+        long time = pingTime.get();
+        if (time == 0)
+            return true;
+        long rtt = Math.max(1, System.nanoTime() - time);
+        int bytes = sample.get();
+        pingTime.set(0);
+        onSample(session, bytes, rtt);
+        return true;
+    }
+
+    private void onSample(ISession session, int bytes, long rtt)
+    {
+        this.rtt = rtt;
+        synchronized (this)
+        {
+            // A late PING reply must not reserve memory that would never be released.
+            if (closed)
+                return;
+
+            int current = recvWindow > 0 ? recvWindow : sessionCapacity.get();
+            double bandwidth = (double)bytes / rtt;
+            if (bandwidth > maxBandwidth)
+                maxBandwidth = bandwidth;
+
+            int wanted = current;
+            if (bytes >= current / 3 * 2)
+            {
+                // The window limits the bytes in flight: grow it, unless
+                // the RTT is inflated by queueing rather than by the path.
+                smallSamples = 0;
+                if (bandwidth >= maxBandwidth)
+                    wanted = (int)Math.min(maxRecvWindow, 2L * bytes);
+            }
+            else if (bytes < current / 4)
+            {
+                if (++smallSamples >= 3)
+                {
+                    smallSamples = 0;
+                    maxBandwidth = bandwidth;
+                    wanted = Math.max(DEFAULT_WINDOW_SIZE, current / 2);
+                }
+            }
+            else
+            {
+                smallSamples = 0;
+            }
+
+            if (recvWindow == 0)
+                initialRecvWindow = current;
+
+            if (wanted != current)
+            {
+                // Only the growth beyond the initial window is reserved.
+                int delta = Math.max(0, wanted - initialRecvWindow) - reserved;
+                if (delta > 0)
+                    reserved += budget == null ? delta : budget.reserve(delta);
+                else if (delta < 0)
+                    release(-delta);
+                // The budget may grant less than asked, possibly nothing.
+                recvWindow = Math.min(wanted, initialRecvWindow + reserved);
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("BDP sample {} bytes in {} us, recv window {} -> {} for {}", bytes, TimeUnit.NANOSECONDS.toMicros(rtt), current, recvWindow, session);
+        }
+    }
+
+    private void release(int bytes)
+    {
+        reserved -= bytes;
+        if (budget != null)
+            budget.release(bytes);
+    }
+
+    @Override
+    public void onSessionClosed(ISession session)
+    {
+        super.onSessionClosed(session);
+        synchronized (this)
+        {
+            closed = true;
+            release(reserved);
+        }
+    }
+
+    @Override
+    public void onDataConsumed(ISession session, IStream stream, int length)
+    {
+        if (length <= 0)
+            return;
+
+        int window = recvWindow;
+        float ratio = bufferRatio;
+
+        int level = sessionLevel.addAndGet(length);
+        int capacity = sessionCapacity.get();
+        int target = window > 0 ? window : capacity;
+        int maxLevel = (int)(Math.min(capacity, target) * ratio);
+        if (level > maxLevel || target > capacity)
+        {
+            if (sessionLevel.compareAndSet(level, 0))
+            {
+                // Growth is added to the credit, shrinking withholds it.
+                int credit = Math.max(0, level + target - capacity);
+                sessionCapacity.addAndGet(credit - level);
+                if (credit > 0)
+                {
+                    session.updateRecvWindow(credit);
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Data consumed, {} bytes, updated session recv window by {}/{} for {}", length, credit, target, session);
+                    session.frames(null, Callback.NOOP, new WindowUpdateFrame(0, credit), Frame.EMPTY_ARRAY);
+                }
+            }
+        }
+
+        if (stream != null)
+        {
+            if (stream.isRemotelyClosed())
+            {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Data consumed, {} bytes, ignoring update stream recv window for remotely closed {}", length, stream);
+            }
+            else
+            {
+                StreamWindow streamWindow = streamWindows.get(stream);
+                if (streamWindow != null)
+                {
+                    level = streamWindow.level.addAndGet(length);
+                    capacity = streamWindow.capacity.get();
+                    target = window > 0 ? window : getInitialStreamRecvWindow();
+                    maxLevel = (int)(Math.min(capacity, target) * ratio);
+                    if (level > maxLevel || target > capacity)
+                    {
+                        level = streamWindow.level.getAndSet(0);
+                        int credit = Math.max(0, level + target - capacity);
+                        streamWindow.capacity.addAndGet(credit - level);
+                        if (credit > 0)
+                        {
+                            stream.updateRecvWindow(credit);
+                            if (LOG.isDebugEnabled())
+                                LOG.debug("Data consumed, {} bytes, updated stream recv window by {}/{} for {}", length, credit, target, stream);
+                            session.frames(stream, Callback.NOOP, new WindowUpdateFrame(stream.getId(), credit), Frame.EMPTY_ARRAY);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void windowUpdate(ISession session, IStream stream, WindowUpdateFrame frame)
+    {
+        super.windowUpdate(session, stream, frame);
+        // Tracks the initial session window enlargement sent with the preface.
+        if (frame.getStreamId() == 0)
+            Atomics.updateMax(sessionCapacity, session.updateRecvWindow(0));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x[recvWindow=%d/%d,rtt=%dus,sessionStallTime=%dms,streamsStallTime=%dms]",
+            getClass().getSimpleName(),
+            hashCode(),
+            recvWindow,
+            maxRecvWindow,
+            getRoundTripTime(),
+            getSessionStallTime(),
+            getStreamsStallTime());
+    }
+
+    private static class StreamWindow
+    {
+        private final AtomicInteger level = new AtomicInteger();
+        private final AtomicInteger capacity;
+
+        private StreamWindow(int capacity)
+        {
+            this.capacity = new AtomicInteger(capacity);
+        }
+    }
+
+    /**
+     * <p>The memory that sessions may reserve to grow their receive windows.</p>
+     */
+    @ManagedObject
+    public static class Budget
+    {
+        private final AtomicLong reserved = new AtomicLong();
+        private final long maxMemory;
+
+        /**
+         * @param maxMemory the max memory, in bytes, that can be reserved
+         */
+        public Budget(long maxMemory)
+        {
+            this.maxMemory = maxMemory;
+        }
+
+        @ManagedAttribute(value = "The max memory that can be reserved", readonly = true)
+        public long getMaxMemory()
+        {
+            return maxMemory;
+        }
+
+        @ManagedAttribute(value = "The memory currently reserved", readonly = true)
+        public long getReservedMemory()
+        {
+            return reserved.get();
+        }
+
+        /**
+         * @param bytes the number of bytes to reserve
+         * @return the number of bytes actually reserved, possibly less than requested
+         */
+        public int reserve(int bytes)
+        {
+            while (true)
+            {
+                long current = reserved.get();
+                int granted = (int)Math.max(0, Math.min(bytes, maxMemory - current));
+                if (granted == 0 || reserved.compareAndSet(current, current + granted))
+                    return granted;
+            }
+        }
+
+        public void release(int bytes)
+        {
+            reserved.addAndGet(-bytes);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x[reserved=%d/%d]", getClass().getSimpleName(), hashCode(), getReservedMemory(), getMaxMemory());
+        }
+    }
+
+    /**
+     * <p>A factory of {@link AdaptiveFlowControlStrategy} instances that
+     * share the same {@link Budget}.</p>
+     */
+    @ManagedObject
+    public static class Factory implements FlowControlStrategy.Factory
+    {
+        private final Budget budget;
+        private final int maxRecvWindow;
+        private float bufferRatio = 0.5F;
+        private long pingInterval = 100;
+
+        /**
+         * @param maxRecvWindow the max size of the session and stream receive windows
+         * @param maxMemory the max memory, in bytes, that all sessions may reserve to grow their receive windows
+         */
+        public Factory(int maxRecvWindow, long maxMemory)
+        {
+            this.maxRecvWindow = maxRecvWindow;
+            this.budget = new Budget(maxMemory);
+        }
+
+        @ManagedAttribute(value = "The budget shared by the sessions", readonly = true)
+        public Budget getBudget()
+        {
+            return budget;
+        }
+
+        @ManagedAttribute(value = "The max size of the receive windows", readonly = true)
+        public int getMaxRecvWindow()
+        {
+            return maxRecvWindow;
+        }
+
+        @ManagedAttribute("The ratio between the receive buffer and the consume buffer")
+        public float getBufferRatio()
+        {
+            return bufferRatio;
+        }
+
+        public void setBufferRatio(float bufferRatio)
+        {
+            this.bufferRatio = bufferRatio;
+        }
+
+        @ManagedAttribute("The min interval, in milliseconds, between BDP samples")
+        public long getPingInterval()
+        {
+            return pingInterval;
+        }
+
+        public void setPingInterval(long pingInterval)
+        {
+            this.pingInterval = pingInterval;
+        }
+
+        @Override
+        public FlowControlStrategy newFlowControlStrategy()
+        {
+            return new AdaptiveFlowControlStrategy(DEFAULT_WINDOW_SIZE, getMaxRecvWindow(), getBufferRatio(), getPingInterval(), getBudget());
+        }
+    }
+}
@@ -18,6 +18,7 @@
 
 package org.eclipse.jetty.http2;
 
+import org.eclipse.jetty.http2.frames.PingFrame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
 
 public interface FlowControlStrategy
@@ -42,6 +43,25 @@ public interface FlowControlStrategy
 
     public void onDataSent(IStream stream, int length);
 
+    /**
+     * <p>Invoked when a PING reply is received, so that strategies that
+     * send their own PING frames can measure the round trip time.</p>
+     *
+     * @param session the session that received the PING reply
+     * @param frame the PING reply
+     * @return true if the PING reply was sent in response to a PING
+     * of this strategy and must not be notified to the application
+     */
+    public boolean onPingReply(ISession session, PingFrame frame);
+
+    /**
+     * <p>Invoked when the session is closed, so that strategies can
+     * release the resources they have reserved for the session.</p>
+     *
+     * @param session the closed session
+     */
+    public void onSessionClosed(ISession session);
+
     public interface Factory
     {
         public FlowControlStrategy newFlowControlStrategy();
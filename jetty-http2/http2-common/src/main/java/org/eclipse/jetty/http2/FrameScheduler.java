@@ -0,0 +1,61 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import org.eclipse.jetty.http2.frames.PriorityFrame;
+
+/**
+ * <p>Decides how many frames each pending entry of a {@link HTTP2Flusher} may generate
+ * every time the flusher goes over its pending entries, so that the bandwidth of a session
+ * is shared between its streams.</p>
+ * <p>A pass may span several writes: when the {@link HTTP2Session#getWriteThreshold() write threshold}
+ * is reached in the middle of a pass, the next write resumes it, and entries keep the frames left
+ * in their quantum, so that the shares of the streams do not depend on the write threshold.</p>
+ * <p>Control frames, such as SETTINGS, PING or WINDOW_UPDATE, are always generated before
+ * the frames of the streams, and are not subject to the scheduler.</p>
+ */
+@FunctionalInterface
+public interface FrameScheduler
+{
+    /**
+     * <p>Every stream generates one frame per pass, so streams have the same share of the session.</p>
+     */
+    FrameScheduler ROUND_ROBIN = entry -> 1;
+
+    /**
+     * <p>Every stream generates a number of frames per pass proportional to its weight,
+     * one frame for every {@link PriorityFrame#DEFAULT_WEIGHT default weight} units,
+     * so that a stream with weight 256 generates 16 frames for each frame of a stream
+     * with the default weight.</p>
+     */
+    FrameScheduler WEIGHTED = entry ->
+    {
+        IStream stream = entry.stream;
+        if (stream == null)
+            return 1;
+        int weight = stream.getWeight();
+        return Math.max(1, (weight + PriorityFrame.DEFAULT_WEIGHT - 1) / PriorityFrame.DEFAULT_WEIGHT);
+    };
+
+    /**
+     * @param entry the entry to generate frames for
+     * @return the max number of frames that the entry may generate in a pass, at least 1
+     */
+    int getQuantum(HTTP2Flusher.Entry entry);
+}
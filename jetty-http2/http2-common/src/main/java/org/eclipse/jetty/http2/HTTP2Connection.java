@@ -31,6 +31,7 @@ import org.eclipse.jetty.io.AbstractConnection;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.RetainableByteBuffer;
+import org.eclipse.jetty.io.RetainableByteBufferPool;
 import org.eclipse.jetty.io.WriteFlusher;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
@@ -51,7 +52,7 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
     private final Queue<Runnable> tasks = new ArrayDeque<>();
     private final HTTP2Producer producer = new HTTP2Producer();
     private final AtomicLong bytesIn = new AtomicLong();
-    private final ByteBufferPool byteBufferPool;
+    private final RetainableByteBufferPool retainableByteBufferPool;
     private final Parser parser;
     private final ISession session;
     private final int bufferSize;
@@ -62,7 +63,7 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
     public HTTP2Connection(ByteBufferPool byteBufferPool, Executor executor, EndPoint endPoint, Parser parser, ISession session, int bufferSize)
     {
         super(endPoint, executor);
-        this.byteBufferPool = byteBufferPool;
+        this.retainableByteBufferPool = byteBufferPool.asRetainableByteBufferPool();
         this.parser = parser;
         this.session = session;
         this.bufferSize = bufferSize;
@@ -232,7 +233,7 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
     protected class HTTP2Producer implements ExecutionStrategy.Producer
     {
         private final Callback fillableCallback = new FillableCallback();
-        private NetworkBuffer networkBuffer;
+        private RetainableByteBuffer networkBuffer;
         private boolean shutdown;
         private boolean failed;
 
@@ -240,7 +241,7 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
         {
             acquireNetworkBuffer();
             // TODO handle buffer overflow?
-            networkBuffer.put(byteBuffer);
+            BufferUtil.append(networkBuffer.getBuffer(), byteBuffer);
         }
 
         @Override
@@ -319,7 +320,7 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
         {
             if (networkBuffer == null)
             {
-                networkBuffer = new NetworkBuffer();
+                networkBuffer = newNetworkBuffer();
                 if (LOG.isDebugEnabled())
                     LOG.debug("Acquired {}", networkBuffer);
             }
@@ -327,7 +328,7 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
 
         private void reacquireNetworkBuffer()
         {
-            NetworkBuffer currentBuffer = networkBuffer;
+            RetainableByteBuffer currentBuffer = networkBuffer;
             if (currentBuffer == null)
                 throw new IllegalStateException();
 
@@ -335,14 +336,19 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
                 throw new IllegalStateException();
 
             currentBuffer.release();
-            networkBuffer = new NetworkBuffer();
+            networkBuffer = newNetworkBuffer();
             if (LOG.isDebugEnabled())
                 LOG.debug("Reacquired {}<-{}", currentBuffer, networkBuffer);
         }
 
+        private RetainableByteBuffer newNetworkBuffer()
+        {
+            return retainableByteBufferPool.acquire(bufferSize, isUseInputDirectByteBuffers());
+        }
+
         private void releaseNetworkBuffer()
         {
-            NetworkBuffer currentBuffer = networkBuffer;
+            RetainableByteBuffer currentBuffer = networkBuffer;
             if (currentBuffer == null)
                 throw new IllegalStateException();
 
@@ -393,9 +399,9 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
         @Override
         public void onData(DataFrame frame)
         {
-            NetworkBuffer networkBuffer = producer.networkBuffer;
-            networkBuffer.retain();
-            Callback callback = networkBuffer;
+            // The frame data is a slice of the network buffer,
+            // that is retained until the frame is consumed.
+            Callback callback = producer.networkBuffer.retainSlice();
             session.onData(frame, callback);
         }
 
@@ -406,44 +412,4 @@ public class HTTP2Connection extends AbstractConnection implements WriteFlusher.
             super.onConnectionFailure(error, reason);
         }
     }
-
-    private class NetworkBuffer extends RetainableByteBuffer implements Callback
-    {
-        private NetworkBuffer()
-        {
-            super(byteBufferPool, bufferSize, isUseInputDirectByteBuffers());
-        }
-
-        private void put(ByteBuffer source)
-        {
-            BufferUtil.append(getBuffer(), source);
-        }
-
-        @Override
-        public void succeeded()
-        {
-            completed(null);
-        }
-
-        @Override
-        public void failed(Throwable failure)
-        {
-            completed(failure);
-        }
-
-        private void completed(Throwable failure)
-        {
-            if (release() == 0)
-            {
-                if (LOG.isDebugEnabled())
-                    LOG.debug("Released retained " + this, failure);
-            }
-        }
-
-        @Override
-        public InvocationType getInvocationType()
-        {
-            return InvocationType.NON_BLOCKING;
-        }
-    }
 }
@@ -21,18 +21,21 @@ package org.eclipse.jetty.http2;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
 import org.eclipse.jetty.http2.hpack.HpackException;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.EofException;
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.IteratingCallback;
 import org.eclipse.jetty.util.component.Dumpable;
@@ -48,8 +51,18 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     private final Deque<Entry> entries = new ArrayDeque<>();
     private final Queue<Entry> pendingEntries = new ArrayDeque<>();
     private final Set<Entry> processedEntries = new HashSet<>();
+    private final List<ByteBuffer> writeBuffers = new ArrayList<>();
+    private final List<ByteBuffer> coalescedBuffers = new ArrayList<>();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong framesWritten = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong queuedFrames = new AtomicLong();
+    private final AtomicLong totalQueueDelay = new AtomicLong();
+    private final AtomicLong maxQueueDelay = new AtomicLong();
     private final HTTP2Session session;
     private final ByteBufferPool.Lease lease;
+    private int generatedFrames;
+    private long pass;
     private Throwable terminated;
     private Entry stalledEntry;
 
@@ -81,6 +94,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             closed = terminated;
             if (closed == null)
             {
+                entry.queued();
                 entries.offerFirst(entry);
                 if (LOG.isDebugEnabled())
                     LOG.debug("Prepended {}, entries={}", entry, entries.size());
@@ -100,6 +114,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             closed = terminated;
             if (closed == null)
             {
+                entry.queued();
                 entries.offer(entry);
                 if (LOG.isDebugEnabled())
                     LOG.debug("Appended {}, entries={}", entry, entries.size());
@@ -158,80 +173,139 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             return Action.IDLE;
         }
 
+        FrameScheduler scheduler = session.getFrameScheduler();
+        int writeThreshold = session.getWriteThreshold();
         while (true)
         {
             boolean progress = false;
+            boolean served = false;
+            boolean full = false;
 
             if (pendingEntries.isEmpty())
                 break;
 
-            Iterator<Entry> pending = pendingEntries.iterator();
-            while (pending.hasNext())
+            // Urgent control frames are generated first, then the other
+            // frames as many times as allowed by the scheduler in a pass.
+            // A pass may span several writes: when the write threshold is
+            // reached, the pass resumes at the next write, so that entries
+            // keep the frames left in their quantum and the share of each
+            // entry does not depend on the write threshold.
+            for (int round = 0; round < 2; ++round)
             {
-                Entry entry = pending.next();
-                if (LOG.isDebugEnabled())
-                    LOG.debug("Processing {}", entry);
-
-                // If the stream has been reset or removed,
-                // don't send the frame and fail it here.
-                if (entry.isStale())
+                boolean urgent = round == 0;
+                Iterator<Entry> pending = pendingEntries.iterator();
+                while (pending.hasNext() && !full)
                 {
+                    Entry entry = pending.next();
+                    if (entry.isUrgent() != urgent)
+                        continue;
+
                     if (LOG.isDebugEnabled())
-                        LOG.debug("Stale {}", entry);
-                    entry.failed(new EofException("reset"));
-                    pending.remove();
-                    continue;
-                }
+                        LOG.debug("Processing {}", entry);
 
-                try
-                {
-                    if (entry.generate(lease))
+                    // If the stream has been reset or removed,
+                    // don't send the frame and fail it here.
+                    if (entry.isStale())
                     {
                         if (LOG.isDebugEnabled())
-                            LOG.debug("Generated {} frame bytes for {}", entry.getFrameBytesGenerated(), entry);
-
-                        progress = true;
-
-                        processedEntries.add(entry);
-
-                        if (entry.getDataBytesRemaining() == 0)
-                            pending.remove();
+                            LOG.debug("Stale {}", entry);
+                        entry.failed(new EofException("reset"));
+                        pending.remove();
+                        continue;
                     }
-                    else
+
+                    try
                     {
-                        if (session.getSendWindow() <= 0 && stalledEntry == null)
+                        int quantum = urgent ? 1 : entry.credit(pass, scheduler);
+                        if (quantum == 0)
+                        {
+                            // Already generated its quantum in this pass.
+                            served = true;
+                            continue;
+                        }
+                        for (int frames = 0; frames < quantum; ++frames)
                         {
-                            stalledEntry = entry;
-                            if (LOG.isDebugEnabled())
-                                LOG.debug("Flow control stalled at {}", entry);
-                            // Continue to process control frames.
+                            if (entry.generate(lease))
+                            {
+                                if (!urgent)
+                                    --entry.credit;
+                                if (LOG.isDebugEnabled())
+                                    LOG.debug("Generated {} frame bytes for {}", entry.getFrameBytesGenerated(), entry);
+
+                                progress = true;
+                                ++generatedFrames;
+
+                                long queueDelay = entry.generated();
+                                if (queueDelay >= 0)
+                                {
+                                    queuedFrames.incrementAndGet();
+                                    totalQueueDelay.addAndGet(queueDelay);
+                                    maxQueueDelay.accumulateAndGet(queueDelay, Math::max);
+                                }
+                                processedEntries.add(entry);
+
+                                if (entry.getDataBytesRemaining() == 0)
+                                {
+                                    pending.remove();
+                                    break;
+                                }
+
+                                // A large quantum must not overshoot the write threshold.
+                                if (!urgent && lease.getTotalLength() >= writeThreshold)
+                                {
+                                    full = true;
+                                    break;
+                                }
+                            }
+                            else
+                            {
+                                if (session.getSendWindow() <= 0 && stalledEntry == null)
+                                {
+                                    stalledEntry = entry;
+                                    if (LOG.isDebugEnabled())
+                                        LOG.debug("Flow control stalled at {}", entry);
+                                    // Continue to process control frames.
+                                }
+                                break;
+                            }
                         }
                     }
-                }
-                catch (HpackException.StreamException failure)
-                {
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("Failure generating " + entry, failure);
-                    entry.failed(failure);
-                    pending.remove();
-                }
-                catch (Throwable failure)
-                {
-                    // Failure to generate the entry is catastrophic.
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("Failure generating " + entry, failure);
-                    failed(failure);
-                    return Action.SUCCEEDED;
+                    catch (HpackException.StreamException failure)
+                    {
+                        if (LOG.isDebugEnabled())
+                            LOG.debug("Failure generating " + entry, failure);
+                        entry.failed(failure);
+                        pending.remove();
+                    }
+                    catch (Throwable failure)
+                    {
+                        // Failure to generate the entry is catastrophic.
+                        if (LOG.isDebugEnabled())
+                            LOG.debug("Failure generating " + entry, failure);
+                        failed(failure);
+                        return Action.SUCCEEDED;
+                    }
                 }
             }
 
+            // The pass is over once every entry had its turn, or when
+            // flow control stalls, since the stalled entry is moved first.
+            boolean passed = !full;
+            if (passed)
+                ++pass;
+
             if (!progress)
+            {
+                // The entries left had their quantum in the pass
+                // resumed from the previous write, start a new one.
+                if (passed && served)
+                    continue;
                 break;
+            }
 
             if (stalledEntry != null)
                 break;
 
-            int writeThreshold = session.getWriteThreshold();
             if (lease.getTotalLength() >= writeThreshold)
             {
                 if (LOG.isDebugEnabled())
@@ -247,19 +321,130 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             return Action.IDLE;
         }
 
+        long bytes = lease.getTotalLength();
+        coalesce(byteBuffers);
+        writes.incrementAndGet();
+        framesWritten.addAndGet(generatedFrames);
+        bytesWritten.addAndGet(bytes);
+
         if (LOG.isDebugEnabled())
-            LOG.debug("Writing {} buffers ({} bytes) - entries processed/pending {}/{}: {}/{}",
-                byteBuffers.size(),
-                lease.getTotalLength(),
+            LOG.debug("Writing {} buffers ({} frames, {} bytes) - entries processed/pending {}/{}: {}/{}",
+                writeBuffers.size(),
+                generatedFrames,
+                bytes,
                 processedEntries.size(),
                 pendingEntries.size(),
                 processedEntries,
                 pendingEntries);
 
-        session.getEndPoint().write(this, byteBuffers.toArray(EMPTY_BYTE_BUFFERS));
+        session.getEndPoint().write(this, writeBuffers.toArray(EMPTY_BYTE_BUFFERS));
         return Action.SCHEDULED;
     }
 
+    /**
+     * <p>Copies runs of small frame buffers into shared contiguous buffers of
+     * {@link HTTP2Session#getCoalesceBufferSize() coalesce buffer size}, so that
+     * small frames do not each take an entry of the gathering write, nor each
+     * produce a small TLS record.</p>
+     * <p>Buffers larger than the {@link HTTP2Session#getCoalesceThreshold() coalesce
+     * threshold}, typically the content of DATA frames, are written as they are.</p>
+     *
+     * @param byteBuffers the generated frame buffers
+     */
+    private void coalesce(List<ByteBuffer> byteBuffers)
+    {
+        writeBuffers.clear();
+        int bufferSize = session.getCoalesceBufferSize();
+        int threshold = Math.min(bufferSize, session.getCoalesceThreshold());
+        if (bufferSize <= 0 || byteBuffers.size() < 2)
+        {
+            writeBuffers.addAll(byteBuffers);
+            return;
+        }
+
+        ByteBufferPool byteBufferPool = session.getGenerator().getByteBufferPool();
+        ByteBuffer coalesced = null;
+        for (int i = 0; i < byteBuffers.size(); ++i)
+        {
+            ByteBuffer buffer = byteBuffers.get(i);
+            int remaining = buffer.remaining();
+            if (remaining > threshold)
+            {
+                writeBuffers.add(buffer);
+                coalesced = null;
+                continue;
+            }
+
+            if (coalesced == null || BufferUtil.space(coalesced) < remaining)
+            {
+                // Coalescing a single small buffer is only a copy.
+                if (i + 1 == byteBuffers.size() || byteBuffers.get(i + 1).remaining() > threshold)
+                {
+                    writeBuffers.add(buffer);
+                    coalesced = null;
+                    continue;
+                }
+                coalesced = byteBufferPool.acquire(bufferSize, buffer.isDirect());
+                BufferUtil.clear(coalesced);
+                coalescedBuffers.add(coalesced);
+                writeBuffers.add(coalesced);
+            }
+            BufferUtil.append(coalesced, buffer);
+        }
+    }
+
+    private void releaseCoalesced()
+    {
+        if (coalescedBuffers.isEmpty())
+            return;
+        ByteBufferPool byteBufferPool = session.getGenerator().getByteBufferPool();
+        coalescedBuffers.forEach(byteBufferPool::release);
+        coalescedBuffers.clear();
+    }
+
+    /**
+     * @return the number of writes
+     */
+    public long getWriteCount()
+    {
+        return writes.get();
+    }
+
+    /**
+     * @return the average number of frames per write
+     */
+    public double getAverageFramesPerWrite()
+    {
+        long writes = getWriteCount();
+        return writes == 0 ? 0 : (double)framesWritten.get() / writes;
+    }
+
+    /**
+     * @return the average number of bytes per write
+     */
+    public double getAverageBytesPerWrite()
+    {
+        long writes = getWriteCount();
+        return writes == 0 ? 0 : (double)bytesWritten.get() / writes;
+    }
+
+    /**
+     * @return the average time, in nanoseconds, the frames of the streams waited to be generated
+     */
+    public long getAverageQueueDelay()
+    {
+        long frames = queuedFrames.get();
+        return frames == 0 ? 0 : totalQueueDelay.get() / frames;
+    }
+
+    /**
+     * @return the max time, in nanoseconds, a frame of a stream waited to be generated
+     */
+    public long getMaxQueueDelay()
+    {
+        return maxQueueDelay.get();
+    }
+
     void onFlushed(long bytes) throws IOException
     {
         // A single EndPoint write may be flushed multiple times (for example with SSL).
@@ -274,7 +459,7 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     {
         if (LOG.isDebugEnabled())
             LOG.debug("Written {} buffers - entries processed/pending {}/{}: {}/{}",
-                lease.getByteBuffers().size(),
+                writeBuffers.size(),
                 processedEntries.size(),
                 pendingEntries.size(),
                 processedEntries,
@@ -286,6 +471,9 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     private void finish()
     {
         lease.recycle();
+        releaseCoalesced();
+        writeBuffers.clear();
+        generatedFrames = 0;
 
         processedEntries.forEach(Entry::succeeded);
         processedEntries.clear();
@@ -315,6 +503,8 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     protected void onCompleteFailure(Throwable x)
     {
         lease.recycle();
+        releaseCoalesced();
+        writeBuffers.clear();
 
         Throwable closed;
         Set<Entry> allEntries;
@@ -390,6 +580,10 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
     {
         protected final Frame frame;
         protected final IStream stream;
+        private long queueTime;
+        private boolean queued;
+        private long pass = -1;
+        private int credit;
 
         protected Entry(Frame frame, IStream stream, Callback callback)
         {
@@ -420,11 +614,68 @@ public class HTTP2Flusher extends IteratingCallback implements Dumpable
             super.failed(x);
         }
 
+        /**
+         * @param pass the current pass of the flusher
+         * @param scheduler the scheduler that gives the quantum of a new pass
+         * @return the number of frames this entry may still generate in the given pass
+         */
+        private int credit(long pass, FrameScheduler scheduler)
+        {
+            if (this.pass != pass)
+            {
+                this.pass = pass;
+                credit = scheduler.getQuantum(this);
+            }
+            return credit;
+        }
+
         private boolean isStale()
         {
             return !isProtocol() && stream != null && stream.isReset();
         }
 
+        private void queued()
+        {
+            queueTime = System.nanoTime();
+            queued = true;
+        }
+
+        /**
+         * @return the time, in nanoseconds, this entry of a stream waited to be generated
+         * since it was queued, or -1 if this entry has no stream or was not queued
+         */
+        private long generated()
+        {
+            if (!queued)
+                return -1;
+            queued = false;
+            if (stream == null)
+                return -1;
+            long queueDelay = System.nanoTime() - queueTime;
+            stream.addQueueDelay(queueDelay);
+            return queueDelay;
+        }
+
+        /**
+         * @return whether this entry is a control frame that must be generated
+         * before the frames of the streams, even if it has been queued after them
+         */
+        private boolean isUrgent()
+        {
+            switch (frame.getType())
+            {
+                case PREFACE:
+                case SETTINGS:
+                case PING:
+                case WINDOW_UPDATE:
+                case PRIORITY:
+                    return true;
+                default:
+                    // RST_STREAM and GO_AWAY must not overtake the frames queued before them.
+                    return false;
+            }
+        }
+
         private boolean isProtocol()
         {
             switch (frame.getType())
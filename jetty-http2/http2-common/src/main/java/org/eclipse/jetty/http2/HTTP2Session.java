@@ -26,8 +26,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -57,7 +56,6 @@ import org.eclipse.jetty.http2.parser.Parser;
 import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.WriteFlusher;
-import org.eclipse.jetty.util.AtomicBiInteger;
 import org.eclipse.jetty.util.Atomics;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.CountingCallback;
@@ -76,11 +74,9 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 {
     private static final Logger LOG = Log.getLogger(HTTP2Session.class);
 
-    private final ConcurrentMap<Integer, IStream> streams = new ConcurrentHashMap<>();
+    private final StreamTable streams = new StreamTable();
     private final AtomicInteger localStreamIds = new AtomicInteger();
     private final AtomicInteger lastRemoteStreamId = new AtomicInteger();
-    private final AtomicInteger localStreamCount = new AtomicInteger();
-    private final AtomicBiInteger remoteStreamCount = new AtomicBiInteger();
     private final AtomicInteger sendWindow = new AtomicInteger();
     private final AtomicInteger recvWindow = new AtomicInteger();
     private final AtomicReference<CloseState> closed = new AtomicReference<>(CloseState.NOT_CLOSED);
@@ -96,6 +92,9 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
     private long streamIdleTimeout;
     private int initialSessionRecvWindow;
     private int writeThreshold;
+    private int coalesceBufferSize;
+    private int coalesceThreshold;
+    private FrameScheduler frameScheduler;
     private boolean pushEnabled;
     private boolean connectProtocolEnabled;
     private long idleTime;
@@ -117,6 +116,9 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         this.sendWindow.set(FlowControlStrategy.DEFAULT_WINDOW_SIZE);
         this.recvWindow.set(FlowControlStrategy.DEFAULT_WINDOW_SIZE);
         this.writeThreshold = 32 * 1024;
+        this.coalesceBufferSize = 16 * 1024;
+        this.coalesceThreshold = 2 * 1024;
+        this.frameScheduler = FrameScheduler.WEIGHTED;
         this.pushEnabled = true; // SPEC: by default, push is enabled.
         this.idleTime = System.nanoTime();
         addBean(flowControl);
@@ -207,6 +209,68 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         this.writeThreshold = writeThreshold;
     }
 
+    @ManagedAttribute("The size of the buffers small frames are coalesced into before writing, or 0 to disable coalescing")
+    public int getCoalesceBufferSize()
+    {
+        return coalesceBufferSize;
+    }
+
+    public void setCoalesceBufferSize(int coalesceBufferSize)
+    {
+        this.coalesceBufferSize = coalesceBufferSize;
+    }
+
+    @ManagedAttribute("The max size of the frame buffers that are coalesced before writing")
+    public int getCoalesceThreshold()
+    {
+        return coalesceThreshold;
+    }
+
+    public void setCoalesceThreshold(int coalesceThreshold)
+    {
+        this.coalesceThreshold = coalesceThreshold;
+    }
+
+    @ManagedAttribute(value = "The number of writes", readonly = true)
+    public long getWriteCount()
+    {
+        return flusher.getWriteCount();
+    }
+
+    @ManagedAttribute(value = "The average number of frames per write", readonly = true)
+    public double getAverageFramesPerWrite()
+    {
+        return flusher.getAverageFramesPerWrite();
+    }
+
+    @ManagedAttribute(value = "The average number of bytes per write", readonly = true)
+    public double getAverageBytesPerWrite()
+    {
+        return flusher.getAverageBytesPerWrite();
+    }
+
+    @ManagedAttribute(value = "The average time in ns the frames of the streams waited to be generated", readonly = true)
+    public long getAverageQueueDelay()
+    {
+        return flusher.getAverageQueueDelay();
+    }
+
+    @ManagedAttribute(value = "The max time in ns a frame of a stream waited to be generated", readonly = true)
+    public long getMaxQueueDelay()
+    {
+        return flusher.getMaxQueueDelay();
+    }
+
+    public FrameScheduler getFrameScheduler()
+    {
+        return frameScheduler;
+    }
+
+    public void setFrameScheduler(FrameScheduler frameScheduler)
+    {
+        this.frameScheduler = Objects.requireNonNull(frameScheduler);
+    }
+
     public EndPoint getEndPoint()
     {
         return endPoint;
@@ -284,6 +348,10 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
     {
         if (LOG.isDebugEnabled())
             LOG.debug("Received {}", frame);
+
+        IStream stream = getStream(frame.getStreamId());
+        if (stream != null)
+            stream.process(frame, Callback.NOOP);
     }
 
     @Override
@@ -404,7 +472,8 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 
         if (frame.isReply())
         {
-            notifyPing(this, frame);
+            if (!flowControl.onPingReply(this, frame))
+                notifyPing(this, frame);
         }
         else
         {
@@ -768,19 +837,13 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 
     protected IStream createLocalStream(int streamId, MetaData.Request request)
     {
-        while (true)
-        {
-            int localCount = localStreamCount.get();
-            int maxCount = getMaxLocalStreams();
-            if (maxCount >= 0 && localCount >= maxCount)
-                // TODO: remove the dump() in the exception message.
-                throw new IllegalStateException("Max local stream count " + maxCount + " exceeded" + System.lineSeparator() + dump());
-            if (localStreamCount.compareAndSet(localCount, localCount + 1))
-                break;
-        }
+        int maxCount = getMaxLocalStreams();
+        if (!streams.acquireLocal(maxCount))
+            // TODO: remove the dump() in the exception message.
+            throw new IllegalStateException("Max local stream count " + maxCount + " exceeded" + System.lineSeparator() + dump());
 
         IStream stream = newStream(streamId, request, true);
-        if (streams.putIfAbsent(streamId, stream) == null)
+        if (streams.putIfAbsent(stream))
         {
             stream.setIdleTimeout(getStreamIdleTimeout());
             flowControl.onStreamCreated(stream);
@@ -790,7 +853,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         }
         else
         {
-            localStreamCount.decrementAndGet();
+            streams.updateCount(true, -1, 0);
             throw new IllegalStateException("Duplicate stream " + streamId);
         }
     }
@@ -798,25 +861,16 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
     protected IStream createRemoteStream(int streamId, MetaData.Request request)
     {
         // SPEC: exceeding max concurrent streams is treated as stream error.
-        while (true)
+        if (!streams.acquireRemote(getMaxRemoteStreams()))
         {
-            long encoded = remoteStreamCount.get();
-            int remoteCount = AtomicBiInteger.getHi(encoded);
-            int remoteClosing = AtomicBiInteger.getLo(encoded);
-            int maxCount = getMaxRemoteStreams();
-            if (maxCount >= 0 && remoteCount - remoteClosing >= maxCount)
-            {
-                reset(new ResetFrame(streamId, ErrorCode.REFUSED_STREAM_ERROR.code), Callback.NOOP);
-                return null;
-            }
-            if (remoteStreamCount.compareAndSet(encoded, remoteCount + 1, remoteClosing))
-                break;
+            reset(new ResetFrame(streamId, ErrorCode.REFUSED_STREAM_ERROR.code), Callback.NOOP);
+            return null;
         }
 
         IStream stream = newStream(streamId, request, false);
 
         // SPEC: duplicate stream is treated as connection error.
-        if (streams.putIfAbsent(streamId, stream) == null)
+        if (streams.putIfAbsent(stream))
         {
             updateLastRemoteStreamId(streamId);
             stream.setIdleTimeout(getStreamIdleTimeout());
@@ -827,7 +881,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
         }
         else
         {
-            remoteStreamCount.addAndGetHi(-1);
+            streams.updateCount(false, -1, 0);
             onConnectionFailure(ErrorCode.PROTOCOL_ERROR.code, "duplicate_stream");
             return null;
         }
@@ -835,10 +889,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
 
     void updateStreamCount(boolean local, int deltaStreams, int deltaClosing)
     {
-        if (local)
-            localStreamCount.addAndGet(deltaStreams);
-        else
-            remoteStreamCount.add(deltaStreams, deltaClosing);
+        streams.updateCount(local, deltaStreams, deltaClosing);
     }
 
     @Override
@@ -1079,6 +1130,7 @@ public abstract class HTTP2Session extends ContainerLifeCycle implements ISessio
                             stream.close();
                         }
                         streams.clear();
+                        flowControl.onSessionClosed(this);
                         disconnect();
                         return;
                     }
@@ -28,6 +28,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.http.HttpFields;
@@ -39,6 +40,7 @@ import org.eclipse.jetty.http2.frames.DataFrame;
 import org.eclipse.jetty.http2.frames.FailureFrame;
 import org.eclipse.jetty.http2.frames.Frame;
 import org.eclipse.jetty.http2.frames.HeadersFrame;
+import org.eclipse.jetty.http2.frames.PriorityFrame;
 import org.eclipse.jetty.http2.frames.PushPromiseFrame;
 import org.eclipse.jetty.http2.frames.ResetFrame;
 import org.eclipse.jetty.http2.frames.WindowUpdateFrame;
@@ -64,6 +66,8 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
     private final AtomicReference<Callback> writing = new AtomicReference<>();
     private final AtomicInteger sendWindow = new AtomicInteger();
     private final AtomicInteger recvWindow = new AtomicInteger();
+    private final AtomicLong queueDelay = new AtomicLong();
+    private final AtomicLong maxQueueDelay = new AtomicLong();
     private final long timeStamp = System.nanoTime();
     private final ISession session;
     private final int streamId;
@@ -76,6 +80,7 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
     private long dataDemand;
     private boolean dataInitial;
     private boolean dataProcess;
+    private volatile int weight = PriorityFrame.DEFAULT_WEIGHT;
 
     public HTTP2Stream(Scheduler scheduler, ISession session, int streamId, MetaData.Request request, boolean local)
     {
@@ -260,6 +265,11 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
                 onHeaders((HeadersFrame)frame, callback);
                 break;
             }
+            case PRIORITY:
+            {
+                onPriority((PriorityFrame)frame, callback);
+                break;
+            }
             case DATA:
             {
                 onData((DataFrame)frame, callback);
@@ -300,6 +310,10 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
 
     private void onHeaders(HeadersFrame frame, Callback callback)
     {
+        PriorityFrame priority = frame.getPriority();
+        if (priority != null)
+            weight = priority.getWeight();
+
         MetaData metaData = frame.getMetaData();
         if (metaData.isRequest() || metaData.isResponse())
         {
@@ -316,6 +330,12 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
         callback.succeeded();
     }
 
+    private void onPriority(PriorityFrame frame, Callback callback)
+    {
+        weight = frame.getWeight();
+        callback.succeeded();
+    }
+
     private void onData(DataFrame frame, Callback callback)
     {
         if (getRecvWindow() < 0)
@@ -596,6 +616,35 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
         return sendWindow.getAndAdd(delta);
     }
 
+    @Override
+    public int getWeight()
+    {
+        return weight;
+    }
+
+    @Override
+    public void addQueueDelay(long nanos)
+    {
+        queueDelay.addAndGet(nanos);
+        maxQueueDelay.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return the total time, in nanoseconds, the frames of this stream waited to be generated
+     */
+    public long getQueueDelay()
+    {
+        return queueDelay.get();
+    }
+
+    /**
+     * @return the max time, in nanoseconds, a frame of this stream waited to be generated
+     */
+    public long getMaxQueueDelay()
+    {
+        return maxQueueDelay.get();
+    }
+
     @Override
     public int updateRecvWindow(int delta)
     {
@@ -793,12 +842,15 @@ public class HTTP2Stream extends IdleTimeout implements IStream, Callback, Dumpa
     @Override
     public String toString()
     {
-        return String.format("%s@%x#%d{sendWindow=%s,recvWindow=%s,demand=%d,reset=%b/%b,%s,age=%d,attachment=%s}",
+        return String.format("%s@%x#%d{sendWindow=%s,recvWindow=%s,weight=%d,queueDelay=%d/%dus,demand=%d,reset=%b/%b,%s,age=%d,attachment=%s}",
             getClass().getSimpleName(),
             hashCode(),
             getId(),
             sendWindow,
             recvWindow,
+            weight,
+            TimeUnit.NANOSECONDS.toMicros(getQueueDelay()),
+            TimeUnit.NANOSECONDS.toMicros(getMaxQueueDelay()),
             demand(),
             localReset,
             remoteReset,
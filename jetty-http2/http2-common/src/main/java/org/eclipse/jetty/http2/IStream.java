@@ -114,4 +114,17 @@ public interface IStream extends Stream, Closeable
      * @see #isClosed()
      */
     boolean isRemotelyClosed();
+
+    /**
+     * @return the weight of this stream, between 1 and 256, as specified by the remote peer
+     * @see FrameScheduler
+     */
+    int getWeight();
+
+    /**
+     * <p>Records the time a frame of this stream waited in the flusher queue before being generated.</p>
+     *
+     * @param nanos the queueing delay, in nanoseconds
+     */
+    void addQueueDelay(long nanos);
 }
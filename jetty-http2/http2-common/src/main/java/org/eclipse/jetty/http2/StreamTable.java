@@ -0,0 +1,322 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>The table of the streams of a session, keyed by the primitive stream id.</p>
+ * <p>HTTP/2 stream ids grow monotonically, odd for client streams and even for
+ * server streams, so {@code streamId >>> 1} is a sequence for both kinds of streams.
+ * Its low bits select one of a fixed number of stripes, so that consecutive streams
+ * are spread across stripes, while its high bits index a small open addressing array
+ * within the stripe, so that the streams of a stripe rarely collide.
+ * The ids are never boxed.</p>
+ * <p>Lookups, that happen for every received frame, are lock-free. Modifications are
+ * guarded by a lock per stripe, and publish the slots with volatile semantic.
+ * A removal shifts entries backwards, so that a concurrent lookup may miss a stream
+ * that is moving; removals therefore update a per stripe version before and after
+ * shifting the entries, and a lookup that misses while the version changed is repeated
+ * under the lock.</p>
+ * <p>The table also keeps the stream counts used to enforce the max concurrent
+ * streams: the local stream count, the remote stream count and the count of remote
+ * streams that are closing are packed in a single atomic {@code long}, so that
+ * creating or closing a stream updates all the counts with a single CAS.</p>
+ */
+class StreamTable
+{
+    private static final int STRIPE_BITS = 4;
+    private static final int COUNT_BITS = 21;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final int MAX_COUNT = (int)COUNT_MASK;
+    private static final int LOCAL_SHIFT = 2 * COUNT_BITS;
+    private static final int REMOTE_SHIFT = COUNT_BITS;
+
+    private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+    private final AtomicLong counts = new AtomicLong();
+
+    StreamTable()
+    {
+        for (int i = 0; i < stripes.length; ++i)
+        {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripeOf(int streamId)
+    {
+        return stripes[(streamId >>> 1) & (stripes.length - 1)];
+    }
+
+    IStream get(int streamId)
+    {
+        return stripeOf(streamId).get(streamId);
+    }
+
+    /**
+     * @param stream the stream to add
+     * @return true if the stream was added, false if a stream with the same id already exists
+     */
+    boolean putIfAbsent(IStream stream)
+    {
+        return stripeOf(stream.getId()).putIfAbsent(stream);
+    }
+
+    IStream remove(int streamId)
+    {
+        return stripeOf(streamId).remove(streamId);
+    }
+
+    /**
+     * @return a snapshot of the streams in the table
+     */
+    List<IStream> values()
+    {
+        List<IStream> result = new ArrayList<>(size());
+        for (Stripe stripe : stripes)
+        {
+            stripe.addTo(result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of streams in the table
+     */
+    int size()
+    {
+        int size = 0;
+        for (Stripe stripe : stripes)
+        {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    void clear()
+    {
+        for (Stripe stripe : stripes)
+        {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * <p>Increments the local stream count, unless it already reached the given max.</p>
+     *
+     * @param maxCount the max local stream count, or a negative value for no max
+     * @return whether the local stream count has been incremented
+     */
+    boolean acquireLocal(int maxCount)
+    {
+        while (true)
+        {
+            long encoded = counts.get();
+            int localCount = (int)(encoded >>> LOCAL_SHIFT);
+            if ((maxCount >= 0 && localCount >= maxCount) || localCount == MAX_COUNT)
+                return false;
+            if (counts.compareAndSet(encoded, encoded + (1L << LOCAL_SHIFT)))
+                return true;
+        }
+    }
+
+    /**
+     * <p>Increments the remote stream count, unless the count of the remote streams
+     * that are not closing already reached the given max.</p>
+     *
+     * @param maxCount the max remote stream count, or a negative value for no max
+     * @return whether the remote stream count has been incremented
+     */
+    boolean acquireRemote(int maxCount)
+    {
+        while (true)
+        {
+            long encoded = counts.get();
+            int remoteCount = (int)((encoded >>> REMOTE_SHIFT) & COUNT_MASK);
+            int remoteClosing = (int)(encoded & COUNT_MASK);
+            if ((maxCount >= 0 && remoteCount - remoteClosing >= maxCount) || remoteCount == MAX_COUNT)
+                return false;
+            if (counts.compareAndSet(encoded, encoded + (1L << REMOTE_SHIFT)))
+                return true;
+        }
+    }
+
+    /**
+     * @param local whether to update the local or the remote counts
+     * @param deltaStreams the delta of the stream count
+     * @param deltaClosing the delta of the closing stream count, only tracked for remote streams
+     */
+    void updateCount(boolean local, int deltaStreams, int deltaClosing)
+    {
+        long delta = local ? (long)deltaStreams << LOCAL_SHIFT : ((long)deltaStreams << REMOTE_SHIFT) + deltaClosing;
+        counts.addAndGet(delta);
+    }
+
+    int getLocalCount()
+    {
+        return (int)(counts.get() >>> LOCAL_SHIFT);
+    }
+
+    int getRemoteCount()
+    {
+        return (int)((counts.get() >>> REMOTE_SHIFT) & COUNT_MASK);
+    }
+
+    int getRemoteClosingCount()
+    {
+        return (int)(counts.get() & COUNT_MASK);
+    }
+
+    private static class Stripe
+    {
+        private volatile AtomicReferenceArray<IStream> slots = new AtomicReferenceArray<>(8);
+        private volatile int size;
+        // Odd while a removal is shifting entries.
+        private volatile int version;
+
+        private int slotOf(int streamId, int mask)
+        {
+            return (streamId >>> (STRIPE_BITS + 1)) & mask;
+        }
+
+        private IStream get(int streamId)
+        {
+            int version = this.version;
+            IStream stream = find(slots, streamId);
+            if (stream != null)
+                return stream;
+            if ((version & 1) == 0 && version == this.version)
+                return null;
+            // A concurrent removal may have moved the stream, look it up again under the lock.
+            synchronized (this)
+            {
+                return find(slots, streamId);
+            }
+        }
+
+        private IStream find(AtomicReferenceArray<IStream> slots, int streamId)
+        {
+            int mask = slots.length() - 1;
+            for (int i = slotOf(streamId, mask); ; i = (i + 1) & mask)
+            {
+                IStream stream = slots.get(i);
+                if (stream == null || stream.getId() == streamId)
+                    return stream;
+            }
+        }
+
+        private synchronized boolean putIfAbsent(IStream stream)
+        {
+            if (2 * (size + 1) > slots.length())
+                grow();
+            AtomicReferenceArray<IStream> slots = this.slots;
+            int streamId = stream.getId();
+            int mask = slots.length() - 1;
+            for (int i = slotOf(streamId, mask); ; i = (i + 1) & mask)
+            {
+                IStream existing = slots.get(i);
+                if (existing == null)
+                {
+                    slots.set(i, stream);
+                    ++size;
+                    return true;
+                }
+                if (existing.getId() == streamId)
+                    return false;
+            }
+        }
+
+        private synchronized IStream remove(int streamId)
+        {
+            AtomicReferenceArray<IStream> slots = this.slots;
+            int mask = slots.length() - 1;
+            int i = slotOf(streamId, mask);
+            while (true)
+            {
+                IStream stream = slots.get(i);
+                if (stream == null)
+                    return null;
+                if (stream.getId() == streamId)
+                    break;
+                i = (i + 1) & mask;
+            }
+            IStream removed = slots.get(i);
+            ++version;
+            // Backward shift deletion, so that lookups need no tombstones.
+            int hole = i;
+            for (int j = (i + 1) & mask; ; j = (j + 1) & mask)
+            {
+                IStream stream = slots.get(j);
+                if (stream == null)
+                    break;
+                int home = slotOf(stream.getId(), mask);
+                if (((j - home) & mask) >= ((j - hole) & mask))
+                {
+                    slots.set(hole, stream);
+                    hole = j;
+                }
+            }
+            slots.set(hole, null);
+            ++version;
+            --size;
+            return removed;
+        }
+
+        private void grow()
+        {
+            // The old slots are not modified anymore, so concurrent lookups are still correct.
+            AtomicReferenceArray<IStream> oldSlots = slots;
+            AtomicReferenceArray<IStream> newSlots = new AtomicReferenceArray<>(oldSlots.length() * 2);
+            int mask = newSlots.length() - 1;
+            for (int s = 0; s < oldSlots.length(); ++s)
+            {
+                IStream stream = oldSlots.get(s);
+                if (stream == null)
+                    continue;
+                int i = slotOf(stream.getId(), mask);
+                while (newSlots.get(i) != null)
+                {
+                    i = (i + 1) & mask;
+                }
+                newSlots.set(i, stream);
+            }
+            slots = newSlots;
+        }
+
+        private synchronized void addTo(List<IStream> list)
+        {
+            AtomicReferenceArray<IStream> slots = this.slots;
+            for (int i = 0; i < slots.length(); ++i)
+            {
+                IStream stream = slots.get(i);
+                if (stream != null)
+                    list.add(stream);
+            }
+        }
+
+        private synchronized void clear()
+        {
+            slots = new AtomicReferenceArray<>(8);
+            size = 0;
+        }
+    }
+}
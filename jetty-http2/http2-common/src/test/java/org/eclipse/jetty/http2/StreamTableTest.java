@@ -0,0 +1,196 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.http2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamTableTest
+{
+    private static IStream newStream(int streamId)
+    {
+        return new HTTP2Stream(null, null, streamId, null, (streamId & 1) == 1);
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        StreamTable table = new StreamTable();
+        IStream stream1 = newStream(1);
+        IStream stream2 = newStream(2);
+
+        assertTrue(table.putIfAbsent(stream1));
+        assertTrue(table.putIfAbsent(stream2));
+        assertFalse(table.putIfAbsent(newStream(1)));
+        assertEquals(2, table.size());
+        assertSame(stream1, table.get(1));
+        assertSame(stream2, table.get(2));
+        assertNull(table.get(3));
+
+        assertSame(stream1, table.remove(1));
+        assertNull(table.remove(1));
+        assertNull(table.get(1));
+        assertSame(stream2, table.get(2));
+        assertEquals(1, table.size());
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertTrue(table.values().isEmpty());
+    }
+
+    @Test
+    public void testManyStreamsWithRandomRemovals()
+    {
+        StreamTable table = new StreamTable();
+        Map<Integer, IStream> expected = new HashMap<>();
+        Random random = new Random(0);
+        int nextId = 1;
+        for (int i = 0; i < 100_000; ++i)
+        {
+            if (expected.isEmpty() || random.nextInt(3) > 0)
+            {
+                IStream stream = newStream(nextId);
+                nextId += 1 + random.nextInt(4);
+                assertTrue(table.putIfAbsent(stream));
+                expected.put(stream.getId(), stream);
+            }
+            else
+            {
+                // Remove one of the most recent streams, or one of the oldest.
+                int streamId = nextId - 1 - random.nextInt(nextId);
+                assertSame(expected.remove(streamId), table.remove(streamId));
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        assertEquals(expected.size(), table.values().size());
+        for (int streamId = 1; streamId < nextId; ++streamId)
+        {
+            assertSame(expected.get(streamId), table.get(streamId));
+        }
+    }
+
+    @Test
+    public void testConcurrentLookupsDoNotMissStreams() throws Exception
+    {
+        // All the stream ids are in the same stripe and have the same home slot, so
+        // that every removal of one of the first streams shifts all the pinned streams.
+        int count = 1000;
+        int[] pinned = new int[count];
+        for (int m = 0; m < count; ++m)
+        {
+            pinned[m] = 1 + (32 << 12) * (count + m);
+        }
+
+        AtomicReference<StreamTable> tableRef = new AtomicReference<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 4; ++r)
+        {
+            Thread reader = new Thread(() ->
+            {
+                try
+                {
+                    while (running.get())
+                    {
+                        StreamTable table = tableRef.get();
+                        if (table == null)
+                            continue;
+                        for (int streamId : pinned)
+                        {
+                            IStream stream = table.get(streamId);
+                            assertEquals(streamId, stream.getId());
+                        }
+                    }
+                }
+                catch (Throwable x)
+                {
+                    failure.compareAndSet(null, x);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        for (int round = 0; round < 10 && failure.get() == null; ++round)
+        {
+            StreamTable table = new StreamTable();
+            for (int m = 0; m < count; ++m)
+            {
+                table.putIfAbsent(newStream(1 + (32 << 12) * m));
+            }
+            for (int streamId : pinned)
+            {
+                table.putIfAbsent(newStream(streamId));
+            }
+            tableRef.set(table);
+            for (int m = 0; m < count; ++m)
+            {
+                table.remove(1 + (32 << 12) * m);
+            }
+        }
+        running.set(false);
+        for (Thread reader : readers)
+        {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testCounts()
+    {
+        StreamTable table = new StreamTable();
+
+        assertTrue(table.acquireLocal(2));
+        assertTrue(table.acquireLocal(2));
+        assertFalse(table.acquireLocal(2));
+        assertTrue(table.acquireLocal(-1));
+        assertEquals(3, table.getLocalCount());
+
+        assertTrue(table.acquireRemote(1));
+        assertFalse(table.acquireRemote(1));
+        // A closing remote stream does not count towards the max.
+        table.updateCount(false, 0, 1);
+        assertTrue(table.acquireRemote(1));
+        assertEquals(2, table.getRemoteCount());
+        assertEquals(1, table.getRemoteClosingCount());
+
+        table.updateCount(false, -1, -1);
+        table.updateCount(true, -3, 0);
+        assertEquals(0, table.getLocalCount());
+        assertEquals(1, table.getRemoteCount());
+        assertEquals(0, table.getRemoteClosingCount());
+    }
+}
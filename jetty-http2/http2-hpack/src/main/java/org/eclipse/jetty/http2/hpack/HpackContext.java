@@ -190,14 +190,54 @@ public class HpackContext
     private int _maxDynamicTableSizeInBytes;
     private int _dynamicTableSizeInBytes;
     private final DynamicTable _dynamicTable;
-    private final Map<HttpField, Entry> _fieldMap = new HashMap<>();
-    private final Map<String, Entry> _nameMap = new HashMap<>();
+    private final EntryIndex<HttpField> _fieldIndex;
+    private final EntryIndex<String> _nameIndex;
 
     HpackContext(int maxDynamicTableSize)
     {
         _maxDynamicTableSizeInBytes = maxDynamicTableSize;
         int guesstimateEntries = 10 + maxDynamicTableSize / (32 + 10 + 10);
         _dynamicTable = new DynamicTable(guesstimateEntries);
+        _fieldIndex = new EntryIndex<>(guesstimateEntries)
+        {
+            @Override
+            int hashOf(Entry entry)
+            {
+                return entry._fieldHash;
+            }
+
+            @Override
+            HttpField keyOf(Entry entry)
+            {
+                return entry._field;
+            }
+
+            @Override
+            boolean matches(Entry entry, HttpField field)
+            {
+                return entry._field.equals(field);
+            }
+        };
+        _nameIndex = new EntryIndex<>(guesstimateEntries)
+        {
+            @Override
+            int hashOf(Entry entry)
+            {
+                return entry._nameHash;
+            }
+
+            @Override
+            String keyOf(Entry entry)
+            {
+                return entry._field.getName();
+            }
+
+            @Override
+            boolean matches(Entry entry, String name)
+            {
+                return entry._field.getName().equalsIgnoreCase(name);
+            }
+        };
         if (LOG.isDebugEnabled())
             LOG.debug(String.format("HdrTbl[%x] created max=%d", hashCode(), maxDynamicTableSize));
     }
@@ -212,7 +252,14 @@ public class HpackContext
 
     public Entry get(HttpField field)
     {
-        Entry entry = _fieldMap.get(field);
+        // Fields decoded from the static table are always found there.
+        if (field instanceof StaticTableHttpField)
+        {
+            Entry entry = __staticFieldMap.get(field);
+            if (entry != null)
+                return entry;
+        }
+        Entry entry = _fieldIndex.get(field.hashCode(), field);
         if (entry == null)
             entry = __staticFieldMap.get(field);
         return entry;
@@ -223,7 +270,7 @@ public class HpackContext
         Entry entry = __staticNameMap.get(name);
         if (entry != null)
             return entry;
-        return _nameMap.get(StringUtil.asciiToLowerCase(name));
+        return _nameIndex.get(lowerCaseHash(name), name);
     }
 
     public Entry get(int index)
@@ -238,7 +285,7 @@ public class HpackContext
     {
         Entry e = __staticTableByHeader[header.ordinal()];
         if (e == null)
-            return get(header.asString());
+            return _nameIndex.get(header.lowerCaseName().hashCode(), header.asString());
         return e;
     }
 
@@ -260,8 +307,8 @@ public class HpackContext
         }
         _dynamicTableSizeInBytes += size;
         _dynamicTable.add(entry);
-        _fieldMap.put(field, entry);
-        _nameMap.put(field.getLowerCaseName(), entry);
+        _fieldIndex.put(entry);
+        _nameIndex.put(entry);
 
         if (LOG.isDebugEnabled())
             LOG.debug(String.format("HdrTbl[%x] added %s", hashCode(), entry));
@@ -382,10 +429,8 @@ public class HpackContext
                     LOG.debug(String.format("HdrTbl[%x] evict %s", HpackContext.this.hashCode(), entry));
                 _dynamicTableSizeInBytes -= entry.getSize();
                 entry._slot = -1;
-                _fieldMap.remove(entry.getHttpField());
-                String lc = entry.getHttpField().getLowerCaseName();
-                if (entry == _nameMap.get(lc))
-                    _nameMap.remove(lc);
+                _fieldIndex.remove(entry);
+                _nameIndex.remove(entry);
             }
             if (LOG.isDebugEnabled())
                 LOG.debug(String.format("HdrTbl[%x] entries=%d, size=%d, max=%d", HpackContext.this.hashCode(), _dynamicTable.size(), _dynamicTableSizeInBytes, _maxDynamicTableSizeInBytes));
@@ -395,8 +440,8 @@ public class HpackContext
         {
             if (LOG.isDebugEnabled())
                 LOG.debug(String.format("HdrTbl[%x] evictAll", HpackContext.this.hashCode()));
-            _fieldMap.clear();
-            _nameMap.clear();
+            _fieldIndex.clear();
+            _nameIndex.clear();
             _offset = 0;
             _size = 0;
             _dynamicTableSizeInBytes = 0;
@@ -404,20 +449,184 @@ public class HpackContext
         }
     }
 
+    /**
+     * <p>Computes the hash of the ASCII lower case version of the given name,
+     * that is the same as {@link StringUtil#asciiToLowerCase(String)} followed by {@link String#hashCode()},
+     * without creating the lower case string.</p>
+     *
+     * @param name the name to hash
+     * @return the hash of the lower case name
+     */
+    static int lowerCaseHash(String name)
+    {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++)
+        {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z')
+                c += 0x20;
+            hash = 31 * hash + c;
+        }
+        return hash;
+    }
+
+    /**
+     * <p>An open addressed index of the dynamic table entries, so that adding and
+     * evicting entries does not allocate map nodes nor hash fields again.</p>
+     * <p>Entries carry their hashes, computed once when they are created.
+     * Like a map, a more recent entry replaces an older entry with the same key;
+     * the older entry is still in the dynamic table, but is not indexed anymore.
+     * Collisions are resolved with linear probing, and removals shift back the
+     * following entries of the probe sequence, so there are no tombstones.</p>
+     *
+     * @param <K> the type of the key
+     */
+    private abstract static class EntryIndex<K>
+    {
+        private Entry[] _entries;
+        private int _size;
+
+        private EntryIndex(int capacity)
+        {
+            // Keep the load factor below 0.5 to have short probe sequences.
+            int length = Integer.highestOneBit(Math.max(8, capacity) * 2 - 1) << 1;
+            _entries = new Entry[length];
+        }
+
+        abstract int hashOf(Entry entry);
+
+        abstract K keyOf(Entry entry);
+
+        abstract boolean matches(Entry entry, K key);
+
+        private static int slot(int hash, int mask)
+        {
+            int h = hash * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        Entry get(int hash, K key)
+        {
+            if (_size == 0)
+                return null;
+            Entry[] entries = _entries;
+            int mask = entries.length - 1;
+            for (int i = slot(hash, mask); ; i = (i + 1) & mask)
+            {
+                Entry entry = entries[i];
+                if (entry == null)
+                    return null;
+                if (hashOf(entry) == hash && matches(entry, key))
+                    return entry;
+            }
+        }
+
+        void put(Entry entry)
+        {
+            int hash = hashOf(entry);
+            K key = keyOf(entry);
+            int mask = _entries.length - 1;
+            for (int i = slot(hash, mask); ; i = (i + 1) & mask)
+            {
+                Entry e = _entries[i];
+                if (e == null)
+                {
+                    _entries[i] = entry;
+                    if (++_size * 2 > _entries.length)
+                        grow();
+                    return;
+                }
+                if (hashOf(e) == hash && matches(e, key))
+                {
+                    _entries[i] = entry;
+                    return;
+                }
+            }
+        }
+
+        void remove(Entry entry)
+        {
+            int mask = _entries.length - 1;
+            int i = slot(hashOf(entry), mask);
+            while (true)
+            {
+                Entry e = _entries[i];
+                // Not indexed, for example because replaced by a more recent entry.
+                if (e == null)
+                    return;
+                if (e == entry)
+                    break;
+                i = (i + 1) & mask;
+            }
+
+            _entries[i] = null;
+            --_size;
+
+            // Shift back the entries that would not be found anymore.
+            int j = i;
+            while (true)
+            {
+                j = (j + 1) & mask;
+                Entry e = _entries[j];
+                if (e == null)
+                    return;
+                int k = slot(hashOf(e), mask);
+                boolean reachable = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+                if (!reachable)
+                {
+                    _entries[i] = e;
+                    _entries[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        void clear()
+        {
+            Arrays.fill(_entries, null);
+            _size = 0;
+        }
+
+        private void grow()
+        {
+            Entry[] entries = _entries;
+            _entries = new Entry[entries.length * 2];
+            int mask = _entries.length - 1;
+            for (Entry entry : entries)
+            {
+                if (entry == null)
+                    continue;
+                int i = slot(hashOf(entry), mask);
+                while (_entries[i] != null)
+                {
+                    i = (i + 1) & mask;
+                }
+                _entries[i] = entry;
+            }
+        }
+    }
+
     public static class Entry
     {
         final HttpField _field;
+        final int _fieldHash;
+        final int _nameHash;
         int _slot; // The index within it's array
 
         Entry()
         {
             _slot = -1;
             _field = null;
+            _fieldHash = 0;
+            _nameHash = 0;
         }
 
         Entry(HttpField field)
         {
             _field = field;
+            _fieldHash = field.hashCode();
+            HttpHeader header = field.getHeader();
+            _nameHash = header == null ? lowerCaseHash(field.getName()) : header.lowerCaseName().hashCode();
         }
 
         public int getSize()
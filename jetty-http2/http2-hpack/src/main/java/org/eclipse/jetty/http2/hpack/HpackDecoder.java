@@ -19,13 +19,19 @@
 package org.eclipse.jetty.http2.hpack;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpParser;
 import org.eclipse.jetty.http.HttpTokens;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http2.hpack.HpackContext.Entry;
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.StringUtil;
+import org.eclipse.jetty.util.Utf8StringBuilder;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
@@ -38,10 +44,40 @@ public class HpackDecoder
     public static final Logger LOG = Log.getLogger(HpackDecoder.class);
     public static final HttpField.LongValueHttpField CONTENT_LENGTH_0 =
         new HttpField.LongValueHttpField(HttpHeader.CONTENT_LENGTH, 0L);
+    private static final HttpField[][] COMMON_FIELDS = new HttpField[HttpHeader.values().length][];
+
+    static
+    {
+        // Index the common fields of the HTTP/1 parser by header, with HTTP/2 lower case names.
+        List<List<HttpField>> fields = new ArrayList<>();
+        for (int i = 0; i < COMMON_FIELDS.length; i++)
+        {
+            fields.add(new ArrayList<>());
+        }
+        for (String key : HttpParser.CACHE.keySet())
+        {
+            HttpField field = HttpParser.CACHE.get(key);
+            HttpHeader header = field == null ? null : field.getHeader();
+            if (header == null || field.getValue() == null || header == HttpHeader.CONTENT_LENGTH)
+                continue;
+            String value = field.getValue();
+            fields.get(header.ordinal()).add(new HttpField(header, header.lowerCaseName(), value));
+            // The parser cache is case insensitive, so it only keeps one case variant of each value.
+            String lowerCaseValue = StringUtil.asciiToLowerCase(value);
+            if (!lowerCaseValue.equals(value))
+                fields.get(header.ordinal()).add(new HttpField(header, header.lowerCaseName(), lowerCaseValue));
+        }
+        for (int i = 0; i < COMMON_FIELDS.length; i++)
+        {
+            if (!fields.get(i).isEmpty())
+                COMMON_FIELDS[i] = fields.get(i).toArray(new HttpField[0]);
+        }
+    }
 
     private final HpackContext _context;
     private final MetaDataBuilder _builder;
     private int _localMaxDynamicTableSize;
+    private byte[] _bytes = new byte[256];
 
     /**
      * @param localMaxDynamicTableSize The maximum allowed size of the local dynamic header field table.
@@ -115,7 +151,6 @@ public class HpackDecoder
                 byte f = (byte)((b & 0xF0) >> 4);
                 String name;
                 HttpHeader header;
-                String value;
 
                 boolean indexed;
                 int nameIndex;
@@ -167,58 +202,36 @@ public class HpackDecoder
                     huffmanName = (buffer.get() & 0x80) == 0x80;
                     int length = NBitInteger.decode(buffer, 7);
                     _builder.checkSize(length, huffmanName);
-                    if (huffmanName)
-                        name = Huffman.decode(buffer, length);
+                    int decoded = decodeBytes(buffer, length, huffmanName);
+                    header = HttpHeader.CACHE.getBest(_bytes, 0, decoded);
+                    if (header != null && header.asString().length() != decoded)
+                        header = null;
+                    String error = checkName(decoded);
+                    if (error == null && header != null)
+                    {
+                        // The name is already in lower case, so avoid creating a String.
+                        name = header.lowerCaseName();
+                    }
                     else
-                        name = toASCIIString(buffer, length);
-                    check:
-                    for (int i = name.length(); i-- > 0; )
                     {
-                        char c = name.charAt(i);
-                        if (c > 0xff)
-                        {
-                            _builder.streamException("Illegal header name %s", name);
-                            break;
-                        }
-                        HttpTokens.Token token = HttpTokens.TOKENS[0xFF & c];
-                        switch (token.getType())
-                        {
-                            case ALPHA:
-                                if (c >= 'A' && c <= 'Z')
-                                {
-                                    _builder.streamException("Uppercase header name %s", name);
-                                    break check;
-                                }
-                                break;
-
-                            case COLON:
-                            case TCHAR:
-                            case DIGIT:
-                                break;
-
-                            default:
-                                _builder.streamException("Illegal header name %s", name);
-                                break check;
-                        }
+                        name = toString(decoded, huffmanName);
+                        if (error != null)
+                            _builder.streamException(error, name);
                     }
-                    header = HttpHeader.CACHE.get(name);
                 }
 
                 // decode the value
                 boolean huffmanValue = (buffer.get() & 0x80) == 0x80;
                 int length = NBitInteger.decode(buffer, 7);
                 _builder.checkSize(length, huffmanValue);
-                if (huffmanValue)
-                    value = Huffman.decode(buffer, length);
-                else
-                    value = toASCIIString(buffer, length);
+                int decoded = decodeBytes(buffer, length, huffmanValue);
 
                 // Make the new field
                 HttpField field;
                 if (header == null)
                 {
                     // just make a normal field and bypass header name lookup
-                    field = new HttpField(null, name, value);
+                    field = new HttpField(null, name, toString(decoded, huffmanValue));
                 }
                 else
                 {
@@ -228,24 +241,27 @@ public class HpackDecoder
                     {
                         case C_STATUS:
                             if (indexed)
-                                field = new HttpField.IntValueHttpField(header, name, value);
+                                field = new HttpField.IntValueHttpField(header, name, toString(decoded, huffmanValue));
                             else
-                                field = new HttpField(header, name, value);
+                                field = new HttpField(header, name, toString(decoded, huffmanValue));
                             break;
 
                         case C_AUTHORITY:
-                            field = new AuthorityHttpField(value);
+                            field = new AuthorityHttpField(toString(decoded, huffmanValue));
                             break;
 
                         case CONTENT_LENGTH:
-                            if ("0".equals(value))
+                            if (decoded == 1 && _bytes[0] == '0')
                                 field = CONTENT_LENGTH_0;
                             else
-                                field = new HttpField.LongValueHttpField(header, name, value);
+                                field = new HttpField.LongValueHttpField(header, name, toString(decoded, huffmanValue));
                             break;
 
                         default:
-                            field = new HttpField(header, name, value);
+                            // Common values are not decoded into a new String.
+                            field = getCommonField(header, name, decoded);
+                            if (field == null)
+                                field = new HttpField(header, name, toString(decoded, huffmanValue));
                             break;
                     }
                 }
@@ -272,6 +288,96 @@ public class HpackDecoder
         return _builder.build();
     }
 
+    /**
+     * <p>Decodes a string literal into the scratch array of this decoder.</p>
+     *
+     * @param buffer the buffer to decode from
+     * @param length the length in octets of the string literal
+     * @param huffman whether the string literal is Huffman encoded
+     * @return the number of decoded octets in the scratch array
+     * @throws HpackException.CompressionException if the Huffman encoding is invalid
+     */
+    private int decodeBytes(ByteBuffer buffer, int length, boolean huffman) throws HpackException.CompressionException
+    {
+        int needed = huffman ? Huffman.maxDecodedLength(length) : length;
+        if (_bytes.length < needed)
+            _bytes = new byte[Math.max(needed, _bytes.length * 2)];
+        if (huffman)
+            return Huffman.decode(buffer, length, _bytes);
+        for (int i = 0; i < length; ++i)
+        {
+            _bytes[i] = (byte)(0x7F & buffer.get());
+        }
+        return length;
+    }
+
+    private String toString(int length, boolean huffman)
+    {
+        if (huffman)
+        {
+            for (int i = 0; i < length; ++i)
+            {
+                if (_bytes[i] < 0)
+                {
+                    Utf8StringBuilder utf8 = new Utf8StringBuilder(length);
+                    utf8.append(_bytes, 0, length);
+                    return utf8.toString();
+                }
+            }
+        }
+        return new String(_bytes, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @param length the length of the name in the scratch array
+     * @return null if the name is valid, otherwise the format of the error message
+     */
+    private String checkName(int length)
+    {
+        for (int i = length; i-- > 0; )
+        {
+            int c = 0xFF & _bytes[i];
+            HttpTokens.Token token = HttpTokens.TOKENS[c];
+            switch (token.getType())
+            {
+                case ALPHA:
+                    if (c >= 'A' && c <= 'Z')
+                        return "Uppercase header name %s";
+                    break;
+
+                case COLON:
+                case TCHAR:
+                case DIGIT:
+                    break;
+
+                default:
+                    return "Illegal header name %s";
+            }
+        }
+        return null;
+    }
+
+    private HttpField getCommonField(HttpHeader header, String name, int length)
+    {
+        HttpField[] fields = COMMON_FIELDS[header.ordinal()];
+        if (fields == null || !header.lowerCaseName().equals(name))
+            return null;
+        candidates:
+        for (HttpField field : fields)
+        {
+            String value = field.getValue();
+            if (value.length() != length)
+                continue;
+            for (int i = 0; i < length; ++i)
+            {
+                if (value.charAt(i) != _bytes[i])
+                    continue candidates;
+            }
+            return field;
+        }
+        return null;
+    }
+
     public static String toASCIIString(ByteBuffer buffer, int length)
     {
         StringBuilder builder = new StringBuilder(length);
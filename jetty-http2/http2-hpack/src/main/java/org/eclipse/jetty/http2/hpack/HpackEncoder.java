@@ -324,8 +324,6 @@ public class HpackEncoder
             if (header == null)
             {
                 // Select encoding strategy for unknown header names
-                Entry name = _context.get(field.getName());
-
                 if (field instanceof PreEncodedHttpField)
                 {
                     int i = buffer.position();
@@ -336,7 +334,7 @@ public class HpackEncoder
                         encoding = indexed ? "PreEncodedIdx" : "PreEncoded";
                 }
                 // has the custom header name been seen before?
-                else if (name == null)
+                else if (_context.get(field.getName()) == null)
                 {
                     // unknown name and value, so let's index this just in case it is
                     // the first time we have seen a custom name or a custom field.
@@ -428,10 +426,26 @@ public class HpackEncoder
         if (entry == null)
         {
             // leave name index bits as 0
-            // Encode the name always with lowercase huffman
-            buffer.put((byte)0x80);
-            NBitInteger.encode(buffer, 7, Huffman.octetsNeededLC(name));
-            Huffman.encodeLC(buffer, name);
+            // Encode the name always in lowercase, with huffman only if it is shorter
+            int needed = Huffman.octetsNeededLC(name);
+            if (needed >= 0 && needed >= name.length())
+            {
+                buffer.put((byte)0x00);
+                NBitInteger.encode(buffer, 7, name.length());
+                for (int i = 0; i < name.length(); i++)
+                {
+                    char c = name.charAt(i);
+                    if (c >= 'A' && c <= 'Z')
+                        c += 0x20;
+                    buffer.put((byte)c);
+                }
+            }
+            else
+            {
+                buffer.put((byte)0x80);
+                NBitInteger.encode(buffer, 7, needed);
+                Huffman.encodeLC(buffer, name);
+            }
         }
         else
         {
@@ -441,12 +455,12 @@ public class HpackEncoder
 
     static void encodeValue(ByteBuffer buffer, boolean huffman, String value)
     {
-        if (huffman)
+        int needed = huffman ? Huffman.octetsNeeded(value) : 0;
+        if (huffman && needed < value.length())
         {
             // huffman literal value
             buffer.put((byte)0x80);
 
-            int needed = Huffman.octetsNeeded(value);
             if (needed >= 0)
             {
                 NBitInteger.encode(buffer, 7, needed);
@@ -462,6 +476,7 @@ public class HpackEncoder
         }
         else
         {
+            // huffman would not shrink the value, or is not wanted
             // add literal assuming iso_8859_1
             buffer.put((byte)0x00).mark();
             NBitInteger.encode(buffer, 7, value.length());
@@ -18,8 +18,11 @@
 
 package org.eclipse.jetty.http2.hpack;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.util.List;
 
+import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFieldPreEncoder;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpVersion;
@@ -40,8 +43,26 @@ public class HpackFieldPreEncoder implements HttpFieldPreEncoder
     @Override
     public byte[] getEncodedField(HttpHeader header, String name, String value)
     {
-        boolean notIndexed = HpackEncoder.DO_NOT_INDEX.contains(header);
+        return encode(header, name, value, HpackEncoder.DO_NOT_INDEX.contains(header));
+    }
+
+    /**
+     * <p>Encodes the fields as literals without indexing, so that the encoded block
+     * neither refers to nor adds entries to the dynamic table.</p>
+     */
+    @Override
+    public byte[] getEncodedFields(List<HttpField> fields)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (HttpField field : fields)
+        {
+            out.writeBytes(encode(field.getHeader(), field.getName(), field.getValue(), true));
+        }
+        return out.toByteArray();
+    }
 
+    private byte[] encode(HttpHeader header, String name, String value, boolean notIndexed)
+    {
         ByteBuffer buffer = BufferUtil.allocate(name.length() + value.length() + 10);
         BufferUtil.clearToFill(buffer);
         boolean huffman;
@@ -360,19 +360,55 @@ public class Huffman
 
     public static String decode(ByteBuffer buffer, int length) throws HpackException.CompressionException
     {
-        Utf8StringBuilder utf8 = new Utf8StringBuilder(length * 2);
+        byte[] bytes = new byte[maxDecodedLength(length)];
+        int decoded = decode(buffer, length, bytes);
+        Utf8StringBuilder utf8 = new Utf8StringBuilder(decoded);
+        utf8.append(bytes, 0, decoded);
+        return utf8.toString();
+    }
+
+    /**
+     * @param length the length in octets of a Huffman encoded string
+     * @return the maximum number of octets that the string may decode to
+     */
+    public static int maxDecodedLength(int length)
+    {
+        // The shortest code is 5 bits long.
+        return length * 8 / 5;
+    }
+
+    /**
+     * <p>Decodes a Huffman encoded string into the given array, without allocating.</p>
+     * <p>The encoded octets are accumulated into a 64 bits word, and every lookup in the
+     * decode tree consumes 8 bits, emitting a symbol each time a terminal node is reached.</p>
+     *
+     * @param buffer the buffer to decode from
+     * @param length the number of octets to decode
+     * @param output the array to decode into, at least {@link #maxDecodedLength(int)} long
+     * @return the number of decoded octets
+     * @throws HpackException.CompressionException if the encoded string is invalid
+     */
+    public static int decode(ByteBuffer buffer, int length, byte[] output) throws HpackException.CompressionException
+    {
+        int position = buffer.position();
+        int end = position + length;
+        int count = 0;
         int node = 0;
-        int current = 0;
+        long current = 0;
         int bits = 0;
 
-        for (int i = 0; i < length; i++)
+        while (position < end)
         {
-            int b = buffer.get() & 0xFF;
-            current = (current << 8) | b;
-            bits += 8;
+            // Refill the accumulator with as many octets as it can hold.
+            while (bits <= 56 && position < end)
+            {
+                current = (current << 8) | (buffer.get(position++) & 0xFF);
+                bits += 8;
+            }
+
             while (bits >= 8)
             {
-                int c = (current >>> (bits - 8)) & 0xFF;
+                int c = (int)(current >>> (bits - 8)) & 0xFF;
                 node = tree[node * 256 + c];
                 if (rowbits[node] != 0)
                 {
@@ -380,7 +416,7 @@ public class Huffman
                         throw new HpackException.CompressionException("EOS in content");
 
                     // terminal node
-                    utf8.append((byte)(0xFF & rowsym[node]));
+                    output[count++] = (byte)(0xFF & rowsym[node]);
                     bits -= rowbits[node];
                     node = 0;
                 }
@@ -391,10 +427,11 @@ public class Huffman
                 }
             }
         }
+        buffer.position(end);
 
         while (bits > 0)
         {
-            int c = (current << (8 - bits)) & 0xFF;
+            int c = (int)(current << (8 - bits)) & 0xFF;
             int lastNode = node;
             node = tree[node * 256 + c];
 
@@ -413,7 +450,7 @@ public class Huffman
                 break;
             }
 
-            utf8.append((byte)(0xFF & rowsym[node]));
+            output[count++] = (byte)(0xFF & rowsym[node]);
             bits -= rowbits[node];
             node = 0;
         }
@@ -421,7 +458,7 @@ public class Huffman
         if (node != 0)
             throw new HpackException.CompressionException("Bad termination");
 
-        return utf8.toString();
+        return count;
     }
 
     public static int octetsNeeded(String s)
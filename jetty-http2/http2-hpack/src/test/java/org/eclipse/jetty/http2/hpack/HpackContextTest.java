@@ -19,6 +19,7 @@
 package org.eclipse.jetty.http2.hpack;
 
 import java.nio.ByteBuffer;
+import java.util.Locale;
 
 import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http2.hpack.HpackContext.Entry;
@@ -30,6 +31,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -450,4 +452,40 @@ public class HpackContextTest
         assertEquals("Wibble", ctx.get("wibble").getHttpField().getName());
         assertEquals("Wibble", ctx.get("Wibble").getHttpField().getName());
     }
+
+    @Test
+    public void testDynamicIndexFollowsEvictions()
+    {
+        HpackContext ctx = new HpackContext(1024);
+        for (int i = 0; i < 2000; ++i)
+        {
+            String name = (i % 3 == 0 ? "X-Name-" : "x-name-") + (i % 13);
+            ctx.add(new HttpField(name, "value" + (i % 7)));
+
+            // The index must return the most recent dynamic entry for every field and name.
+            for (int index = HpackContext.STATIC_SIZE + 1; index <= HpackContext.STATIC_SIZE + ctx.size(); ++index)
+            {
+                HttpField field = ctx.get(index).getHttpField();
+                Entry newestField = null;
+                Entry newestName = null;
+                for (int newer = HpackContext.STATIC_SIZE + 1; newer <= index; ++newer)
+                {
+                    Entry entry = ctx.get(newer);
+                    if (newestField == null && entry.getHttpField().equals(field))
+                        newestField = entry;
+                    if (newestName == null && entry.getHttpField().getName().equalsIgnoreCase(field.getName()))
+                        newestName = entry;
+                }
+                assertSame(newestField, ctx.get(field));
+                assertSame(newestName, ctx.get(field.getName()));
+                assertSame(newestName, ctx.get(field.getName().toUpperCase(Locale.ENGLISH)));
+            }
+        }
+
+        // Evicted names are not found anymore.
+        ctx.resize(0);
+        assertEquals(0, ctx.size());
+        assertNull(ctx.get("x-name-0"));
+        assertNull(ctx.get(new HttpField("x-name-0", "value0")));
+    }
 }
@@ -22,8 +22,10 @@ import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpScheme;
+import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http2.hpack.HpackException.CompressionException;
 import org.eclipse.jetty.http2.hpack.HpackException.SessionException;
@@ -38,6 +40,7 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -567,4 +570,35 @@ public class HpackDecoderTest
         StreamException ex = assertThrows(StreamException.class, () -> decoder.decode(buffer));
         assertThat(ex.getMessage(), Matchers.containsString("Illegal header"));
     }
+
+    @Test
+    public void testCommonValuesAreShared() throws Exception
+    {
+        HttpFields fields = new HttpFields();
+        fields.add(HttpHeader.CACHE_CONTROL, "no-cache");
+        fields.add(HttpHeader.CONTENT_ENCODING, "gzip");
+        fields.add(HttpHeader.CONTENT_TYPE, "text/plain;charset=utf-8");
+        MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, 200, fields);
+
+        HttpField[][] decoded = new HttpField[2][];
+        for (int i = 0; i < decoded.length; ++i)
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            new HpackEncoder().encode(buffer, response);
+            buffer.flip();
+            MetaData.Response decodedResponse = (MetaData.Response)new HpackDecoder(4096, 8192).decode(buffer);
+            decoded[i] = decodedResponse.getFields().stream().toArray(HttpField[]::new);
+        }
+
+        assertEquals(3, decoded[0].length);
+        for (int i = 0; i < decoded[0].length; ++i)
+        {
+            HttpField field = decoded[0][i];
+            assertEquals(fields.getField(i).getHeader(), field.getHeader());
+            assertEquals(fields.getField(i).getLowerCaseName(), field.getName());
+            assertEquals(fields.getField(i).getValue(), field.getValue());
+            // Independent decoders share the same instance of common fields.
+            assertSame(field, decoded[1][i]);
+        }
+    }
 }
@@ -262,4 +262,21 @@ public class HpackEncoderTest
         assertThat(context.getMaxDynamicTableSize(), Matchers.is(50));
         assertThat(context.size(), Matchers.is(1));
     }
+
+    @Test
+    public void testHuffmanOnlyIfShorter()
+    {
+        ByteBuffer buffer = BufferUtil.allocate(64);
+        int pos = BufferUtil.flipToFill(buffer);
+        // Huffman codes for these characters are longer than 8 bits.
+        HpackEncoder.encodeValue(buffer, true, "{}|~");
+        HpackEncoder.encodeValue(buffer, true, "www.example.com");
+        BufferUtil.flipToFlush(buffer, pos);
+
+        // Not Huffman encoded, length 4.
+        assertEquals(0x04, buffer.get());
+        assertEquals("{}|~", HpackDecoder.toASCIIString(buffer, 4));
+        // Huffman encoded, length 12.
+        assertEquals((byte)0x8C, buffer.get());
+    }
 }
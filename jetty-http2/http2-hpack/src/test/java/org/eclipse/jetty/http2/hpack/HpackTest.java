@@ -29,6 +29,7 @@ import org.eclipse.jetty.http.HttpVersion;
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.http.MetaData.Response;
 import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http.PreEncodedHttpFields;
 import org.eclipse.jetty.util.BufferUtil;
 import org.junit.jupiter.api.Test;
 
@@ -45,6 +46,44 @@ public class HpackTest
     static final HttpField XPowerJetty = new PreEncodedHttpField(HttpHeader.X_POWERED_BY, "jetty");
     static final HttpField Date = new PreEncodedHttpField(HttpHeader.DATE, DateGenerator.formatDate(TimeUnit.NANOSECONDS.toMillis(System.nanoTime())));
 
+    @Test
+    public void encodeDecodeTemplateTest() throws Exception
+    {
+        HpackEncoder encoder = new HpackEncoder();
+        HpackDecoder decoder = new HpackDecoder(4096, 8192);
+        ByteBuffer buffer = BufferUtil.allocateDirect(16 * 1024);
+
+        PreEncodedHttpFields template = new PreEncodedHttpFields(
+            new HttpField(HttpHeader.CONTENT_TYPE, "application/json"),
+            new HttpField(HttpHeader.CACHE_CONTROL, "no-store"),
+            new HttpField(HttpHeader.VARY, "Accept-Encoding"),
+            new HttpField("X-Api-Version", "2"));
+
+        for (int i = 0; i < 2; ++i)
+        {
+            HttpFields fields = new HttpFields();
+            fields.add(template);
+            fields.add("custom-key", "custom-value");
+            Response original = new MetaData.Response(HttpVersion.HTTP_2, 200, fields);
+
+            BufferUtil.clearToFill(buffer);
+            encoder.encode(buffer, original);
+            BufferUtil.flipToFlush(buffer, 0);
+            Response decoded = (Response)decoder.decode(buffer);
+
+            HttpFields decodedFields = decoded.getFields();
+            assertEquals(5, decodedFields.size());
+            assertEquals("application/json", decodedFields.get(HttpHeader.CONTENT_TYPE));
+            assertEquals("no-store", decodedFields.get(HttpHeader.CACHE_CONTROL));
+            assertEquals("Accept-Encoding", decodedFields.get(HttpHeader.VARY));
+            assertEquals("2", decodedFields.get("x-api-version"));
+            assertEquals("custom-value", decodedFields.get("custom-key"));
+        }
+
+        // The template is not added to the dynamic table, only the custom field is.
+        assertEquals(1, encoder.getHpackContext().size());
+    }
+
     @Test
     public void encodeDecodeResponseTest() throws Exception
     {
@@ -20,6 +20,7 @@ package org.eclipse.jetty.http2.hpack;
 
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Locale;
 import java.util.stream.Stream;
 
@@ -84,4 +85,20 @@ public class HuffmanTest
         assertThrows(BufferOverflowException.class,
             () -> Huffman.encode(BufferUtil.allocate(32), s));
     }
+
+    @ParameterizedTest(name = "[{index}] spec={0}")
+    @MethodSource("data")
+    public void testDecodeIntoArray(String specSection, String hex, String expected) throws Exception
+    {
+        byte[] encoded = TypeUtil.fromHexString(hex);
+        byte[] array = new byte[encoded.length + 2];
+        System.arraycopy(encoded, 0, array, 1, encoded.length);
+        ByteBuffer buffer = ByteBuffer.wrap(array);
+        buffer.position(1);
+
+        byte[] decoded = new byte[Huffman.maxDecodedLength(encoded.length)];
+        int length = Huffman.decode(buffer, encoded.length, decoded);
+        assertEquals(expected, new String(decoded, 0, length, StandardCharsets.US_ASCII), specSection);
+        assertEquals(1 + encoded.length, buffer.position());
+    }
 }
@@ -28,6 +28,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jetty.http2.BufferingFlowControlStrategy;
 import org.eclipse.jetty.http2.FlowControlStrategy;
+import org.eclipse.jetty.http2.FrameScheduler;
 import org.eclipse.jetty.http2.HTTP2Connection;
 import org.eclipse.jetty.http2.api.Session;
 import org.eclipse.jetty.http2.api.server.ServerSessionListener;
@@ -63,6 +64,9 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
     private boolean connectProtocolEnabled = true;
     private RateControl.Factory rateControlFactory = new WindowRateControl.Factory(20);
     private FlowControlStrategy.Factory flowControlStrategyFactory = () -> new BufferingFlowControlStrategy(0.5F);
+    private FrameScheduler frameScheduler = FrameScheduler.WEIGHTED;
+    private int coalesceBufferSize = 16 * 1024;
+    private int coalesceThreshold = 2 * 1024;
     private long streamIdleTimeout;
     private boolean useInputDirectByteBuffers;
     private boolean useOutputDirectByteBuffers;
@@ -153,6 +157,38 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
         this.flowControlStrategyFactory = flowControlStrategyFactory;
     }
 
+    public FrameScheduler getFrameScheduler()
+    {
+        return frameScheduler;
+    }
+
+    public void setFrameScheduler(FrameScheduler frameScheduler)
+    {
+        this.frameScheduler = frameScheduler;
+    }
+
+    @ManagedAttribute("The size of the buffers small frames are coalesced into before writing, or 0 to disable coalescing")
+    public int getCoalesceBufferSize()
+    {
+        return coalesceBufferSize;
+    }
+
+    public void setCoalesceBufferSize(int coalesceBufferSize)
+    {
+        this.coalesceBufferSize = coalesceBufferSize;
+    }
+
+    @ManagedAttribute("The max size of the frame buffers that are coalesced before writing")
+    public int getCoalesceThreshold()
+    {
+        return coalesceThreshold;
+    }
+
+    public void setCoalesceThreshold(int coalesceThreshold)
+    {
+        this.coalesceThreshold = coalesceThreshold;
+    }
+
     @ManagedAttribute("The stream idle timeout in milliseconds")
     public long getStreamIdleTimeout()
     {
@@ -274,6 +310,9 @@ public abstract class AbstractHTTP2ServerConnectionFactory extends AbstractConne
             session.setStreamIdleTimeout(streamIdleTimeout);
         session.setInitialSessionRecvWindow(getInitialSessionRecvWindow());
         session.setWriteThreshold(getHttpConfiguration().getOutputBufferSize());
+        session.setFrameScheduler(getFrameScheduler());
+        session.setCoalesceBufferSize(getCoalesceBufferSize());
+        session.setCoalesceThreshold(getCoalesceThreshold());
         session.setConnectProtocolEnabled(isConnectProtocolEnabled());
 
         ServerParser parser = newServerParser(connector, session, getRateControlFactory().newRateControl(endPoint));
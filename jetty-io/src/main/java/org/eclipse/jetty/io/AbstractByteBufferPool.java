@@ -35,6 +35,7 @@ abstract class AbstractByteBufferPool implements ByteBufferPool
     private final AtomicLong _heapMemory = new AtomicLong();
     private final long _maxDirectMemory;
     private final AtomicLong _directMemory = new AtomicLong();
+    private final RetainableByteBufferPool _retainableByteBufferPool = new RetainableByteBufferPool(this);
 
     protected AbstractByteBufferPool(int factor, int maxQueueLength, long maxHeapMemory, long maxDirectMemory)
     {
@@ -44,6 +45,12 @@ abstract class AbstractByteBufferPool implements ByteBufferPool
         _maxDirectMemory = maxDirectMemory;
     }
 
+    @Override
+    public RetainableByteBufferPool asRetainableByteBufferPool()
+    {
+        return _retainableByteBufferPool;
+    }
+
     protected int getCapacityFactor()
     {
         return _factor;
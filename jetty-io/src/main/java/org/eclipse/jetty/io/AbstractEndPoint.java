@@ -20,6 +20,7 @@ package org.eclipse.jetty.io;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -391,6 +392,12 @@ public abstract class AbstractEndPoint extends IdleTimeout implements EndPoint
         _writeFlusher.write(callback, buffers);
     }
 
+    @Override
+    public void write(Callback callback, FileChannel file, long position, long length) throws IllegalStateException
+    {
+        _writeFlusher.write(callback, file, position, length);
+    }
+
     protected abstract void onIncompleteFlush();
 
     protected abstract void needsFillInterest() throws IOException;
@@ -0,0 +1,593 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A ByteBuffer pool whose bucket capacities and retention adapt to the observed acquire sizes.</p>
+ * <p>Acquire sizes are recorded in a histogram of size classes (4 classes per power of 2, up
+ * to {@code maxCapacity}). Periodically, the histogram is used to choose at most
+ * {@code maxBuckets} bucket capacities that minimize the bytes wasted between the requested
+ * size and the capacity of the ByteBuffer returned; the rarest largest sizes (less than
+ * {@code 0.1%} of the acquires) are not pooled.</p>
+ * <p>At the same time, the number of ByteBuffers retained by each bucket is adjusted: it is
+ * doubled if the bucket hit rate was below the target hit rate, otherwise it is reduced to
+ * the number of ByteBuffers actually used during the period (the max number of idle ByteBuffers
+ * minus those that remained idle for the whole period); it is halved if the bucket was not used.</p>
+ * <p>No ByteBuffer is pooled until the first rebalance.</p>
+ * <p>A periodic rebalance is claimed by a single acquiring thread, which runs it on the
+ * {@link #setExecutor(Executor) executor} if one is set, or otherwise runs it itself;
+ * the other acquiring threads never wait for a rebalance.</p>
+ * <p>The histogram is exponentially decayed at each rebalance, so that the pool follows
+ * changes in the traffic.</p>
+ */
+@ManagedObject
+public class AdaptiveByteBufferPool extends AbstractByteBufferPool
+{
+    private static final Logger LOG = Log.getLogger(AdaptiveByteBufferPool.class);
+    private static final int INITIAL_RETENTION = 8;
+
+    private final AtomicBoolean _rebalancing = new AtomicBoolean();
+    private final LongAdder _requestedBytes = new LongAdder();
+    private final LongAdder _allocatedBytes = new LongAdder();
+    private final int[] _classes;
+    private final LongAdder[] _counts;
+    private final long[] _weights;
+    private final int _maxBuckets;
+    private final double _targetHitRate;
+    private final long _rebalancePeriod;
+    private volatile long _lastRebalance = System.nanoTime();
+    private volatile double _wasteRatio;
+    private volatile Bucket[] _direct = new Bucket[0];
+    private volatile Bucket[] _indirect = new Bucket[0];
+    private volatile Executor _executor;
+
+    /**
+     * Creates a new AdaptiveByteBufferPool with a default configuration.
+     */
+    public AdaptiveByteBufferPool()
+    {
+        this(-1, -1, -1, -1, -1, -1, -1);
+    }
+
+    /**
+     * Creates a new AdaptiveByteBufferPool with the given configuration.
+     *
+     * @param maxCapacity the maximum ByteBuffer capacity, or -1 for 1 MiB
+     * @param maxBuckets the maximum number of buckets, or -1 for 16
+     * @param maxQueueLength the maximum number of ByteBuffers retained per bucket, or -1 for unbounded
+     * @param maxHeapMemory the max heap memory in bytes
+     * @param maxDirectMemory the max direct memory in bytes
+     * @param targetHitRate the target fraction of acquisitions satisfied by the pool, or -1 for 0.95
+     * @param rebalancePeriod the period in milliseconds between rebalances, or -1 for 10 seconds
+     */
+    public AdaptiveByteBufferPool(int maxCapacity, int maxBuckets, int maxQueueLength, long maxHeapMemory, long maxDirectMemory, double targetHitRate, long rebalancePeriod)
+    {
+        super(-1, maxQueueLength, maxHeapMemory, maxDirectMemory);
+        if (maxCapacity <= 0)
+            maxCapacity = 1024 * 1024;
+        _maxBuckets = maxBuckets > 0 ? maxBuckets : 16;
+        _targetHitRate = targetHitRate > 0 && targetHitRate <= 1 ? targetHitRate : 0.95;
+        _rebalancePeriod = TimeUnit.MILLISECONDS.toNanos(rebalancePeriod > 0 ? rebalancePeriod : 10000);
+
+        List<Integer> classes = new ArrayList<>();
+        int capacity = 256;
+        while (capacity < maxCapacity)
+        {
+            classes.add(capacity);
+            capacity += Integer.highestOneBit(capacity) / 4;
+        }
+        classes.add(maxCapacity);
+        _classes = classes.stream().mapToInt(Integer::intValue).toArray();
+        _counts = new LongAdder[_classes.length];
+        for (int i = 0; i < _counts.length; ++i)
+        {
+            _counts[i] = new LongAdder();
+        }
+        _weights = new long[_classes.length];
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        int index = classFor(size);
+        if (index < _counts.length)
+            _counts[index].increment();
+        if (System.nanoTime() - _lastRebalance > _rebalancePeriod)
+            rebalanceIfDue();
+
+        Bucket bucket = acquireBucketFor(bucketsFor(direct), size);
+        int capacity = bucket == null ? size : bucket._capacity;
+        _requestedBytes.add(size);
+        _allocatedBytes.add(capacity);
+        if (bucket == null)
+            return newByteBuffer(capacity, direct);
+        ByteBuffer buffer = bucket.acquire();
+        if (buffer == null)
+            return newByteBuffer(capacity, direct);
+        decrementMemory(buffer);
+        return buffer;
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer == null)
+            return;
+        boolean direct = buffer.isDirect();
+        Bucket bucket = findBucket(bucketsFor(direct), buffer.capacity());
+        if (bucket == null)
+            return;
+        BufferUtil.clear(buffer);
+        if (!bucket.release(buffer))
+            return;
+        incrementMemory(buffer);
+        // The bucket may have been retired concurrently by a rebalance,
+        // in which case its ByteBuffers must be moved to the new buckets.
+        if (bucket._retired)
+            migrate(bucket, bucketsFor(direct));
+        releaseExcessMemory(direct, this::clearOldestBucket);
+    }
+
+    /**
+     * @return the executor that runs the periodic rebalances, or null if they run in the acquiring thread
+     */
+    public Executor getExecutor()
+    {
+        return _executor;
+    }
+
+    /**
+     * @param executor the executor that runs the periodic rebalances, or null to run them in the acquiring thread
+     */
+    public void setExecutor(Executor executor)
+    {
+        _executor = executor;
+    }
+
+    /**
+     * <p>Recomputes the bucket capacities and retention from the size histogram.</p>
+     * <p>This method is called periodically by {@link #acquire(int, boolean)}, but may be called explicitly.
+     * It returns immediately if a rebalance is already in progress.</p>
+     */
+    @ManagedOperation(value = "Rebalances the buckets from the size histogram", impact = "ACTION")
+    public void rebalance()
+    {
+        if (_rebalancing.compareAndSet(false, true))
+            doRebalance();
+    }
+
+    private void rebalanceIfDue()
+    {
+        if (!_rebalancing.compareAndSet(false, true))
+            return;
+
+        // Another thread may have just completed a rebalance.
+        if (System.nanoTime() - _lastRebalance <= _rebalancePeriod)
+        {
+            _rebalancing.set(false);
+            return;
+        }
+
+        Executor executor = getExecutor();
+        if (executor == null)
+        {
+            doRebalance();
+            return;
+        }
+
+        try
+        {
+            executor.execute(this::doRebalance);
+        }
+        catch (RejectedExecutionException x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Could not rebalance " + this, x);
+            _rebalancing.set(false);
+        }
+    }
+
+    private void doRebalance()
+    {
+        try
+        {
+            _lastRebalance = System.nanoTime();
+
+            long requested = _requestedBytes.sumThenReset();
+            long allocated = _allocatedBytes.sumThenReset();
+            if (allocated > 0)
+                _wasteRatio = (double)(allocated - requested) / allocated;
+
+            for (int i = 0; i < _weights.length; ++i)
+            {
+                _weights[i] = _weights[i] / 2 + _counts[i].sumThenReset();
+            }
+
+            int[] capacities = capacities();
+            _direct = rebalance(_direct, capacities);
+            _indirect = rebalance(_indirect, capacities);
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Rebalanced {}", this);
+        }
+        finally
+        {
+            _rebalancing.set(false);
+        }
+    }
+
+    /**
+     * @return the bucket capacities that minimize the waste for the current histogram
+     */
+    private int[] capacities()
+    {
+        long total = 0;
+        for (long weight : _weights)
+        {
+            total += weight;
+        }
+        if (total == 0)
+            return new int[0];
+
+        // Skip the largest, rarest classes.
+        int last = _weights.length - 1;
+        long tail = 0;
+        while (last >= 0 && (tail + _weights[last]) * 1000 < total)
+        {
+            tail += _weights[last];
+            --last;
+        }
+
+        // Compact the non empty classes.
+        int length = 0;
+        int[] sizes = new int[last + 1];
+        long[] counts = new long[last + 1];
+        for (int i = 0; i <= last; ++i)
+        {
+            if (_weights[i] > 0)
+            {
+                sizes[length] = _classes[i];
+                counts[length] = _weights[i];
+                ++length;
+            }
+        }
+        if (length <= _maxBuckets)
+            return Arrays.copyOf(sizes, length);
+
+        // Prefix sums of the counts and of the requested bytes,
+        // to compute the waste of a bucket in constant time.
+        long[] countSums = new long[length + 1];
+        long[] byteSums = new long[length + 1];
+        for (int i = 0; i < length; ++i)
+        {
+            countSums[i + 1] = countSums[i] + counts[i];
+            byteSums[i + 1] = byteSums[i] + counts[i] * sizes[i];
+        }
+
+        // waste[k][i] is the min waste covering classes [0, i] with exactly k + 1
+        // buckets, the last of which has the capacity of class i; from[k][i] is
+        // the first class covered by that last bucket.
+        int buckets = _maxBuckets;
+        long[][] waste = new long[buckets][length];
+        int[][] from = new int[buckets][length];
+        for (int i = 0; i < length; ++i)
+        {
+            waste[0][i] = sizes[i] * countSums[i + 1] - byteSums[i + 1];
+        }
+        for (int k = 1; k < buckets; ++k)
+        {
+            for (int i = k; i < length; ++i)
+            {
+                long min = Long.MAX_VALUE;
+                int first = i;
+                for (int j = k; j <= i; ++j)
+                {
+                    long w = waste[k - 1][j - 1] + sizes[i] * (countSums[i + 1] - countSums[j]) - (byteSums[i + 1] - byteSums[j]);
+                    if (w < min)
+                    {
+                        min = w;
+                        first = j;
+                    }
+                }
+                waste[k][i] = min;
+                from[k][i] = first;
+            }
+        }
+
+        int[] capacities = new int[buckets];
+        int i = length - 1;
+        for (int k = buckets - 1; k >= 0; --k)
+        {
+            capacities[k] = sizes[i];
+            i = from[k][i] - 1;
+        }
+        return capacities;
+    }
+
+    private Bucket[] rebalance(Bucket[] oldBuckets, int[] capacities)
+    {
+        int maxQueueLength = getMaxQueueLength();
+        Bucket[] newBuckets = new Bucket[capacities.length];
+        for (int i = 0; i < capacities.length; ++i)
+        {
+            int capacity = capacities[i];
+            Bucket old = findBucket(oldBuckets, capacity);
+            int maxSize = INITIAL_RETENTION;
+            if (old != null)
+            {
+                long acquires = old._acquires.sum();
+                long misses = old._misses.sum();
+                int minIdle = old._minIdle.get();
+                int maxIdle = old._maxIdle.get();
+                maxSize = old._maxSize;
+                if (acquires == 0)
+                    maxSize = Math.max(1, maxSize / 2);
+                else if ((double)(acquires - misses) / acquires < _targetHitRate)
+                    maxSize = maxSize * 2;
+                else
+                    maxSize = Math.max(1, maxIdle - minIdle);
+            }
+            if (maxQueueLength > 0)
+                maxSize = Math.min(maxSize, maxQueueLength);
+            newBuckets[i] = new Bucket(capacity, maxSize);
+        }
+
+        for (Bucket old : oldBuckets)
+        {
+            old._retired = true;
+            migrate(old, newBuckets);
+        }
+        return newBuckets;
+    }
+
+    private void migrate(Bucket retired, Bucket[] buckets)
+    {
+        Bucket bucket = findBucket(buckets, retired._capacity);
+        while (true)
+        {
+            ByteBuffer buffer = retired.poll();
+            if (buffer == null)
+                break;
+            if (bucket == null || !bucket.release(buffer))
+                decrementMemory(buffer);
+        }
+    }
+
+    private void clearOldestBucket(boolean direct)
+    {
+        Bucket oldest = null;
+        for (Bucket bucket : bucketsFor(direct))
+        {
+            if (!bucket.isEmpty() && (oldest == null || bucket._lastUpdate < oldest._lastUpdate))
+                oldest = bucket;
+        }
+        if (oldest == null)
+            return;
+        while (true)
+        {
+            ByteBuffer buffer = oldest.poll();
+            if (buffer == null)
+                break;
+            decrementMemory(buffer);
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        for (Bucket bucket : _direct)
+        {
+            bucket.clear();
+        }
+        for (Bucket bucket : _indirect)
+        {
+            bucket.clear();
+        }
+    }
+
+    private int classFor(int size)
+    {
+        int index = Arrays.binarySearch(_classes, size);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static Bucket acquireBucketFor(Bucket[] buckets, int size)
+    {
+        // Find the smallest bucket with a capacity not less than size.
+        int low = 0;
+        int high = buckets.length - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if (buckets[middle]._capacity < size)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        return low < buckets.length ? buckets[low] : null;
+    }
+
+    private static Bucket findBucket(Bucket[] buckets, int capacity)
+    {
+        Bucket bucket = acquireBucketFor(buckets, capacity);
+        return bucket != null && bucket._capacity == capacity ? bucket : null;
+    }
+
+    private Bucket[] bucketsFor(boolean direct)
+    {
+        return direct ? _direct : _indirect;
+    }
+
+    @ManagedAttribute("The current bucket capacities")
+    public int[] getBucketCapacities()
+    {
+        return Arrays.stream(_indirect).mapToInt(b -> b._capacity).toArray();
+    }
+
+    @ManagedAttribute("The decayed histogram of the acquire sizes, as size class upper bound and count")
+    public String[] getSizeHistogram()
+    {
+        List<String> histogram = new ArrayList<>();
+        for (int i = 0; i < _classes.length; ++i)
+        {
+            long count = _weights[i] + _counts[i].sum();
+            if (count > 0)
+                histogram.add(String.format("<=%d: %d", _classes[i], count));
+        }
+        return histogram.toArray(new String[0]);
+    }
+
+    @ManagedAttribute("The fraction of acquired capacity not requested, in the last rebalance period")
+    public double getWasteRatio()
+    {
+        return _wasteRatio;
+    }
+
+    @ManagedAttribute("The target fraction of acquisitions satisfied by the pool")
+    public double getTargetHitRate()
+    {
+        return _targetHitRate;
+    }
+
+    @ManagedAttribute("The number of pooled direct ByteBuffers")
+    public long getDirectByteBufferCount()
+    {
+        return getByteBufferCount(true);
+    }
+
+    @ManagedAttribute("The number of pooled heap ByteBuffers")
+    public long getHeapByteBufferCount()
+    {
+        return getByteBufferCount(false);
+    }
+
+    private long getByteBufferCount(boolean direct)
+    {
+        return Arrays.stream(bucketsFor(direct)).mapToLong(Bucket::size).sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{capacities=%s,waste=%.3f,direct=%s,heap=%s}",
+            getClass().getSimpleName(),
+            hashCode(),
+            Arrays.toString(getBucketCapacities()),
+            getWasteRatio(),
+            Arrays.toString(_direct),
+            Arrays.toString(_indirect));
+    }
+
+    private static class Bucket
+    {
+        private final Deque<ByteBuffer> _queue = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger _size = new AtomicInteger();
+        private final AtomicInteger _minIdle = new AtomicInteger(Integer.MAX_VALUE);
+        private final AtomicInteger _maxIdle = new AtomicInteger();
+        private final LongAdder _acquires = new LongAdder();
+        private final LongAdder _misses = new LongAdder();
+        private final int _capacity;
+        private final int _maxSize;
+        private volatile boolean _retired;
+        private long _lastUpdate = System.nanoTime();
+
+        private Bucket(int capacity, int maxSize)
+        {
+            _capacity = capacity;
+            _maxSize = maxSize;
+        }
+
+        private ByteBuffer acquire()
+        {
+            _acquires.increment();
+            ByteBuffer buffer = poll();
+            if (buffer == null)
+                _misses.increment();
+            _minIdle.accumulateAndGet(_size.get(), Math::min);
+            return buffer;
+        }
+
+        private ByteBuffer poll()
+        {
+            ByteBuffer buffer = _queue.poll();
+            if (buffer != null)
+                _size.decrementAndGet();
+            return buffer;
+        }
+
+        private boolean release(ByteBuffer buffer)
+        {
+            int size = _size.incrementAndGet();
+            if (size > _maxSize)
+            {
+                _size.decrementAndGet();
+                return false;
+            }
+            _lastUpdate = System.nanoTime();
+            _queue.offerFirst(buffer);
+            _maxIdle.accumulateAndGet(size, Math::max);
+            return true;
+        }
+
+        private void clear()
+        {
+            while (poll() != null)
+            {
+                // Keep clearing.
+            }
+        }
+
+        private boolean isEmpty()
+        {
+            return _queue.isEmpty();
+        }
+
+        private int size()
+        {
+            return _queue.size();
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d/%d@%d", size(), _maxSize, _capacity);
+        }
+    }
+}
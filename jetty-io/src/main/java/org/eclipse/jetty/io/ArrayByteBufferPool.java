@@ -31,6 +31,10 @@ import org.eclipse.jetty.util.annotation.ManagedObject;
  * <p>Given a capacity {@code factor} of 1024, the first array element holds a queue of ByteBuffers
  * each of capacity 1024, the second array element holds a queue of ByteBuffers each of capacity
  * 2048, and so on.</p>
+ * <p>Optionally, direct ByteBuffers may be allocated as slices of larger direct regions
+ * called slabs (see {@link #ArrayByteBufferPool(int, int, int, int, long, long, int, long)}),
+ * so that native memory is reserved in few large chunks, each freed by a single cleaner
+ * rather than one per ByteBuffer.</p>
  */
 @ManagedObject
 public class ArrayByteBufferPool extends AbstractByteBufferPool
@@ -38,6 +42,7 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool
     private final int _minCapacity;
     private final ByteBufferPool.Bucket[] _direct;
     private final ByteBufferPool.Bucket[] _indirect;
+    private final DirectSlabAllocator _slabs;
 
     /**
      * Creates a new ArrayByteBufferPool with a default configuration.
@@ -83,6 +88,29 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool
      * @param maxDirectMemory the max direct memory in bytes
      */
     public ArrayByteBufferPool(int minCapacity, int factor, int maxCapacity, int maxQueueLength, long maxHeapMemory, long maxDirectMemory)
+    {
+        this(minCapacity, factor, maxCapacity, maxQueueLength, maxHeapMemory, maxDirectMemory, 0, 0);
+    }
+
+    /**
+     * Creates a new ArrayByteBufferPool with the given configuration.
+     * <p>When {@code slabSize} is positive, pooled direct ByteBuffers are carved out of
+     * direct slabs of that size, and the native memory reserved by slabs is bounded
+     * by {@code maxSlabMemory}, if positive; once that bound is reached, direct ByteBuffers
+     * are reused from the slices that the pool discarded, or allocated individually.
+     * The slab memory is reserved independently of {@code maxDirectMemory}, which only
+     * bounds the memory retained by the idle ByteBuffers of the pool.</p>
+     *
+     * @param minCapacity the minimum ByteBuffer capacity
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum ByteBuffer capacity
+     * @param maxQueueLength the maximum ByteBuffer queue length
+     * @param maxHeapMemory the max heap memory in bytes
+     * @param maxDirectMemory the max direct memory in bytes
+     * @param slabSize the size in bytes of direct slabs, or 0 to allocate each direct ByteBuffer individually
+     * @param maxSlabMemory the max native memory in bytes reserved by slabs, or a non-positive value for unbounded
+     */
+    public ArrayByteBufferPool(int minCapacity, int factor, int maxCapacity, int maxQueueLength, long maxHeapMemory, long maxDirectMemory, int slabSize, long maxSlabMemory)
     {
         super(factor, maxQueueLength, maxHeapMemory, maxDirectMemory);
 
@@ -98,6 +126,18 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool
         int length = maxCapacity / factor;
         _direct = new ByteBufferPool.Bucket[length];
         _indirect = new ByteBufferPool.Bucket[length];
+        if (slabSize > 0 && slabSize < maxCapacity)
+            throw new IllegalArgumentException("The slab size must not be less than maxCapacity");
+        _slabs = slabSize > 0 ? new DirectSlabAllocator(slabSize, maxSlabMemory) : null;
+    }
+
+    @Override
+    public ByteBuffer newByteBuffer(int capacity, boolean direct)
+    {
+        // Only pooled capacities are carved out of slabs.
+        if (direct && _slabs != null && capacity >= _minCapacity && bucketFor(capacity) < _direct.length)
+            return _slabs.allocate(capacity);
+        return super.newByteBuffer(capacity, direct);
     }
 
     @Override
@@ -123,12 +163,32 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool
         ByteBufferPool.Bucket bucket = bucketFor(buffer.capacity(), direct, this::newBucket);
         if (bucket != null)
         {
-            bucket.release(buffer);
-            incrementMemory(buffer);
-            releaseExcessMemory(direct, this::clearOldestBucket);
+            if (bucket.offer(buffer))
+            {
+                incrementMemory(buffer);
+                releaseExcessMemory(direct, this::clearOldestBucket);
+            }
+            else
+            {
+                discard(buffer);
+            }
         }
     }
 
+    private void evict(ByteBuffer buffer)
+    {
+        decrementMemory(buffer);
+        discard(buffer);
+    }
+
+    private void discard(ByteBuffer buffer)
+    {
+        // Slices of slabs are reused by the allocator rather than dropped,
+        // as their memory is only freed along with their whole slab.
+        if (_slabs != null && buffer.isDirect())
+            _slabs.free(buffer);
+    }
+
     private Bucket newBucket(int key)
     {
         return new Bucket(key * getCapacityFactor(), getMaxQueueLength());
@@ -149,6 +209,8 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool
                 bucket.clear();
             _indirect[i] = null;
         }
+        if (_slabs != null)
+            _slabs.clear();
     }
 
     private void clearOldestBucket(boolean direct)
@@ -175,7 +237,7 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool
             // The same bucket may be concurrently
             // removed, so we need this null guard.
             if (bucket != null)
-                bucket.clear(this::decrementMemory);
+                bucket.clear(this::evict);
         }
     }
 
@@ -218,6 +280,48 @@ public class ArrayByteBufferPool extends AbstractByteBufferPool
             .sum();
     }
 
+    @ManagedAttribute("The size in bytes of direct slabs, or 0 if slabs are not used")
+    public int getSlabSize()
+    {
+        return _slabs == null ? 0 : _slabs.getSlabSize();
+    }
+
+    @ManagedAttribute("The number of live direct slabs")
+    public long getSlabCount()
+    {
+        return _slabs == null ? 0 : _slabs.getSlabCount();
+    }
+
+    @ManagedAttribute("The native memory in bytes reserved by live direct slabs")
+    public long getSlabMemory()
+    {
+        return _slabs == null ? 0 : _slabs.getMemory();
+    }
+
+    @ManagedAttribute("The number of direct ByteBuffers carved out of slabs")
+    public long getSlabSliceCount()
+    {
+        return _slabs == null ? 0 : _slabs.getSliceCount();
+    }
+
+    @ManagedAttribute("The number of slices of slabs reused after the pool discarded them")
+    public long getSlabReuseCount()
+    {
+        return _slabs == null ? 0 : _slabs.getReuseCount();
+    }
+
+    @ManagedAttribute("The number of slices of slabs discarded by the pool and available for reuse")
+    public long getSlabFreeCount()
+    {
+        return _slabs == null ? 0 : _slabs.getFreeCount();
+    }
+
+    @ManagedAttribute("The number of direct ByteBuffers allocated individually because slabs were exhausted")
+    public long getSlabFallbackCount()
+    {
+        return _slabs == null ? 0 : _slabs.getFallbackCount();
+    }
+
     // Package local for testing
     ByteBufferPool.Bucket[] bucketsFor(boolean direct)
     {
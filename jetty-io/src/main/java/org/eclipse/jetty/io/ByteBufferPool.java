@@ -69,6 +69,19 @@ public interface ByteBufferPool
         return direct ? BufferUtil.allocateDirect(capacity) : BufferUtil.allocate(capacity);
     }
 
+    /**
+     * <p>Returns a {@link RetainableByteBufferPool} whose entries acquire their ByteBuffers from this pool.</p>
+     * <p>The same instance is returned on every call, so that the entries are shared by all
+     * the users of this pool; this default implementation looks it up in a weak map, and
+     * implementations should rather keep it in a field.</p>
+     *
+     * @return a RetainableByteBufferPool backed by this pool
+     */
+    default RetainableByteBufferPool asRetainableByteBufferPool()
+    {
+        return RetainableByteBufferPool.of(this);
+    }
+
     public static class Lease
     {
         private final ByteBufferPool byteBufferPool;
@@ -165,15 +178,30 @@ public interface ByteBufferPool
         }
 
         public void release(ByteBuffer buffer)
+        {
+            offer(buffer);
+        }
+
+        /**
+         * @param buffer the ByteBuffer to return to this bucket
+         * @return whether the ByteBuffer was queued, or false if this bucket is full
+         */
+        boolean offer(ByteBuffer buffer)
         {
             _lastUpdate = System.nanoTime();
             BufferUtil.clear(buffer);
             if (_size == null)
+            {
                 queueOffer(buffer);
-            else if (_size.incrementAndGet() <= _maxSize)
+                return true;
+            }
+            if (_size.incrementAndGet() <= _maxSize)
+            {
                 queueOffer(buffer);
-            else
-                _size.decrementAndGet();
+                return true;
+            }
+            _size.decrementAndGet();
+            return false;
         }
 
         public void clear()
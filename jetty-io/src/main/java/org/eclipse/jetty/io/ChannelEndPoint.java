@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
 import java.nio.channels.CancelledKeyException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
@@ -46,6 +47,7 @@ public abstract class ChannelEndPoint extends AbstractEndPoint implements Manage
     protected final ManagedSelector _selector;
     protected final SelectionKey _key;
     private boolean _updatePending;
+    private boolean _updateQueued;
 
     /**
      * The current value for {@link SelectionKey#interestOps()}.
@@ -289,6 +291,33 @@ public abstract class ChannelEndPoint extends AbstractEndPoint implements Manage
         return true;
     }
 
+    @Override
+    public boolean isTransferToSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public long transferFrom(FileChannel file, long position, long length) throws IOException
+    {
+        long flushed;
+        try
+        {
+            flushed = file.transferTo(position, length, _channel);
+            if (LOG.isDebugEnabled())
+                LOG.debug("transferred {} {}", flushed, this);
+        }
+        catch (IOException e)
+        {
+            throw new EofException(e);
+        }
+
+        if (flushed > 0)
+            notIdle();
+
+        return flushed;
+    }
+
     public ByteChannel getChannel()
     {
         return _channel;
@@ -365,6 +394,7 @@ public abstract class ChannelEndPoint extends AbstractEndPoint implements Manage
             synchronized (this)
             {
                 _updatePending = false;
+                _updateQueued = false;
                 oldInterestOps = _currentInterestOps;
                 newInterestOps = _desiredInterestOps;
                 if (oldInterestOps != newInterestOps)
@@ -389,6 +419,22 @@ public abstract class ChannelEndPoint extends AbstractEndPoint implements Manage
         }
     }
 
+    /**
+     * <p>Adds the given interest operations at once, for example both
+     * {@link SelectionKey#OP_READ} and {@link SelectionKey#OP_WRITE}, so that
+     * they cost a single selector update.</p>
+     * <p>Interest changes are batched: while a selector update for this endpoint
+     * is pending or queued, further changes are applied by that same update,
+     * and the selector coalesces the wakeups of all the updates queued during
+     * one iteration of its select loop.</p>
+     *
+     * @param operations the interest operations to add
+     */
+    public void addInterestOps(int operations)
+    {
+        changeInterests(operations & (SelectionKey.OP_READ | SelectionKey.OP_WRITE));
+    }
+
     private void changeInterests(int operation)
     {
         /**
@@ -399,6 +445,7 @@ public abstract class ChannelEndPoint extends AbstractEndPoint implements Manage
         int oldInterestOps;
         int newInterestOps;
         boolean pending;
+        boolean submit;
         synchronized (this)
         {
             pending = _updatePending;
@@ -406,12 +453,17 @@ public abstract class ChannelEndPoint extends AbstractEndPoint implements Manage
             newInterestOps = oldInterestOps | operation;
             if (newInterestOps != oldInterestOps)
                 _desiredInterestOps = newInterestOps;
+            // The update is performed by the selector after onSelected(),
+            // or by an update already queued, so don't queue another one.
+            submit = !pending && !_updateQueued;
+            if (submit)
+                _updateQueued = true;
         }
 
         if (LOG.isDebugEnabled())
-            LOG.debug("changeInterests p={} {}->{} for {}", pending, oldInterestOps, newInterestOps, this);
+            LOG.debug("changeInterests p={} s={} {}->{} for {}", pending, submit, oldInterestOps, newInterestOps, this);
 
-        if (!pending && _selector != null)
+        if (submit && _selector != null)
             _selector.submit(_updateKeyAction);
     }
 
@@ -0,0 +1,199 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.BufferUtil;
+
+/**
+ * <p>Allocates direct ByteBuffers as slices of large direct regions called slabs.</p>
+ * <p>A slice that its owner no longer needs is {@link #free(ByteBuffer) freed} to a free
+ * list for its capacity, and allocations of that capacity reuse it before carving a new
+ * slice. New slices are carved sequentially out of the current slab; when the current slab
+ * cannot fit a slice, a new slab is allocated, unless that would exceed the max memory,
+ * in which case the ByteBuffer is allocated individually.</p>
+ * <p>Slabs are retained until the allocator is {@link #clear() cleared}, as their slices
+ * are reused rather than freed. Each slice references its slab, so after a clear the native
+ * memory of a slab is freed, by a single cleaner action, only when all its slices are no
+ * longer referenced.</p>
+ */
+class DirectSlabAllocator
+{
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final AtomicLong _memory = new AtomicLong();
+    private final AtomicLong _slabs = new AtomicLong();
+    private final LongAdder _slices = new LongAdder();
+    private final LongAdder _reuses = new LongAdder();
+    private final LongAdder _fallbacks = new LongAdder();
+    private final int _slabSize;
+    private final long _maxMemory;
+    private final Map<Integer, Deque<ByteBuffer>> _free = new HashMap<>();
+    private Set<ByteBuffer> _carved = Collections.newSetFromMap(new IdentityHashMap<>());
+    private ByteBuffer _slab;
+
+    /**
+     * @param slabSize the size in bytes of each slab
+     * @param maxMemory the max native memory in bytes reserved by slabs, or a non-positive value for unbounded
+     */
+    DirectSlabAllocator(int slabSize, long maxMemory)
+    {
+        if (slabSize <= 0)
+            throw new IllegalArgumentException("Invalid slab size " + slabSize);
+        _slabSize = slabSize;
+        _maxMemory = maxMemory;
+    }
+
+    ByteBuffer allocate(int capacity)
+    {
+        if (capacity <= _slabSize)
+        {
+            ByteBuffer slice = slice(capacity);
+            if (slice != null)
+                return slice;
+        }
+        _fallbacks.increment();
+        return BufferUtil.allocateDirect(capacity);
+    }
+
+    private synchronized ByteBuffer slice(int capacity)
+    {
+        Deque<ByteBuffer> free = _free.get(capacity);
+        ByteBuffer reused = free == null ? null : free.poll();
+        if (reused != null)
+        {
+            _reuses.increment();
+            BufferUtil.clear(reused);
+            return reused;
+        }
+
+        if (_slab == null || _slab.remaining() < capacity)
+        {
+            // Forget the current slab, the tail that did not fit
+            // is wasted and freed along with the slab itself.
+            _slab = null;
+            if (_maxMemory > 0 && _memory.get() + _slabSize > _maxMemory)
+                return null;
+            _slab = newSlab();
+        }
+        int position = _slab.position();
+        _slab.limit(position + capacity);
+        ByteBuffer slice = _slab.slice();
+        _slab.limit(_slab.capacity());
+        _slab.position(position + capacity);
+        BufferUtil.clear(slice);
+        _carved.add(slice);
+        _slices.increment();
+        return slice;
+    }
+
+    /**
+     * <p>Frees a ByteBuffer that its owner no longer uses, so that it can be reused
+     * if it is a slice of a slab of this allocator.</p>
+     *
+     * @param buffer the ByteBuffer that is no longer used
+     * @return whether the ByteBuffer is a slice that will be reused
+     */
+    synchronized boolean free(ByteBuffer buffer)
+    {
+        if (!_carved.contains(buffer))
+            return false;
+        _free.computeIfAbsent(buffer.capacity(), k -> new ArrayDeque<>()).offer(buffer);
+        return true;
+    }
+
+    /**
+     * <p>Forgets the slabs and the free slices, so that the native memory of each slab
+     * is freed once the slices still in use are no longer referenced.</p>
+     */
+    synchronized void clear()
+    {
+        _free.clear();
+        _carved = Collections.newSetFromMap(new IdentityHashMap<>());
+        _slab = null;
+    }
+
+    private ByteBuffer newSlab()
+    {
+        ByteBuffer slab = ByteBuffer.allocateDirect(_slabSize);
+        int size = slab.capacity();
+        _memory.addAndGet(size);
+        _slabs.incrementAndGet();
+        // The cleaner action must not reference the slab.
+        CLEANER.register(slab, () ->
+        {
+            _memory.addAndGet(-size);
+            _slabs.decrementAndGet();
+        });
+        return slab;
+    }
+
+    int getSlabSize()
+    {
+        return _slabSize;
+    }
+
+    long getSlabCount()
+    {
+        return _slabs.get();
+    }
+
+    long getMemory()
+    {
+        return _memory.get();
+    }
+
+    long getSliceCount()
+    {
+        return _slices.sum();
+    }
+
+    long getReuseCount()
+    {
+        return _reuses.sum();
+    }
+
+    synchronized long getFreeCount()
+    {
+        return _free.values().stream().mapToLong(Deque::size).sum();
+    }
+
+    long getFallbackCount()
+    {
+        return _fallbacks.sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{slabs=%d,memory=%d/%d,slices=%d,reuses=%d,free=%d,fallbacks=%d}",
+            getClass().getSimpleName(), hashCode(), getSlabCount(), getMemory(), _maxMemory, getSliceCount(), getReuseCount(), getFreeCount(), getFallbackCount());
+    }
+}
@@ -22,6 +22,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadPendingException;
 import java.nio.channels.WritePendingException;
 
@@ -251,6 +252,48 @@ public interface EndPoint extends Closeable
      */
     void write(Callback callback, ByteBuffer... buffers) throws WritePendingException;
 
+    /**
+     * @return whether file content can be written with {@link #transferFrom(FileChannel, long, long)},
+     * without being copied into the JVM
+     */
+    default boolean isTransferToSupported()
+    {
+        return false;
+    }
+
+    /**
+     * <p>Flushes bytes from a region of the given file to this endpoint, typically with
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+     * so that the operating system can send the file content without copying it through the JVM.</p>
+     *
+     * @param file the file to flush content from
+     * @param position the position in the file of the first byte to flush
+     * @param length the maximum number of bytes to flush
+     * @return the number of bytes flushed, possibly zero
+     * @throws IOException If the endpoint is closed or output is shutdown.
+     * @see #isTransferToSupported()
+     */
+    default long transferFrom(FileChannel file, long position, long length) throws IOException
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * <p>Writes a region of the given file via {@link #transferFrom(FileChannel, long, long)} and invokes
+     * callback methods when either all the bytes have been flushed or an error occurs.</p>
+     *
+     * @param callback the callback to call when an error occurs or the write completed.
+     * @param file the file to write content from
+     * @param position the position in the file of the first byte to write
+     * @param length the number of bytes to write
+     * @throws WritePendingException if another write operation is concurrent.
+     * @see #isTransferToSupported()
+     */
+    default void write(Callback callback, FileChannel file, long position, long length) throws WritePendingException
+    {
+        callback.failed(new UnsupportedOperationException());
+    }
+
     /**
      * @return the {@link Connection} associated with this {@link EndPoint}
      * @see #setConnection(Connection)
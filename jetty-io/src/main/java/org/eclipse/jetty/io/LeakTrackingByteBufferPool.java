@@ -49,6 +49,7 @@ public class LeakTrackingByteBufferPool extends ContainerLifeCycle implements By
 
     private static final boolean NOISY = Boolean.getBoolean(LeakTrackingByteBufferPool.class.getName() + ".NOISY");
     private final ByteBufferPool delegate;
+    private final RetainableByteBufferPool retainableByteBufferPool = new RetainableByteBufferPool(this);
     private final AtomicLong leakedReleases = new AtomicLong(0);
     private final AtomicLong leakedAcquires = new AtomicLong(0);
     private final AtomicLong leaked = new AtomicLong(0);
@@ -60,6 +61,12 @@ public class LeakTrackingByteBufferPool extends ContainerLifeCycle implements By
         addBean(delegate);
     }
 
+    @Override
+    public RetainableByteBufferPool asRetainableByteBufferPool()
+    {
+        return retainableByteBufferPool;
+    }
+
     @Override
     public ByteBuffer acquire(int size, boolean direct)
     {
@@ -29,19 +29,22 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.component.ContainerLifeCycle;
@@ -58,6 +61,9 @@ import org.eclipse.jetty.util.thread.strategy.EatWhatYouKill;
  * <p>{@link ManagedSelector} runs the select loop, which waits on {@link Selector#select()} until events
  * happen for registered channels. When events happen, it notifies the {@link EndPoint} associated
  * with the channel.</p>
+ * <p>{@link SelectorUpdate}s are submitted to a lock-free queue and the selector is woken up
+ * only by the first submission after it started selecting, so that many updates submitted
+ * during one iteration of the select loop cost at most one {@link Selector#wakeup()}.</p>
  */
 public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 {
@@ -79,24 +85,45 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
     }
 
     private final AtomicBoolean _started = new AtomicBoolean(false);
-    private boolean _selecting = false;
+    private final AtomicBoolean _selecting = new AtomicBoolean();
+    private final LongAdder _wakeups = new LongAdder();
+    private final Queue<SelectorUpdate> _updates = new ConcurrentLinkedQueue<>();
+    // ConcurrentLinkedQueue.size() is O(n), so the updates are counted separately;
+    // the count is incremented before offering and decremented after polling.
+    private final AtomicInteger _updateCount = new AtomicInteger();
     private final SelectorManager _selectorManager;
     private final int _id;
     private final ExecutionStrategy _strategy;
+    private final SelectorPartition _partition;
     private Selector _selector;
-    private Deque<SelectorUpdate> _updates = new ArrayDeque<>();
-    private Deque<SelectorUpdate> _updateable = new ArrayDeque<>();
 
     public ManagedSelector(SelectorManager selectorManager, int id)
     {
         _selectorManager = selectorManager;
         _id = id;
         SelectorProducer producer = new SelectorProducer();
-        Executor executor = selectorManager.getExecutor();
+        _partition = selectorManager.isPartitioned() ? selectorManager.newSelectorPartition(this) : null;
+        Executor executor = _partition == null ? selectorManager.getExecutor() : _partition;
         _strategy = new EatWhatYouKill(producer, executor);
+        if (_partition != null)
+            addBean(_partition, true);
         addBean(_strategy, true);
     }
 
+    public int getId()
+    {
+        return _id;
+    }
+
+    /**
+     * @return the partition of this selector, or null if the {@link SelectorManager} is not partitioned
+     * @see SelectorManager#isPartitioned()
+     */
+    public SelectorPartition getPartition()
+    {
+        return _partition;
+    }
+
     public Selector getSelector()
     {
         return _selector;
@@ -114,7 +141,10 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
         // The normal strategy obtains the produced task, schedules
         // a new thread to produce more, runs the task and then exits.
-        _selectorManager.execute(_strategy::produce);
+        if (_partition == null)
+            _selectorManager.execute(_strategy::produce);
+        else
+            _partition.execute(_strategy::produce);
 
         // Set started only if we really are started
         Start start = new Start();
@@ -169,51 +199,63 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         if (LOG.isDebugEnabled())
             LOG.debug("Queued change {} on {}", update, this);
 
-        Selector selector = null;
-        synchronized (ManagedSelector.this)
-        {
-            _updates.offer(update);
+        _updateCount.incrementAndGet();
+        _updates.offer(update);
+        wakeup();
+    }
 
-            if (_selecting)
-            {
-                selector = _selector;
-                // To avoid the extra select wakeup.
-                _selecting = false;
-            }
-        }
+    /**
+     * <p>Submits a batch of {@link SelectorUpdate}s to be acted on between calls to {@link Selector#select()},
+     * waking up the selector at most once.</p>
+     *
+     * @param updates The selector updates to apply at next wakeup
+     */
+    public void submit(Collection<? extends SelectorUpdate> updates)
+    {
+        if (updates.isEmpty())
+            return;
 
-        if (selector != null)
-        {
-            if (LOG.isDebugEnabled())
-                LOG.debug("Wakeup on submit {}", this);
-            selector.wakeup();
-        }
+        if (LOG.isDebugEnabled())
+            LOG.debug("Queued {} changes on {}", updates.size(), this);
+
+        _updateCount.addAndGet(updates.size());
+        _updates.addAll(updates);
+        wakeup();
     }
 
     private void wakeup()
     {
-        if (LOG.isDebugEnabled())
-            LOG.debug("Wakeup {}", this);
-
-        Selector selector = null;
-        synchronized (ManagedSelector.this)
+        // Only the first caller after the selector started
+        // selecting wakes it up, the others are coalesced.
+        if (_selecting.compareAndSet(true, false))
         {
-            if (_selecting)
+            Selector selector = _selector;
+            if (selector != null)
             {
-                selector = _selector;
-                _selecting = false;
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Wakeup {}", this);
+                _wakeups.increment();
+                selector.wakeup();
             }
         }
+    }
 
-        if (selector != null)
-            selector.wakeup();
+    /**
+     * @return the number of times the selector has been woken up to process updates
+     */
+    public long getWakeupCount()
+    {
+        return _wakeups.longValue();
     }
 
     private void execute(Runnable task)
     {
         try
         {
-            _selectorManager.execute(task);
+            if (_partition == null)
+                _selectorManager.execute(task);
+            else
+                _partition.execute(task);
         }
         catch (RejectedExecutionException x)
         {
@@ -288,10 +330,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
     private int getActionSize()
     {
-        synchronized (ManagedSelector.this)
-        {
-            return _updates.size();
-        }
+        return _updateCount.get();
     }
 
     static int safeReadyOps(SelectionKey selectionKey)
@@ -330,12 +369,10 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
         {
             final DumpKeys dump = new DumpKeys();
             final String updatesAt = DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(ZonedDateTime.now());
-            synchronized (ManagedSelector.this)
-            {
-                updates = new ArrayList<>(_updates);
-                _updates.addFirst(dump);
-                _selecting = false;
-            }
+            updates = new ArrayList<>(_updates);
+            _updateCount.incrementAndGet();
+            _updates.offer(dump);
+            _selecting.set(false);
             if (LOG.isDebugEnabled())
                 LOG.debug("wakeup on dump {}", this);
             selector.wakeup();
@@ -412,20 +449,20 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
 
         private void processUpdates()
         {
-            synchronized (ManagedSelector.this)
-            {
-                Deque<SelectorUpdate> updates = _updates;
-                _updates = _updateable;
-                _updateable = updates;
-            }
-
+            // Only process the updates queued so far, so that updates
+            // that keep being submitted cannot starve the select loop.
+            int updates = _updateCount.get();
             if (LOG.isDebugEnabled())
-                LOG.debug("updateable {}", _updateable.size());
+                LOG.debug("updateable {}", updates);
 
-            for (SelectorUpdate update : _updateable)
+            while (updates-- > 0)
             {
-                if (_selector == null)
+                SelectorUpdate update = _updates.poll();
+                if (update == null)
                     break;
+                _updateCount.decrementAndGet();
+                if (_selector == null)
+                    continue;
                 try
                 {
                     if (LOG.isDebugEnabled())
@@ -437,25 +474,16 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                     LOG.warn(th);
                 }
             }
-            _updateable.clear();
 
-            Selector selector;
-            int updates;
-            synchronized (ManagedSelector.this)
-            {
-                updates = _updates.size();
-                _selecting = updates == 0;
-                selector = _selecting ? null : _selector;
-            }
-
-            if (LOG.isDebugEnabled())
-                LOG.debug("updates {}", updates);
-
-            if (selector != null)
+            // Updates submitted from now on will wake up the selector.
+            _selecting.set(true);
+            if (!_updates.isEmpty())
             {
+                // Updates were submitted before selecting was set, so wakeup now
+                // unless a submitter has already done it.
                 if (LOG.isDebugEnabled())
                     LOG.debug("wakeup on updates {}", this);
-                selector.wakeup();
+                wakeup();
             }
         }
 
@@ -483,13 +511,9 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                     if (LOG.isDebugEnabled())
                         LOG.debug("Selector {} woken up from select, {}/{}/{} selected", selector, selected, selector.selectedKeys().size(), selector.keys().size());
 
-                    int updates;
-                    synchronized (ManagedSelector.this)
-                    {
-                        // finished selecting
-                        _selecting = false;
-                        updates = _updates.size();
-                    }
+                    // finished selecting
+                    _selecting.set(false);
+                    int updates = LOG.isDebugEnabled() ? _updateCount.get() : -1;
 
                     _keys = selector.selectedKeys();
                     _cursor = _keys.isEmpty() ? Collections.emptyIterator() : _keys.iterator();
@@ -687,7 +711,7 @@ public class ManagedSelector extends ContainerLifeCycle implements Dumpable
                     channel = _selectorManager.doAccept(server);
                     if (channel == null)
                         break;
-                    _selectorManager.accepted(channel);
+                    _selectorManager.accepted(server, channel);
                 }
             }
             catch (Throwable x)
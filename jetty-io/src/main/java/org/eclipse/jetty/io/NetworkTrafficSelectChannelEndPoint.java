@@ -71,6 +71,13 @@ public class NetworkTrafficSelectChannelEndPoint extends SocketChannelEndPoint
         return flushed;
     }
 
+    @Override
+    public boolean isTransferToSupported()
+    {
+        // Listeners must be notified of the outgoing bytes.
+        return (listeners == null || listeners.isEmpty()) && super.isTransferToSupported();
+    }
+
     @Override
     public void onOpen()
     {
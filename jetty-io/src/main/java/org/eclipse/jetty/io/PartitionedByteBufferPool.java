@@ -0,0 +1,121 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.Dumpable;
+
+/**
+ * <p>A {@link ByteBufferPool} made of one shard per {@link SelectorPartition}.</p>
+ * <p>Buffers are acquired from and released to the shard of the partition of the
+ * current thread, so that, when the {@link SelectorManager} is partitioned, the
+ * buffers of a connection are pooled by the partition that handles the connection.
+ * Threads that do not belong to a partition use a shard chosen from their thread id.</p>
+ * <p>A buffer acquired in one partition and released in another one moves to the
+ * shard of the latter.</p>
+ */
+@ManagedObject
+public class PartitionedByteBufferPool implements ByteBufferPool, Dumpable
+{
+    private final RetainableByteBufferPool _retainableByteBufferPool = new RetainableByteBufferPool(this);
+    private final ByteBufferPool[] _shards;
+
+    /**
+     * @param partitions the number of shards, usually the number of selectors
+     */
+    public PartitionedByteBufferPool(@Name("partitions") int partitions)
+    {
+        this(partitions, partition -> new ArrayByteBufferPool());
+    }
+
+    /**
+     * @param partitions the number of shards, usually the number of selectors
+     * @param factory the factory of the shards, given the partition id
+     */
+    public PartitionedByteBufferPool(int partitions, IntFunction<ByteBufferPool> factory)
+    {
+        if (partitions <= 0)
+            throw new IllegalArgumentException("Invalid partitions " + partitions);
+        _shards = new ByteBufferPool[partitions];
+        for (int i = 0; i < partitions; ++i)
+        {
+            _shards[i] = factory.apply(i);
+        }
+    }
+
+    @Override
+    public RetainableByteBufferPool asRetainableByteBufferPool()
+    {
+        return _retainableByteBufferPool;
+    }
+
+    @ManagedAttribute("The number of shards")
+    public int getShardCount()
+    {
+        return _shards.length;
+    }
+
+    /**
+     * @param partition the partition id
+     * @return the shard of the given partition
+     */
+    public ByteBufferPool getShard(int partition)
+    {
+        return _shards[Math.floorMod(partition, _shards.length)];
+    }
+
+    private ByteBufferPool currentShard()
+    {
+        SelectorPartition partition = SelectorPartition.getCurrent();
+        if (partition != null)
+            return getShard(partition.getId());
+        return getShard((int)Thread.currentThread().getId());
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        return currentShard().acquire(size, direct);
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer != null)
+            currentShard().release(buffer);
+    }
+
+    @Override
+    public void dump(Appendable out, String indent) throws IOException
+    {
+        Dumpable.dumpObjects(out, indent, this, (Object[])_shards);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{shards=%d}", getClass().getSimpleName(), hashCode(), _shards.length);
+    }
+}
@@ -19,9 +19,11 @@
 package org.eclipse.jetty.io;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.Retainable;
 
 /**
@@ -29,12 +31,15 @@ import org.eclipse.jetty.util.Retainable;
  * <p>Acquires a ByteBuffer from a {@link ByteBufferPool} and maintains a reference count that is
  * initially 1, incremented with {@link #retain()} and decremented with {@link #release()}. The buffer
  * is released to the pool when the reference count is decremented to 0.</p>
+ * <p>Instances acquired from a {@link RetainableByteBufferPool} are pooled entries that are
+ * returned to that pool once fully released, and must not be used after their last release.</p>
  */
 public class RetainableByteBuffer implements Retainable
 {
     private final ByteBufferPool pool;
-    private final ByteBuffer buffer;
+    private final RetainableByteBufferPool retainablePool;
     private final AtomicInteger references;
+    private volatile ByteBuffer buffer;
 
     public RetainableByteBuffer(ByteBufferPool pool, int size)
     {
@@ -44,10 +49,25 @@ public class RetainableByteBuffer implements Retainable
     public RetainableByteBuffer(ByteBufferPool pool, int size, boolean direct)
     {
         this.pool = pool;
+        this.retainablePool = null;
         this.buffer = pool.acquire(size, direct);
         this.references = new AtomicInteger(1);
     }
 
+    RetainableByteBuffer(RetainableByteBufferPool retainablePool)
+    {
+        this.pool = retainablePool.getByteBufferPool();
+        this.retainablePool = retainablePool;
+        this.buffer = BufferUtil.EMPTY_BUFFER;
+        this.references = new AtomicInteger();
+    }
+
+    void acquire(int size, boolean direct)
+    {
+        buffer = pool.acquire(size, direct);
+        references.set(1);
+    }
+
     public ByteBuffer getBuffer()
     {
         return buffer;
@@ -73,12 +93,44 @@ public class RetainableByteBuffer implements Retainable
 
     public int release()
     {
-        int ref = references.decrementAndGet();
-        if (ref == 0)
-            pool.release(buffer);
-        else if (ref < 0)
-            throw new IllegalStateException("already released " + this);
-        return ref;
+        // Read the buffer before decrementing the references,
+        // as it may be replaced once this instance is recycled.
+        ByteBuffer buffer = this.buffer;
+        while (true)
+        {
+            int r = references.get();
+            if (r == 0)
+                throw new IllegalStateException("already released " + this);
+            if (references.compareAndSet(r, r - 1))
+            {
+                if (r == 1)
+                {
+                    pool.release(buffer);
+                    if (retainablePool != null)
+                    {
+                        this.buffer = BufferUtil.EMPTY_BUFFER;
+                        retainablePool.recycle(this);
+                    }
+                }
+                return r - 1;
+            }
+        }
+    }
+
+    /**
+     * <p>Retains this buffer on behalf of a slice of its content that outlives the current use
+     * of the buffer, for example a frame parsed from a network read, and returns a callback
+     * that releases the reference taken by this call when the slice has been consumed.</p>
+     * <p>Each call returns a new callback that releases its reference only once, so that
+     * a callback completed twice, or after this pooled entry has been reused, fails rather
+     * than releasing a reference taken by another user of the entry.</p>
+     *
+     * @return a callback that releases this buffer when succeeded or failed
+     */
+    public Callback retainSlice()
+    {
+        retain();
+        return new Releaser();
     }
 
     public int remaining()
@@ -106,4 +158,32 @@ public class RetainableByteBuffer implements Retainable
     {
         return String.format("%s@%x{%s,r=%d}", getClass().getSimpleName(), hashCode(), BufferUtil.toDetailString(buffer), getReferences());
     }
+
+    private class Releaser extends AtomicBoolean implements Callback
+    {
+        @Override
+        public void succeeded()
+        {
+            releaseSlice();
+        }
+
+        @Override
+        public void failed(Throwable x)
+        {
+            releaseSlice();
+        }
+
+        private void releaseSlice()
+        {
+            if (!compareAndSet(false, true))
+                throw new IllegalStateException("already released " + RetainableByteBuffer.this);
+            release();
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return InvocationType.NON_BLOCKING;
+        }
+    }
 }
@@ -0,0 +1,111 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+
+import org.eclipse.jetty.util.ConcurrentArrayBlockingQueue;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+
+/**
+ * <p>A pool of {@link RetainableByteBuffer}s.</p>
+ * <p>The {@link RetainableByteBuffer}s acquired from this pool are pooled entries:
+ * when an entry is fully released, its ByteBuffer is released to the {@link ByteBufferPool}
+ * and the entry itself is returned to this pool, so that a later {@link #acquire(int, boolean)}
+ * reuses it rather than allocating a new one.
+ * Idle entries are kept in a bounded lock-free queue, and entries in excess are discarded.</p>
+ * <p>Connections acquire their network buffers from this pool, and the frames or content
+ * parsed from a network buffer {@link RetainableByteBuffer#retainSlice() retain} the entry
+ * until they are consumed, so that they can outlive the fill without being copied.</p>
+ *
+ * @see ByteBufferPool#asRetainableByteBufferPool()
+ */
+@ManagedObject
+public class RetainableByteBufferPool
+{
+    private static final Map<ByteBufferPool, RetainableByteBufferPool> POOLS = new WeakHashMap<>();
+
+    private final ByteBufferPool byteBufferPool;
+    private final Queue<RetainableByteBuffer> entries;
+
+    public RetainableByteBufferPool(ByteBufferPool byteBufferPool)
+    {
+        this(byteBufferPool, 1024);
+    }
+
+    /**
+     * @param byteBufferPool the pool of the ByteBuffers of the entries
+     * @param maxIdleEntries the max number of idle entries kept for reuse
+     */
+    public RetainableByteBufferPool(ByteBufferPool byteBufferPool, int maxIdleEntries)
+    {
+        this.byteBufferPool = byteBufferPool;
+        this.entries = new ConcurrentArrayBlockingQueue<>(maxIdleEntries);
+    }
+
+    static RetainableByteBufferPool of(ByteBufferPool byteBufferPool)
+    {
+        synchronized (POOLS)
+        {
+            return POOLS.computeIfAbsent(byteBufferPool, RetainableByteBufferPool::new);
+        }
+    }
+
+    public ByteBufferPool getByteBufferPool()
+    {
+        return byteBufferPool;
+    }
+
+    @ManagedAttribute("The number of idle entries")
+    public int getIdleCount()
+    {
+        return entries.size();
+    }
+
+    /**
+     * <p>Acquires a RetainableByteBuffer whose ByteBuffer of the given size is acquired from
+     * the {@link ByteBufferPool}, with a reference count of 1.</p>
+     *
+     * @param size the size of the buffer
+     * @param direct whether the buffer must be direct or not
+     * @return a RetainableByteBuffer that is returned to this pool when fully released
+     */
+    public RetainableByteBuffer acquire(int size, boolean direct)
+    {
+        RetainableByteBuffer entry = entries.poll();
+        if (entry == null)
+            entry = new RetainableByteBuffer(this);
+        entry.acquire(size, direct);
+        return entry;
+    }
+
+    void recycle(RetainableByteBuffer entry)
+    {
+        entries.offer(entry);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{idle=%d,%s}", getClass().getSimpleName(), hashCode(), getIdleCount(), byteBufferPool);
+    }
+}
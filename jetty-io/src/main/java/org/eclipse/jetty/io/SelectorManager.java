@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EventListener;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntUnaryOperator;
@@ -67,6 +68,8 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
     private final IntUnaryOperator _selectorIndexUpdate;
     private final List<AcceptListener> _acceptListeners = new ArrayList<>();
     private long _connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private boolean _partitioned;
+    private int _partitionThreads = -1;
     private ThreadPoolBudget.Lease _lease;
 
     private static int defaultSelectors(Executor executor)
@@ -134,6 +137,94 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         _connectTimeout = milliseconds;
     }
 
+    /**
+     * @return whether each selector has its own {@link SelectorPartition}
+     * @see #setPartitioned(boolean)
+     */
+    @ManagedAttribute("Whether each selector has its own worker threads")
+    public boolean isPartitioned()
+    {
+        return _partitioned;
+    }
+
+    /**
+     * <p>Sets whether each selector has its own {@link SelectorPartition}, with its own
+     * worker threads, rather than executing tasks using {@link #getExecutor()}.</p>
+     * <p>In partitioned mode, the selector and the tasks that it produces, such as the
+     * {@link Connection#onFillable()} calls and the write completions of the connections
+     * registered with the selector, run in the worker threads of the partition of the
+     * selector, so that this work stays on the same threads, CPU caches and, if a
+     * {@link PartitionedByteBufferPool} is used, buffers.
+     * The tasks that connections dispatch to their own executor, usually the executor
+     * of the connector, still run in that executor.</p>
+     *
+     * @param partitioned whether each selector has its own worker threads
+     */
+    public void setPartitioned(boolean partitioned)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _partitioned = partitioned;
+    }
+
+    /**
+     * @return the max number of worker threads of each partition
+     * @see #setPartitionThreads(int)
+     */
+    @ManagedAttribute("The max number of worker threads of each selector partition")
+    public int getPartitionThreads()
+    {
+        if (_partitionThreads > 0)
+            return _partitionThreads;
+        int threads = 200;
+        if (executor instanceof ThreadPool.SizedThreadPool)
+            threads = ((ThreadPool.SizedThreadPool)executor).getMaxThreads();
+        return Math.max(8, threads / _selectors.length);
+    }
+
+    /**
+     * <p>Sets the max number of worker threads of each partition.</p>
+     * <p>The threads of the partitions are created in addition to the threads of
+     * {@link #getExecutor()}, and are not accounted in its {@link ThreadPoolBudget}.
+     * By default, the max threads of the executor are divided among the partitions,
+     * with at least 8 threads per partition, so that in partitioned mode the total
+     * number of threads may be up to about twice the max threads of the executor.</p>
+     *
+     * @param partitionThreads the max number of worker threads of each partition,
+     * or -1 to divide the max threads of {@link #getExecutor()} among the partitions
+     */
+    public void setPartitionThreads(int partitionThreads)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _partitionThreads = partitionThreads;
+    }
+
+    /**
+     * @return the load of each selector partition, or an empty array if not partitioned
+     */
+    @ManagedAttribute("The load of the selector partitions")
+    public String[] getPartitionLoads()
+    {
+        return Arrays.stream(_selectors)
+            .filter(Objects::nonNull)
+            .map(ManagedSelector::getPartition)
+            .filter(Objects::nonNull)
+            .map(SelectorPartition::toString)
+            .toArray(String[]::new);
+    }
+
+    /**
+     * <p>Factory method for {@link SelectorPartition}, called in partitioned mode.</p>
+     *
+     * @param selector the selector of the partition
+     * @return a new {@link SelectorPartition}
+     */
+    protected SelectorPartition newSelectorPartition(ManagedSelector selector)
+    {
+        return new SelectorPartition(selector, getPartitionThreads());
+    }
+
     /**
      * Executes the given task in a different thread.
      *
@@ -199,6 +290,21 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         selector.submit(selector.new Accept(channel, attachment));
     }
 
+    /**
+     * <p>Registers a channel to perform non-blocking read/write operations
+     * with the given selector, rather than with a selector chosen round-robin.</p>
+     *
+     * @param channel the channel to register
+     * @param attachment the attachment object
+     * @param selector the index of the selector, between 0 and {@link #getSelectorCount()}
+     * @see #accept(SelectableChannel, Object)
+     */
+    public void accept(SelectableChannel channel, Object attachment, int selector)
+    {
+        final ManagedSelector managedSelector = _selectors[selector];
+        managedSelector.submit(managedSelector.new Accept(channel, attachment));
+    }
+
     /**
      * <p>Registers a server channel for accept operations.
      * When a {@link SocketChannel} is accepted from the given {@link ServerSocketChannel}
@@ -216,6 +322,23 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         return acceptor;
     }
 
+    /**
+     * <p>Registers a server channel for accept operations with the given selector,
+     * rather than with a selector chosen round-robin.</p>
+     *
+     * @param server the server channel to register
+     * @param selector the index of the selector, between 0 and {@link #getSelectorCount()}
+     * @return A Closable that allows the acceptor to be cancelled
+     * @see #acceptor(SelectableChannel)
+     */
+    public Closeable acceptor(SelectableChannel server, int selector)
+    {
+        final ManagedSelector managedSelector = _selectors[selector];
+        ManagedSelector.Acceptor acceptor = managedSelector.new Acceptor(server);
+        managedSelector.submit(acceptor);
+        return acceptor;
+    }
+
     /**
      * Callback method when a channel is accepted from the {@link ServerSocketChannel}
      * passed to {@link #acceptor(SelectableChannel)}.
@@ -230,10 +353,26 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Callback method when a channel is accepted from the given server channel
+     * passed to {@link #acceptor(SelectableChannel)}.
+     * The default impl calls {@link #accepted(SelectableChannel)}.
+     *
+     * @param server the server channel that accepted the channel
+     * @param channel the accepted channel
+     * @throws IOException if unable to accept channel
+     */
+    protected void accepted(SelectableChannel server, SelectableChannel channel) throws IOException
+    {
+        accepted(channel);
+    }
+
     @Override
     protected void doStart() throws Exception
     {
-        _lease = ThreadPoolBudget.leaseFrom(getExecutor(), this, _selectors.length);
+        // In partitioned mode the selectors run in their own partition threads.
+        if (!isPartitioned())
+            _lease = ThreadPoolBudget.leaseFrom(getExecutor(), this, _selectors.length);
         for (int i = 0; i < _selectors.length; i++)
         {
             ManagedSelector selector = newSelector(i);
@@ -277,6 +416,7 @@ public abstract class SelectorManager extends ContainerLifeCycle implements Dump
             Arrays.fill(_selectors, null);
             if (_lease != null)
                 _lease.close();
+            _lease = null;
         }
     }
 
@@ -0,0 +1,154 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.TryExecutor;
+
+/**
+ * <p>A partition of a {@link SelectorManager} in partitioned mode.</p>
+ * <p>Each {@link ManagedSelector} of a partitioned {@link SelectorManager} has its own
+ * partition, with its own pool of worker threads that runs the selector itself and
+ * the tasks it produces: the fill and write readiness callbacks of the endpoints
+ * registered with the selector, and therefore the {@link Connection#onFillable()}
+ * calls of their connections.</p>
+ * <p>The tasks that a connection dispatches to its own executor, usually the executor
+ * of the connector, do not run in the partition. For example, an HTTP/1.1 connection
+ * parses requests in the partition, but the requests that it dispatches to the
+ * connector executor, for example to handle them asynchronously, run in the shared
+ * thread pool.</p>
+ * <p>The threads of the partitions are in addition to the threads of the executor of
+ * the {@link SelectorManager}, see {@link SelectorManager#setPartitionThreads(int)}.</p>
+ * <p>The partition of the current thread is available via {@link #getCurrent()},
+ * so that other components, such as {@link PartitionedByteBufferPool}, can keep
+ * per-partition state.</p>
+ */
+@ManagedObject("A partition of a SelectorManager")
+public class SelectorPartition extends ContainerLifeCycle implements TryExecutor
+{
+    private static final ThreadLocal<SelectorPartition> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder _tasks = new LongAdder();
+    private final ManagedSelector _selector;
+    private final QueuedThreadPool _threadPool;
+
+    public SelectorPartition(ManagedSelector selector, int threads)
+    {
+        _selector = selector;
+        String name = String.format("partition-%d-%x", selector.getId(), selector.hashCode());
+        ThreadFactory threadFactory = runnable ->
+        {
+            Thread thread = new Thread(() ->
+            {
+                CURRENT.set(this);
+                runnable.run();
+            });
+            thread.setName(name + "-" + thread.getId());
+            return thread;
+        };
+        _threadPool = new QueuedThreadPool(threads, Math.min(4, threads), 60000, -1, null, null, threadFactory);
+        _threadPool.setName(name);
+        addBean(_threadPool);
+    }
+
+    /**
+     * @return the partition of the current thread, or null if the current
+     * thread does not belong to a partition
+     */
+    public static SelectorPartition getCurrent()
+    {
+        return CURRENT.get();
+    }
+
+    @ManagedAttribute(value = "The partition id", readonly = true)
+    public int getId()
+    {
+        return _selector.getId();
+    }
+
+    public ManagedSelector getSelector()
+    {
+        return _selector;
+    }
+
+    public QueuedThreadPool getThreadPool()
+    {
+        return _threadPool;
+    }
+
+    @ManagedAttribute(value = "The number of channels registered with the partition selector", readonly = true)
+    public int getConnections()
+    {
+        return _selector.size();
+    }
+
+    @ManagedAttribute(value = "The number of busy threads of the partition", readonly = true)
+    public int getBusyThreads()
+    {
+        return _threadPool.getBusyThreads();
+    }
+
+    @ManagedAttribute(value = "The number of tasks queued in the partition", readonly = true)
+    public int getQueueSize()
+    {
+        return _threadPool.getQueueSize();
+    }
+
+    @ManagedAttribute(value = "The number of tasks executed by the partition", readonly = true)
+    public long getTasks()
+    {
+        return _tasks.longValue();
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        _tasks.increment();
+        _threadPool.execute(task);
+    }
+
+    @Override
+    public boolean tryExecute(Runnable task)
+    {
+        boolean result = _threadPool.tryExecute(task);
+        if (result)
+            _tasks.increment();
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{id=%d,connections=%d,busy=%d/%d,queue=%d,tasks=%d}",
+            getClass().getSimpleName(),
+            hashCode(),
+            getId(),
+            getConnections(),
+            getBusyThreads(),
+            _threadPool.getMaxThreads(),
+            getQueueSize(),
+            getTasks());
+    }
+}
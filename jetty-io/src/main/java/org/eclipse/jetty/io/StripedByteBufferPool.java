@@ -0,0 +1,449 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.ProcessorUtils;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
+
+/**
+ * <p>A lock-free ByteBuffer pool where ByteBuffers are held in fixed size arrays of slots.</p>
+ * <p>Like {@link ArrayByteBufferPool}, buckets are indexed by capacity in multiples of the
+ * capacity {@code factor}, but each bucket is a pre-allocated array of slots rather than a
+ * queue, so that acquiring and releasing a ByteBuffer never allocates.
+ * The slots of a bucket are divided in stripes; a thread first looks in the stripe derived
+ * from its identity, and only scans (or "steals" from) the other stripes when its own stripe
+ * is empty or full, so that threads contend on different memory locations.</p>
+ * <p>In front of the striped slots, each thread may keep a one-element cache per bucket for
+ * ByteBuffers whose capacity is not larger than {@link #getThreadCacheCapacity()}, so that a
+ * thread that releases and then acquires ByteBuffers of the same size never touches shared state.
+ * ByteBuffers held in thread caches are not accounted in {@link #getMemory(boolean)}.</p>
+ */
+@ManagedObject
+public class StripedByteBufferPool extends AbstractByteBufferPool
+{
+    private final ThreadLocal<ThreadCache> _threadCache = ThreadLocal.withInitial(ThreadCache::new);
+    private final LongAdder _cacheHits = new LongAdder();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _steals = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final int _minCapacity;
+    private final int _stripes;
+    private final int _stripeLength;
+    private final int _threadCacheCapacity;
+    private final Slots[] _direct;
+    private final Slots[] _indirect;
+    private volatile long _generation;
+
+    /**
+     * Creates a new StripedByteBufferPool with a default configuration.
+     */
+    public StripedByteBufferPool()
+    {
+        this(-1, -1, -1);
+    }
+
+    /**
+     * Creates a new StripedByteBufferPool with the given configuration.
+     *
+     * @param minCapacity the minimum ByteBuffer capacity
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum ByteBuffer capacity
+     */
+    public StripedByteBufferPool(int minCapacity, int factor, int maxCapacity)
+    {
+        this(minCapacity, factor, maxCapacity, -1, -1, -1, -1, -1);
+    }
+
+    /**
+     * Creates a new StripedByteBufferPool with the given configuration.
+     *
+     * @param minCapacity the minimum ByteBuffer capacity
+     * @param factor the capacity factor
+     * @param maxCapacity the maximum ByteBuffer capacity
+     * @param maxQueueLength the maximum number of ByteBuffers pooled per bucket,
+     * or -1 for twice the number of stripes
+     * @param maxHeapMemory the max heap memory in bytes
+     * @param maxDirectMemory the max direct memory in bytes
+     * @param stripes the number of stripes per bucket, or -1 for the number of available processors
+     * @param threadCacheCapacity the max capacity of ByteBuffers cached per thread,
+     * 0 to disable thread caches, or -1 for 8 times the capacity factor
+     */
+    public StripedByteBufferPool(int minCapacity, int factor, int maxCapacity, int maxQueueLength, long maxHeapMemory, long maxDirectMemory, int stripes, int threadCacheCapacity)
+    {
+        super(factor, maxQueueLength, maxHeapMemory, maxDirectMemory);
+
+        factor = getCapacityFactor();
+        if (minCapacity <= 0)
+            minCapacity = 0;
+        if (maxCapacity <= 0)
+            maxCapacity = 64 * 1024;
+        if ((maxCapacity % factor) != 0 || factor >= maxCapacity)
+            throw new IllegalArgumentException("The capacity factor must be a divisor of maxCapacity");
+        _minCapacity = minCapacity;
+
+        if (stripes <= 0)
+            stripes = ProcessorUtils.availableProcessors();
+        _stripes = stripes;
+        int slots = maxQueueLength > 0 ? maxQueueLength : 2 * stripes;
+        _stripeLength = Math.max(1, slots / stripes);
+        _threadCacheCapacity = threadCacheCapacity < 0 ? 8 * factor : threadCacheCapacity;
+
+        int length = maxCapacity / factor;
+        _direct = new Slots[length];
+        _indirect = new Slots[length];
+        for (int i = 0; i < length; ++i)
+        {
+            _direct[i] = new Slots((i + 1) * factor, slots);
+            _indirect[i] = new Slots((i + 1) * factor, slots);
+        }
+    }
+
+    @Override
+    public ByteBuffer acquire(int size, boolean direct)
+    {
+        int capacity = size < _minCapacity ? size : (bucketFor(size) + 1) * getCapacityFactor();
+        int index = indexFor(size);
+        if (index < 0)
+            return newByteBuffer(capacity, direct);
+
+        if (capacity <= _threadCacheCapacity)
+        {
+            ByteBuffer buffer = threadCache().take(index, direct);
+            if (buffer != null)
+            {
+                _cacheHits.increment();
+                return buffer;
+            }
+        }
+
+        Slots slots = bucketsFor(direct)[index];
+        int home = homeSlot();
+        int length = slots.length();
+        for (int i = 0; i < length; ++i)
+        {
+            int slot = (home + i) % length;
+            ByteBuffer buffer = slots.take(slot);
+            if (buffer != null)
+            {
+                if (i < _stripeLength)
+                    _hits.increment();
+                else
+                    _steals.increment();
+                decrementMemory(buffer);
+                return buffer;
+            }
+        }
+
+        _misses.increment();
+        return newByteBuffer(capacity, direct);
+    }
+
+    @Override
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer == null)
+            return;
+
+        int capacity = buffer.capacity();
+        // Only pool buffers whose capacity is an exact bucket
+        // capacity, so that acquire() always gets what it expects.
+        if (capacity % getCapacityFactor() != 0)
+            return;
+        int index = indexFor(capacity);
+        if (index < 0)
+            return;
+
+        BufferUtil.clear(buffer);
+        boolean direct = buffer.isDirect();
+        if (capacity <= _threadCacheCapacity && threadCache().offer(index, direct, buffer))
+            return;
+
+        Slots slots = bucketsFor(direct)[index];
+        int home = homeSlot();
+        int length = slots.length();
+        for (int i = 0; i < length; ++i)
+        {
+            int slot = (home + i) % length;
+            if (slots.offer(slot, buffer))
+            {
+                incrementMemory(buffer);
+                releaseExcessMemory(direct, this::clearOldestBucket);
+                return;
+            }
+        }
+        // All the slots are taken, let the buffer be garbage collected.
+    }
+
+    @Override
+    public void clear()
+    {
+        // Invalidate the thread caches, they will be emptied lazily.
+        _generation++;
+        for (int i = 0; i < _direct.length; ++i)
+        {
+            _direct[i].clear(this::decrementMemory);
+            _indirect[i].clear(this::decrementMemory);
+        }
+    }
+
+    private void clearOldestBucket(boolean direct)
+    {
+        long oldest = Long.MAX_VALUE;
+        Slots oldestSlots = null;
+        for (Slots slots : bucketsFor(direct))
+        {
+            long lastUpdate = slots.getLastUpdate();
+            if (lastUpdate < oldest && !slots.isEmpty())
+            {
+                oldest = lastUpdate;
+                oldestSlots = slots;
+            }
+        }
+        if (oldestSlots != null)
+            oldestSlots.clear(this::decrementMemory);
+    }
+
+    private ThreadCache threadCache()
+    {
+        ThreadCache cache = _threadCache.get();
+        long generation = _generation;
+        if (cache._generation != generation)
+            cache.reset(generation);
+        return cache;
+    }
+
+    private int homeSlot()
+    {
+        return (int)(Thread.currentThread().getId() % _stripes) * _stripeLength;
+    }
+
+    private int bucketFor(int capacity)
+    {
+        return (capacity - 1) / getCapacityFactor();
+    }
+
+    private int indexFor(int capacity)
+    {
+        if (capacity < _minCapacity)
+            return -1;
+        int b = bucketFor(capacity);
+        if (b >= _direct.length)
+            return -1;
+        return b;
+    }
+
+    @ManagedAttribute("The number of stripes per bucket")
+    public int getStripes()
+    {
+        return _stripes;
+    }
+
+    @ManagedAttribute("The max capacity of ByteBuffers cached per thread")
+    public int getThreadCacheCapacity()
+    {
+        return _threadCacheCapacity;
+    }
+
+    @ManagedAttribute("The number of acquisitions satisfied by the thread cache")
+    public long getThreadCacheHits()
+    {
+        return _cacheHits.sum();
+    }
+
+    @ManagedAttribute("The number of acquisitions satisfied by the thread stripe")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of acquisitions satisfied by another stripe")
+    public long getSteals()
+    {
+        return _steals.sum();
+    }
+
+    @ManagedAttribute("The number of acquisitions that allocated a new ByteBuffer")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The number of pooled direct ByteBuffers")
+    public long getDirectByteBufferCount()
+    {
+        return getByteBufferCount(true);
+    }
+
+    @ManagedAttribute("The number of pooled heap ByteBuffers")
+    public long getHeapByteBufferCount()
+    {
+        return getByteBufferCount(false);
+    }
+
+    private long getByteBufferCount(boolean direct)
+    {
+        long count = 0;
+        for (Slots slots : bucketsFor(direct))
+        {
+            count += slots.size();
+        }
+        return count;
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStats()
+    {
+        _cacheHits.reset();
+        _hits.reset();
+        _steals.reset();
+        _misses.reset();
+    }
+
+    // Package local for testing
+    Slots[] bucketsFor(boolean direct)
+    {
+        return direct ? _direct : _indirect;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{stripes=%d,cacheHits=%d,hits=%d,steals=%d,misses=%d}",
+            getClass().getSimpleName(), hashCode(), _stripes, getThreadCacheHits(), getHits(), getSteals(), getMisses());
+    }
+
+    static class Slots
+    {
+        private final AtomicReferenceArray<ByteBuffer> _slots;
+        private final int _capacity;
+        private long _lastUpdate = System.nanoTime();
+
+        private Slots(int capacity, int length)
+        {
+            _capacity = capacity;
+            _slots = new AtomicReferenceArray<>(length);
+        }
+
+        private ByteBuffer take(int slot)
+        {
+            // Read before CAS to avoid write traffic on empty slots.
+            ByteBuffer buffer = _slots.get(slot);
+            if (buffer != null && _slots.compareAndSet(slot, buffer, null))
+                return buffer;
+            return null;
+        }
+
+        private boolean offer(int slot, ByteBuffer buffer)
+        {
+            if (_slots.get(slot) == null && _slots.compareAndSet(slot, null, buffer))
+            {
+                _lastUpdate = System.nanoTime();
+                return true;
+            }
+            return false;
+        }
+
+        private void clear(Consumer<ByteBuffer> memoryFn)
+        {
+            for (int i = 0; i < _slots.length(); ++i)
+            {
+                ByteBuffer buffer = _slots.getAndSet(i, null);
+                if (buffer != null)
+                    memoryFn.accept(buffer);
+            }
+        }
+
+        int length()
+        {
+            return _slots.length();
+        }
+
+        int size()
+        {
+            int size = 0;
+            for (int i = 0; i < _slots.length(); ++i)
+            {
+                if (_slots.get(i) != null)
+                    ++size;
+            }
+            return size;
+        }
+
+        boolean isEmpty()
+        {
+            for (int i = 0; i < _slots.length(); ++i)
+            {
+                if (_slots.get(i) != null)
+                    return false;
+            }
+            return true;
+        }
+
+        long getLastUpdate()
+        {
+            return _lastUpdate;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%x{%d/%d@%d}", getClass().getSimpleName(), hashCode(), size(), length(), _capacity);
+        }
+    }
+
+    private class ThreadCache
+    {
+        private final ByteBuffer[] _direct = new ByteBuffer[StripedByteBufferPool.this._direct.length];
+        private final ByteBuffer[] _indirect = new ByteBuffer[StripedByteBufferPool.this._indirect.length];
+        private long _generation = StripedByteBufferPool.this._generation;
+
+        private ByteBuffer take(int index, boolean direct)
+        {
+            ByteBuffer[] buffers = direct ? _direct : _indirect;
+            ByteBuffer buffer = buffers[index];
+            buffers[index] = null;
+            return buffer;
+        }
+
+        private boolean offer(int index, boolean direct, ByteBuffer buffer)
+        {
+            ByteBuffer[] buffers = direct ? _direct : _indirect;
+            if (buffers[index] != null)
+                return false;
+            buffers[index] = buffer;
+            return true;
+        }
+
+        private void reset(long generation)
+        {
+            _generation = generation;
+            Arrays.fill(_direct, null);
+            Arrays.fill(_indirect, null);
+        }
+    }
+}
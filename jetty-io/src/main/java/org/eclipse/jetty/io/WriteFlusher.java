@@ -21,6 +21,7 @@ package org.eclipse.jetty.io;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritePendingException;
 import java.util.Arrays;
 import java.util.EnumMap;
@@ -210,11 +211,23 @@ public abstract class WriteFlusher
     {
         private final Callback _callback;
         private final ByteBuffer[] _buffers;
+        private final Transfer _transfer;
 
         private PendingState(ByteBuffer[] buffers, Callback callback)
+        {
+            this(buffers, null, callback);
+        }
+
+        private PendingState(Transfer transfer, Callback callback)
+        {
+            this(null, transfer, callback);
+        }
+
+        private PendingState(ByteBuffer[] buffers, Transfer transfer, Callback callback)
         {
             super(StateType.PENDING);
             _buffers = buffers;
+            _transfer = transfer;
             _callback = callback;
         }
 
@@ -229,6 +242,29 @@ public abstract class WriteFlusher
         }
     }
 
+    /**
+     * The region of a file that remains to be written by {@link #write(Callback, FileChannel, long, long)}.
+     */
+    private static class Transfer
+    {
+        private final FileChannel _file;
+        private long _position;
+        private long _remaining;
+
+        private Transfer(FileChannel file, long position, long length)
+        {
+            _file = file;
+            _position = position;
+            _remaining = length;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s@%d+%d", _file, _position, _remaining);
+        }
+    }
+
     public InvocationType getCallbackInvocationType()
     {
         State s = _state.get();
@@ -305,6 +341,65 @@ public abstract class WriteFlusher
         }
     }
 
+    /**
+     * Tries to switch state to WRITING. If successful it writes the given region of the file to the EndPoint with
+     * {@link EndPoint#transferFrom(FileChannel, long, long)}. As with {@link #write(Callback, ByteBuffer...)}, if
+     * the region cannot be written in one go the remainder is written in {@link #completeWrite()}.
+     *
+     * @param callback the callback to call on either failed or complete
+     * @param file the file to write content from
+     * @param position the position in the file of the first byte to write
+     * @param length the number of bytes to write
+     * @throws WritePendingException if unable to write due to prior pending write
+     */
+    public void write(Callback callback, FileChannel file, long position, long length) throws WritePendingException
+    {
+        Objects.requireNonNull(callback);
+
+        if (isFailed())
+        {
+            fail(callback);
+            return;
+        }
+
+        Transfer transfer = new Transfer(file, position, length);
+        if (DEBUG)
+            LOG.debug("write: {} {}", this, transfer);
+
+        if (!updateState(__IDLE, __WRITING))
+            throw new WritePendingException();
+
+        try
+        {
+            if (!transfer(transfer))
+            {
+                if (DEBUG)
+                    LOG.debug("transferred incomplete");
+                PendingState pending = new PendingState(transfer, callback);
+                if (updateState(__WRITING, pending))
+                    onIncompleteFlush();
+                else
+                    fail(callback);
+
+                return;
+            }
+
+            if (updateState(__WRITING, __IDLE))
+                callback.succeeded();
+            else
+                fail(callback);
+        }
+        catch (Throwable e)
+        {
+            if (DEBUG)
+                LOG.debug("write exception", e);
+            if (updateState(__WRITING, new FailedState(e)))
+                callback.failed(e);
+            else
+                fail(callback, e);
+        }
+    }
+
     private void fail(Callback callback, Throwable... suppressed)
     {
         Throwable cause;
@@ -373,16 +468,28 @@ public abstract class WriteFlusher
         Callback callback = pending._callback;
         try
         {
-            ByteBuffer[] buffers = pending.getBuffers();
-
-            buffers = flush(buffers);
+            boolean incomplete;
+            if (pending._transfer != null)
+            {
+                incomplete = !transfer(pending._transfer);
+                if (incomplete && DEBUG)
+                    LOG.debug("transferred incomplete {}", pending._transfer);
+            }
+            else
+            {
+                ByteBuffer[] buffers = flush(pending.getBuffers());
+                incomplete = buffers != null;
+                if (incomplete)
+                {
+                    if (DEBUG)
+                        LOG.debug("flushed incomplete {}", BufferUtil.toDetailString(buffers));
+                    if (buffers != pending.getBuffers())
+                        pending = new PendingState(buffers, callback);
+                }
+            }
 
-            if (buffers != null)
+            if (incomplete)
             {
-                if (DEBUG)
-                    LOG.debug("flushed incomplete {}", BufferUtil.toDetailString(buffers));
-                if (buffers != pending.getBuffers())
-                    pending = new PendingState(buffers, callback);
                 if (updateState(__COMPLETING, pending))
                     onIncompleteFlush();
                 else
@@ -470,6 +577,40 @@ public abstract class WriteFlusher
         return buffers == null ? EMPTY_BUFFERS : buffers;
     }
 
+    /**
+     * Transfers the file region iteratively until no progress is made.
+     *
+     * @param transfer The file region to transfer, updated with the bytes transferred
+     * @return true if the whole region has been transferred
+     * @throws IOException if unable to transfer
+     */
+    private boolean transfer(Transfer transfer) throws IOException
+    {
+        while (transfer._remaining > 0)
+        {
+            long written = _endPoint.transferFrom(transfer._file, transfer._position, transfer._remaining);
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("Transferred={} {} {}", written, transfer, this);
+
+            if (written <= 0)
+            {
+                // Waiting for the endpoint to be writable would spin if the file has been truncated.
+                if (transfer._position >= transfer._file.size())
+                    throw new EofException("Truncated " + transfer._file);
+                return false;
+            }
+
+            transfer._position += written;
+            transfer._remaining -= written;
+
+            Connection connection = _endPoint.getConnection();
+            if (connection instanceof Listener)
+                ((Listener)connection).onFlushed(written);
+        }
+        return true;
+    }
+
     /**
      * Notify the flusher of a failure
      *
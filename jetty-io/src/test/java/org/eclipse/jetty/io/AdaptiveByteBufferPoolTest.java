@@ -0,0 +1,198 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class AdaptiveByteBufferPoolTest
+{
+    private static final long NEVER = Long.MAX_VALUE / 1_000_000;
+
+    @Test
+    public void testNoPoolingBeforeRebalance()
+    {
+        AdaptiveByteBufferPool bufferPool = new AdaptiveByteBufferPool(-1, -1, -1, -1, -1, -1, NEVER);
+
+        ByteBuffer buffer = bufferPool.acquire(4200, true);
+        assertEquals(4200, buffer.capacity());
+        bufferPool.release(buffer);
+        assertEquals(0, bufferPool.getDirectByteBufferCount());
+    }
+
+    @Test
+    public void testBucketsFollowAcquireSizes()
+    {
+        AdaptiveByteBufferPool bufferPool = new AdaptiveByteBufferPool(-1, -1, -1, -1, -1, -1, NEVER);
+
+        for (int i = 0; i < 100; ++i)
+        {
+            bufferPool.acquire(4200, false);
+            bufferPool.acquire(300, false);
+        }
+        bufferPool.rebalance();
+
+        // Buckets fit the requested sizes tightly, rather than 8 KiB for 4.1 KiB.
+        int[] capacities = bufferPool.getBucketCapacities();
+        assertEquals(2, capacities.length);
+        assertThat(capacities[0], greaterThanOrEqualTo(300));
+        assertThat(capacities[0], lessThan(400));
+        assertThat(capacities[1], greaterThanOrEqualTo(4200));
+        assertThat(capacities[1], lessThan(6 * 1024));
+        assertThat(bufferPool.getSizeHistogram(), arrayWithSize(2));
+
+        ByteBuffer buffer1 = bufferPool.acquire(4200, false);
+        assertEquals(capacities[1], buffer1.capacity());
+        bufferPool.release(buffer1);
+        assertEquals(1, bufferPool.getHeapByteBufferCount());
+        ByteBuffer buffer2 = bufferPool.acquire(4100, false);
+        assertSame(buffer1, buffer2);
+    }
+
+    @Test
+    public void testLargeBuffersArePooled()
+    {
+        AdaptiveByteBufferPool bufferPool = new AdaptiveByteBufferPool(-1, -1, -1, -1, -1, -1, NEVER);
+
+        for (int i = 0; i < 10; ++i)
+        {
+            bufferPool.acquire(200 * 1024, true);
+        }
+        bufferPool.rebalance();
+
+        ByteBuffer buffer = bufferPool.acquire(200 * 1024, true);
+        bufferPool.release(buffer);
+        assertSame(buffer, bufferPool.acquire(200 * 1024, true));
+    }
+
+    @Test
+    public void testMaxBuckets()
+    {
+        int maxBuckets = 4;
+        AdaptiveByteBufferPool bufferPool = new AdaptiveByteBufferPool(-1, maxBuckets, -1, -1, -1, -1, NEVER);
+
+        for (int size = 1024; size <= 64 * 1024; size += 512)
+        {
+            bufferPool.acquire(size, true);
+        }
+        bufferPool.rebalance();
+
+        int[] capacities = bufferPool.getBucketCapacities();
+        assertEquals(maxBuckets, capacities.length);
+        assertEquals(64 * 1024, capacities[maxBuckets - 1]);
+        for (int i = 1; i < capacities.length; ++i)
+        {
+            assertThat(capacities[i], greaterThan(capacities[i - 1]));
+        }
+    }
+
+    @Test
+    public void testWasteRatio()
+    {
+        AdaptiveByteBufferPool bufferPool = new AdaptiveByteBufferPool(-1, -1, -1, -1, -1, -1, NEVER);
+
+        for (int i = 0; i < 100; ++i)
+        {
+            bufferPool.acquire(4200, false);
+        }
+        bufferPool.rebalance();
+        // No buckets, so no waste.
+        assertEquals(0D, bufferPool.getWasteRatio());
+
+        for (int i = 0; i < 100; ++i)
+        {
+            bufferPool.acquire(4200, false);
+        }
+        bufferPool.rebalance();
+        assertThat(bufferPool.getWasteRatio(), lessThanOrEqualTo(0.25D));
+    }
+
+    @Test
+    public void testRetentionShrinksWhenIdle()
+    {
+        AdaptiveByteBufferPool bufferPool = new AdaptiveByteBufferPool(-1, -1, -1, -1, -1, -1, NEVER);
+
+        bufferPool.acquire(1024, true);
+        bufferPool.rebalance();
+
+        // Release more buffers than needed.
+        ByteBuffer[] buffers = new ByteBuffer[4];
+        for (int i = 0; i < buffers.length; ++i)
+        {
+            buffers[i] = bufferPool.acquire(1024, true);
+        }
+        for (ByteBuffer buffer : buffers)
+        {
+            bufferPool.release(buffer);
+        }
+        assertEquals(4, bufferPool.getDirectByteBufferCount());
+
+        // The bucket hit rate was 0, so its retention grows.
+        bufferPool.rebalance();
+        assertEquals(4, bufferPool.getDirectByteBufferCount());
+
+        // Only 1 buffer is used at a time, 3 are always idle.
+        for (int i = 0; i < 10; ++i)
+        {
+            bufferPool.release(bufferPool.acquire(1024, true));
+        }
+        bufferPool.rebalance();
+
+        assertArrayEquals(new int[]{1024}, bufferPool.getBucketCapacities());
+        assertEquals(1, bufferPool.getDirectByteBufferCount());
+        assertEquals(1024, bufferPool.getDirectMemory());
+    }
+
+    @Test
+    public void testPeriodicRebalanceRunsOnExecutor() throws Exception
+    {
+        AdaptiveByteBufferPool bufferPool = new AdaptiveByteBufferPool(-1, -1, -1, -1, -1, -1, 1);
+        Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        bufferPool.setExecutor(tasks::offer);
+
+        for (int i = 0; i < 10; ++i)
+        {
+            bufferPool.acquire(1024, true);
+        }
+        Thread.sleep(5);
+
+        // The rebalance is due, but the acquiring threads do not run it,
+        // and only one of them submits it until it has run.
+        bufferPool.acquire(1024, true);
+        bufferPool.acquire(1024, true);
+        assertEquals(1, tasks.size());
+        assertEquals(0, bufferPool.getBucketCapacities().length);
+
+        tasks.poll().run();
+        assertArrayEquals(new int[]{1024}, bufferPool.getBucketCapacities());
+    }
+}
@@ -19,13 +19,17 @@
 package org.eclipse.jetty.io;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 import org.eclipse.jetty.io.ByteBufferPool.Bucket;
+import org.eclipse.jetty.util.BufferUtil;
 import org.junit.jupiter.api.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
@@ -215,4 +219,125 @@ public class ArrayByteBufferPoolTest
         assertNull(buckets[0]);
         assertNull(buckets[2]);
     }
+
+    @Test
+    public void testSlabs()
+    {
+        int factor = 1024;
+        int slabSize = 16 * factor;
+        ArrayByteBufferPool bufferPool = new ArrayByteBufferPool(-1, factor, 8 * factor, -1, -1, -1, slabSize, 2 * slabSize);
+
+        // Fill the first slab.
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 4; ++i)
+        {
+            ByteBuffer buffer = bufferPool.acquire(4 * factor, true);
+            assertTrue(buffer.isDirect());
+            assertEquals(4 * factor, buffer.capacity());
+            assertEquals(0, buffer.remaining());
+            buffers.add(buffer);
+        }
+        assertEquals(1, bufferPool.getSlabCount());
+        assertEquals(slabSize, bufferPool.getSlabMemory());
+
+        // Slices do not overlap.
+        for (int i = 0; i < buffers.size(); ++i)
+        {
+            ByteBuffer buffer = buffers.get(i);
+            BufferUtil.clearToFill(buffer);
+            while (buffer.hasRemaining())
+            {
+                buffer.put((byte)i);
+            }
+        }
+        for (int i = 0; i < buffers.size(); ++i)
+        {
+            ByteBuffer buffer = buffers.get(i);
+            for (int j = 0; j < buffer.capacity(); ++j)
+            {
+                assertEquals((byte)i, buffer.get(j));
+            }
+        }
+
+        // The second slab is allocated, then slabs are exhausted.
+        for (int i = 0; i < 5; ++i)
+        {
+            buffers.add(bufferPool.acquire(4 * factor, true));
+        }
+        assertEquals(2, bufferPool.getSlabCount());
+        assertEquals(2 * slabSize, bufferPool.getSlabMemory());
+        assertEquals(8, bufferPool.getSlabSliceCount());
+        assertEquals(1, bufferPool.getSlabFallbackCount());
+
+        // Heap buffers and non pooled capacities are not carved out of slabs.
+        bufferPool.acquire(4 * factor, false);
+        bufferPool.acquire(16 * factor, true);
+        assertEquals(8, bufferPool.getSlabSliceCount());
+
+        // Released slices are pooled and reused.
+        ByteBuffer buffer = buffers.get(0);
+        bufferPool.release(buffer);
+        assertSame(buffer, bufferPool.acquire(4 * factor, true));
+    }
+
+    @Test
+    public void testSlabSlicesAreReused()
+    {
+        int factor = 1024;
+        int slabSize = 16 * factor;
+        // Keep at most 1 idle buffer per bucket and 4 KiB of idle direct memory,
+        // while the slabs may reserve 2 slabs.
+        ArrayByteBufferPool bufferPool = new ArrayByteBufferPool(-1, factor, 8 * factor, 1, -1, 4 * factor, slabSize, 2 * slabSize);
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 8; ++i)
+        {
+            buffers.add(bufferPool.acquire(4 * factor, true));
+        }
+        assertEquals(2, bufferPool.getSlabCount());
+        assertEquals(8, bufferPool.getSlabSliceCount());
+        assertEquals(0, bufferPool.getSlabFallbackCount());
+
+        // The slab memory is not bounded by maxDirectMemory.
+        assertThat(bufferPool.getSlabMemory(), greaterThan(4L * factor));
+
+        // The pool keeps one buffer, and discards the others to the slabs.
+        buffers.forEach(bufferPool::release);
+        assertEquals(1, bufferPool.getDirectByteBufferCount());
+        assertEquals(7, bufferPool.getSlabFreeCount());
+
+        // At the slab cap, the discarded slices are reused rather than allocating individually.
+        List<ByteBuffer> reused = new ArrayList<>();
+        for (int i = 0; i < 8; ++i)
+        {
+            ByteBuffer buffer = bufferPool.acquire(4 * factor, true);
+            assertTrue(buffers.stream().anyMatch(b -> b == buffer));
+            assertEquals(0, buffer.remaining());
+            reused.add(buffer);
+        }
+        assertEquals(2, bufferPool.getSlabCount());
+        assertEquals(8, bufferPool.getSlabSliceCount());
+        assertEquals(7, bufferPool.getSlabReuseCount());
+        assertEquals(0, bufferPool.getSlabFreeCount());
+        assertEquals(0, bufferPool.getSlabFallbackCount());
+
+        // All slices are in use, so the next direct buffer is allocated individually.
+        ByteBuffer fallback = bufferPool.acquire(4 * factor, true);
+        assertTrue(fallback.isDirect());
+        assertTrue(reused.stream().noneMatch(b -> b == fallback));
+        assertEquals(1, bufferPool.getSlabFallbackCount());
+
+        // Individually allocated buffers are not taken by the slabs.
+        bufferPool.release(reused.get(0));
+        bufferPool.release(fallback);
+        assertEquals(0, bufferPool.getSlabFreeCount());
+
+        // Slices of other capacities are reused only for their capacity.
+        bufferPool.release(reused.get(1));
+        assertEquals(1, bufferPool.getSlabFreeCount());
+        ByteBuffer other = bufferPool.acquire(2 * factor, true);
+        assertEquals(2 * factor, other.capacity());
+        assertEquals(1, bufferPool.getSlabFreeCount());
+        assertEquals(2, bufferPool.getSlabFallbackCount());
+    }
 }
@@ -0,0 +1,166 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jetty.util.Callback;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RetainableByteBufferPoolTest
+{
+    @Test
+    public void testSharedInstance()
+    {
+        ArrayByteBufferPool bufferPool = new ArrayByteBufferPool();
+        assertSame(bufferPool.asRetainableByteBufferPool(), bufferPool.asRetainableByteBufferPool());
+        assertSame(bufferPool, bufferPool.asRetainableByteBufferPool().getByteBufferPool());
+
+        // Pools that do not keep their own instance share one too.
+        ByteBufferPool plainPool = new ByteBufferPool()
+        {
+            @Override
+            public ByteBuffer acquire(int size, boolean direct)
+            {
+                return newByteBuffer(size, direct);
+            }
+
+            @Override
+            public void release(ByteBuffer buffer)
+            {
+            }
+        };
+        assertSame(plainPool.asRetainableByteBufferPool(), plainPool.asRetainableByteBufferPool());
+        assertSame(plainPool, plainPool.asRetainableByteBufferPool().getByteBufferPool());
+    }
+
+    @Test
+    public void testEntryIsRecycled()
+    {
+        List<ByteBuffer> released = new ArrayList<>();
+        ByteBufferPool bufferPool = new MappedByteBufferPool()
+        {
+            @Override
+            public void release(ByteBuffer buffer)
+            {
+                released.add(buffer);
+                super.release(buffer);
+            }
+        };
+        RetainableByteBufferPool pool = bufferPool.asRetainableByteBufferPool();
+
+        RetainableByteBuffer entry = pool.acquire(1024, false);
+        ByteBuffer buffer = entry.getBuffer();
+        assertEquals(1, entry.getReferences());
+        assertEquals(0, pool.getIdleCount());
+
+        assertEquals(0, entry.release());
+        assertEquals(List.of(buffer), released);
+        assertEquals(1, pool.getIdleCount());
+        assertFalse(entry.getBuffer().hasRemaining());
+        assertThrows(IllegalStateException.class, entry::retain);
+
+        RetainableByteBuffer reused = pool.acquire(2048, true);
+        assertSame(entry, reused);
+        assertEquals(1, reused.getReferences());
+        assertTrue(reused.getBuffer().isDirect());
+        assertEquals(2048, reused.getBuffer().capacity());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testSlicesRetainEntry()
+    {
+        RetainableByteBufferPool pool = new MappedByteBufferPool().asRetainableByteBufferPool();
+        RetainableByteBuffer entry = pool.acquire(1024, false);
+
+        Callback slice1 = entry.retainSlice();
+        Callback slice2 = entry.retainSlice();
+        assertEquals(3, entry.getReferences());
+
+        // The owner releases the entry before the slices are consumed.
+        entry.release();
+        assertEquals(0, pool.getIdleCount());
+
+        slice1.succeeded();
+        assertEquals(1, entry.getReferences());
+        assertEquals(0, pool.getIdleCount());
+
+        slice2.failed(new Throwable());
+        assertEquals(0, entry.getReferences());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testIdleEntriesAreBounded()
+    {
+        RetainableByteBufferPool pool = new RetainableByteBufferPool(new MappedByteBufferPool(), 2);
+        List<RetainableByteBuffer> entries = new ArrayList<>();
+        for (int i = 0; i < 4; ++i)
+        {
+            entries.add(pool.acquire(128, false));
+        }
+        entries.forEach(RetainableByteBuffer::release);
+        assertEquals(2, pool.getIdleCount());
+    }
+
+    @Test
+    public void testDoubleReleaseThrows()
+    {
+        RetainableByteBufferPool pool = new MappedByteBufferPool().asRetainableByteBufferPool();
+        RetainableByteBuffer entry = pool.acquire(1024, false);
+        assertEquals(0, entry.release());
+        assertThrows(IllegalStateException.class, entry::release);
+        assertEquals(0, entry.getReferences());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    public void testStaleSliceCallbackDoesNotReleaseReusedEntry()
+    {
+        RetainableByteBufferPool pool = new MappedByteBufferPool().asRetainableByteBufferPool();
+        RetainableByteBuffer entry = pool.acquire(1024, false);
+        Callback slice = entry.retainSlice();
+        slice.succeeded();
+        entry.release();
+
+        // The entry is reused, for example by another connection.
+        RetainableByteBuffer reused = pool.acquire(1024, false);
+        assertSame(entry, reused);
+        Callback reusedSlice = reused.retainSlice();
+        assertEquals(2, reused.getReferences());
+
+        // A callback completed twice does not release the new references.
+        assertThrows(IllegalStateException.class, slice::succeeded);
+        assertThrows(IllegalStateException.class, () -> slice.failed(new Throwable()));
+        assertEquals(2, reused.getReferences());
+
+        reusedSlice.succeeded();
+        assertEquals(1, reused.getReferences());
+        assertEquals(0, pool.getIdleCount());
+    }
+}
@@ -21,13 +21,21 @@ package org.eclipse.jetty.io;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
@@ -37,7 +45,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SelectorManagerTest
@@ -163,4 +176,220 @@ public class SelectorManagerTest
             selectorManager.stop();
         }
     }
+
+    @Test
+    public void testPartitioned() throws Exception
+    {
+        int selectors = 2;
+        int connections = 4;
+        PartitionedByteBufferPool bufferPool = new PartitionedByteBufferPool(selectors);
+        Map<SelectorPartition, ByteBuffer> buffers = new ConcurrentHashMap<>();
+        CountDownLatch latch = new CountDownLatch(connections);
+        SelectorManager selectorManager = new SelectorManager(executor, scheduler, selectors)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
+            {
+                return new SocketChannelEndPoint(channel, selector, key, getScheduler());
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                // Connections are created by the selector, in its partition.
+                SelectorPartition expected = SelectorPartition.getCurrent();
+                return new AbstractConnection(endpoint, executor)
+                {
+                    @Override
+                    public void onOpen()
+                    {
+                        super.onOpen();
+                        fillInterested();
+                    }
+
+                    @Override
+                    public void onFillable()
+                    {
+                        SelectorPartition partition = SelectorPartition.getCurrent();
+                        if (partition != null && partition == expected)
+                        {
+                            ByteBuffer buffer = bufferPool.acquire(1024, false);
+                            bufferPool.release(buffer);
+                            buffers.put(partition, buffer);
+                            latch.countDown();
+                        }
+                        getEndPoint().close();
+                    }
+                };
+            }
+        };
+        selectorManager.setPartitioned(true);
+        selectorManager.setPartitionThreads(4);
+        selectorManager.start();
+
+        try (ServerSocketChannel server = ServerSocketChannel.open())
+        {
+            server.bind(new InetSocketAddress("localhost", 0));
+            List<SocketChannel> clients = new ArrayList<>();
+            for (int i = 0; i < connections; ++i)
+            {
+                SocketChannel client = SocketChannel.open(server.getLocalAddress());
+                clients.add(client);
+                SocketChannel channel = server.accept();
+                channel.configureBlocking(false);
+                selectorManager.accept(channel);
+                client.write(ByteBuffer.wrap(new byte[]{'x'}));
+            }
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(selectors, selectorManager.getPartitionLoads().length);
+            assertEquals(selectors, buffers.size());
+            // Each partition has used its own shard of the buffer pool.
+            buffers.forEach((partition, buffer) -> assertSame(buffer, bufferPool.getShard(partition.getId()).acquire(1024, false)));
+
+            for (SocketChannel client : clients)
+            {
+                client.close();
+            }
+        }
+        finally
+        {
+            selectorManager.stop();
+        }
+    }
+
+    @Test
+    public void testSubmitCoalescesWakeups() throws Exception
+    {
+        SelectorManager selectorManager = newSelectorManager();
+        selectorManager.start();
+
+        try
+        {
+            ManagedSelector selector = selectorManager.getBean(ManagedSelector.class);
+            awaitUpdate(selector);
+            long wakeups = selector.getWakeupCount();
+
+            int count = 1000;
+            CountDownLatch latch = new CountDownLatch(count);
+            List<ManagedSelector.SelectorUpdate> updates = new ArrayList<>();
+            for (int i = 0; i < count; ++i)
+            {
+                updates.add(s -> latch.countDown());
+            }
+            selector.submit(updates);
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(wakeups + 1, selector.getWakeupCount());
+        }
+        finally
+        {
+            selectorManager.stop();
+        }
+    }
+
+    @Test
+    public void testConcurrentSubmitsCoalesceWakeups() throws Exception
+    {
+        SelectorManager selectorManager = newSelectorManager();
+        selectorManager.start();
+
+        try
+        {
+            ManagedSelector selector = selectorManager.getBean(ManagedSelector.class);
+            awaitUpdate(selector);
+            long wakeups = selector.getWakeupCount();
+
+            int threads = 8;
+            int count = 500;
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            CountDownLatch submitted = new CountDownLatch(threads);
+            CountDownLatch processed = new CountDownLatch(threads * count);
+            AtomicBoolean first = new AtomicBoolean();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            ManagedSelector.SelectorUpdate update = s ->
+            {
+                try
+                {
+                    // Keep the selector busy with the first update until all the
+                    // updates are submitted, so that none of them can wake it up.
+                    if (first.compareAndSet(false, true))
+                        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+                }
+                catch (Throwable x)
+                {
+                    failure.set(x);
+                }
+                processed.countDown();
+            };
+
+            List<Thread> submitters = new ArrayList<>();
+            for (int t = 0; t < threads; ++t)
+            {
+                Thread thread = new Thread(() ->
+                {
+                    try
+                    {
+                        barrier.await(5, TimeUnit.SECONDS);
+                        for (int i = 0; i < count; ++i)
+                        {
+                            selector.submit(update);
+                        }
+                    }
+                    catch (Throwable x)
+                    {
+                        failure.set(x);
+                    }
+                    submitted.countDown();
+                });
+                submitters.add(thread);
+                thread.start();
+            }
+
+            // The concurrent submitters woke up the selector only once.
+            assertTrue(submitted.await(5, TimeUnit.SECONDS));
+            assertEquals(wakeups + 1, selector.getWakeupCount());
+
+            assertTrue(processed.await(5, TimeUnit.SECONDS));
+            for (Thread thread : submitters)
+            {
+                thread.join(5000);
+            }
+            assertNull(failure.get());
+            // The updates submitted while the selector was busy
+            // are processed with at most one more wakeup.
+            assertThat(selector.getWakeupCount(), lessThanOrEqualTo(wakeups + 2));
+        }
+        finally
+        {
+            selectorManager.stop();
+        }
+    }
+
+    private SelectorManager newSelectorManager()
+    {
+        return new SelectorManager(executor, scheduler, 1)
+        {
+            @Override
+            protected EndPoint newEndPoint(SelectableChannel channel, ManagedSelector selector, SelectionKey key)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Connection newConnection(SelectableChannel channel, EndPoint endpoint, Object attachment)
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private void awaitUpdate(ManagedSelector selector) throws InterruptedException
+    {
+        // Once an update is processed, the selector goes back to select()
+        // and the wakeups it caused have been counted.
+        CountDownLatch latch = new CountDownLatch(1);
+        selector.submit(s -> latch.countDown());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
 }
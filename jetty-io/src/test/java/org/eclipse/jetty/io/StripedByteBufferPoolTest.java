@@ -0,0 +1,157 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StripedByteBufferPoolTest
+{
+    @Test
+    public void testMinimumRelease()
+    {
+        StripedByteBufferPool bufferPool = new StripedByteBufferPool(10, 100, 1000);
+
+        for (int size = 1; size <= 9; size++)
+        {
+            ByteBuffer buffer = bufferPool.acquire(size, true);
+            assertTrue(buffer.isDirect());
+            assertEquals(size, buffer.capacity());
+            bufferPool.release(buffer);
+            assertEquals(0, bufferPool.getDirectByteBufferCount());
+        }
+    }
+
+    @Test
+    public void testThreadCache()
+    {
+        StripedByteBufferPool bufferPool = new StripedByteBufferPool(0, 1024, 16 * 1024, -1, -1, -1, 4, 4096);
+
+        ByteBuffer buffer1 = bufferPool.acquire(2000, true);
+        assertThat(buffer1.capacity(), greaterThanOrEqualTo(2000));
+        assertEquals(0, buffer1.remaining());
+        bufferPool.release(buffer1);
+        // The buffer is in the thread cache, not in the shared slots.
+        assertEquals(0, bufferPool.getDirectByteBufferCount());
+        assertEquals(0, bufferPool.getDirectMemory());
+
+        ByteBuffer buffer2 = bufferPool.acquire(2000, true);
+        assertSame(buffer1, buffer2);
+        assertEquals(1, bufferPool.getThreadCacheHits());
+        assertEquals(1, bufferPool.getMisses());
+
+        // Heap and direct buffers are not mixed.
+        ByteBuffer buffer3 = bufferPool.acquire(2000, false);
+        assertNotSame(buffer1, buffer3);
+    }
+
+    @Test
+    public void testAcquireReleaseWithoutThreadCache()
+    {
+        StripedByteBufferPool bufferPool = new StripedByteBufferPool(0, 100, 1000, -1, -1, -1, 4, 0);
+
+        for (int size = 390; size <= 510; size++)
+        {
+            bufferPool.clear();
+            ByteBuffer buffer1 = bufferPool.acquire(size, true);
+            bufferPool.release(buffer1);
+            assertEquals(1, bufferPool.getDirectByteBufferCount());
+            assertEquals(buffer1.capacity(), bufferPool.getDirectMemory());
+            ByteBuffer buffer2 = bufferPool.acquire(size, true);
+            assertSame(buffer1, buffer2);
+            assertEquals(0, bufferPool.getDirectMemory());
+            bufferPool.release(buffer2);
+        }
+    }
+
+    @Test
+    public void testMaxQueue()
+    {
+        StripedByteBufferPool bufferPool = new StripedByteBufferPool(-1, -1, -1, 2, -1, -1, 2, 0);
+
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 3; ++i)
+        {
+            buffers.add(bufferPool.acquire(512, false));
+        }
+        buffers.forEach(bufferPool::release);
+
+        assertEquals(2, bufferPool.getHeapByteBufferCount());
+    }
+
+    @Test
+    public void testSteal() throws Exception
+    {
+        StripedByteBufferPool bufferPool = new StripedByteBufferPool(0, 1024, 8 * 1024, 8, -1, -1, 4, 0);
+
+        // Release from other threads until a buffer lands in a stripe that is not ours.
+        for (int i = 0; i < 16 && bufferPool.getSteals() == 0; ++i)
+        {
+            bufferPool.clear();
+            AtomicReference<ByteBuffer> released = new AtomicReference<>();
+            CountDownLatch latch = new CountDownLatch(1);
+            Thread thread = new Thread(() ->
+            {
+                ByteBuffer buffer = bufferPool.acquire(1024, true);
+                released.set(buffer);
+                bufferPool.release(buffer);
+                latch.countDown();
+            });
+            thread.start();
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            ByteBuffer buffer = bufferPool.acquire(1024, true);
+            assertSame(released.get(), buffer);
+        }
+
+        assertThat(bufferPool.getSteals(), greaterThanOrEqualTo(1L));
+    }
+
+    @Test
+    public void testMaxMemory()
+    {
+        int factor = 1024;
+        int maxMemory = 11 * 1024;
+        StripedByteBufferPool bufferPool = new StripedByteBufferPool(-1, factor, -1, -1, -1, maxMemory, -1, 0);
+
+        for (int i = 4; i >= 1; --i)
+        {
+            ByteBuffer buffer = bufferPool.acquire(factor * i, true);
+            bufferPool.release(buffer);
+        }
+        assertEquals(10 * factor, bufferPool.getMemory(true));
+
+        ByteBuffer buffer = bufferPool.newByteBuffer(7 * factor, true);
+        bufferPool.release(buffer);
+        assertThat(bufferPool.getMemory(true), lessThanOrEqualTo((long)maxMemory));
+    }
+}
@@ -23,6 +23,7 @@ module org.eclipse.jetty.server
     exports org.eclipse.jetty.server.handler.gzip;
     exports org.eclipse.jetty.server.handler.jmx to org.eclipse.jetty.jmx;
     exports org.eclipse.jetty.server.jmx to org.eclipse.jetty.jmx;
+    exports org.eclipse.jetty.server.resource;
     exports org.eclipse.jetty.server.session;
 
     requires transitive jetty.servlet.api;
@@ -19,19 +19,31 @@
 package org.eclipse.jetty.server;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
 import org.eclipse.jetty.http.CompressedContentFormat;
 import org.eclipse.jetty.http.DateGenerator;
@@ -43,16 +55,44 @@ import org.eclipse.jetty.http.MimeTypes.Type;
 import org.eclipse.jetty.http.PreEncodedHttpField;
 import org.eclipse.jetty.http.PrecompressedHttpContent;
 import org.eclipse.jetty.http.ResourceHttpContent;
+import org.eclipse.jetty.server.resource.EvictionPolicy;
+import org.eclipse.jetty.server.resource.LRUEvictionPolicy;
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.ConcurrentArrayBlockingQueue;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.IncludeExclude;
+import org.eclipse.jetty.util.URIUtil;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.ManagedOperation;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceFactory;
 
+/**
+ * <p>A {@link HttpContent.ContentFactory} that caches the contents of resources.</p>
+ * <p>When the cache exceeds its limits, the entries to evict are chosen by an {@link EvictionPolicy},
+ * by default {@link LRUEvictionPolicy}. To keep the cost of lookups low, cache hits are recorded in
+ * a bounded buffer that may drop them under load, and the accesses, additions and removals are replayed
+ * to the policy, and entries evicted, in batches by a maintenance task. The maintenance task runs on
+ * the {@link #setExecutor(Executor) executor} if one is set, otherwise on the thread that triggers it
+ * when the maintenance lock is not held by another thread.</p>
+ * <p>If {@link #setCompressOnDemand(boolean) compress on demand} is enabled and the gzip format is
+ * one of the precompressed formats, the cached entries of compressible mime types that have no
+ * precompressed file are compressed once, on the executor, and the compressed bytes are cached
+ * and served like precompressed content until the entry is invalidated.</p>
+ * <p>If a {@link #setPrefetchExecutor(Executor) prefetch executor} is set, the buffers of the entries
+ * added to the cache are loaded on that executor, so that request threads do not block reading the
+ * files, or on the page faults of the first accesses to memory mapped files.
+ * The cache can also be {@link #warmup(String, boolean) warmed up} at startup.</p>
+ */
+@ManagedObject("Cache of static content")
 public class CachedContentFactory implements HttpContent.ContentFactory
 {
     private static final Logger LOG = Log.getLogger(CachedContentFactory.class);
     private static final Map<CompressedContentFormat, CachedPrecompressedHttpContent> NO_PRECOMPRESSED = Collections.unmodifiableMap(Collections.emptyMap());
+    private static final int READ_BUFFER_SIZE = 128;
 
     private final ConcurrentMap<String, CachedHttpContent> _cache;
     private final AtomicInteger _cachedSize;
@@ -63,6 +103,23 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     private final boolean _etags;
     private final CompressedContentFormat[] _precompressedFormats;
     private final boolean _useFileMappedBuffer;
+    private final Queue<CachedHttpContent> _readBuffer = new ConcurrentArrayBlockingQueue<>(READ_BUFFER_SIZE);
+    private final Queue<Consumer<EvictionPolicy>> _writeBuffer = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock _maintenanceLock = new ReentrantLock();
+    private final AtomicBoolean _maintenancePending = new AtomicBoolean();
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+    private final CompressedContentFormat _compressFormat;
+    private final IncludeExclude<String> _compressMimeTypes = new IncludeExclude<>();
+    private final LongAdder _compressions = new LongAdder();
+    private EvictionPolicy _evictionPolicy = new LRUEvictionPolicy();
+    private final LongAdder _prefetches = new LongAdder();
+    private volatile Executor _executor;
+    private volatile Executor _prefetchExecutor;
+    private volatile boolean _compressOnDemand;
+    private int _compressionLevel = Deflater.BEST_COMPRESSION;
+    private int _minCompressSize = 1024;
 
     private int _maxCachedFileSize = 128 * 1024 * 1024;
     private int _maxCachedFiles = 2048;
@@ -89,18 +146,45 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         _useFileMappedBuffer = useFileMappedBuffer;
         _etags = etags;
         _precompressedFormats = precompressedFormats;
+
+        CompressedContentFormat compressFormat = null;
+        for (CompressedContentFormat format : precompressedFormats)
+        {
+            if (CompressedContentFormat.GZIP._encoding.equalsIgnoreCase(format._encoding))
+            {
+                compressFormat = format;
+                break;
+            }
+        }
+        _compressFormat = compressFormat;
+
+        for (String type : MimeTypes.getKnownMimeTypes())
+        {
+            if (!"image/svg+xml".equals(type) && (type.startsWith("image/") || type.startsWith("audio/") || type.startsWith("video/")))
+                _compressMimeTypes.exclude(type);
+        }
+        _compressMimeTypes.exclude("application/compress");
+        _compressMimeTypes.exclude("application/zip");
+        _compressMimeTypes.exclude("application/gzip");
+        _compressMimeTypes.exclude("application/bzip2");
+        _compressMimeTypes.exclude("application/brotli");
+        _compressMimeTypes.exclude("application/x-xz");
+        _compressMimeTypes.exclude("application/x-rar-compressed");
     }
 
+    @ManagedAttribute("The size in bytes of the cached buffers")
     public int getCachedSize()
     {
         return _cachedSize.get();
     }
 
+    @ManagedAttribute("The number of cached files")
     public int getCachedFiles()
     {
         return _cachedFiles.get();
     }
 
+    @ManagedAttribute("The maximum size in bytes of a cached file")
     public int getMaxCachedFileSize()
     {
         return _maxCachedFileSize;
@@ -112,6 +196,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         shrinkCache();
     }
 
+    @ManagedAttribute("The maximum size in bytes of the cached buffers")
     public int getMaxCacheSize()
     {
         return _maxCacheSize;
@@ -126,6 +211,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     /**
      * @return the max number of cached files.
      */
+    @ManagedAttribute("The maximum number of cached files")
     public int getMaxCachedFiles()
     {
         return _maxCachedFiles;
@@ -145,6 +231,224 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         return _useFileMappedBuffer;
     }
 
+    public EvictionPolicy getEvictionPolicy()
+    {
+        _maintenanceLock.lock();
+        try
+        {
+            return _evictionPolicy;
+        }
+        finally
+        {
+            _maintenanceLock.unlock();
+        }
+    }
+
+    /**
+     * <p>Sets the policy that chooses the entries to evict.</p>
+     * <p>The entries already cached are added to the new policy.</p>
+     *
+     * @param evictionPolicy the eviction policy
+     */
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy)
+    {
+        Objects.requireNonNull(evictionPolicy);
+        _maintenanceLock.lock();
+        try
+        {
+            _evictionPolicy = evictionPolicy;
+            _writeBuffer.clear();
+            _readBuffer.clear();
+            for (CachedHttpContent content : _cache.values())
+            {
+                evictionPolicy.onAdded(content);
+            }
+        }
+        finally
+        {
+            _maintenanceLock.unlock();
+        }
+        shrinkCache();
+    }
+
+    public Executor getExecutor()
+    {
+        return _executor;
+    }
+
+    /**
+     * @param executor the executor that runs the cache maintenance and the compression
+     * on demand, or null to run the maintenance on the threads that use the cache and
+     * to not compress on demand
+     */
+    public void setExecutor(Executor executor)
+    {
+        _executor = executor;
+    }
+
+    public Executor getPrefetchExecutor()
+    {
+        return _prefetchExecutor;
+    }
+
+    /**
+     * <p>Sets the executor that loads the buffers of the entries added to the cache.</p>
+     * <p>Memory mapped files are mapped and {@link MappedByteBuffer#load() loaded} into physical memory,
+     * otherwise the files are read into direct buffers. As this blocks on disk I/O, the executor should
+     * preferably be dedicated to it rather than the thread pool that serves requests.</p>
+     *
+     * @param prefetchExecutor the executor that loads the cached buffers, or null to load them lazily
+     */
+    public void setPrefetchExecutor(Executor prefetchExecutor)
+    {
+        _prefetchExecutor = prefetchExecutor;
+    }
+
+    @ManagedAttribute("The number of entries whose buffers have been prefetched")
+    public long getPrefetches()
+    {
+        return _prefetches.sum();
+    }
+
+    @ManagedAttribute("The number of lookups that found a valid cached entry")
+    public long getHits()
+    {
+        return _hits.sum();
+    }
+
+    @ManagedAttribute("The number of lookups that did not find a valid cached entry")
+    public long getMisses()
+    {
+        return _misses.sum();
+    }
+
+    @ManagedAttribute("The number of entries evicted by the eviction policy")
+    public long getEvictions()
+    {
+        return _evictions.sum();
+    }
+
+    @ManagedAttribute("Whether cached content is compressed when no precompressed file exists")
+    public boolean isCompressOnDemand()
+    {
+        return _compressOnDemand;
+    }
+
+    /**
+     * <p>Sets whether cached content of compressible mime types is compressed with gzip
+     * when no precompressed file exists for it.</p>
+     * <p>Only applies if gzip is one of the precompressed formats of this cache, and if an
+     * {@link #setExecutor(Executor) executor} is set, so that request threads never compress.</p>
+     *
+     * @param compressOnDemand whether to compress cached content on demand
+     */
+    public void setCompressOnDemand(boolean compressOnDemand)
+    {
+        _compressOnDemand = compressOnDemand;
+    }
+
+    @ManagedAttribute("The deflater level of the content compressed on demand")
+    public int getCompressionLevel()
+    {
+        return _compressionLevel;
+    }
+
+    /**
+     * @param compressionLevel the deflater level of the content compressed on demand,
+     * by default {@link Deflater#BEST_COMPRESSION}
+     */
+    public void setCompressionLevel(int compressionLevel)
+    {
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
+        _compressionLevel = compressionLevel;
+    }
+
+    @ManagedAttribute("The minimum size in bytes of the content compressed on demand")
+    public int getMinCompressSize()
+    {
+        return _minCompressSize;
+    }
+
+    public void setMinCompressSize(int minCompressSize)
+    {
+        _minCompressSize = minCompressSize;
+    }
+
+    /**
+     * @return the mime types included and excluded from the compression on demand
+     */
+    public IncludeExclude<String> getCompressMimeTypes()
+    {
+        return _compressMimeTypes;
+    }
+
+    @ManagedAttribute("The number of contents compressed on demand")
+    public long getCompressions()
+    {
+        return _compressions.sum();
+    }
+
+    @ManagedOperation(value = "Resets the statistics", impact = "ACTION")
+    public void resetStatistics()
+    {
+        _hits.reset();
+        _misses.reset();
+        _evictions.reset();
+        _compressions.reset();
+        _prefetches.reset();
+    }
+
+    /**
+     * <p>Loads the given resource, or the files of the given directory, into this cache.</p>
+     * <p>The buffers are loaded on the {@link #setPrefetchExecutor(Executor) prefetch executor}
+     * if one is set, otherwise by the calling thread.
+     * Stops when the maximum number of cached files is reached.
+     * The loaded entries are not counted as {@link #getHits() hits} or {@link #getMisses() misses}.</p>
+     *
+     * @param pathInContext the path of a file or directory
+     * @param recursive whether to also load the files of the sub directories
+     * @return the number of entries loaded into this cache
+     * @throws IOException if a resource cannot be retrieved
+     */
+    public int warmup(String pathInContext, boolean recursive) throws IOException
+    {
+        Resource resource = _factory.getResource(pathInContext);
+        if (resource == null || !resource.exists())
+            return 0;
+
+        if (!resource.isDirectory())
+        {
+            if (_cachedFiles.get() >= _maxCachedFiles)
+                return 0;
+            // Loads the content directly, so that the warmup does not count as hits or misses.
+            HttpContent content = _cache.get(pathInContext);
+            if (content == null || !((CachedHttpContent)content).isValid())
+                content = load(pathInContext, resource, _maxCachedFileSize);
+            if (!(content instanceof CachedHttpContent))
+                return 0;
+            if (_prefetchExecutor == null)
+                ((CachedHttpContent)content).prefetch();
+            return 1;
+        }
+
+        int loaded = 0;
+        String[] names = resource.list();
+        if (names != null)
+        {
+            for (String name : names)
+            {
+                if (_cachedFiles.get() >= _maxCachedFiles)
+                    break;
+                if (!recursive && name.endsWith(URIUtil.SLASH))
+                    continue;
+                loaded += warmup(URIUtil.addPaths(pathInContext, name), recursive);
+            }
+        }
+        return loaded;
+    }
+
+    @ManagedOperation(value = "Flushes the cache", impact = "ACTION")
     public void flushCache()
     {
         while (_cache.size() > 0)
@@ -176,7 +480,12 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         // Is the content in this cache?
         CachedHttpContent content = _cache.get(pathInContext);
         if (content != null && (content).isValid())
+        {
+            _hits.increment();
+            onAccessed(content);
             return content;
+        }
+        _misses.increment();
 
         // try loading the content from our factory.
         Resource resource = _factory.getResource(pathInContext);
@@ -245,6 +554,10 @@ public class CachedContentFactory implements HttpContent.ContentFactory
                                 compressedContent.invalidate();
                                 compressedContent = added;
                             }
+                            else
+                            {
+                                onAdded(compressedContent);
+                            }
                         }
                     }
                     if (compressedContent != null)
@@ -262,6 +575,10 @@ public class CachedContentFactory implements HttpContent.ContentFactory
                 content.invalidate();
                 content = added;
             }
+            else
+            {
+                onAdded(content);
+            }
 
             return content;
         }
@@ -293,36 +610,155 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         return new ResourceHttpContent(resource, mt, maxBufferSize);
     }
 
+    private boolean isOverLimits()
+    {
+        return _cachedFiles.get() > _maxCachedFiles || _cachedSize.get() > _maxCacheSize;
+    }
+
+    private void onAdded(CachedHttpContent content)
+    {
+        _writeBuffer.offer(policy -> policy.onAdded(content));
+        shrinkCache();
+        prefetch(content);
+    }
+
+    private void onAccessed(CachedHttpContent content)
+    {
+        // Accesses may be dropped when the buffer is full, they only refine the policy.
+        if (!_readBuffer.offer(content) || _readBuffer.size() >= READ_BUFFER_SIZE / 2)
+            shrinkCache();
+    }
+
+    private void onRemoved(CachedHttpContent content)
+    {
+        _writeBuffer.offer(policy -> policy.onRemoved(content));
+    }
+
     private void shrinkCache()
     {
-        // While we need to shrink
-        while (_cache.size() > 0 && (_cachedFiles.get() > _maxCachedFiles || _cachedSize.get() > _maxCacheSize))
+        Executor executor = _executor;
+        if (executor == null)
         {
-            // Scan the entire cache and generate an ordered list by last accessed time.
-            SortedSet<CachedHttpContent> sorted = new TreeSet<>((c1, c2) ->
+            maintain();
+        }
+        else if (_maintenancePending.compareAndSet(false, true))
+        {
+            try
             {
-                if (c1._lastAccessed < c2._lastAccessed)
-                    return -1;
-
-                if (c1._lastAccessed > c2._lastAccessed)
-                    return 1;
-
-                if (c1._contentLengthValue < c2._contentLengthValue)
-                    return -1;
+                executor.execute(() ->
+                {
+                    _maintenancePending.set(false);
+                    maintain();
+                });
+            }
+            catch (Throwable x)
+            {
+                _maintenancePending.set(false);
+                LOG.debug(x);
+                maintain();
+            }
+        }
+    }
 
-                return c1._key.compareTo(c2._key);
-            });
-            sorted.addAll(_cache.values());
+    /**
+     * <p>Replays the buffered events to the eviction policy and evicts
+     * the entries that it selects while the cache exceeds its limits.</p>
+     * <p>Does nothing if another thread is already maintaining the cache.</p>
+     */
+    private void maintain()
+    {
+        if (!_maintenanceLock.tryLock())
+            return;
+        try
+        {
+            EvictionPolicy policy = _evictionPolicy;
+            while (true)
+            {
+                Consumer<EvictionPolicy> event = _writeBuffer.poll();
+                if (event == null)
+                    break;
+                event.accept(policy);
+            }
+            while (true)
+            {
+                CachedHttpContent content = _readBuffer.poll();
+                if (content == null)
+                    break;
+                policy.onAccessed(content);
+            }
 
-            // Invalidate least recently used first
-            for (CachedHttpContent content : sorted)
+            while (isOverLimits())
             {
-                if (_cachedFiles.get() <= _maxCachedFiles && _cachedSize.get() <= _maxCacheSize)
+                EvictionPolicy.Entry entry = policy.evict();
+                if (entry == null)
                     break;
-                if (content == _cache.remove(content.getKey()))
+                CachedHttpContent content = (CachedHttpContent)entry;
+                if (_cache.remove(content.getKey(), content))
+                {
+                    _evictions.increment();
                     content.invalidate();
+                }
             }
         }
+        finally
+        {
+            _maintenanceLock.unlock();
+        }
+    }
+
+    private void prefetch(CachedHttpContent content)
+    {
+        Executor executor = _prefetchExecutor;
+        if (executor == null)
+            return;
+        try
+        {
+            executor.execute(content::prefetch);
+        }
+        catch (Throwable x)
+        {
+            // The buffers will be loaded lazily.
+            LOG.debug(x);
+        }
+    }
+
+    private void compress(CachedHttpContent content)
+    {
+        Executor executor = _executor;
+        if (executor != null)
+        {
+            try
+            {
+                executor.execute(content::compress);
+                return;
+            }
+            catch (Throwable x)
+            {
+                LOG.debug(x);
+            }
+        }
+        // Compressing large content is too slow for the request thread,
+        // serve the content uncompressed and let a later request retry.
+        content._compressing.set(false);
+    }
+
+    /**
+     * @param content the content to compress
+     * @param format the format to compress the content into
+     * @return the compressed bytes, or null if the content cannot be compressed in the given format
+     * @throws IOException if the content cannot be read
+     */
+    protected ByteBuffer compress(HttpContent content, CompressedContentFormat format) throws IOException
+    {
+        if (!CompressedContentFormat.GZIP._encoding.equalsIgnoreCase(format._encoding))
+            return null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int)Math.min(content.getContentLengthValue(), Integer.MAX_VALUE - 8));
+        try (InputStream in = content.getInputStream();
+             OutputStream out = new LevelGZIPOutputStream(bytes, _compressionLevel))
+        {
+            IO.copy(in, out);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
     }
 
     protected ByteBuffer getIndirectBuffer(Resource resource)
@@ -379,7 +815,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
     /**
      * MetaData associated with a context Resource.
      */
-    public class CachedHttpContent implements HttpContent
+    public class CachedHttpContent implements HttpContent, EvictionPolicy.Entry
     {
         private final String _key;
         private final Resource _resource;
@@ -395,7 +831,9 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         private final AtomicReference<ByteBuffer> _indirectBuffer = new AtomicReference<>();
         private final AtomicReference<ByteBuffer> _directBuffer = new AtomicReference<>();
         private final AtomicReference<ByteBuffer> _mappedBuffer = new AtomicReference<>();
-        private volatile long _lastAccessed;
+        private final AtomicReference<CachedCompressedHttpContent> _compressed = new AtomicReference<>();
+        private final AtomicBoolean _compressing = new AtomicBoolean();
+        private final boolean _compressible;
 
         CachedHttpContent(String pathInContext, Resource resource, Map<CompressedContentFormat, CachedHttpContent> precompressedResources)
         {
@@ -418,8 +856,6 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             if (_cachedFiles.incrementAndGet() > _maxCachedFiles)
                 shrinkCache();
 
-            _lastAccessed = System.currentTimeMillis();
-
             _etag = CachedContentFactory.this._etags ? new PreEncodedHttpField(HttpHeader.ETAG, resource.getWeakETag()) : null;
 
             if (precompressedResources != null)
@@ -434,13 +870,25 @@ public class CachedContentFactory implements HttpContent.ContentFactory
             {
                 _precompressed = NO_PRECOMPRESSED;
             }
+
+            String mimeType = contentType == null ? null : MimeTypes.getContentTypeWithoutCharset(contentType);
+            _compressible = _compressFormat != null && mimeType != null &&
+                !_precompressed.containsKey(_compressFormat) && _compressMimeTypes.test(mimeType);
         }
 
+        @Override
         public String getKey()
         {
             return _key;
         }
 
+        @Override
+        public long getWeight()
+        {
+            CachedCompressedHttpContent compressed = _compressed.get();
+            return compressed == null ? _contentLengthValue : _contentLengthValue + compressed.getBufferSize();
+        }
+
         public boolean isCached()
         {
             return _key != null;
@@ -467,10 +915,7 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         boolean isValid()
         {
             if (_lastModifiedValue == _resource.lastModified() && _contentLengthValue == _resource.length())
-            {
-                _lastAccessed = System.currentTimeMillis();
                 return true;
-            }
 
             if (this == _cache.remove(_key))
                 invalidate();
@@ -489,8 +934,15 @@ public class CachedContentFactory implements HttpContent.ContentFactory
 
             _mappedBuffer.getAndSet(null);
 
+            // Prevents a later compression, and drops the compressed bytes.
+            _compressing.set(true);
+            CachedCompressedHttpContent compressed = _compressed.getAndSet(null);
+            if (compressed != null)
+                _cachedSize.addAndGet(-compressed.getBufferSize());
+
             _cachedFiles.decrementAndGet();
             _resource.close();
+            onRemoved(this);
         }
 
         @Override
@@ -659,19 +1111,264 @@ public class CachedContentFactory implements HttpContent.ContentFactory
         @Override
         public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents()
         {
+            CachedCompressedHttpContent compressed = getCompressedContent();
             if (_precompressed.size() == 0)
-                return null;
-            Map<CompressedContentFormat, CachedPrecompressedHttpContent> ret = _precompressed;
+                return compressed == null ? null : compressed.getContents();
+            Map<CompressedContentFormat, HttpContent> ret = null;
             for (Map.Entry<CompressedContentFormat, CachedPrecompressedHttpContent> entry : _precompressed.entrySet())
             {
                 if (!entry.getValue().isValid())
                 {
-                    if (ret == _precompressed)
+                    if (ret == null)
                         ret = new HashMap<>(_precompressed);
                     ret.remove(entry.getKey());
                 }
             }
-            return ret;
+            if (compressed != null)
+            {
+                if (ret == null)
+                    ret = new HashMap<>(_precompressed);
+                ret.put(compressed.getFormat(), compressed);
+            }
+            return ret == null ? _precompressed : ret;
+        }
+
+        /**
+         * @return the content compressed on demand, or null if it is not available (yet)
+         */
+        private CachedCompressedHttpContent getCompressedContent()
+        {
+            if (!_compressible || !_compressOnDemand || _contentLengthValue < _minCompressSize || _contentLengthValue > _maxCachedFileSize)
+                return null;
+            CachedCompressedHttpContent compressed = _compressed.get();
+            if (compressed == null && _executor != null && _compressing.compareAndSet(false, true))
+            {
+                CachedContentFactory.this.compress(this);
+                compressed = _compressed.get();
+            }
+            return compressed;
+        }
+
+        /**
+         * Loads the direct buffer of this content, touching all the pages of memory mapped files.
+         */
+        private void prefetch()
+        {
+            try
+            {
+                if (_cache.get(_key) != this || getDirectBuffer() == null)
+                    return;
+                ByteBuffer mapped = _mappedBuffer.get();
+                if (mapped instanceof MappedByteBuffer)
+                    ((MappedByteBuffer)mapped).load();
+                _prefetches.increment();
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Prefetched {}", this);
+            }
+            catch (Throwable x)
+            {
+                LOG.debug(x);
+            }
+        }
+
+        private void compress()
+        {
+            try
+            {
+                ByteBuffer buffer = CachedContentFactory.this.compress(this, _compressFormat);
+                if (LOG.isDebugEnabled())
+                    LOG.debug("Compressed {} to {} bytes", this, BufferUtil.length(buffer));
+                // Only keep compressed bytes that save space.
+                if (buffer == null || buffer.remaining() >= _contentLengthValue)
+                    return;
+
+                CachedCompressedHttpContent compressed = new CachedCompressedHttpContent(this, _compressFormat, buffer);
+                _cachedSize.addAndGet(compressed.getBufferSize());
+                _compressed.set(compressed);
+                _compressions.increment();
+
+                // Undo if this content has been invalidated concurrently.
+                if (_cache.get(_key) != this && _compressed.compareAndSet(compressed, null))
+                {
+                    _cachedSize.addAndGet(-compressed.getBufferSize());
+                }
+                else
+                {
+                    // The weight of this entry includes the compressed bytes.
+                    _writeBuffer.offer(policy -> policy.onUpdated(this));
+                    shrinkCache();
+                }
+            }
+            catch (Throwable x)
+            {
+                LOG.warn("Could not compress {}", this, x);
+            }
+        }
+    }
+
+    /**
+     * The content of a {@link CachedHttpContent} compressed on demand.
+     */
+    public class CachedCompressedHttpContent implements HttpContent
+    {
+        private final CachedHttpContent _content;
+        private final CompressedContentFormat _format;
+        private final ByteBuffer _buffer;
+        private final HttpField _contentLength;
+        private final HttpField _etag;
+        private final Map<CompressedContentFormat, HttpContent> _contents;
+
+        CachedCompressedHttpContent(CachedHttpContent content, CompressedContentFormat format, ByteBuffer buffer)
+        {
+            _content = content;
+            _format = format;
+            _buffer = buffer;
+            _contentLength = new PreEncodedHttpField(HttpHeader.CONTENT_LENGTH, Long.toString(buffer.remaining()));
+            _etag = new PreEncodedHttpField(HttpHeader.ETAG, content.getResource().getWeakETag(format._etag));
+            _contents = Collections.singletonMap(format, this);
+        }
+
+        public CompressedContentFormat getFormat()
+        {
+            return _format;
+        }
+
+        private int getBufferSize()
+        {
+            return _buffer.remaining();
+        }
+
+        private Map<CompressedContentFormat, HttpContent> getContents()
+        {
+            return _contents;
+        }
+
+        @Override
+        public Resource getResource()
+        {
+            return _content.getResource();
+        }
+
+        @Override
+        public HttpField getETag()
+        {
+            return _etag;
+        }
+
+        @Override
+        public String getETagValue()
+        {
+            return _etag.getValue();
+        }
+
+        @Override
+        public HttpField getLastModified()
+        {
+            return _content.getLastModified();
+        }
+
+        @Override
+        public String getLastModifiedValue()
+        {
+            return _content.getLastModifiedValue();
+        }
+
+        @Override
+        public HttpField getContentType()
+        {
+            return _content.getContentType();
+        }
+
+        @Override
+        public String getContentTypeValue()
+        {
+            return _content.getContentTypeValue();
+        }
+
+        @Override
+        public HttpField getContentEncoding()
+        {
+            return _format._contentEncoding;
+        }
+
+        @Override
+        public String getContentEncodingValue()
+        {
+            return _format._contentEncoding.getValue();
+        }
+
+        @Override
+        public String getCharacterEncoding()
+        {
+            return _content.getCharacterEncoding();
+        }
+
+        @Override
+        public Type getMimeType()
+        {
+            return _content.getMimeType();
+        }
+
+        @Override
+        public HttpField getContentLength()
+        {
+            return _contentLength;
+        }
+
+        @Override
+        public long getContentLengthValue()
+        {
+            return _buffer.remaining();
+        }
+
+        @Override
+        public ByteBuffer getIndirectBuffer()
+        {
+            return _buffer.asReadOnlyBuffer();
+        }
+
+        @Override
+        public ByteBuffer getDirectBuffer()
+        {
+            return null;
+        }
+
+        @Override
+        public InputStream getInputStream()
+        {
+            return new ByteArrayInputStream(_buffer.array(), _buffer.arrayOffset() + _buffer.position(), _buffer.remaining());
+        }
+
+        @Override
+        public ReadableByteChannel getReadableByteChannel()
+        {
+            return Channels.newChannel(getInputStream());
+        }
+
+        @Override
+        public Map<CompressedContentFormat, ? extends HttpContent> getPrecompressedContents()
+        {
+            return null;
+        }
+
+        @Override
+        public void release()
+        {
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("CachedCompressedHttpContent@%x{e=%s,r=%s,l=%d}", hashCode(), _format._encoding, _content.getResource(), _buffer.remaining());
+        }
+    }
+
+    private static class LevelGZIPOutputStream extends GZIPOutputStream
+    {
+        private LevelGZIPOutputStream(OutputStream out, int level) throws IOException
+        {
+            super(out);
+            def.setLevel(level);
         }
     }
 
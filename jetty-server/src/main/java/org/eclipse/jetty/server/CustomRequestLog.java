@@ -284,8 +284,10 @@ public class CustomRequestLog extends ContainerLifeCycle implements RequestLog
     private transient PathMappings<String> _ignorePathMap;
 
     private RequestLog.Writer _requestLogWriter;
+    private final List<DateCache> _dateCaches = new ArrayList<>();
     private final MethodHandle _logHandle;
     private final String _formatString;
+    private DateTicker _dateTicker;
 
     public CustomRequestLog()
     {
@@ -324,6 +326,22 @@ public class CustomRequestLog extends ContainerLifeCycle implements RequestLog
         return _requestLogWriter;
     }
 
+    public DateTicker getDateTicker()
+    {
+        return _dateTicker;
+    }
+
+    /**
+     * @param dateTicker the clock that ticks the timestamps of the {@code %t} format codes,
+     * so that requests logged within the current second do not format their timestamp
+     */
+    public void setDateTicker(DateTicker dateTicker)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _dateTicker = dateTicker;
+    }
+
     /**
      * Writes the request and response information to the output stream.
      *
@@ -421,9 +439,20 @@ public class CustomRequestLog extends ContainerLifeCycle implements RequestLog
         else
             _ignorePathMap = null;
 
+        if (_dateTicker != null)
+            _dateTicker.addDateCaches(_dateCaches);
+
         super.doStart();
     }
 
+    @Override
+    protected synchronized void doStop() throws Exception
+    {
+        if (_dateTicker != null)
+            _dateTicker.removeDateCaches(_dateCaches);
+        super.doStop();
+    }
+
     private static void append(StringBuilder buf, String s)
     {
         if (s == null || s.length() == 0)
@@ -829,6 +858,7 @@ public class CustomRequestLog extends ContainerLifeCycle implements RequestLog
                 }
 
                 DateCache logDateCache = new DateCache(format, locale, timeZone);
+                _dateCaches.add(logDateCache);
 
                 MethodType logTypeDateCache = methodType(void.class, DateCache.class, StringBuilder.class, Request.class, Response.class);
                 specificHandle = lookup.findStatic(CustomRequestLog.class, "logRequestTime", logTypeDateCache);
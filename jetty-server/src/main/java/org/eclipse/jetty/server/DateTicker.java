@@ -0,0 +1,184 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.DateGenerator;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.util.DateCache;
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+/**
+ * <p>A server wide clock that publishes, once per second, the {@code Date} response field
+ * and the timestamps of registered {@link DateCache}s, such as those of {@link CustomRequestLog}.</p>
+ * <p>The {@code Date} field is a {@link PreEncodedHttpField}, so it is formatted and encoded
+ * for HTTP/1 and HPACK once per second, and the hot paths only read a volatile field.
+ * If the clock is late, for example because the scheduler is busy, the field is
+ * computed by the caller, so the {@code Date} field is never stale.</p>
+ *
+ * @see Server#setDateTicker(DateTicker)
+ */
+@ManagedObject("Publishes the Date field and log timestamps once per second")
+public class DateTicker extends ContainerLifeCycle implements Runnable
+{
+    private static final Logger LOG = Log.getLogger(DateTicker.class);
+
+    private final List<DateCache> _dateCaches = new CopyOnWriteArrayList<>();
+    private final Scheduler _scheduler;
+    private volatile Tick _tick;
+    private volatile Scheduler.Task _task;
+    private volatile long _ticks;
+
+    public DateTicker()
+    {
+        this(null);
+    }
+
+    /**
+     * @param scheduler the scheduler to tick with, or null to use a dedicated scheduler
+     */
+    public DateTicker(@Name("scheduler") Scheduler scheduler)
+    {
+        _scheduler = scheduler == null ? new ScheduledExecutorScheduler("DateTicker", true) : scheduler;
+        addBean(_scheduler, scheduler == null);
+    }
+
+    public Scheduler getScheduler()
+    {
+        return _scheduler;
+    }
+
+    @ManagedAttribute("The number of ticks")
+    public long getTicks()
+    {
+        return _ticks;
+    }
+
+    /**
+     * @param dateCaches the date caches to tick every second
+     */
+    public void addDateCaches(Collection<DateCache> dateCaches)
+    {
+        _dateCaches.addAll(dateCaches);
+        if (isRunning())
+            dateCaches.forEach(DateCache::tick);
+    }
+
+    /**
+     * @param dateCaches the date caches to stop ticking
+     */
+    public void removeDateCaches(Collection<DateCache> dateCaches)
+    {
+        _dateCaches.removeAll(dateCaches);
+    }
+
+    /**
+     * @return the {@code Date} field for the current second
+     */
+    public HttpField getDateField()
+    {
+        long now = System.currentTimeMillis();
+        Tick tick = _tick;
+        if (tick != null && tick._seconds == now / 1000)
+            return tick._dateField;
+        // The clock is late or stopped.
+        tick = new Tick(now);
+        if (isRunning())
+            _tick = tick;
+        return tick._dateField;
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        super.doStart();
+        run();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        Scheduler.Task task = _task;
+        if (task != null)
+            task.cancel();
+        _task = null;
+        _tick = null;
+        super.doStop();
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            long now = System.currentTimeMillis();
+            _tick = new Tick(now);
+            for (DateCache dateCache : _dateCaches)
+            {
+                dateCache.tick();
+            }
+            ++_ticks;
+        }
+        catch (Throwable x)
+        {
+            LOG.warn(x);
+        }
+        finally
+        {
+            if (isRunning())
+            {
+                // Tick just after the start of the next second.
+                long delay = 1000 - System.currentTimeMillis() % 1000;
+                _task = _scheduler.schedule(this, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        Tick tick = _tick;
+        return String.format("%s@%x{ticks=%d,%s}", getClass().getSimpleName(), hashCode(), _ticks, tick == null ? null : tick._dateField.getValue());
+    }
+
+    private static class Tick
+    {
+        private final long _seconds;
+        private final HttpField _dateField;
+
+        private Tick(long now)
+        {
+            _seconds = now / 1000;
+            _dateField = new PreEncodedHttpField(HttpHeader.DATE, DateGenerator.formatDate(now));
+        }
+    }
+}
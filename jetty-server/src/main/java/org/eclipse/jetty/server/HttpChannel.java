@@ -21,6 +21,7 @@ package org.eclipse.jetty.server;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.EventListener;
 import java.util.List;
@@ -81,6 +82,7 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
     private final Request _request;
     private final Response _response;
     private final HttpChannel.Listener _combinedListener;
+    private final boolean _responseContentListened;
     @Deprecated
     private final List<Listener> _transientListeners = new ArrayList<>();
     private HttpFields _trailers;
@@ -109,6 +111,9 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         _combinedListener = (connector instanceof AbstractConnector)
             ? ((AbstractConnector)connector).getHttpChannelListeners()
             : NOOP_LISTENER;
+        _responseContentListened = _combinedListener instanceof HttpChannelListeners
+            ? ((HttpChannelListeners)_combinedListener).isResponseContentListened()
+            : _combinedListener != NOOP_LISTENER;
 
         if (LOG.isDebugEnabled())
             LOG.debug("new {} -> {},{},{}",
@@ -927,6 +932,41 @@ public class HttpChannel implements Runnable, HttpOutput.Interceptor
         sendResponse(null, content, complete, callback);
     }
 
+    /**
+     * <p>Non-Blocking write of a region of a file, directly from the file to the network.</p>
+     * <p>The response must have already been committed with a known content length.</p>
+     *
+     * @param file the file to write content from
+     * @param position the position in the file of the first byte to write
+     * @param length the number of bytes to write
+     * @param callback Callback when complete or failed
+     * @see #isTransferToSupported()
+     */
+    public void transfer(FileChannel file, long position, long length, Callback callback)
+    {
+        _transport.transfer(_request.getMetaData(), file, position, length, new Callback.Nested(callback)
+        {
+            @Override
+            public void succeeded()
+            {
+                _written += length;
+                super.succeeded();
+            }
+        });
+    }
+
+    /**
+     * <p>The file content transferred does not pass through the JVM, so transfers are not
+     * supported when listeners must be notified of the response content.</p>
+     *
+     * @return whether {@link #transfer(FileChannel, long, long, Callback)} is supported by the transport
+     * @see Listener#onResponseContent(Request, ByteBuffer)
+     */
+    public boolean isTransferToSupported()
+    {
+        return !_responseContentListened && _transport.isTransferToSupported();
+    }
+
     @Override
     public void resetBuffer()
     {
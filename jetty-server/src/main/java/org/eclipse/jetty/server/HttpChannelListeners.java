@@ -127,6 +127,14 @@ public class HttpChannelListeners implements HttpChannel.Listener
         }
     }
 
+    /**
+     * @return whether any of the listeners is notified of the response content
+     */
+    public boolean isResponseContentListened()
+    {
+        return onResponseContent != NotifyContent.NOOP;
+    }
+
     @Override
     public void onRequestBegin(Request request)
     {
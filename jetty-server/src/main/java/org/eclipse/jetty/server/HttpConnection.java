@@ -20,9 +20,9 @@ package org.eclipse.jetty.server;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritePendingException;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jetty.http.BadMessageException;
@@ -42,6 +42,8 @@ import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.EofException;
+import org.eclipse.jetty.io.RetainableByteBuffer;
+import org.eclipse.jetty.io.RetainableByteBufferPool;
 import org.eclipse.jetty.io.WriteFlusher;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
@@ -61,12 +63,12 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     private final HttpConfiguration _config;
     private final Connector _connector;
     private final ByteBufferPool _bufferPool;
+    private final RetainableByteBufferPool _retainableBufferPool;
     private final HttpInput _input;
     private final HttpGenerator _generator;
     private final HttpChannelOverHttp _channel;
     private final HttpParser _parser;
-    private final AtomicInteger _contentBufferReferences = new AtomicInteger();
-    private volatile ByteBuffer _requestBuffer = null;
+    private volatile RetainableByteBuffer _requestBuffer = null;
     private volatile ByteBuffer _chunk = null;
     private final BlockingReadCallback _blockingReadCallback = new BlockingReadCallback();
     private final AsyncReadCallback _asyncReadCallback = new AsyncReadCallback();
@@ -103,6 +105,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         _config = config;
         _connector = connector;
         _bufferPool = _connector.getByteBufferPool();
+        _retainableBufferPool = _bufferPool.asRetainableByteBufferPool();
         _generator = newHttpGenerator();
         _channel = newHttpChannel();
         _input = _channel.getRequest().getHttpInput();
@@ -205,11 +208,15 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     @Override
     public ByteBuffer onUpgradeFrom()
     {
-        if (BufferUtil.hasContent(_requestBuffer))
+        RetainableByteBuffer requestBuffer = _requestBuffer;
+        if (requestBuffer != null && requestBuffer.hasRemaining())
         {
-            ByteBuffer buffer = _requestBuffer;
+            // Copy the unconsumed bytes, as the pooled entry is recycled once released.
+            ByteBuffer unconsumed = ByteBuffer.allocate(requestBuffer.remaining());
+            unconsumed.put(requestBuffer.getBuffer()).flip();
             _requestBuffer = null;
-            return buffer;
+            requestBuffer.release();
+            return unconsumed;
         }
         return null;
     }
@@ -231,36 +238,48 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
 
     void releaseRequestBuffer()
     {
-        if (_requestBuffer != null && !_requestBuffer.hasRemaining())
+        RetainableByteBuffer requestBuffer = _requestBuffer;
+        if (requestBuffer != null && !requestBuffer.hasRemaining())
         {
             if (LOG.isDebugEnabled())
                 LOG.debug("releaseRequestBuffer {}", this);
-            ByteBuffer buffer = _requestBuffer;
             _requestBuffer = null;
-            _bufferPool.release(buffer);
+            requestBuffer.release();
         }
     }
 
     public ByteBuffer getRequestBuffer()
     {
-        if (_requestBuffer == null)
+        RetainableByteBuffer requestBuffer = _requestBuffer;
+        if (requestBuffer == null)
         {
             boolean useDirectByteBuffers = isUseInputDirectByteBuffers();
-            _requestBuffer = _bufferPool.acquire(getInputBufferSize(), useDirectByteBuffers);
+            requestBuffer = _retainableBufferPool.acquire(getInputBufferSize(), useDirectByteBuffers);
+            _requestBuffer = requestBuffer;
         }
-        return _requestBuffer;
+        return requestBuffer.getBuffer();
     }
 
     public boolean isRequestBufferEmpty()
     {
-        return BufferUtil.isEmpty(_requestBuffer);
+        RetainableByteBuffer requestBuffer = _requestBuffer;
+        return requestBuffer == null || requestBuffer.isEmpty();
+    }
+
+    /**
+     * @return whether there is {@link HttpInput.Content} that still references the request buffer
+     */
+    private boolean hasContentReferences()
+    {
+        RetainableByteBuffer requestBuffer = _requestBuffer;
+        return requestBuffer != null && requestBuffer.getReferences() > 1;
     }
 
     @Override
     public void onFillable()
     {
         if (LOG.isDebugEnabled())
-            LOG.debug("{} onFillable enter {} {}", this, _channel.getState(), BufferUtil.toDetailString(_requestBuffer));
+            LOG.debug("{} onFillable enter {} {}", this, _channel.getState(), _requestBuffer);
 
         HttpConnection last = setCurrentConnection(this);
         try
@@ -310,7 +329,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         {
             setCurrentConnection(last);
             if (LOG.isDebugEnabled())
-                LOG.debug("{} onFillable exit {} {}", this, _channel.getState(), BufferUtil.toDetailString(_requestBuffer));
+                LOG.debug("{} onFillable exit {} {}", this, _channel.getState(), _requestBuffer);
         }
     }
     
@@ -334,32 +353,32 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
 
     private int fillRequestBuffer()
     {
-        if (_contentBufferReferences.get() > 0)
+        if (hasContentReferences())
         {
             LOG.warn("{} fill with unconsumed content!", this);
             return 0;
         }
 
-        if (BufferUtil.isEmpty(_requestBuffer))
+        if (isRequestBufferEmpty())
         {
             // Get a buffer
             // We are not in a race here for the request buffer as we have not yet received a request,
             // so there are not an possible legal threads calling #parseContent or #completed.
-            _requestBuffer = getRequestBuffer();
+            ByteBuffer requestBuffer = getRequestBuffer();
 
             // fill
             try
             {
-                int filled = getEndPoint().fill(_requestBuffer);
+                int filled = getEndPoint().fill(requestBuffer);
                 if (filled == 0) // Do a retry on fill 0 (optimization for SSL connections)
-                    filled = getEndPoint().fill(_requestBuffer);
+                    filled = getEndPoint().fill(requestBuffer);
 
                 // tell parser
                 if (filled < 0)
                     _parser.atEOF();
 
                 if (LOG.isDebugEnabled())
-                    LOG.debug("{} filled {} {}", this, filled, BufferUtil.toDetailString(_requestBuffer));
+                    LOG.debug("{} filled {} {}", this, filled, BufferUtil.toDetailString(requestBuffer));
 
                 return filled;
             }
@@ -376,15 +395,16 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
     private boolean parseRequestBuffer()
     {
         if (LOG.isDebugEnabled())
-            LOG.debug("{} parse {} {}", this, BufferUtil.toDetailString(_requestBuffer));
+            LOG.debug("{} parse {} {}", this, _requestBuffer);
 
-        boolean handle = _parser.parseNext(_requestBuffer == null ? BufferUtil.EMPTY_BUFFER : _requestBuffer);
+        RetainableByteBuffer requestBuffer = _requestBuffer;
+        boolean handle = _parser.parseNext(requestBuffer == null ? BufferUtil.EMPTY_BUFFER : requestBuffer.getBuffer());
 
         if (LOG.isDebugEnabled())
             LOG.debug("{} parsed {} {}", this, handle, _parser);
 
         // recycle buffer ?
-        if (_contentBufferReferences.get() == 0)
+        if (!hasContentReferences())
             releaseRequestBuffer();
 
         return handle;
@@ -403,15 +423,17 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         _channel.recycle();
         _parser.reset();
         _generator.reset();
-        if (_contentBufferReferences.get() == 0)
+        if (!hasContentReferences())
         {
             releaseRequestBuffer();
         }
         else
         {
             LOG.warn("{} lingering content references?!?!", this);
-            _requestBuffer = null; // Not returned to pool!
-            _contentBufferReferences.set(0);
+            // Returned to the pool when the lingering content is released.
+            RetainableByteBuffer requestBuffer = _requestBuffer;
+            _requestBuffer = null;
+            requestBuffer.release();
         }
         return true;
     }
@@ -478,7 +500,7 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
             if (_parser.isStart())
             {
                 // if the buffer is empty
-                if (BufferUtil.isEmpty(_requestBuffer))
+                if (isRequestBufferEmpty())
                 {
                     // look for more data
                     fillInterested();
@@ -575,6 +597,33 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
         }
     }
 
+    @Override
+    public boolean isTransferToSupported()
+    {
+        return getEndPoint().isTransferToSupported();
+    }
+
+    @Override
+    public void transfer(MetaData.Request request, FileChannel file, long position, long length, Callback callback)
+    {
+        // The bytes bypass the generator, so they can only be sent once the
+        // headers have been flushed and when no chunk framing is required.
+        if (!_generator.isState(HttpGenerator.State.COMMITTED) || _generator.isChunking())
+        {
+            callback.failed(new IllegalStateException(_generator.toString()));
+            return;
+        }
+
+        if (length == 0 || HttpMethod.HEAD.is(request.getMethod()) || _generator.isNoContent())
+        {
+            callback.succeeded();
+            return;
+        }
+
+        bytesOut.add(length);
+        getEndPoint().write(callback, file, position, length);
+    }
+
     HttpInput.Content newContent(ByteBuffer c)
     {
         return new Content(c);
@@ -650,16 +699,22 @@ public class HttpConnection extends AbstractConnection implements Runnable, Http
 
     private class Content extends HttpInput.Content
     {
+        private final RetainableByteBuffer _retainable;
+
         public Content(ByteBuffer content)
         {
             super(content);
-            _contentBufferReferences.incrementAndGet();
+            // The content is a slice of the request buffer, retain it until the content is consumed.
+            _retainable = _requestBuffer;
+            if (_retainable != null)
+                _retainable.retain();
         }
 
         @Override
         public void succeeded()
         {
-            if (_contentBufferReferences.decrementAndGet() == 0)
+            // If only this connection still references the request buffer, try to release it.
+            if (_retainable != null && _retainable.release() == 1 && _requestBuffer == _retainable)
                 releaseRequestBuffer();
         }
 
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritePendingException;
 import java.nio.charset.Charset;
@@ -930,6 +931,81 @@ public class HttpOutput extends ServletOutputStream implements Runnable
         }
     }
 
+    /**
+     * @return whether {@link #transfer(FileChannel, long, long)} can currently send file content
+     * directly from the file to the network
+     */
+    public boolean isTransferToSupported()
+    {
+        synchronized (_channelState)
+        {
+            return _apiState == ApiState.BLOCKING && canTransfer();
+        }
+    }
+
+    /**
+     * <p>The bytes of a file can bypass the JVM when no {@link Interceptor} needs to see them,
+     * the transport supports it and the response has a known content length, so that
+     * the transport does not need to frame the bytes.</p>
+     *
+     * @return whether file content can be sent directly from the file to the network
+     */
+    private boolean canTransfer()
+    {
+        return _interceptor == _channel &&
+            _channel.isTransferToSupported() &&
+            _channel.getResponse().getLongContentLength() >= 0;
+    }
+
+    /**
+     * <p>Blocking write of a region of a file, sent directly from the file to the network.</p>
+     * <p>Any aggregated content is flushed before the file content.
+     * This method may only be called if {@link #isTransferToSupported()} returns true.</p>
+     *
+     * @param file the file to write content from
+     * @param position the position in the file of the first byte to write
+     * @param length the number of bytes to write
+     * @throws IOException if the write fails
+     */
+    public void transfer(FileChannel file, long position, long length) throws IOException
+    {
+        boolean last;
+        synchronized (_channelState)
+        {
+            checkWritable();
+            if (_apiState != ApiState.BLOCKING || !canTransfer())
+                throw new IllegalStateException(stateString());
+            _written += length;
+            last = _channel.getResponse().isAllContentWritten(_written);
+            if (last && _state == State.OPEN)
+                _state = State.CLOSING;
+            _apiState = ApiState.BLOCKED;
+        }
+
+        try
+        {
+            // Commit the response and flush any aggregated content.
+            if (!_channel.isCommitted() || BufferUtil.hasContent(_aggregate))
+                channelWrite(BufferUtil.hasContent(_aggregate) ? _aggregate : BufferUtil.EMPTY_BUFFER, false);
+
+            try (Blocker blocker = _writeBlocker.acquire())
+            {
+                _channel.transfer(file, position, length, blocker);
+                blocker.block();
+            }
+
+            if (last)
+                channelWrite(BufferUtil.EMPTY_BUFFER, true);
+
+            onWriteComplete(last, null);
+        }
+        catch (Throwable t)
+        {
+            onWriteComplete(last, t);
+            throw t;
+        }
+    }
+
     @Override
     public void write(int b) throws IOException
     {
@@ -1116,7 +1192,7 @@ public class HttpOutput extends ServletOutputStream implements Runnable
     {
         try (Blocker blocker = _writeBlocker.acquire())
         {
-            new ReadableByteChannelWritingCB(in, blocker).iterate();
+            newReadableByteChannelWritingCB(in, blocker).iterate();
             blocker.block();
         }
     }
@@ -1196,7 +1272,14 @@ public class HttpOutput extends ServletOutputStream implements Runnable
             LOG.debug("sendContent(channel={},{})", in, callback);
 
         if (prepareSendContent(0, callback))
-            new ReadableByteChannelWritingCB(in, callback).iterate();
+            newReadableByteChannelWritingCB(in, callback).iterate();
+    }
+
+    private ChannelWriteCB newReadableByteChannelWritingCB(ReadableByteChannel in, Callback callback)
+    {
+        if (in instanceof FileChannel && canTransfer())
+            return new FileChannelTransferCB((FileChannel)in, callback);
+        return new ReadableByteChannelWritingCB(in, callback);
     }
 
     private boolean prepareSendContent(int len, Callback callback)
@@ -1803,6 +1886,72 @@ public class HttpOutput extends ServletOutputStream implements Runnable
         }
     }
 
+    /**
+     * An iterating callback that sends the content of a FileChannel, from its
+     * current position, directly from the file to the network with
+     * {@link HttpChannel#transfer(FileChannel, long, long, Callback)}.
+     * The response is committed before the file content is transferred and
+     * completed after, and only then the wrapped {@link Callback#succeeded()}
+     * method is called.
+     */
+    private class FileChannelTransferCB extends NestedChannelWriteCB
+    {
+        private final FileChannel _in;
+        private boolean _transferred;
+        private boolean _completed;
+        private boolean _closed;
+
+        FileChannelTransferCB(FileChannel in, Callback callback)
+        {
+            super(callback, true);
+            _in = in;
+        }
+
+        @Override
+        protected Action process() throws Exception
+        {
+            // Commit the response and flush any aggregated content.
+            if (!_channel.isCommitted() || BufferUtil.hasContent(_aggregate))
+            {
+                channelWrite(BufferUtil.hasContent(_aggregate) ? _aggregate : BufferUtil.EMPTY_BUFFER, false, this);
+                return Action.SCHEDULED;
+            }
+
+            if (!_transferred)
+            {
+                _transferred = true;
+                long position = _in.position();
+                long length = Math.max(0, _in.size() - position);
+                _written += length;
+                _channel.transfer(_in, position, length, this);
+                return Action.SCHEDULED;
+            }
+
+            if (!_completed)
+            {
+                _completed = true;
+                channelWrite(BufferUtil.EMPTY_BUFFER, true, this);
+                return Action.SCHEDULED;
+            }
+
+            if (LOG.isDebugEnabled())
+                LOG.debug("EOF of {}", this);
+            if (!_closed)
+            {
+                _closed = true;
+                IO.close(_in);
+            }
+            return Action.SUCCEEDED;
+        }
+
+        @Override
+        public void onCompleteFailure(Throwable x)
+        {
+            IO.close(_in);
+            super.onCompleteFailure(x);
+        }
+    }
+
     private static class WriteBlocker extends SharedBlockingCallback
     {
         private final HttpChannel _channel;
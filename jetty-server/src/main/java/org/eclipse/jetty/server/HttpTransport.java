@@ -19,6 +19,7 @@
 package org.eclipse.jetty.server;
 
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import org.eclipse.jetty.http.MetaData;
 import org.eclipse.jetty.util.Callback;
@@ -42,6 +43,33 @@ public interface HttpTransport
      */
     void send(MetaData.Request request, MetaData.Response response, ByteBuffer content, boolean lastContent, Callback callback);
 
+    /**
+     * @return true if file content can be sent with {@link #transfer(MetaData.Request, FileChannel, long, long, Callback)}
+     */
+    default boolean isTransferToSupported()
+    {
+        return false;
+    }
+
+    /**
+     * Asynchronous call to send a region of a file as response content, directly from the file to the network
+     * and without copying the bytes through the JVM.
+     * The response must have already been committed by a call to
+     * {@link #send(MetaData.Request, MetaData.Response, ByteBuffer, boolean, Callback)} with a known content length,
+     * and the last content must then be sent with that method.
+     *
+     * @param request the request of the response
+     * @param file the file to send content from
+     * @param position the position in the file of the first byte to send
+     * @param length the number of bytes to send
+     * @param callback The Callback instance that success or failure of the send is notified on
+     * @see #isTransferToSupported()
+     */
+    default void transfer(MetaData.Request request, FileChannel file, long position, long length, Callback callback)
+    {
+        callback.failed(new UnsupportedOperationException());
+    }
+
     /**
      * @return true if responses can be pushed over this transport
      */
@@ -27,6 +27,7 @@ import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
@@ -90,11 +91,14 @@ import org.eclipse.jetty.server.session.Session;
 import org.eclipse.jetty.server.session.SessionHandler;
 import org.eclipse.jetty.util.Attributes;
 import org.eclipse.jetty.util.AttributesMap;
+import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.MultiMap;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.jetty.util.UrlEncoded;
+import org.eclipse.jetty.util.UrlEncodedParser;
+import org.eclipse.jetty.util.UrlEncodedView;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 
@@ -218,6 +222,7 @@ public class Request implements HttpServletRequest
     private MultiMap<String> _queryParameters;
     private MultiMap<String> _contentParameters;
     private MultiMap<String> _parameters;
+    private UrlEncodedView _queryView;
     private String _queryEncoding;
     private BufferedReader _reader;
     private String _readerEncoding;
@@ -399,27 +404,7 @@ public class Request implements HttpServletRequest
 
     private MultiMap<String> getParameters()
     {
-        if (!_contentParamsExtracted)
-        {
-            // content parameters need boolean protection as they can only be read
-            // once, but may be reset to null by a reset
-            _contentParamsExtracted = true;
-
-            // Extract content parameters; these cannot be replaced by a forward()
-            // once extracted and may have already been extracted by getParts() or
-            // by a processing happening after a form-based authentication.
-            if (_contentParameters == null)
-            {
-                try
-                {
-                    extractContentParameters();
-                }
-                catch (IllegalStateException | IllegalArgumentException e)
-                {
-                    throw new BadMessageException("Unable to parse form content", e);
-                }
-            }
-        }
+        extractContentParametersOnce();
 
         // Extract query string parameters; these may be replaced by a forward()
         // and may have already been extracted by mergeQueryParameters().
@@ -453,6 +438,61 @@ public class Request implements HttpServletRequest
         return parameters == null ? NO_PARAMS : parameters;
     }
 
+    private void extractContentParametersOnce()
+    {
+        if (!_contentParamsExtracted)
+        {
+            // content parameters need boolean protection as they can only be read
+            // once, but may be reset to null by a reset
+            _contentParamsExtracted = true;
+
+            // Extract content parameters; these cannot be replaced by a forward()
+            // once extracted and may have already been extracted by getParts() or
+            // by a processing happening after a form-based authentication.
+            if (_contentParameters == null)
+            {
+                try
+                {
+                    extractContentParameters();
+                }
+                catch (IllegalStateException | IllegalArgumentException e)
+                {
+                    throw new BadMessageException("Unable to parse form content", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Returns a lazy view of the query parameters, so that looking up a parameter
+     * does not decode all the parameters into a {@link MultiMap}.</p>
+     * <p>The view is only available if the query parameters have not been extracted yet,
+     * are UTF-8 encoded and are the only parameters of this request.</p>
+     *
+     * @return the lazy view of the query parameters, or null
+     */
+    private UrlEncodedView getQueryView()
+    {
+        if (_queryParameters != null || _queryEncoding != null)
+            return null;
+
+        extractContentParametersOnce();
+        if (_contentParameters != null && !isNoParams(_contentParameters) && _contentParameters.size() > 0)
+            return null;
+
+        MetaData.Request metadata = _metaData;
+        HttpURI uri = metadata == null ? null : metadata.getURI();
+        String query = uri == null ? null : uri.getQuery();
+        if (query == null)
+            return null;
+
+        // The query may change, for example on forward().
+        UrlEncodedView view = _queryView;
+        if (view == null || view.getEncoded() != query)
+            _queryView = view = new UrlEncodedView(query);
+        return view;
+    }
+
     private void extractQueryParameters()
     {
         MetaData.Request metadata = _metaData;
@@ -528,20 +568,8 @@ public class Request implements HttpServletRequest
     {
         try
         {
-            int maxFormContentSize = ContextHandler.DEFAULT_MAX_FORM_CONTENT_SIZE;
-            int maxFormKeys = ContextHandler.DEFAULT_MAX_FORM_KEYS;
-
-            if (_context != null)
-            {
-                ContextHandler contextHandler = _context.getContextHandler();
-                maxFormContentSize = contextHandler.getMaxFormContentSize();
-                maxFormKeys = contextHandler.getMaxFormKeys();
-            }
-            else
-            {
-                maxFormContentSize = lookupServerAttribute(ContextHandler.MAX_FORM_CONTENT_SIZE_KEY, maxFormContentSize);
-                maxFormKeys = lookupServerAttribute(ContextHandler.MAX_FORM_KEYS_KEY, maxFormKeys);
-            }
+            int maxFormContentSize = getMaxFormContentSize();
+            int maxFormKeys = getMaxFormKeys();
 
             int contentLength = getContentLength();
             if (maxFormContentSize >= 0 && contentLength > maxFormContentSize)
@@ -560,6 +588,81 @@ public class Request implements HttpServletRequest
         }
     }
 
+    /**
+     * <p>Parses the {@code application/x-www-form-urlencoded} content of this request,
+     * notifying the given handler of each parameter as soon as it is decoded.</p>
+     * <p>Unlike {@link #getParameter(String)}, the parameters are neither stored nor
+     * all buffered, so that large forms can be processed with little memory.
+     * The content is consumed, so the form parameters are then not available
+     * from {@link #getParameter(String)} and similar methods.</p>
+     * <p>The limits of the context on the form size and number of keys apply.</p>
+     *
+     * @param handler the handler notified of each form parameter
+     * @throws IOException if the content cannot be read
+     * @throws IllegalStateException if the content is not a form or has already been read
+     * @throws BadMessageException if the form cannot be parsed
+     */
+    public void parseFormParameters(UrlEncodedParser.Handler handler) throws IOException
+    {
+        if (_contentParamsExtracted || _contentParameters != null)
+            throw new IllegalStateException("Form content already extracted");
+        String baseType = HttpFields.valueParameters(getContentType(), null);
+        if (!MimeTypes.Type.FORM_ENCODED.is(baseType))
+            throw new IllegalStateException("Not form content: " + getContentType());
+        if (_metaData != null)
+        {
+            String contentEncoding = getHttpFields().get(HttpHeader.CONTENT_ENCODING);
+            if (contentEncoding != null && !HttpHeaderValue.IDENTITY.is(contentEncoding))
+                throw new BadMessageException(HttpStatus.NOT_IMPLEMENTED_501, "Unsupported Content-Encoding");
+        }
+
+        _contentParamsExtracted = true;
+        _contentParameters = NO_PARAMS;
+
+        try
+        {
+            int maxFormContentSize = getMaxFormContentSize();
+            if (maxFormContentSize >= 0 && getContentLength() > maxFormContentSize)
+                throw new IllegalStateException("Form is larger than max length " + maxFormContentSize);
+
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding == null ? null : Charset.forName(encoding);
+            UrlEncodedParser parser = new UrlEncodedParser(handler, charset, maxFormContentSize, getMaxFormKeys());
+
+            InputStream in = getInputStream();
+            if (_input.isAsync())
+                throw new IllegalStateException("Cannot extract parameters with async IO");
+
+            byte[] bytes = new byte[4096];
+            while (true)
+            {
+                int read = in.read(bytes);
+                if (read < 0)
+                    break;
+                parser.parse(ByteBuffer.wrap(bytes, 0, read), false);
+            }
+            parser.parse(BufferUtil.EMPTY_BUFFER, true);
+        }
+        catch (IllegalStateException | IllegalArgumentException e)
+        {
+            throw new BadMessageException("Unable to parse form content", e);
+        }
+    }
+
+    private int getMaxFormContentSize()
+    {
+        if (_context != null)
+            return _context.getContextHandler().getMaxFormContentSize();
+        return lookupServerAttribute(ContextHandler.MAX_FORM_CONTENT_SIZE_KEY, ContextHandler.DEFAULT_MAX_FORM_CONTENT_SIZE);
+    }
+
+    private int getMaxFormKeys()
+    {
+        if (_context != null)
+            return _context.getContextHandler().getMaxFormKeys();
+        return lookupServerAttribute(ContextHandler.MAX_FORM_KEYS_KEY, ContextHandler.DEFAULT_MAX_FORM_KEYS);
+    }
+
     private int lookupServerAttribute(String key, int dftValue)
     {
         Object attribute = _channel.getServer().getAttribute(key);
@@ -1002,6 +1105,18 @@ public class Request implements HttpServletRequest
     @Override
     public String getParameter(String name)
     {
+        UrlEncodedView query = getQueryView();
+        if (query != null)
+        {
+            try
+            {
+                return query.getValue(name);
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new BadMessageException("Unable to parse URI query", e);
+            }
+        }
         return getParameters().getValue(name, 0);
     }
 
@@ -1020,7 +1135,23 @@ public class Request implements HttpServletRequest
     @Override
     public String[] getParameterValues(String name)
     {
-        List<String> vals = getParameters().getValues(name);
+        List<String> vals;
+        UrlEncodedView query = getQueryView();
+        if (query != null)
+        {
+            try
+            {
+                vals = query.getValues(name);
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new BadMessageException("Unable to parse URI query", e);
+            }
+        }
+        else
+        {
+            vals = getParameters().getValues(name);
+        }
         if (vals == null)
             return null;
         return vals.toArray(new String[vals.size()]);
@@ -1747,6 +1878,7 @@ public class Request implements HttpServletRequest
         _queryParameters = null;
         _contentParameters = null;
         _parameters = null;
+        _queryView = null;
         _pathSpec = null;
         _contentParamsExtracted = false;
         _inputState = INPUT_NONE;
@@ -43,11 +43,11 @@ import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.http.PreEncodedHttpFields;
 import org.eclipse.jetty.http.QuotedCSV;
 import org.eclipse.jetty.http.QuotedQualityCSV;
 import org.eclipse.jetty.io.WriterOutputStream;
 import org.eclipse.jetty.server.resource.HttpContentRangeWriter;
-import org.eclipse.jetty.server.resource.InputStreamRangeWriter;
 import org.eclipse.jetty.server.resource.RangeWriter;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
@@ -83,6 +83,7 @@ public class ResourceService
     private boolean _pathInfoOnly = false;
     private boolean _etags = false;
     private HttpField _cacheControl;
+    private PreEncodedHttpFields _responseTemplate;
     private List<String> _gzipEquivalentFileExtensions;
 
     public HttpContent.ContentFactory getContentFactory()
@@ -186,6 +187,23 @@ public class ResourceService
         _cacheControl = cacheControl;
     }
 
+    public PreEncodedHttpFields getResponseTemplate()
+    {
+        return _responseTemplate;
+    }
+
+    /**
+     * <p>The template fields replace the fields that this service sets for the content,
+     * such as {@code Content-Type} and {@code Cache-Control}.</p>
+     *
+     * @param responseTemplate the pre-encoded fields added to every response with content,
+     * or null for no template
+     */
+    public void setResponseTemplate(PreEncodedHttpFields responseTemplate)
+    {
+        _responseTemplate = responseTemplate;
+    }
+
     public List<String> getGzipEquivalentFileExtensions()
     {
         return _gzipEquivalentFileExtensions;
@@ -835,7 +853,7 @@ public class ResourceService
         }
 
         // Use a ranged writer
-        try (InputStreamRangeWriter rangeWriter = new InputStreamRangeWriter(() -> content.getInputStream()))
+        try (RangeWriter rangeWriter = HttpContentRangeWriter.newRangeWriter(content))
         {
             rangeWriter.writeTo(out, start, contentLength);
         }
@@ -851,8 +869,19 @@ public class ResourceService
             if (_acceptRanges)
                 f.put(ACCEPT_RANGES);
 
-            if (_cacheControl != null)
+            PreEncodedHttpFields template = _responseTemplate;
+            if (_cacheControl != null && (template == null || !template.hasField(HttpHeader.CACHE_CONTROL)))
                 f.put(_cacheControl);
+
+            if (template != null)
+            {
+                // Set the Content-Type through the response, so that the response
+                // knows it, then let the template replace the field on the wire.
+                HttpField contentType = template.getField(HttpHeader.CONTENT_TYPE);
+                if (contentType != null)
+                    r.setContentType(contentType.getValue());
+                template.putTo(f);
+            }
         }
         else
         {
@@ -860,8 +889,17 @@ public class ResourceService
             if (_acceptRanges)
                 response.setHeader(ACCEPT_RANGES.getName(), ACCEPT_RANGES.getValue());
 
-            if (_cacheControl != null)
+            PreEncodedHttpFields template = _responseTemplate;
+            if (_cacheControl != null && (template == null || !template.hasField(HttpHeader.CACHE_CONTROL)))
                 response.setHeader(_cacheControl.getName(), _cacheControl.getValue());
+
+            if (template != null)
+            {
+                for (HttpField field : template.getFields())
+                {
+                    response.setHeader(field.getName(), field.getValue());
+                }
+            }
         }
     }
 
@@ -86,6 +86,7 @@ public class Server extends HandlerWrapper implements Attributes
     private boolean _dryRun;
     private final AutoLock _dateLock = new AutoLock();
     private volatile DateField _dateField;
+    private DateTicker _dateTicker;
     private long _stopTimeout;
 
     public Server()
@@ -158,6 +159,24 @@ public class Server extends HandlerWrapper implements Attributes
         _requestLog = requestLog;
     }
 
+    public DateTicker getDateTicker()
+    {
+        return _dateTicker;
+    }
+
+    /**
+     * <p>Sets the clock that publishes the {@code Date} field once per second.</p>
+     * <p>The clock also ticks the timestamps of a {@link CustomRequestLog}
+     * that has no other clock.</p>
+     *
+     * @param dateTicker the clock, or null to format the {@code Date} field on demand
+     */
+    public void setDateTicker(DateTicker dateTicker)
+    {
+        updateBean(_dateTicker, dateTicker);
+        _dateTicker = dateTicker;
+    }
+
     public void setErrorHandler(ErrorHandler errorHandler)
     {
         if (errorHandler instanceof ErrorHandler.ErrorPageMapper)
@@ -317,6 +336,10 @@ public class Server extends HandlerWrapper implements Attributes
 
     public HttpField getDateField()
     {
+        DateTicker dateTicker = _dateTicker;
+        if (dateTicker != null && dateTicker.isRunning())
+            return dateTicker.getDateField();
+
         long now = System.currentTimeMillis();
         long seconds = now / 1000;
         DateField df = _dateField;
@@ -351,6 +374,13 @@ public class Server extends HandlerWrapper implements Attributes
                 LOG.warn("ErrorPageMapper not supported for Server level Error Handling");
             _errorHandler.setServer(this);
 
+            if (_dateTicker != null && _requestLog instanceof CustomRequestLog)
+            {
+                CustomRequestLog customRequestLog = (CustomRequestLog)_requestLog;
+                if (customRequestLog.getDateTicker() == null)
+                    customRequestLog.setDateTicker(_dateTicker);
+            }
+
             //If the Server should be stopped when the jvm exits, register
             //with the shutdown handler thread.
             if (getStopAtShutdown())
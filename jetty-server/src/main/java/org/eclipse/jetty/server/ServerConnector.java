@@ -25,13 +25,17 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.StandardSocketOptions;
 import java.nio.channels.Channel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.EventListener;
+import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jetty.io.ByteBufferPool;
@@ -41,10 +45,12 @@ import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.ManagedSelector;
 import org.eclipse.jetty.io.SelectorManager;
 import org.eclipse.jetty.io.SocketChannelEndPoint;
+import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.annotation.ManagedAttribute;
 import org.eclipse.jetty.util.annotation.ManagedObject;
 import org.eclipse.jetty.util.annotation.Name;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.statistic.RateStatistic;
 import org.eclipse.jetty.util.thread.Scheduler;
 
 /**
@@ -72,6 +78,15 @@ import org.eclipse.jetty.util.thread.Scheduler;
  * which should allow optimal performance even if all the connections used are performing
  * significant non-blocking work in the callback tasks.
  * </p>
+ * <h2>Reuse Port</h2>
+ * <p>
+ * If {@link #setReusePort(boolean) reusePort} is enabled and supported by the platform, the connector
+ * opens one listening channel per acceptor thread or, if there are no acceptor threads, one per selector,
+ * all bound to the same address with {@code SO_REUSEPORT}. The operating system then balances the
+ * incoming connections among the listening channels, and each channel is only accepted by its own
+ * acceptor thread or selector, which also handles the accepted connections when there are no
+ * acceptor threads. The accept rate of each listening channel is available via {@link #getAcceptRates()}.
+ * </p>
  */
 @ManagedObject("HTTP connector using NIO ByteChannels and Selectors")
 public class ServerConnector extends AbstractNetworkConnector
@@ -83,6 +98,9 @@ public class ServerConnector extends AbstractNetworkConnector
     private volatile int _localPort = -1;
     private volatile int _acceptQueueSize = 0;
     private volatile boolean _reuseAddress = true;
+    private volatile boolean _reusePort = false;
+    private volatile ServerSocketChannel[] _acceptChannels;
+    private volatile RateStatistic[] _acceptRates = newAcceptRates(1);
 
     /**
      * <p>Construct a ServerConnector with a private instance of {@link HttpConnectionFactory} as the only factory.</p>
@@ -229,10 +247,26 @@ public class ServerConnector extends AbstractNetworkConnector
         super.doStart();
 
         if (getAcceptors() == 0)
+            _acceptor.set(newAcceptor());
+    }
+
+    private Closeable newAcceptor() throws IOException
+    {
+        ServerSocketChannel[] channels = _acceptChannels;
+        if (channels == null)
         {
             _acceptChannel.configureBlocking(false);
-            _acceptor.set(_manager.acceptor(_acceptChannel));
+            return _manager.acceptor(_acceptChannel);
         }
+
+        // Each listening channel is accepted by its own selector.
+        List<Closeable> acceptors = new ArrayList<>(channels.length);
+        for (int i = 0; i < channels.length; ++i)
+        {
+            channels[i].configureBlocking(false);
+            acceptors.add(_manager.acceptor(channels[i], i));
+        }
+        return () -> acceptors.forEach(IO::close);
     }
 
     @Override
@@ -295,6 +329,7 @@ public class ServerConnector extends AbstractNetworkConnector
         _localPort = _acceptChannel.socket().getLocalPort();
         if (_localPort <= 0)
             throw new IOException("Server channel not bound");
+        _acceptRates = newAcceptRates(1);
     }
 
     @Override
@@ -308,7 +343,59 @@ public class ServerConnector extends AbstractNetworkConnector
             if (_localPort <= 0)
                 throw new IOException("Server channel not bound");
             addBean(_acceptChannel);
+            openReusePortChannels();
+        }
+    }
+
+    private void openReusePortChannels() throws IOException
+    {
+        int listeners = getAcceptors() > 0 ? getAcceptors() : _manager.getSelectorCount();
+        if (listeners <= 1 || !hasReusePort(_acceptChannel))
+        {
+            _acceptRates = newAcceptRates(1);
+            return;
+        }
+
+        ServerSocketChannel[] channels = new ServerSocketChannel[listeners];
+        channels[0] = _acceptChannel;
+        try
+        {
+            for (int i = 1; i < listeners; ++i)
+            {
+                channels[i] = bindServerChannel(_localPort);
+                channels[i].configureBlocking(true);
+            }
+        }
+        catch (IOException x)
+        {
+            for (int i = 1; i < listeners; ++i)
+            {
+                IO.close(channels[i]);
+            }
+            throw x;
+        }
+        for (int i = 1; i < listeners; ++i)
+        {
+            addBean(channels[i]);
         }
+        _acceptRates = newAcceptRates(listeners);
+        _acceptChannels = channels;
+    }
+
+    private static boolean hasReusePort(ServerSocketChannel channel) throws IOException
+    {
+        return channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT) &&
+            channel.getOption(StandardSocketOptions.SO_REUSEPORT);
+    }
+
+    private static RateStatistic[] newAcceptRates(int listeners)
+    {
+        RateStatistic[] rates = new RateStatistic[listeners];
+        for (int i = 0; i < listeners; ++i)
+        {
+            rates[i] = new RateStatistic(1, TimeUnit.SECONDS);
+        }
+        return rates;
     }
 
     /**
@@ -330,21 +417,33 @@ public class ServerConnector extends AbstractNetworkConnector
         }
 
         if (serverChannel == null)
-        {
-            serverChannel = ServerSocketChannel.open();
+            serverChannel = bindServerChannel(getPort());
 
-            InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(getPort()) : new InetSocketAddress(getHost(), getPort());
-            serverChannel.socket().setReuseAddress(getReuseAddress());
-            try
-            {
-                serverChannel.socket().bind(bindAddress, getAcceptQueueSize());
-            }
-            catch (BindException e)
-            {
-                throw new IOException("Failed to bind to " + bindAddress, e);
-            }
-        }
+        return serverChannel;
+    }
+
+    private ServerSocketChannel bindServerChannel(int port) throws IOException
+    {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
 
+        InetSocketAddress bindAddress = getHost() == null ? new InetSocketAddress(port) : new InetSocketAddress(getHost(), port);
+        serverChannel.socket().setReuseAddress(getReuseAddress());
+        if (isReusePort())
+        {
+            if (serverChannel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT))
+                serverChannel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            else
+                LOG.warn("SO_REUSEPORT not supported, using a single listening channel for {}", this);
+        }
+        try
+        {
+            serverChannel.socket().bind(bindAddress, getAcceptQueueSize());
+        }
+        catch (BindException e)
+        {
+            IO.close(serverChannel);
+            throw new IOException("Failed to bind to " + bindAddress, e);
+        }
         return serverChannel;
     }
 
@@ -353,6 +452,18 @@ public class ServerConnector extends AbstractNetworkConnector
     {
         super.close();
 
+        ServerSocketChannel[] channels = _acceptChannels;
+        _acceptChannels = null;
+        if (channels != null)
+        {
+            // The first channel is the accept channel, closed below.
+            for (int i = 1; i < channels.length; ++i)
+            {
+                removeBean(channels[i]);
+                IO.close(channels[i]);
+            }
+        }
+
         ServerSocketChannel serverChannel = _acceptChannel;
         _acceptChannel = null;
         if (serverChannel != null)
@@ -377,20 +488,43 @@ public class ServerConnector extends AbstractNetworkConnector
     @Override
     public void accept(int acceptorID) throws IOException
     {
-        ServerSocketChannel serverChannel = _acceptChannel;
+        ServerSocketChannel[] channels = _acceptChannels;
+        int listener = channels == null ? 0 : acceptorID % channels.length;
+        ServerSocketChannel serverChannel = channels == null ? _acceptChannel : channels[listener];
         if (serverChannel != null && serverChannel.isOpen())
         {
             SocketChannel channel = serverChannel.accept();
-            accepted(channel);
+            accepted(listener, channel);
         }
     }
 
-    private void accepted(SocketChannel channel) throws IOException
+    private int listenerOf(SelectableChannel server)
     {
+        ServerSocketChannel[] channels = _acceptChannels;
+        if (channels != null)
+        {
+            for (int i = 0; i < channels.length; ++i)
+            {
+                if (channels[i] == server)
+                    return i;
+            }
+        }
+        return 0;
+    }
+
+    private void accepted(int listener, SocketChannel channel) throws IOException
+    {
+        RateStatistic[] rates = _acceptRates;
+        rates[listener % rates.length].record();
         channel.configureBlocking(false);
         Socket socket = channel.socket();
         configure(socket);
-        _manager.accept(channel);
+        // With a listening channel per selector, the
+        // selector that accepted the channel handles it.
+        if (_acceptChannels != null && getAcceptors() == 0)
+            _manager.accept(channel, null, listener);
+        else
+            _manager.accept(channel);
     }
 
     protected void configure(Socket socket)
@@ -448,6 +582,70 @@ public class ServerConnector extends AbstractNetworkConnector
         _acceptQueueSize = acceptQueueSize;
     }
 
+    /**
+     * @return whether the connector opens multiple listening channels with {@code SO_REUSEPORT}
+     * @see #setReusePort(boolean)
+     */
+    @ManagedAttribute("Whether the connector opens multiple listening channels with SO_REUSEPORT")
+    public boolean isReusePort()
+    {
+        return _reusePort;
+    }
+
+    /**
+     * <p>Sets whether the connector opens, with {@code SO_REUSEPORT}, one listening channel
+     * per acceptor thread or, if there are no acceptor threads, one per selector.</p>
+     * <p>If {@code SO_REUSEPORT} is not supported, a single listening channel is opened.</p>
+     *
+     * @param reusePort whether the connector opens multiple listening channels with {@code SO_REUSEPORT}
+     */
+    public void setReusePort(boolean reusePort)
+    {
+        _reusePort = reusePort;
+    }
+
+    /**
+     * @return the number of listening channels
+     */
+    @ManagedAttribute("The number of listening channels")
+    public int getAcceptChannelCount()
+    {
+        ServerSocketChannel[] channels = _acceptChannels;
+        if (channels != null)
+            return channels.length;
+        return _acceptChannel == null ? 0 : 1;
+    }
+
+    /**
+     * @return the number of connections accepted in the last second by each listening channel
+     */
+    @ManagedAttribute("The number of connections accepted in the last second by each listening channel")
+    public int[] getAcceptRates()
+    {
+        RateStatistic[] rates = _acceptRates;
+        int[] result = new int[rates.length];
+        for (int i = 0; i < rates.length; ++i)
+        {
+            result[i] = rates[i].getRate();
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of connections accepted by each listening channel
+     */
+    @ManagedAttribute("The number of connections accepted by each listening channel")
+    public long[] getAcceptCounts()
+    {
+        RateStatistic[] rates = _acceptRates;
+        long[] result = new long[rates.length];
+        for (int i = 0; i < rates.length; ++i)
+        {
+            result[i] = rates[i].getCount();
+        }
+        return result;
+    }
+
     /**
      * @return whether the server socket reuses addresses
      * @see ServerSocket#getReuseAddress()
@@ -479,7 +677,7 @@ public class ServerConnector extends AbstractNetworkConnector
             {
                 if (_acceptor.get() == null)
                 {
-                    Closeable acceptor = _manager.acceptor(_acceptChannel);
+                    Closeable acceptor = newAcceptor();
                     if (!_acceptor.compareAndSet(null, acceptor))
                         acceptor.close();
                 }
@@ -507,7 +705,13 @@ public class ServerConnector extends AbstractNetworkConnector
         @Override
         protected void accepted(SelectableChannel channel) throws IOException
         {
-            ServerConnector.this.accepted((SocketChannel)channel);
+            ServerConnector.this.accepted(0, (SocketChannel)channel);
+        }
+
+        @Override
+        protected void accepted(SelectableChannel server, SelectableChannel channel) throws IOException
+        {
+            ServerConnector.this.accepted(listenerOf(server), (SocketChannel)channel);
         }
 
         @Override
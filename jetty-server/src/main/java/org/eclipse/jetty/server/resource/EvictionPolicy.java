@@ -0,0 +1,82 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.resource;
+
+/**
+ * <p>Decides which entries of a cache are evicted when the cache exceeds its limits.</p>
+ * <p>The cache notifies the policy of the entries added, accessed and removed, and asks
+ * the policy for an entry to {@link #evict()} while it is over its limits.</p>
+ * <p>Implementations need not be thread safe: the cache serializes the calls to the policy,
+ * and may replay accesses to the policy in batches, or drop some of them under load.</p>
+ *
+ * @see org.eclipse.jetty.server.CachedContentFactory
+ */
+public interface EvictionPolicy
+{
+    /**
+     * @param entry the entry added to the cache
+     */
+    void onAdded(Entry entry);
+
+    /**
+     * @param entry the cached entry that has been accessed
+     */
+    void onAccessed(Entry entry);
+
+    /**
+     * <p>Notifies that an entry has been removed from the cache, other than by {@link #evict()}.</p>
+     * <p>Entries unknown to this policy must be ignored.</p>
+     *
+     * @param entry the entry removed from the cache
+     */
+    void onRemoved(Entry entry);
+
+    /**
+     * <p>Notifies that the {@link Entry#getWeight() weight} of a cached entry has changed.</p>
+     * <p>Entries unknown to this policy must be ignored.</p>
+     *
+     * @param entry the cached entry whose weight has changed
+     */
+    default void onUpdated(Entry entry)
+    {
+    }
+
+    /**
+     * <p>Selects and forgets the next entry to evict.</p>
+     *
+     * @return the entry to evict, or null if this policy has no entries
+     */
+    Entry evict();
+
+    /**
+     * An entry of a cache.
+     */
+    interface Entry
+    {
+        /**
+         * @return the key of the entry in the cache
+         */
+        String getKey();
+
+        /**
+         * @return the weight of the entry, for example its size in bytes
+         */
+        long getWeight();
+    }
+}
@@ -0,0 +1,67 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.resource;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>An {@link EvictionPolicy} that evicts the least recently used entry.</p>
+ */
+public class LRUEvictionPolicy implements EvictionPolicy
+{
+    // Access ordered, so that the first entry is the least recently used.
+    private final Map<Entry, Entry> _entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    @Override
+    public void onAdded(Entry entry)
+    {
+        _entries.put(entry, entry);
+    }
+
+    @Override
+    public void onAccessed(Entry entry)
+    {
+        _entries.get(entry);
+    }
+
+    @Override
+    public void onRemoved(Entry entry)
+    {
+        _entries.remove(entry);
+    }
+
+    @Override
+    public Entry evict()
+    {
+        Iterator<Entry> iterator = _entries.keySet().iterator();
+        if (!iterator.hasNext())
+            return null;
+        Entry entry = iterator.next();
+        iterator.remove();
+        return entry;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d}", getClass().getSimpleName(), hashCode(), _entries.size());
+    }
+}
@@ -21,10 +21,13 @@ package org.eclipse.jetty.server.resource;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 
+import org.eclipse.jetty.server.HttpOutput;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.MultiPartOutputStream;
 
 public class SeekableByteChannelRangeWriter implements RangeWriter
 {
@@ -67,6 +70,20 @@ public class SeekableByteChannelRangeWriter implements RangeWriter
     @Override
     public void writeTo(OutputStream outputStream, long skipTo, long length) throws IOException
     {
+        if (channel == null)
+        {
+            channel = channelSupplier.newSeekableByteChannel();
+            pos = 0;
+        }
+
+        // Send the range directly from the file to the network, if possible.
+        OutputStream out = outputStream instanceof MultiPartOutputStream ? ((MultiPartOutputStream)outputStream).getOut() : outputStream;
+        if (channel instanceof FileChannel && out instanceof HttpOutput && ((HttpOutput)out).isTransferToSupported())
+        {
+            ((HttpOutput)out).transfer((FileChannel)channel, skipTo, length);
+            return;
+        }
+
         skipTo(skipTo);
 
         // copy from channel to output stream
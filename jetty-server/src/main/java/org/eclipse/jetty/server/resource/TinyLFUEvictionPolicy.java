@@ -0,0 +1,380 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.resource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>A size aware W-TinyLFU {@link EvictionPolicy}.</p>
+ * <p>New entries are added to a small LRU <em>window</em>, of {@link #getWindowRatio() windowRatio}
+ * of the total weight. Entries that overflow the window move to the main region as candidates
+ * for admission. The main region is a segmented LRU: accessed entries are promoted from the
+ * <em>probation</em> segment to the <em>protected</em> segment, which holds at most
+ * {@link #getProtectedRatio() protectedRatio} of the main weight.</p>
+ * <p>When an entry must be evicted, the most recent candidate is compared with the least recently
+ * used entries of the main region, as many as needed to free the weight of the candidate: the
+ * candidate is admitted only if its estimated access frequency is greater than the sum of their
+ * frequencies, otherwise it is evicted. Access frequencies are estimated by a small count-min sketch,
+ * halved periodically so that old accesses are forgotten.</p>
+ * <p>Entries accessed only once, for example by a crawler sweeping the whole content, are therefore
+ * evicted before entries accessed frequently, even if the latter were accessed less recently.</p>
+ * <p>Every operation is O(1), except admission that compares at most {@value #MAX_VICTIMS} victims.</p>
+ */
+public class TinyLFUEvictionPolicy implements EvictionPolicy
+{
+    private static final int MAX_VICTIMS = 16;
+
+    private final Map<Entry, Node> _nodes = new HashMap<>();
+    private final Region _window = new Region();
+    private final Region _probation = new Region();
+    private final Region _protected = new Region();
+    private final FrequencySketch _sketch;
+    private double _windowRatio = 0.01D;
+    private double _protectedRatio = 0.8D;
+
+    /**
+     * @param expectedEntries the expected maximum number of entries, used to size the frequency sketch
+     */
+    public TinyLFUEvictionPolicy(int expectedEntries)
+    {
+        _sketch = new FrequencySketch(expectedEntries);
+    }
+
+    public double getWindowRatio()
+    {
+        return _windowRatio;
+    }
+
+    /**
+     * @param windowRatio the ratio of the total weight held by the window
+     */
+    public void setWindowRatio(double windowRatio)
+    {
+        if (windowRatio < 0 || windowRatio > 1)
+            throw new IllegalArgumentException("Invalid window ratio " + windowRatio);
+        _windowRatio = windowRatio;
+    }
+
+    public double getProtectedRatio()
+    {
+        return _protectedRatio;
+    }
+
+    /**
+     * @param protectedRatio the ratio of the main region weight held by the protected segment
+     */
+    public void setProtectedRatio(double protectedRatio)
+    {
+        if (protectedRatio < 0 || protectedRatio > 1)
+            throw new IllegalArgumentException("Invalid protected ratio " + protectedRatio);
+        _protectedRatio = protectedRatio;
+    }
+
+    /**
+     * @param key the key of an entry
+     * @return the estimated number of recent accesses to the entry, between 0 and 15
+     */
+    public int frequency(String key)
+    {
+        return _sketch.frequency(key.hashCode());
+    }
+
+    @Override
+    public void onAdded(Entry entry)
+    {
+        _sketch.increment(entry.getKey().hashCode());
+        Node node = new Node(entry);
+        Node existing = _nodes.put(entry, node);
+        if (existing != null)
+            existing._region.unlink(existing);
+        _window.linkLast(node);
+
+        // Move the entries overflowing the window to the main region, as candidates.
+        long windowMax = (long)(weight() * _windowRatio);
+        while (_window._weight > windowMax && _window._first != _window._last)
+        {
+            Node candidate = _window._first;
+            _window.unlink(candidate);
+            candidate._candidate = true;
+            _probation.linkLast(candidate);
+        }
+    }
+
+    @Override
+    public void onAccessed(Entry entry)
+    {
+        _sketch.increment(entry.getKey().hashCode());
+        Node node = _nodes.get(entry);
+        if (node == null)
+            return;
+
+        node._candidate = false;
+        if (node._region == _probation)
+        {
+            _probation.unlink(node);
+            _protected.linkLast(node);
+
+            // Demote the entries overflowing the protected segment.
+            long protectedMax = (long)((_probation._weight + _protected._weight) * _protectedRatio);
+            while (_protected._weight > protectedMax && _protected._first != _protected._last)
+            {
+                Node demoted = _protected._first;
+                _protected.unlink(demoted);
+                _probation.linkLast(demoted);
+            }
+        }
+        else
+        {
+            node._region.moveToLast(node);
+        }
+    }
+
+    @Override
+    public void onRemoved(Entry entry)
+    {
+        Node node = _nodes.remove(entry);
+        if (node != null)
+            node._region.unlink(node);
+    }
+
+    @Override
+    public void onUpdated(Entry entry)
+    {
+        Node node = _nodes.get(entry);
+        if (node == null)
+            return;
+        Region region = node._region;
+        region._weight -= node._weight;
+        node._weight = Math.max(0, entry.getWeight());
+        region._weight += node._weight;
+    }
+
+    @Override
+    public Entry evict()
+    {
+        Node victim = _probation._first != null ? _probation._first : _protected._first;
+        if (victim == null)
+            return remove(_window._first);
+
+        Node candidate = _probation._last;
+        if (candidate == null || !candidate._candidate || candidate == victim)
+            return remove(victim);
+
+        // Compare the candidate with the victims that would make room for it.
+        long weight = Math.max(1, candidate._entry.getWeight());
+        long freed = 0;
+        int victimsFrequency = 0;
+        int victims = 0;
+        for (Node node = victim; node != null && freed < weight && victims < MAX_VICTIMS; node = nextVictim(node))
+        {
+            if (node == candidate)
+                continue;
+            freed += Math.max(1, node._entry.getWeight());
+            victimsFrequency += _sketch.frequency(node._entry.getKey().hashCode());
+            ++victims;
+        }
+
+        if (_sketch.frequency(candidate._entry.getKey().hashCode()) > victimsFrequency)
+        {
+            candidate._candidate = false;
+            return remove(victim);
+        }
+        return remove(candidate);
+    }
+
+    private Node nextVictim(Node node)
+    {
+        if (node._next != null)
+            return node._next;
+        return node._region == _probation ? _protected._first : null;
+    }
+
+    private Entry remove(Node node)
+    {
+        if (node == null)
+            return null;
+        _nodes.remove(node._entry);
+        node._region.unlink(node);
+        return node._entry;
+    }
+
+    private long weight()
+    {
+        return _window._weight + _probation._weight + _protected._weight;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d,window=%d,probation=%d,protected=%d}",
+            getClass().getSimpleName(),
+            hashCode(),
+            _nodes.size(),
+            _window._weight,
+            _probation._weight,
+            _protected._weight);
+    }
+
+    private static class Node
+    {
+        private final Entry _entry;
+        private long _weight;
+        private Region _region;
+        private Node _prev;
+        private Node _next;
+        private boolean _candidate;
+
+        private Node(Entry entry)
+        {
+            _entry = entry;
+            _weight = Math.max(0, entry.getWeight());
+        }
+    }
+
+    /**
+     * A doubly linked list of nodes, from the least to the most recently used.
+     */
+    private static class Region
+    {
+        private Node _first;
+        private Node _last;
+        private long _weight;
+
+        private void linkLast(Node node)
+        {
+            node._region = this;
+            node._prev = _last;
+            node._next = null;
+            if (_last == null)
+                _first = node;
+            else
+                _last._next = node;
+            _last = node;
+            _weight += node._weight;
+        }
+
+        private void unlink(Node node)
+        {
+            if (node._prev == null)
+                _first = node._next;
+            else
+                node._prev._next = node._next;
+            if (node._next == null)
+                _last = node._prev;
+            else
+                node._next._prev = node._prev;
+            node._prev = null;
+            node._next = null;
+            _weight -= node._weight;
+        }
+
+        private void moveToLast(Node node)
+        {
+            if (node != _last)
+            {
+                unlink(node);
+                linkLast(node);
+            }
+        }
+    }
+
+    /**
+     * <p>A count-min sketch of 4-bit counters, 16 per long, that estimates the
+     * number of recent accesses to an item with 4 counters per item.</p>
+     * <p>When the number of increments reaches 10 times the number of counters
+     * per row, all counters are halved so that the sketch ages.</p>
+     */
+    static class FrequencySketch
+    {
+        private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] _table;
+        private final int _sampleSize;
+        private int _size;
+
+        FrequencySketch(int expectedItems)
+        {
+            int length = Integer.highestOneBit(Math.max(16, Math.min(expectedItems, 1 << 26)) - 1) << 1;
+            _table = new long[length];
+            _sampleSize = 10 * length;
+        }
+
+        int frequency(int item)
+        {
+            int hash = spread(item);
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; ++i)
+            {
+                int index = indexOf(hash, i);
+                int count = (int)((_table[index] >>> ((start + i) << 2)) & 0xFL);
+                frequency = Math.min(frequency, count);
+            }
+            return frequency;
+        }
+
+        void increment(int item)
+        {
+            int hash = spread(item);
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; ++i)
+            {
+                added |= incrementAt(indexOf(hash, i), start + i);
+            }
+            if (added && ++_size == _sampleSize)
+                reset();
+        }
+
+        private boolean incrementAt(int index, int counter)
+        {
+            int shift = counter << 2;
+            long mask = 0xFL << shift;
+            if ((_table[index] & mask) == mask)
+                return false;
+            _table[index] += 1L << shift;
+            return true;
+        }
+
+        private void reset()
+        {
+            for (int i = 0; i < _table.length; ++i)
+            {
+                _table[i] = (_table[i] >>> 1) & RESET_MASK;
+            }
+            _size >>>= 1;
+        }
+
+        private int indexOf(int hash, int i)
+        {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int)h & (_table.length - 1);
+        }
+
+        private static int spread(int hash)
+        {
+            hash = ((hash >>> 16) ^ hash) * 0x45D9F3B;
+            hash = ((hash >>> 16) ^ hash) * 0x45D9F3B;
+            return (hash >>> 16) ^ hash;
+        }
+    }
+}
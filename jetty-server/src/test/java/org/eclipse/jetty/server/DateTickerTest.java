@@ -0,0 +1,124 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.jetty.http.DateParser;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.util.DateCache;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DateTickerTest
+{
+    @Test
+    public void testDateField() throws Exception
+    {
+        DateTicker ticker = new DateTicker();
+        ticker.start();
+        try
+        {
+            long before = System.currentTimeMillis() / 1000 * 1000;
+            HttpField date = ticker.getDateField();
+            long after = System.currentTimeMillis();
+
+            assertThat(date, instanceOf(PreEncodedHttpField.class));
+            assertEquals(HttpHeader.DATE, date.getHeader());
+            long parsed = DateParser.parseDate(date.getValue());
+            assertThat(parsed, greaterThanOrEqualTo(before));
+            assertThat(parsed, lessThanOrEqualTo(after));
+
+            // The field is published once per second.
+            assertTrue(awaitUntil(() -> ticker.getTicks() >= 3));
+            assertTrue(awaitUntil(() -> ticker.getDateField() == ticker.getDateField()));
+        }
+        finally
+        {
+            ticker.stop();
+        }
+    }
+
+    @Test
+    public void testServerDateField() throws Exception
+    {
+        Server server = new Server();
+        DateTicker ticker = new DateTicker();
+        server.setDateTicker(ticker);
+        CustomRequestLog requestLog = new CustomRequestLog(new RequestLogWriter(), CustomRequestLog.NCSA_FORMAT);
+        server.setRequestLog(requestLog);
+        server.start();
+        try
+        {
+            assertThat(ticker.isRunning(), is(true));
+            assertSame(ticker, requestLog.getDateTicker());
+            assertEquals(ticker.getDateField().getValue(), server.getDateField().getValue());
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testDateCachesAreTicked() throws Exception
+    {
+        DateTicker ticker = new DateTicker();
+        DateCache dateCache = new DateCache("dd/MMM/yyyy:HH:mm:ss ZZZ");
+        ticker.addDateCaches(List.of(dateCache));
+        ticker.start();
+        try
+        {
+            // A timestamp in the current second is served from the tick.
+            assertTrue(awaitUntil(() ->
+            {
+                long now = System.currentTimeMillis();
+                return dateCache.format(now) == dateCache.format(now);
+            }));
+        }
+        finally
+        {
+            ticker.stop();
+        }
+    }
+
+    private static boolean awaitUntil(BooleanSupplier condition) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline)
+        {
+            if (condition.getAsBoolean())
+                return true;
+            Thread.sleep(10);
+        }
+        return false;
+    }
+}
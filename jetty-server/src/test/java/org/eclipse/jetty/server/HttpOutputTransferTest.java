@@ -0,0 +1,347 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.http.tools.HttpTester;
+import org.eclipse.jetty.io.ChannelEndPoint;
+import org.eclipse.jetty.io.ManagedSelector;
+import org.eclipse.jetty.io.SocketChannelEndPoint;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.handler.ResourceHandler;
+import org.eclipse.jetty.toolchain.test.FS;
+import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
+import org.eclipse.jetty.util.Callback;
+import org.eclipse.jetty.util.IO;
+import org.eclipse.jetty.util.resource.Resource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HttpOutputTransferTest
+{
+    private Server _server;
+    private ServerConnector _connector;
+    private Path _file;
+    private byte[] _content;
+    private final AtomicLong _transferred = new AtomicLong();
+    private final BlockingQueue<Long> _bytesWritten = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    public void prepare() throws Exception
+    {
+        Path dir = MavenTestingUtils.getTargetTestingPath(HttpOutputTransferTest.class.getSimpleName());
+        FS.ensureEmpty(dir);
+        _content = new byte[2 * 1024 * 1024 + 17];
+        for (int i = 0; i < _content.length; ++i)
+        {
+            _content[i] = (byte)('A' + i % 26);
+        }
+        _file = dir.resolve("content.txt");
+        Files.write(_file, _content);
+    }
+
+    private void start(Handler handler, HttpChannel.Listener... listeners) throws Exception
+    {
+        _server = new Server();
+        _connector = new ServerConnector(_server)
+        {
+            @Override
+            protected ChannelEndPoint newEndPoint(SocketChannel channel, ManagedSelector selectSet, SelectionKey key)
+            {
+                SocketChannelEndPoint endpoint = new SocketChannelEndPoint(channel, selectSet, key, getScheduler())
+                {
+                    @Override
+                    public long transferFrom(FileChannel file, long position, long length) throws IOException
+                    {
+                        long transferred = super.transferFrom(file, position, length);
+                        _transferred.addAndGet(transferred);
+                        return transferred;
+                    }
+                };
+                endpoint.setIdleTimeout(getIdleTimeout());
+                return endpoint;
+            }
+        };
+        _connector.addBean(new HttpChannel.Listener()
+        {
+            @Override
+            public void onComplete(Request request)
+            {
+                _bytesWritten.offer(request.getHttpChannel().getBytesWritten());
+            }
+        });
+        for (HttpChannel.Listener listener : listeners)
+        {
+            _connector.addBean(listener);
+        }
+        _server.addConnector(_connector);
+        _server.setHandler(handler);
+        _server.start();
+    }
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        if (_server != null)
+            _server.stop();
+    }
+
+    @Test
+    public void testSendContentFileChannelIsTransferred() throws Exception
+    {
+        AtomicBoolean transfer = new AtomicBoolean();
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                response.setContentLengthLong(Files.size(_file));
+                HttpOutput output = baseRequest.getResponse().getHttpOutput();
+                transfer.set(output.isTransferToSupported());
+                output.sendContent(FileChannel.open(_file));
+            }
+        });
+
+        try (Socket socket = new Socket("localhost", _connector.getLocalPort()))
+        {
+            // Two requests on the same connection, to verify that it is still usable.
+            for (int i = 0; i < 2; ++i)
+            {
+                HttpTester.Response response = send(socket, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                assertEquals(HttpStatus.OK_200, response.getStatus());
+                assertArrayEquals(_content, response.getContentBytes());
+                assertTrue(transfer.get());
+                assertEquals(_content.length * (i + 1L), _transferred.get());
+                assertEquals(_content.length, _bytesWritten.poll(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    public void testResponseContentListenerDisablesTransfer() throws Exception
+    {
+        AtomicBoolean transfer = new AtomicBoolean(true);
+        AtomicLong notified = new AtomicLong();
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                response.setContentLengthLong(Files.size(_file));
+                HttpOutput output = baseRequest.getResponse().getHttpOutput();
+                transfer.set(output.isTransferToSupported());
+                output.sendContent(FileChannel.open(_file));
+            }
+        }, new HttpChannel.Listener()
+        {
+            @Override
+            public void onResponseContent(Request request, ByteBuffer content)
+            {
+                notified.addAndGet(content.remaining());
+            }
+        });
+
+        try (Socket socket = new Socket("localhost", _connector.getLocalPort()))
+        {
+            HttpTester.Response response = send(socket, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(HttpStatus.OK_200, response.getStatus());
+            assertArrayEquals(_content, response.getContentBytes());
+            assertFalse(transfer.get());
+            assertEquals(0, _transferred.get());
+            assertEquals(_content.length, _bytesWritten.poll(5, TimeUnit.SECONDS));
+            assertEquals(_content.length, notified.get());
+        }
+    }
+
+    @Test
+    public void testAsyncSendContentFileChannelIsTransferred() throws Exception
+    {
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                response.setContentLengthLong(Files.size(_file));
+                AsyncContext asyncContext = request.startAsync();
+                FileChannel channel = FileChannel.open(_file);
+                // Start from a position, like a channel that has been partially read.
+                channel.position(_content.length / 2);
+                response.setContentLengthLong(channel.size() - channel.position());
+                baseRequest.getResponse().getHttpOutput().sendContent(channel, Callback.from(asyncContext::complete));
+            }
+        });
+
+        try (Socket socket = new Socket("localhost", _connector.getLocalPort()))
+        {
+            HttpTester.Response response = send(socket, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(HttpStatus.OK_200, response.getStatus());
+            assertArrayEquals(Arrays.copyOfRange(_content, _content.length / 2, _content.length), response.getContentBytes());
+        }
+    }
+
+    @Test
+    public void testInterceptorDisablesTransfer() throws Exception
+    {
+        AtomicBoolean transfer = new AtomicBoolean(true);
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                response.setContentLengthLong(Files.size(_file));
+                HttpOutput output = baseRequest.getResponse().getHttpOutput();
+                HttpOutput.Interceptor next = output.getInterceptor();
+                output.setInterceptor(new HttpOutput.Interceptor()
+                {
+                    @Override
+                    public void write(ByteBuffer content, boolean last, Callback callback)
+                    {
+                        next.write(content, last, callback);
+                    }
+
+                    @Override
+                    public HttpOutput.Interceptor getNextInterceptor()
+                    {
+                        return next;
+                    }
+                });
+                transfer.set(output.isTransferToSupported());
+                output.sendContent(FileChannel.open(_file));
+            }
+        });
+
+        try (Socket socket = new Socket("localhost", _connector.getLocalPort()))
+        {
+            HttpTester.Response response = send(socket, "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(HttpStatus.OK_200, response.getStatus());
+            assertArrayEquals(_content, response.getContentBytes());
+            assertFalse(transfer.get());
+        }
+    }
+
+    @Test
+    public void testHeadIsNotTransferred() throws Exception
+    {
+        start(new AbstractHandler()
+        {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                baseRequest.setHandled(true);
+                response.setContentLengthLong(Files.size(_file));
+                baseRequest.getResponse().getHttpOutput().sendContent(FileChannel.open(_file));
+            }
+        });
+
+        try (Socket socket = new Socket("localhost", _connector.getLocalPort()))
+        {
+            OutputStream output = socket.getOutputStream();
+            output.write("HEAD / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+
+            // The response must only have the headers.
+            String response = IO.toString(socket.getInputStream(), StandardCharsets.ISO_8859_1);
+            assertThat(response, containsString("HTTP/1.1 200 OK"));
+            assertThat(response, containsString("Content-Length: " + _content.length));
+            assertThat(response, endsWith("\r\n\r\n"));
+        }
+    }
+
+    @Test
+    public void testResourceRangesAreTransferred() throws Exception
+    {
+        ContextHandler context = new ContextHandler("/");
+        context.setBaseResource(Resource.newResource(_file.getParent()));
+        context.setHandler(new ResourceHandler());
+        start(context);
+
+        try (Socket socket = new Socket("localhost", _connector.getLocalPort()))
+        {
+            HttpTester.Response whole = send(socket, "GET /content.txt HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals(HttpStatus.OK_200, whole.getStatus());
+            assertArrayEquals(_content, whole.getContentBytes());
+            assertEquals(_content.length, _transferred.get());
+            assertEquals(_content.length, _bytesWritten.poll(5, TimeUnit.SECONDS));
+
+            HttpTester.Response single = send(socket, "GET /content.txt HTTP/1.1\r\nHost: localhost\r\nRange: bytes=1000-1500999\r\n\r\n");
+            assertEquals(HttpStatus.PARTIAL_CONTENT_206, single.getStatus());
+            assertArrayEquals(Arrays.copyOfRange(_content, 1000, 1501000), single.getContentBytes());
+            assertEquals(_content.length + 1500000, _transferred.get());
+            assertEquals(1500000, _bytesWritten.poll(5, TimeUnit.SECONDS));
+
+            HttpTester.Response multi = send(socket, "GET /content.txt HTTP/1.1\r\nHost: localhost\r\nRange: bytes=10-19,100000-100009\r\n\r\n");
+            assertEquals(HttpStatus.PARTIAL_CONTENT_206, multi.getStatus());
+            assertThat(multi.get("Content-Type"), containsString("multipart/byteranges"));
+            String body = multi.getContent();
+            assertThat(body, containsString("\r\n\r\n" + new String(_content, 10, 10, StandardCharsets.US_ASCII) + "\r\n"));
+            assertThat(body, containsString("\r\n\r\n" + new String(_content, 100000, 10, StandardCharsets.US_ASCII) + "\r\n"));
+            assertThat((long)multi.getContentBytes().length, is(multi.getLongField("Content-Length")));
+            assertEquals(_content.length + 1500000 + 20, _transferred.get());
+            assertEquals(multi.getLongField("Content-Length"), _bytesWritten.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private HttpTester.Response send(Socket socket, String request) throws IOException
+    {
+        OutputStream output = socket.getOutputStream();
+        output.write(request.getBytes(StandardCharsets.UTF_8));
+        output.flush();
+        InputStream input = socket.getInputStream();
+        HttpTester.Response response = HttpTester.parseResponse(HttpTester.from(input));
+        assertNotNull(response);
+        return response;
+    }
+}
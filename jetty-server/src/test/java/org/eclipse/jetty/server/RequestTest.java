@@ -68,6 +68,7 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -961,6 +962,64 @@ public class RequestTest
         assertThat(response, containsString(" 200 OK"));
     }
 
+    @Test
+    public void testLazyQueryParameters() throws Exception
+    {
+        _handler._checker = new RequestTester()
+        {
+            @Override
+            public boolean check(HttpServletRequest request, HttpServletResponse response)
+            {
+                if (!"42".equals(request.getParameter("id")))
+                    return false;
+                if (!Arrays.asList("a", "b").equals(Arrays.asList(request.getParameterValues("tag"))))
+                    return false;
+                if (request.getParameter("missing") != null)
+                    return false;
+                // Only the parameters that are looked up are decoded.
+                assertThrows(BadMessageException.class, () -> request.getParameter("bad"));
+                assertThrows(BadMessageException.class, request::getParameterMap);
+                return true;
+            }
+        };
+
+        String request = "GET /?id=42&bad=%ZZ&tag=a&tag=b HTTP/1.1\r\n" +
+            "Host: whatever\r\n" +
+            "Connection: close\r\n" +
+            "\r\n";
+        String response = _connector.getResponse(request);
+        assertThat(response, containsString(" 200 OK"));
+    }
+
+    @Test
+    public void testParseFormParameters() throws Exception
+    {
+        List<String> parameters = new ArrayList<>();
+        _handler._checker = new RequestTester()
+        {
+            @Override
+            public boolean check(HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                Request baseRequest = Request.getBaseRequest(request);
+                baseRequest.parseFormParameters((name, value) -> parameters.add(name + "=" + value));
+                // The form content has been consumed, only the query parameters remain.
+                return request.getParameter("name1") == null && "x".equals(request.getParameter("q"));
+            }
+        };
+
+        String content = "name1=test&name2=te+st%21&name1=again&flag";
+        String request = "POST /?q=x HTTP/1.1\r\n" +
+            "Host: whatever\r\n" +
+            "Content-Type: " + MimeTypes.Type.FORM_ENCODED.asString() + "\r\n" +
+            "Content-Length: " + content.length() + "\r\n" +
+            "Connection: close\r\n" +
+            "\r\n" +
+            content;
+        String response = _connector.getResponse(request);
+        assertThat(response, containsString(" 200 OK"));
+        assertThat(parameters, contains("name1=test", "name2=te st!", "name1=again", "flag="));
+    }
+
     @Test
     public void testEncodedFormUnknownMethod() throws Exception
     {
@@ -22,10 +22,16 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import org.eclipse.jetty.http.CompressedContentFormat;
 import org.eclipse.jetty.http.HttpContent;
@@ -35,6 +41,7 @@ import org.eclipse.jetty.toolchain.test.FS;
 import org.eclipse.jetty.toolchain.test.jupiter.WorkDir;
 import org.eclipse.jetty.toolchain.test.jupiter.WorkDirExtension;
 import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.resource.PathResource;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceCollection;
@@ -42,10 +49,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.endsWith;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -346,6 +355,125 @@ public class ResourceCacheTest
         cache.flushCache();
     }
 
+    @Test
+    public void testCompressOnDemand() throws Exception
+    {
+        Path basePath = workDir.getEmptyPathDir();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 200; i++)
+        {
+            builder.append("line ").append(i % 10).append(" of compressible content\n");
+        }
+        String text = builder.toString();
+        Path textFile = basePath.resolve("text.txt");
+        makeFile(textFile, text);
+        makeFile(basePath.resolve("image.png"), text);
+        makeFile(basePath.resolve("small.txt"), "small");
+
+        Resource directory = new PathResource(basePath);
+        CachedContentFactory cache = new CachedContentFactory(null, directory, new MimeTypes(), false, true, new CompressedContentFormat[]{CompressedContentFormat.GZIP});
+        cache.setCompressOnDemand(true);
+
+        // Without executor, the request threads do not compress.
+        HttpContent content = cache.getContent("text.txt", 4096);
+        assertThat(content.getPrecompressedContents(), is(nullValue()));
+        assertEquals(0, cache.getCompressions());
+
+        List<Runnable> tasks = new ArrayList<>();
+        cache.setExecutor(tasks::add);
+        assertThat(content.getPrecompressedContents(), is(nullValue()));
+        assertEquals(1, tasks.size());
+        cache.setExecutor(Runnable::run);
+        tasks.forEach(Runnable::run);
+
+        Map<CompressedContentFormat, ? extends HttpContent> precompressed = content.getPrecompressedContents();
+        assertThat(precompressed, is(not(nullValue())));
+        HttpContent compressed = precompressed.get(CompressedContentFormat.GZIP);
+        assertThat(compressed, is(not(nullValue())));
+        assertEquals("gzip", compressed.getContentEncodingValue());
+        assertThat(compressed.getETagValue(), endsWith("--gzip\""));
+        assertThat(compressed.getContentLengthValue(), lessThan(content.getContentLengthValue()));
+        assertEquals(text, gunzip(compressed));
+        assertEquals(1, cache.getCompressions());
+        // The compressed bytes are part of the weight of the entry.
+        long weight = ((CachedContentFactory.CachedHttpContent)content).getWeight();
+        assertEquals(content.getContentLengthValue() + compressed.getContentLengthValue(), weight);
+        assertEquals(weight, cache.getCachedSize());
+
+        // The compressed content is reused.
+        assertThat(cache.getContent("text.txt", 4096).getPrecompressedContents().get(CompressedContentFormat.GZIP), is(compressed));
+        assertEquals(1, cache.getCompressions());
+
+        // Content that is not compressible is not compressed.
+        assertThat(cache.getContent("image.png", 4096).getPrecompressedContents(), is(nullValue()));
+        assertThat(cache.getContent("small.txt", 4096).getPrecompressedContents(), is(nullValue()));
+
+        // A modified resource is compressed again.
+        String modified = text.replace("line", "LINE");
+        Files.write(textFile, modified.getBytes(UTF_8));
+        Files.setLastModifiedTime(textFile, FileTime.fromMillis(Files.getLastModifiedTime(textFile).toMillis() + 2000));
+        content = cache.getContent("text.txt", 4096);
+        compressed = content.getPrecompressedContents().get(CompressedContentFormat.GZIP);
+        assertEquals(modified, gunzip(compressed));
+        assertEquals(2, cache.getCompressions());
+
+        cache.flushCache();
+        assertEquals(0, cache.getCachedSize());
+    }
+
+    private static String gunzip(HttpContent content) throws IOException
+    {
+        try (InputStream in = new GZIPInputStream(content.getInputStream()))
+        {
+            return IO.toString(in, UTF_8);
+        }
+    }
+
+    @Test
+    public void testWarmupAndPrefetch() throws Exception
+    {
+        Path basePath = workDir.getEmptyPathDir();
+        makeFile(basePath.resolve("a.txt"), "aaa");
+        makeFile(basePath.resolve("b.txt"), "bbbb");
+        Path sub = basePath.resolve("sub");
+        FS.ensureDirExists(sub);
+        makeFile(sub.resolve("c.txt"), "ccccc");
+        Resource directory = new PathResource(basePath);
+
+        CachedContentFactory cache = new CachedContentFactory(null, directory, new MimeTypes(), false, false, CompressedContentFormat.NONE);
+        assertEquals(2, cache.warmup("/", false));
+        assertEquals(2, cache.getCachedFiles());
+        // Without prefetch executor, the buffers are loaded by the warmup thread.
+        assertEquals(7, cache.getCachedSize());
+        assertEquals(2, cache.getPrefetches());
+
+        assertEquals(3, cache.warmup("/", true));
+        assertEquals(3, cache.getCachedFiles());
+        assertEquals(12, cache.getCachedSize());
+        // The warmup does not count as hits or misses.
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        cache.flushCache();
+
+        // The warmup stops at the max number of cached files.
+        cache.setMaxCachedFiles(2);
+        assertEquals(2, cache.warmup("/", true));
+        assertEquals(2, cache.getCachedFiles());
+        cache.flushCache();
+
+        // The entries added to the cache are prefetched by the prefetch executor.
+        List<Runnable> tasks = new ArrayList<>();
+        cache = new CachedContentFactory(null, directory, new MimeTypes(), true, false, CompressedContentFormat.NONE);
+        cache.setPrefetchExecutor(tasks::add);
+        HttpContent content = cache.getContent("sub/c.txt", 4096);
+        assertEquals(1, tasks.size());
+        assertEquals(0, cache.getPrefetches());
+        tasks.forEach(Runnable::run);
+        assertEquals(1, cache.getPrefetches());
+        assertEquals("ccccc", BufferUtil.toString(content.getDirectBuffer()));
+        cache.flushCache();
+    }
+
     @Test
     public void testNoextension() throws Exception
     {
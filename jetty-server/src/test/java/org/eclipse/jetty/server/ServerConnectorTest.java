@@ -27,10 +27,12 @@ import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.ServletException;
@@ -46,6 +48,8 @@ import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.log.StacklessLogging;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.anyOf;
@@ -58,6 +62,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class ServerConnectorTest
 {
@@ -322,4 +327,54 @@ public class ServerConnectorTest
             assertThat(x.getMessage(), containsString("0.0.0.0:" + port));
         }
     }
+
+    @ParameterizedTest
+    @CsvSource({"0,2", "2,1"})
+    public void testReusePort(int acceptors, int selectors) throws Exception
+    {
+        try (ServerSocketChannel channel = ServerSocketChannel.open())
+        {
+            assumeTrue(channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT));
+        }
+
+        Server server = new Server();
+        ServerConnector connector = new ServerConnector(server, acceptors, selectors);
+        connector.setPort(0);
+        connector.setReusePort(true);
+        server.addConnector(connector);
+        server.setHandler(new ReuseInfoHandler());
+
+        try
+        {
+            server.start();
+
+            int listeners = Math.max(acceptors, selectors);
+            assertEquals(listeners, connector.getAcceptChannelCount());
+
+            int requests = 20;
+            for (int i = 0; i < requests; ++i)
+            {
+                try (Socket socket = new Socket("localhost", connector.getLocalPort()))
+                {
+                    socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+                    assertThat(IO.toString(socket.getInputStream()), containsString("200 OK"));
+                }
+            }
+
+            long[] counts = connector.getAcceptCounts();
+            assertEquals(listeners, counts.length);
+            assertEquals(requests, Arrays.stream(counts).sum());
+            assertEquals(listeners, connector.getAcceptRates().length);
+
+            // Stopping and resuming accepting applies to all the listening channels.
+            connector.setAccepting(false);
+            connector.setAccepting(true);
+            getResponse(toServerURI(connector));
+        }
+        finally
+        {
+            server.stop();
+        }
+        assertEquals(0, connector.getAcceptChannelCount());
+    }
 }
@@ -0,0 +1,174 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.server.resource;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TinyLFUEvictionPolicyTest
+{
+    @Test
+    public void testLRUEvictsLeastRecentlyUsed()
+    {
+        EvictionPolicy policy = new LRUEvictionPolicy();
+        TestEntry a = new TestEntry("a", 1);
+        TestEntry b = new TestEntry("b", 1);
+        TestEntry c = new TestEntry("c", 1);
+        policy.onAdded(a);
+        policy.onAdded(b);
+        policy.onAdded(c);
+        policy.onAccessed(a);
+        policy.onRemoved(new TestEntry("unknown", 1));
+
+        assertSame(b, policy.evict());
+        assertSame(c, policy.evict());
+        assertSame(a, policy.evict());
+        assertNull(policy.evict());
+    }
+
+    @Test
+    public void testFrequentEntriesSurviveScan()
+    {
+        int capacity = 10;
+        TinyLFUEvictionPolicy policy = new TinyLFUEvictionPolicy(capacity);
+        Set<String> cached = new HashSet<>();
+
+        TestEntry[] hot = new TestEntry[5];
+        for (int i = 0; i < hot.length; ++i)
+        {
+            hot[i] = new TestEntry("hot" + i, 1);
+            add(policy, cached, hot[i], capacity);
+        }
+        for (int r = 0; r < 5; ++r)
+        {
+            for (TestEntry entry : hot)
+            {
+                policy.onAccessed(entry);
+            }
+        }
+
+        // A crawler sweeps many entries that are accessed only once,
+        // while the hot entries keep being accessed, less recently.
+        for (int i = 0; i < 1000; ++i)
+        {
+            add(policy, cached, new TestEntry("cold" + i, 1), capacity);
+            if (i % 20 == 0)
+            {
+                for (TestEntry entry : hot)
+                {
+                    policy.onAccessed(entry);
+                }
+            }
+        }
+
+        assertEquals(capacity, cached.size());
+        for (TestEntry entry : hot)
+        {
+            assertTrue(cached.contains(entry.getKey()), entry.getKey());
+        }
+    }
+
+    @Test
+    public void testAdmissionIsSizeAware()
+    {
+        // A large candidate must be more frequent than all the victims that make room for it.
+        assertEquals("large", admit(3).getKey());
+        // A small candidate only needs to be more frequent than a single victim.
+        assertEquals("s1", admit(1).getKey());
+    }
+
+    private EvictionPolicy.Entry admit(long candidateWeight)
+    {
+        TinyLFUEvictionPolicy policy = new TinyLFUEvictionPolicy(16);
+        policy.setWindowRatio(0);
+        policy.onAdded(new TestEntry("s1", 1));
+        policy.onAdded(new TestEntry("s2", 1));
+        policy.onAdded(new TestEntry("s3", 1));
+        TestEntry candidate = new TestEntry("large", candidateWeight);
+        policy.onAdded(candidate);
+        policy.onAccessed(candidate);
+        policy.onAccessed(candidate);
+        assertEquals(3, policy.frequency("large"));
+        // Moves the candidate out of the window.
+        policy.onAdded(new TestEntry("next", 1));
+        return policy.evict();
+    }
+
+    @Test
+    public void testSketchAges()
+    {
+        TinyLFUEvictionPolicy.FrequencySketch sketch = new TinyLFUEvictionPolicy.FrequencySketch(16);
+        for (int i = 0; i < 20; ++i)
+        {
+            sketch.increment(1);
+        }
+        assertEquals(15, sketch.frequency(1));
+
+        for (int i = 2; i < 1000; ++i)
+        {
+            sketch.increment(i);
+        }
+        assertThat(sketch.frequency(1), lessThan(15));
+        assertThat(sketch.frequency(1), greaterThan(0));
+    }
+
+    private static void add(EvictionPolicy policy, Set<String> cached, TestEntry entry, int capacity)
+    {
+        cached.add(entry.getKey());
+        policy.onAdded(entry);
+        while (cached.size() > capacity)
+        {
+            assertTrue(cached.remove(policy.evict().getKey()));
+        }
+    }
+
+    private static class TestEntry implements EvictionPolicy.Entry
+    {
+        private final String _key;
+        private final long _weight;
+
+        private TestEntry(String key, long weight)
+        {
+            _key = key;
+            _weight = weight;
+        }
+
+        @Override
+        public String getKey()
+        {
+            return _key;
+        }
+
+        @Override
+        public long getWeight()
+        {
+            return _weight;
+        }
+    }
+}
@@ -41,11 +41,14 @@ import org.eclipse.jetty.server.ResourceContentFactory;
 import org.eclipse.jetty.server.ResourceService;
 import org.eclipse.jetty.server.ResourceService.WelcomeFactory;
 import org.eclipse.jetty.server.handler.ContextHandler;
+import org.eclipse.jetty.server.resource.TinyLFUEvictionPolicy;
+import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.jetty.util.log.Log;
 import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.resource.Resource;
 import org.eclipse.jetty.util.resource.ResourceFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 
 /**
  * The default servlet.
@@ -108,6 +111,26 @@ import org.eclipse.jetty.util.resource.ResourceFactory;
  *  maxCachedFileSize The maximum size of a file to cache
  *  maxCachedFiles    The maximum number of files to cache
  *
+ *  evictionPolicy    The policy that chooses the files evicted from the cache: "lru" evicts
+ *                    the least recently used files (default), "tinylfu" admits files into
+ *                    the cache according to their estimated frequency of use and size,
+ *                    and evicts them in a thread of the server thread pool.
+ *
+ *  compressOnDemand  If true and gzip is one of the precompressed formats, cached static
+ *                    content of compressible mime types that has no precompressed file is
+ *                    compressed once with gzip, in a thread of the server thread pool, and
+ *                    the compressed content is cached and served as precompressed content.
+ *
+ *  prefetch          If true, the content of the files added to the cache is loaded in a
+ *                    thread of a small thread pool dedicated to this servlet, rather than
+ *                    by the first request.
+ *
+ *  prefetchThreads   The maximum number of threads that load the content of the files
+ *                    added to the cache, if prefetch is true. Defaults to 2.
+ *
+ *  warmup            If set to a comma separated list of paths, the files, or the files of the
+ *                    directories and their sub directories, are loaded in the cache at startup.
+ *
  *  useFileMappedBuffer
  *                    If set to true, it will use mapped file buffer to serve static content
  *                    when using NIO connector. Setting this value to false means that
@@ -142,6 +165,7 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
 
     private Resource _resourceBase;
     private CachedContentFactory _cache;
+    private QueuedThreadPool _prefetchThreadPool;
 
     private MimeTypes _mimeTypes;
     private String[] _welcomes;
@@ -264,6 +288,25 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
                     _cache.setMaxCachedFileSize(maxCachedFileSize);
                 if (maxCachedFiles >= -1)
                     _cache.setMaxCachedFiles(maxCachedFiles);
+                String evictionPolicy = getInitParameter("evictionPolicy");
+                if ("tinylfu".equalsIgnoreCase(evictionPolicy))
+                    _cache.setEvictionPolicy(new TinyLFUEvictionPolicy(_cache.getMaxCachedFiles()));
+                else if (evictionPolicy != null && !"lru".equalsIgnoreCase(evictionPolicy))
+                    throw new UnavailableException("Unknown evictionPolicy " + evictionPolicy);
+                _cache.setCompressOnDemand(getInitBoolean("compressOnDemand", false));
+                boolean background = "tinylfu".equalsIgnoreCase(evictionPolicy) || _cache.isCompressOnDemand();
+                if (background && _contextHandler.getServer() != null)
+                    _cache.setExecutor(_contextHandler.getServer().getThreadPool());
+                if (getInitBoolean("prefetch", false))
+                {
+                    // A dedicated pool, so that slow disk reads do not take the request threads.
+                    int prefetchThreads = getInitInt("prefetchThreads", 2);
+                    _prefetchThreadPool = new QueuedThreadPool(prefetchThreads, 1);
+                    _prefetchThreadPool.setName("prefetch-" + getServletName());
+                    _prefetchThreadPool.setDaemon(true);
+                    _prefetchThreadPool.start();
+                    _cache.setPrefetchExecutor(_prefetchThreadPool);
+                }
                 _servletContext.setAttribute(resourceCache == null ? "resourceCache" : resourceCache, _cache);
             }
         }
@@ -273,6 +316,24 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
             throw new UnavailableException(e.toString());
         }
 
+        String warmup = getInitParameter("warmup");
+        if (_cache != null && warmup != null)
+        {
+            for (String path : StringUtil.csvSplit(warmup))
+            {
+                try
+                {
+                    int loaded = _cache.warmup(path, true);
+                    if (LOG.isDebugEnabled())
+                        LOG.debug("Warmed up {} files from {}", loaded, path);
+                }
+                catch (IOException e)
+                {
+                    LOG.warn("Could not warm up " + path, e);
+                }
+            }
+        }
+
         HttpContent.ContentFactory contentFactory = _cache;
         if (contentFactory == null)
         {
@@ -480,6 +541,19 @@ public class DefaultServlet extends HttpServlet implements ResourceFactory, Welc
     {
         if (_cache != null)
             _cache.flushCache();
+        if (_prefetchThreadPool != null)
+        {
+            _cache.setPrefetchExecutor(null);
+            try
+            {
+                _prefetchThreadPool.stop();
+            }
+            catch (Exception e)
+            {
+                LOG.warn(e);
+            }
+            _prefetchThreadPool = null;
+        }
         super.destroy();
     }
 
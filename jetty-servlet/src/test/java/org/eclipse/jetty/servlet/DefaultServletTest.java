@@ -18,8 +18,10 @@
 
 package org.eclipse.jetty.servlet;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -30,10 +32,12 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -49,6 +53,7 @@ import org.eclipse.jetty.http.HttpField;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.http.tools.HttpTester;
+import org.eclipse.jetty.server.CachedContentFactory;
 import org.eclipse.jetty.server.HttpConfiguration;
 import org.eclipse.jetty.server.LocalConnector;
 import org.eclipse.jetty.server.ResourceContentFactory;
@@ -60,10 +65,12 @@ import org.eclipse.jetty.toolchain.test.FS;
 import org.eclipse.jetty.toolchain.test.MavenTestingUtils;
 import org.eclipse.jetty.toolchain.test.jupiter.WorkDir;
 import org.eclipse.jetty.toolchain.test.jupiter.WorkDirExtension;
+import org.eclipse.jetty.util.IO;
 import org.eclipse.jetty.util.TypeUtil;
 import org.eclipse.jetty.util.log.StacklessLogging;
 import org.eclipse.jetty.util.resource.PathResource;
 import org.eclipse.jetty.util.resource.Resource;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -81,10 +88,12 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
@@ -1644,6 +1653,102 @@ public class DefaultServletTest
         assertThat(response, containsHeaderValue(HttpHeader.ETAG, etag));
     }
 
+    @Test
+    public void testCachedCompressOnDemand() throws Exception
+    {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+        {
+            text.append("Hello Text ").append(i % 10).append('\n');
+        }
+        createFile(docRoot.resolve("data0.txt"), text.toString());
+
+        ServletHolder defholder = context.addServlet(DefaultServlet.class, "/");
+        defholder.setInitParameter("dirAllowed", "false");
+        defholder.setInitParameter("redirectWelcome", "false");
+        defholder.setInitParameter("welcomeServlets", "false");
+        defholder.setInitParameter("precompressed", "gzip=.gz");
+        defholder.setInitParameter("etags", "true");
+        defholder.setInitParameter("compressOnDemand", "true");
+        defholder.setInitParameter("maxCachedFiles", "1024");
+        defholder.setInitParameter("maxCachedFileSize", "200000000");
+        defholder.setInitParameter("maxCacheSize", "256000000");
+
+        String rawResponse = connector.getResponse("GET /context/data0.txt HTTP/1.0\r\nHost:localhost:8080\r\n\r\n");
+        HttpTester.Response response = HttpTester.parseResponse(rawResponse);
+        assertThat(response.toString(), response.getStatus(), is(HttpStatus.OK_200));
+        assertThat(response, not(containsHeader(HttpHeader.CONTENT_ENCODING)));
+        String etag = response.get(HttpHeader.ETAG);
+        String etagGzip = etag.replaceFirst("([^\"]*)\"(.*)\"", "$1\"$2--gzip\"");
+
+        // The content is compressed in the background, so eventually the compressed variant is served.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true)
+        {
+            rawResponse = connector.getResponse("GET /context/data0.txt HTTP/1.0\r\nHost:localhost:8080\r\nAccept-Encoding:gzip\r\n\r\n");
+            response = HttpTester.parseResponse(rawResponse);
+            assertThat(response.toString(), response.getStatus(), is(HttpStatus.OK_200));
+            if (response.contains(HttpHeader.CONTENT_ENCODING) || System.nanoTime() > deadline)
+                break;
+            Thread.sleep(10);
+        }
+        assertThat(response, containsHeaderValue(HttpHeader.CONTENT_ENCODING, "gzip"));
+        assertThat(response, containsHeaderValue(HttpHeader.CONTENT_TYPE, "text/plain"));
+        assertThat(response, containsHeaderValue(HttpHeader.VARY, "Accept-Encoding"));
+        assertThat(response, containsHeaderValue(HttpHeader.ETAG, etagGzip));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getContentBytes())))
+        {
+            assertThat(IO.toString(in, UTF_8), is(text.toString()));
+        }
+
+        rawResponse = connector.getResponse("GET /context/data0.txt HTTP/1.0\r\nHost:localhost:8080\r\nAccept-Encoding:gzip\r\nIf-None-Match: " + etagGzip + "\r\n\r\n");
+        response = HttpTester.parseResponse(rawResponse);
+        assertThat(response.toString(), response.getStatus(), is(HttpStatus.NOT_MODIFIED_304));
+        assertThat(response, containsHeaderValue(HttpHeader.ETAG, etagGzip));
+    }
+
+    @Test
+    public void testCachedWarmupAndPrefetch() throws Exception
+    {
+        Path dir = docRoot.resolve("static");
+        FS.ensureDirExists(dir.resolve("sub"));
+        createFile(dir.resolve("a.txt"), "Hello A");
+        createFile(dir.resolve("sub").resolve("b.txt"), "Hello B");
+        createFile(docRoot.resolve("data0.txt"), "Hello Text 0");
+
+        ServletHolder defholder = context.addServlet(DefaultServlet.class, "/");
+        defholder.setInitParameter("resourceCache", "resourceCache");
+        defholder.setInitParameter("maxCachedFiles", "1024");
+        defholder.setInitParameter("prefetch", "true");
+        defholder.setInitParameter("warmup", "/static");
+
+        String rawResponse = connector.getResponse("GET /context/data0.txt HTTP/1.0\r\n\r\n");
+        HttpTester.Response response = HttpTester.parseResponse(rawResponse);
+        assertThat(response.toString(), response.getStatus(), is(HttpStatus.OK_200));
+        assertThat(response.getContent(), is("Hello Text 0"));
+
+        CachedContentFactory cache = (CachedContentFactory)context.getServletContext().getAttribute("resourceCache");
+        assertThat(cache.getCachedFiles(), is(3));
+        // The warmup is neither a hit nor a miss.
+        assertThat(cache.getHits(), is(0L));
+        assertThat(cache.getMisses(), is(1L));
+        // The buffers are not prefetched by the request threads.
+        assertThat(cache.getPrefetchExecutor(), instanceOf(QueuedThreadPool.class));
+        assertThat(cache.getPrefetchExecutor(), not(sameInstance(server.getThreadPool())));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.getPrefetches() < 3 && System.nanoTime() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        assertThat(cache.getPrefetches(), is(3L));
+
+        rawResponse = connector.getResponse("GET /context/static/sub/b.txt HTTP/1.0\r\n\r\n");
+        response = HttpTester.parseResponse(rawResponse);
+        assertThat(response.toString(), response.getStatus(), is(HttpStatus.OK_200));
+        assertThat(response.getContent(), is("Hello B"));
+        assertThat(cache.getHits(), is(1L));
+    }
+
     @Test
     public void testBrotli() throws Exception
     {
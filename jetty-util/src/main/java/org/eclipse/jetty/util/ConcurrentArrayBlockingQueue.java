@@ -0,0 +1,367 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.thread.IdleStrategy;
+
+/**
+ * A bounded, lock-free, multi-producer multi-consumer BlockingQueue backed by a circular array.
+ * <p>
+ * Non blocking operations use a sequence number per array slot, so that producers and consumers
+ * only contend with a CAS on the tail or head index respectively, and never take a lock.
+ * </p>
+ * <p>
+ * Blocking operations wait according to an {@link IdleStrategy}: they may spin and yield before
+ * parking, so that under high job rates a waiting consumer takes an element without the cost of
+ * parking and being unparked. Parked consumers are unparked by producers.
+ * </p>
+ * <p>
+ * The capacity is rounded up to a power of 2. The iterator is a weakly consistent snapshot
+ * that does not support removal, and {@link #remove(Object)} is not supported.
+ * </p>
+ *
+ * @param <E> The element type
+ */
+public class ConcurrentArrayBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>
+{
+    /**
+     * The head offset in the {@link #_indexes} array, displaced by a cache line to avoid false sharing with the array length.
+     */
+    private static final int HEAD_OFFSET = MemoryUtils.getLongsPerCacheLine() - 1;
+    /**
+     * The tail offset in the {@link #_indexes} array, displaced by a cache line from the head to avoid false sharing with it.
+     */
+    private static final int TAIL_OFFSET = HEAD_OFFSET + MemoryUtils.getLongsPerCacheLine();
+
+    private final AtomicLongArray _indexes = new AtomicLongArray(TAIL_OFFSET + 1);
+    private final Queue<Thread> _waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicLongArray _sequences;
+    private final AtomicReferenceArray<E> _elements;
+    private final int _mask;
+    private final IdleStrategy _idleStrategy;
+
+    public ConcurrentArrayBlockingQueue(@Name("capacity") int capacity)
+    {
+        this(capacity, IdleStrategy.SPIN);
+    }
+
+    public ConcurrentArrayBlockingQueue(@Name("capacity") int capacity, @Name("idleStrategy") IdleStrategy idleStrategy)
+    {
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        int length = Integer.highestOneBit(capacity);
+        if (length < capacity)
+            length <<= 1;
+        _mask = length - 1;
+        _sequences = new AtomicLongArray(length);
+        for (int i = 0; i < length; ++i)
+        {
+            _sequences.set(i, i);
+        }
+        _elements = new AtomicReferenceArray<>(length);
+        _idleStrategy = Objects.requireNonNull(idleStrategy);
+    }
+
+    public IdleStrategy getIdleStrategy()
+    {
+        return _idleStrategy;
+    }
+
+    public int getCapacity()
+    {
+        return _mask + 1;
+    }
+
+    @Override
+    public boolean offer(E e)
+    {
+        Objects.requireNonNull(e);
+        long tail = _indexes.get(TAIL_OFFSET);
+        while (true)
+        {
+            int index = (int)tail & _mask;
+            long delta = _sequences.get(index) - tail;
+            if (delta == 0)
+            {
+                if (_indexes.compareAndSet(TAIL_OFFSET, tail, tail + 1))
+                {
+                    _elements.lazySet(index, e);
+                    // Publishes the element to consumers.
+                    _sequences.set(index, tail + 1);
+                    signal();
+                    return true;
+                }
+                tail = _indexes.get(TAIL_OFFSET);
+            }
+            else if (delta < 0)
+            {
+                // The slot has not been consumed yet, the queue is full.
+                return false;
+            }
+            else
+            {
+                tail = _indexes.get(TAIL_OFFSET);
+            }
+        }
+    }
+
+    @Override
+    public E poll()
+    {
+        long head = _indexes.get(HEAD_OFFSET);
+        while (true)
+        {
+            int index = (int)head & _mask;
+            long delta = _sequences.get(index) - (head + 1);
+            if (delta == 0)
+            {
+                if (_indexes.compareAndSet(HEAD_OFFSET, head, head + 1))
+                {
+                    E e = _elements.get(index);
+                    _elements.lazySet(index, null);
+                    // Releases the slot to producers.
+                    _sequences.set(index, head + _mask + 1);
+                    return e;
+                }
+                head = _indexes.get(HEAD_OFFSET);
+            }
+            else if (delta < 0)
+            {
+                // The slot has not been produced yet, the queue is empty.
+                return null;
+            }
+            else
+            {
+                head = _indexes.get(HEAD_OFFSET);
+            }
+        }
+    }
+
+    @Override
+    public E peek()
+    {
+        while (true)
+        {
+            long head = _indexes.get(HEAD_OFFSET);
+            int index = (int)head & _mask;
+            long delta = _sequences.get(index) - (head + 1);
+            if (delta < 0)
+                return null;
+            if (delta == 0)
+            {
+                E e = _elements.get(index);
+                if (e != null && _indexes.get(HEAD_OFFSET) == head)
+                    return e;
+            }
+            // The head has moved, try again.
+        }
+    }
+
+    private void signal()
+    {
+        if (!_waiters.isEmpty())
+        {
+            Thread waiter = _waiters.poll();
+            if (waiter != null)
+                LockSupport.unpark(waiter);
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException
+    {
+        int iteration = 0;
+        while (!offer(e))
+        {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (!_idleStrategy.idle(iteration))
+                LockSupport.parkNanos(this, _idleStrategy.parkNanos(iteration));
+            ++iteration;
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int iteration = 0;
+        while (!offer(e))
+        {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return false;
+            if (!_idleStrategy.idle(iteration))
+                LockSupport.parkNanos(this, Math.min(remaining, _idleStrategy.parkNanos(iteration)));
+            ++iteration;
+        }
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException
+    {
+        return poll(-1);
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return poll(Math.max(0, unit.toNanos(timeout)));
+    }
+
+    private E poll(long nanos) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + nanos;
+        int iteration = 0;
+        while (true)
+        {
+            E e = poll();
+            if (e != null)
+                return e;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            long remaining = nanos < 0 ? Long.MAX_VALUE : deadline - System.nanoTime();
+            if (remaining <= 0)
+                return null;
+            if (_idleStrategy.idle(iteration))
+            {
+                ++iteration;
+                continue;
+            }
+
+            Thread thread = Thread.currentThread();
+            _waiters.offer(thread);
+            try
+            {
+                // Check again after registering as a waiter, so that
+                // an element offered concurrently is not missed.
+                e = poll();
+                if (e != null)
+                    return e;
+                LockSupport.parkNanos(this, Math.min(remaining, _idleStrategy.parkNanos(iteration)));
+            }
+            finally
+            {
+                _waiters.remove(thread);
+            }
+            ++iteration;
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        while (true)
+        {
+            long head = _indexes.get(HEAD_OFFSET);
+            long tail = _indexes.get(TAIL_OFFSET);
+            if (head == _indexes.get(HEAD_OFFSET))
+                return (int)Math.max(0, Math.min(tail - head, getCapacity()));
+        }
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public int remainingCapacity()
+    {
+        return getCapacity() - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c)
+    {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements)
+    {
+        int count = 0;
+        while (count < maxElements)
+        {
+            E e = poll();
+            if (e == null)
+                break;
+            c.add(e);
+            ++count;
+        }
+        return count;
+    }
+
+    @Override
+    public void clear()
+    {
+        while (true)
+        {
+            if (poll() == null)
+                break;
+        }
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        List<E> snapshot = new ArrayList<>();
+        long head = _indexes.get(HEAD_OFFSET);
+        long tail = _indexes.get(TAIL_OFFSET);
+        for (long position = head; position < tail; ++position)
+        {
+            E e = _elements.get((int)position & _mask);
+            if (e != null)
+                snapshot.add(e);
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d,capacity=%d,%s}", getClass().getSimpleName(), hashCode(), size(), getCapacity(), _idleStrategy);
+    }
+}
@@ -892,7 +892,7 @@ public class UrlEncoded extends MultiMap<String> implements Cloneable
         }
     }
 
-    private static byte decodeHexByte(char hi, char lo)
+    static byte decodeHexByte(char hi, char lo)
     {
         try
         {
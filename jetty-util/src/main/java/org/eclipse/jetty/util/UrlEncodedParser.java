@@ -0,0 +1,205 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>An incremental parser of {@code x-www-form-urlencoded} content.</p>
+ * <p>The content is fed to {@link #parse(ByteBuffer, boolean)} in chunks, for example as it is read
+ * from the network, and the {@link Handler} is notified of each parameter as soon as it is decoded,
+ * so that large forms can be processed without buffering the whole content nor storing all the
+ * parameters.
+ * Only the key and the value of the current parameter are buffered, so chunks may split
+ * parameters and {@code %} encodings anywhere.</p>
+ * <p>The parameters are decoded as {@link UrlEncoded#decodeTo(java.io.InputStream, MultiMap, Charset, int, int)}
+ * does, for charsets that encode ASCII characters as single bytes.
+ * This class is not thread safe.</p>
+ */
+public class UrlEncodedParser
+{
+    private final Handler _handler;
+    private final Charset _charset;
+    private final int _maxLength;
+    private final int _maxKeys;
+    private final Utf8StringBuilder _utf8;
+    private final ByteArrayOutputStream2 _bytes;
+    private String _key;
+    private int _percent;
+    private byte _hi;
+    private int _length;
+    private int _keys;
+
+    /**
+     * @param handler the handler notified of the parameters
+     * @param charset the charset of the content, or null for {@link UrlEncoded#ENCODING}
+     * @param maxLength the maximum length of the content or -1 for no limit
+     * @param maxKeys the maximum number of parameters or -1 for no limit
+     */
+    public UrlEncodedParser(Handler handler, Charset charset, int maxLength, int maxKeys)
+    {
+        if (charset == null)
+            charset = UrlEncoded.ENCODING;
+        if (charset.name().startsWith("UTF-16") || charset.name().startsWith("UTF-32"))
+            throw new IllegalArgumentException("Unsupported charset " + charset);
+        _handler = handler;
+        _charset = charset;
+        _maxLength = maxLength;
+        _maxKeys = maxKeys;
+        boolean utf8 = StandardCharsets.UTF_8.equals(charset);
+        _utf8 = utf8 ? new Utf8StringBuilder() : null;
+        _bytes = utf8 ? null : new ByteArrayOutputStream2();
+    }
+
+    public Charset getCharset()
+    {
+        return _charset;
+    }
+
+    /**
+     * <p>Parses a chunk of the content.</p>
+     *
+     * @param buffer the chunk of content, consumed by this call
+     * @param last whether the chunk is the last of the content
+     * @throws IllegalArgumentException if the content is not properly encoded
+     * @throws IllegalStateException if the content exceeds the max length or the max number of parameters
+     */
+    public void parse(ByteBuffer buffer, boolean last)
+    {
+        while (buffer.hasRemaining())
+        {
+            byte b = buffer.get();
+            if (_maxLength >= 0 && ++_length > _maxLength)
+                throw new IllegalStateException("Form is larger than max length " + _maxLength);
+
+            if (_percent > 0)
+            {
+                if (_percent == 1)
+                {
+                    _hi = b;
+                    _percent = 2;
+                }
+                else
+                {
+                    append(UrlEncoded.decodeHexByte((char)_hi, (char)b));
+                    _percent = 0;
+                }
+                continue;
+            }
+
+            switch (b)
+            {
+                case '&':
+                    String value = take();
+                    if (_key != null)
+                        onParameter(_key, value);
+                    else if (value.length() > 0)
+                        onParameter(value, "");
+                    _key = null;
+                    break;
+
+                case '=':
+                    if (_key != null)
+                        append(b);
+                    else
+                        _key = take();
+                    break;
+
+                case '+':
+                    append((byte)' ');
+                    break;
+
+                case '%':
+                    _percent = 1;
+                    break;
+
+                default:
+                    append(b);
+                    break;
+            }
+        }
+
+        if (last)
+        {
+            if (_percent > 0)
+                throw new IllegalArgumentException("Incomplete % encoding");
+            if (_key != null)
+                onParameter(_key, take());
+            else if (length() > 0)
+                onParameter(take(), "");
+            _key = null;
+        }
+    }
+
+    private void onParameter(String key, String value)
+    {
+        if (_maxKeys >= 0 && ++_keys > _maxKeys)
+            throw new IllegalStateException(String.format("Form with too many keys [%d > %d]", _keys, _maxKeys));
+        _handler.onParameter(key, value);
+    }
+
+    private void append(byte b)
+    {
+        if (_utf8 != null)
+            _utf8.append(b);
+        else
+            _bytes.write(b);
+    }
+
+    private int length()
+    {
+        return _utf8 != null ? _utf8.length() : _bytes.size();
+    }
+
+    private String take()
+    {
+        String string;
+        if (_utf8 != null)
+        {
+            string = _utf8.toReplacedString();
+            _utf8.reset();
+        }
+        else
+        {
+            string = _bytes.size() == 0 ? "" : _bytes.toString(_charset);
+            _bytes.setCount(0);
+        }
+        return string;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{%s,length=%d,keys=%d}", getClass().getSimpleName(), hashCode(), _charset, _length, _keys);
+    }
+
+    /**
+     * The handler of the parameters decoded by {@link UrlEncodedParser}.
+     */
+    public interface Handler
+    {
+        /**
+         * @param name the decoded key of the parameter
+         * @param value the decoded value of the parameter, empty if the parameter has no value
+         */
+        void onParameter(String name, String value);
+    }
+}
@@ -0,0 +1,217 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>A lazy view of the parameters of an UTF-8 {@code x-www-form-urlencoded} string,
+ * typically a URI query.</p>
+ * <p>The string is scanned once to index the offsets of the keys and values of the parameters,
+ * and a value is only decoded when it is requested, so that looking up a few parameters does not
+ * decode all of them, nor allocate a {@link MultiMap}.
+ * Keys that contain no encoded characters are compared without being decoded.</p>
+ * <p>Decoding errors are reported with an {@link IllegalArgumentException} when the key or the value
+ * that contains them is decoded, so parameters that are not looked up are not validated.</p>
+ * <p>The parameters are decoded as {@link UrlEncoded#decodeUtf8To(String, MultiMap)} does.
+ * This class is not thread safe.</p>
+ */
+public class UrlEncodedView
+{
+    private static final int KEY_START = 0;
+    private static final int KEY_END = 1;
+    private static final int VALUE_START = 2;
+    private static final int VALUE_END = 3;
+    private static final int FIELDS = 4;
+
+    private final String _encoded;
+    private int[] _offsets = new int[FIELDS * 4];
+    private int _size;
+
+    public UrlEncodedView(String encoded)
+    {
+        _encoded = encoded;
+        int length = encoded.length();
+        int start = 0;
+        while (start <= length)
+        {
+            int end = encoded.indexOf('&', start);
+            if (end < 0)
+                end = length;
+            if (end > start)
+            {
+                int equals = encoded.indexOf('=', start);
+                if (equals < 0 || equals > end)
+                    add(start, end, -1, -1);
+                else
+                    add(start, equals, equals + 1, end);
+            }
+            start = end + 1;
+        }
+    }
+
+    private void add(int keyStart, int keyEnd, int valueStart, int valueEnd)
+    {
+        int index = _size * FIELDS;
+        if (index == _offsets.length)
+            _offsets = Arrays.copyOf(_offsets, _offsets.length * 2);
+        _offsets[index + KEY_START] = keyStart;
+        _offsets[index + KEY_END] = keyEnd;
+        _offsets[index + VALUE_START] = valueStart;
+        _offsets[index + VALUE_END] = valueEnd;
+        ++_size;
+    }
+
+    /**
+     * @return the encoded string
+     */
+    public String getEncoded()
+    {
+        return _encoded;
+    }
+
+    /**
+     * @return the number of parameters, including those with the same key
+     */
+    public int size()
+    {
+        return _size;
+    }
+
+    /**
+     * @param name the decoded key of the parameter
+     * @return the first value of the parameter, or null if there is no such parameter
+     */
+    public String getValue(String name)
+    {
+        for (int i = 0; i < _size; ++i)
+        {
+            if (keyMatches(i, name))
+                return value(i);
+        }
+        return null;
+    }
+
+    /**
+     * @param name the decoded key of the parameter
+     * @return the values of the parameter, or null if there is no such parameter
+     */
+    public List<String> getValues(String name)
+    {
+        List<String> values = null;
+        for (int i = 0; i < _size; ++i)
+        {
+            if (keyMatches(i, name))
+            {
+                if (values == null)
+                    values = new ArrayList<>(2);
+                values.add(value(i));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Decodes all the parameters to the given map.
+     *
+     * @param map the map to add the parameters to
+     */
+    public void decodeTo(MultiMap<String> map)
+    {
+        for (int i = 0; i < _size; ++i)
+        {
+            int index = i * FIELDS;
+            map.add(decode(_offsets[index + KEY_START], _offsets[index + KEY_END]), value(i));
+        }
+    }
+
+    private boolean keyMatches(int i, String name)
+    {
+        int index = i * FIELDS;
+        int start = _offsets[index + KEY_START];
+        int end = _offsets[index + KEY_END];
+        if (isEncoded(start, end))
+            return name.equals(decode(start, end));
+        return end - start == name.length() && _encoded.regionMatches(start, name, 0, name.length());
+    }
+
+    private String value(int i)
+    {
+        int index = i * FIELDS;
+        int start = _offsets[index + VALUE_START];
+        if (start < 0)
+            return "";
+        return decode(start, _offsets[index + VALUE_END]);
+    }
+
+    private boolean isEncoded(int start, int end)
+    {
+        for (int i = start; i < end; ++i)
+        {
+            char c = _encoded.charAt(i);
+            if (c == '%' || c == '+' || c > 0x7F)
+                return true;
+        }
+        return false;
+    }
+
+    private String decode(int start, int end)
+    {
+        if (!isEncoded(start, end))
+            return _encoded.substring(start, end);
+
+        Utf8StringBuilder buffer = new Utf8StringBuilder(end - start);
+        for (int i = start; i < end; i++)
+        {
+            char c = _encoded.charAt(i);
+            switch (c)
+            {
+                case '+':
+                    buffer.append((byte)' ');
+                    break;
+
+                case '%':
+                    if (i + 2 < end)
+                    {
+                        char hi = _encoded.charAt(++i);
+                        char lo = _encoded.charAt(++i);
+                        buffer.append(UrlEncoded.decodeHexByte(hi, lo));
+                    }
+                    else
+                    {
+                        throw new Utf8Appendable.NotUtf8Exception("Incomplete % encoding");
+                    }
+                    break;
+
+                default:
+                    buffer.append(c);
+                    break;
+            }
+        }
+        return buffer.toReplacedString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{size=%d,%s}", getClass().getSimpleName(), hashCode(), _size, _encoded);
+    }
+}
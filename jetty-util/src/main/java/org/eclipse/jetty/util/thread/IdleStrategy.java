@@ -0,0 +1,133 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.annotation.Name;
+
+/**
+ * <p>Describes how a thread waits for work that is not yet available.</p>
+ * <p>A waiting thread first busy spins for {@code spins} iterations, then yields for
+ * {@code yields} iterations, and then parks for a time that starts at {@code minParkNanos}
+ * and doubles at every iteration up to {@code maxParkNanos}.</p>
+ * <p>Parked threads may be unparked early by the component that uses this strategy, for
+ * example when a job becomes available, so the park time is only an upper bound.</p>
+ * <p>Spinning and yielding reduce the latency of the hand-off of a job to an idle thread
+ * and avoid the cost of parking and unparking threads when jobs arrive at a high rate,
+ * at the cost of CPU while idle.</p>
+ */
+public class IdleStrategy
+{
+    /**
+     * Parks immediately, with no spinning nor yielding.
+     */
+    public static final IdleStrategy PARK = new IdleStrategy(0, 0, TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.SECONDS.toNanos(1));
+    /**
+     * Yields a few times, then parks.
+     */
+    public static final IdleStrategy YIELD = new IdleStrategy(0, 16, TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.SECONDS.toNanos(1));
+    /**
+     * Spins and then yields a few times, then parks.
+     */
+    public static final IdleStrategy SPIN = new IdleStrategy(256, 16, TimeUnit.MICROSECONDS.toNanos(50), TimeUnit.SECONDS.toNanos(1));
+
+    private final int _spins;
+    private final int _yields;
+    private final long _minParkNanos;
+    private final long _maxParkNanos;
+
+    /**
+     * @param spins the number of busy spin iterations
+     * @param yields the number of yield iterations, after spinning
+     * @param minParkNanos the initial park time, after spinning and yielding
+     * @param maxParkNanos the maximum park time
+     */
+    public IdleStrategy(@Name("spins") int spins, @Name("yields") int yields, @Name("minParkNanos") long minParkNanos, @Name("maxParkNanos") long maxParkNanos)
+    {
+        if (spins < 0 || yields < 0 || minParkNanos <= 0 || maxParkNanos < minParkNanos)
+            throw new IllegalArgumentException();
+        _spins = spins;
+        _yields = yields;
+        _minParkNanos = minParkNanos;
+        _maxParkNanos = maxParkNanos;
+    }
+
+    public int getSpins()
+    {
+        return _spins;
+    }
+
+    public int getYields()
+    {
+        return _yields;
+    }
+
+    public long getMinParkNanos()
+    {
+        return _minParkNanos;
+    }
+
+    public long getMaxParkNanos()
+    {
+        return _maxParkNanos;
+    }
+
+    /**
+     * <p>Spins or yields according to the given iteration.</p>
+     *
+     * @param iteration the number of times the waiting thread has already idled
+     * @return true if the thread spun or yielded, false if the thread should now park
+     * for {@link #parkNanos(int)}
+     */
+    public boolean idle(int iteration)
+    {
+        if (iteration < _spins)
+        {
+            Thread.onSpinWait();
+            return true;
+        }
+        if (iteration < _spins + _yields)
+        {
+            Thread.yield();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param iteration the number of times the waiting thread has already idled
+     * @return the time to park for the given iteration
+     */
+    public long parkNanos(int iteration)
+    {
+        int parks = iteration - _spins - _yields;
+        if (parks <= 0)
+            return _minParkNanos;
+        if (parks >= Long.numberOfLeadingZeros(_minParkNanos) - 1)
+            return _maxParkNanos;
+        return Math.min(_maxParkNanos, _minParkNanos << parks);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s@%x{spins=%d,yields=%d,park=%d..%dns}", getClass().getSimpleName(), hashCode(), _spins, _yields, _minParkNanos, _maxParkNanos);
+    }
+}
@@ -0,0 +1,214 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.io.Closeable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jetty.util.annotation.ManagedAttribute;
+import org.eclipse.jetty.util.annotation.ManagedObject;
+import org.eclipse.jetty.util.annotation.Name;
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>A {@link QueuedThreadPool} that runs blocking tasks in virtual threads.</p>
+ * <p>Tasks submitted via {@link #execute(Runnable)} and {@link #tryExecute(Runnable)},
+ * such as selectors, acceptors and the producers of the execution strategies, run in
+ * the platform threads of this pool, as do the threads of the {@link ReservedThreadExecutor}.
+ * Components that know that a task may block, such as the execution strategies
+ * that see a {@link Invocable.InvocationType#BLOCKING BLOCKING} task, run it via
+ * {@link #getVirtualThreadsExecutor()} in a virtual thread instead, so that
+ * blocking servlet code does not require a large number of platform threads.</p>
+ * <p>The number of blocking tasks that run concurrently in virtual threads is limited
+ * by {@link #getMaxVirtualThreads()}; further tasks wait in their virtual thread until
+ * a running task completes. The {@link ThreadPoolBudget} still leases the platform
+ * threads, and {@link #isLowOnThreads()} reports when either the platform threads
+ * or the virtual threads are exhausted, so that {@code LowResourceMonitor} keeps working.</p>
+ * <p>If the JVM does not support virtual threads, and no other Executor has been
+ * configured with {@link #setVirtualThreadsExecutor(Executor)}, this pool behaves
+ * like a {@link QueuedThreadPool}.</p>
+ */
+@ManagedObject("A thread pool that runs blocking tasks in virtual threads")
+public class VirtualThreadPool extends QueuedThreadPool implements VirtualThreads.Configurable
+{
+    private static final Logger LOG = Log.getLogger(VirtualThreadPool.class);
+
+    private final AtomicInteger _virtualTasks = new AtomicInteger();
+    private final Executor _virtualThreads = this::executeOnVirtualThread;
+    private Executor _virtualThreadsExecutor = VirtualThreads.getDefaultVirtualThreadsExecutor();
+    private int _maxVirtualThreads;
+    private Semaphore _permits;
+
+    public VirtualThreadPool()
+    {
+        this(200, 10000);
+    }
+
+    public VirtualThreadPool(@Name("maxThreads") int maxThreads, @Name("maxVirtualThreads") int maxVirtualThreads)
+    {
+        super(maxThreads);
+        setMaxVirtualThreads(maxVirtualThreads);
+    }
+
+    /**
+     * <p>Sets the Executor used to start virtual threads, by default
+     * {@link VirtualThreads#getDefaultVirtualThreadsExecutor()}.</p>
+     *
+     * @param executor the Executor that starts virtual threads, or null to run
+     * blocking tasks in platform threads
+     */
+    public void setVirtualThreadsExecutor(Executor executor)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        _virtualThreadsExecutor = executor;
+    }
+
+    @Override
+    public Executor getVirtualThreadsExecutor()
+    {
+        return _virtualThreadsExecutor == null ? null : _virtualThreads;
+    }
+
+    @ManagedAttribute("maximum number of blocking tasks running concurrently in virtual threads")
+    public int getMaxVirtualThreads()
+    {
+        return _maxVirtualThreads;
+    }
+
+    public void setMaxVirtualThreads(int maxVirtualThreads)
+    {
+        if (isRunning())
+            throw new IllegalStateException(getState());
+        if (maxVirtualThreads <= 0)
+            throw new IllegalArgumentException("Invalid max virtual threads " + maxVirtualThreads);
+        _maxVirtualThreads = maxVirtualThreads;
+        _permits = new Semaphore(maxVirtualThreads);
+    }
+
+    @ManagedAttribute(value = "number of virtual threads running blocking tasks", readonly = true)
+    public int getBusyVirtualThreads()
+    {
+        return _maxVirtualThreads - _permits.availablePermits();
+    }
+
+    @ManagedAttribute(value = "number of virtual threads waiting to run blocking tasks", readonly = true)
+    public int getPendingVirtualThreads()
+    {
+        return Math.max(0, _virtualTasks.get() - getBusyVirtualThreads());
+    }
+
+    @ManagedAttribute(value = "whether blocking tasks run in virtual threads", readonly = true)
+    public boolean isUseVirtualThreads()
+    {
+        return _virtualThreadsExecutor != null;
+    }
+
+    /**
+     * <p>Returns whether this thread pool is low on threads.</p>
+     * <p>The pool is low on threads if its platform threads are low, as for
+     * {@link QueuedThreadPool#isLowOnThreads()}, or if the blocking tasks submitted
+     * to virtual threads are close to {@link #getMaxVirtualThreads()}:</p>
+     * <pre>
+     * maxVirtualThreads - virtualTasks &lt;= lowThreadsThreshold
+     * </pre>
+     *
+     * @return whether the pool is low on threads
+     */
+    @Override
+    public boolean isLowOnThreads()
+    {
+        if (super.isLowOnThreads())
+            return true;
+        return isUseVirtualThreads() && getMaxVirtualThreads() - _virtualTasks.get() <= getLowThreadsThreshold();
+    }
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        if (_virtualThreadsExecutor == null)
+            LOG.info("Virtual threads are not supported, blocking tasks will run in platform threads of {}", this);
+        super.doStart();
+    }
+
+    private void executeOnVirtualThread(Runnable task)
+    {
+        if (!isRunning())
+            throw new RejectedExecutionException(task.toString());
+        _virtualTasks.incrementAndGet();
+        try
+        {
+            _virtualThreadsExecutor.execute(() -> runOnVirtualThread(task));
+        }
+        catch (Throwable x)
+        {
+            _virtualTasks.decrementAndGet();
+            throw x;
+        }
+    }
+
+    private void runOnVirtualThread(Runnable task)
+    {
+        try
+        {
+            _permits.acquire();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                _permits.release();
+            }
+        }
+        catch (InterruptedException x)
+        {
+            LOG.ignore(x);
+            if (task instanceof Closeable)
+            {
+                try
+                {
+                    ((Closeable)task).close();
+                }
+                catch (Throwable e2)
+                {
+                    LOG.ignore(e2);
+                }
+            }
+        }
+        catch (Throwable x)
+        {
+            LOG.warn(x);
+        }
+        finally
+        {
+            _virtualTasks.decrementAndGet();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s{v=%d<=%d,p=%d}", super.toString(), getBusyVirtualThreads(), getMaxVirtualThreads(), getPendingVirtualThreads());
+    }
+}
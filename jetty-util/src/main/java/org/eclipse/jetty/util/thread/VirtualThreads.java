@@ -0,0 +1,132 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.eclipse.jetty.util.log.Log;
+import org.eclipse.jetty.util.log.Logger;
+
+/**
+ * <p>Utility methods to work with virtual threads, when they are supported by the JVM.</p>
+ * <p>Virtual threads are looked up reflectively, so that this class can be used
+ * with JVMs that do not support them, in which case {@link #areSupported()} returns false.</p>
+ */
+public class VirtualThreads
+{
+    private static final Logger LOG = Log.getLogger(VirtualThreads.class);
+    private static final Executor executor = probeVirtualThreadsExecutor();
+    private static final Method isVirtualThread = probeIsVirtualThread();
+
+    private static Executor probeVirtualThreadsExecutor()
+    {
+        try
+        {
+            return (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (Throwable x)
+        {
+            if (LOG.isDebugEnabled())
+                LOG.debug("Virtual threads are not supported", x);
+            return null;
+        }
+    }
+
+    private static Method probeIsVirtualThread()
+    {
+        try
+        {
+            return Thread.class.getMethod("isVirtual");
+        }
+        catch (Throwable x)
+        {
+            LOG.ignore(x);
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the runtime supports virtual threads
+     */
+    public static boolean areSupported()
+    {
+        return executor != null;
+    }
+
+    /**
+     * @return a shared Executor that runs each task in a new virtual thread,
+     * or null if virtual threads are not supported
+     */
+    public static Executor getDefaultVirtualThreadsExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * @return whether the current thread is a virtual thread
+     */
+    public static boolean isVirtualThread()
+    {
+        if (isVirtualThread == null)
+            return false;
+        try
+        {
+            return (Boolean)isVirtualThread.invoke(Thread.currentThread());
+        }
+        catch (Throwable x)
+        {
+            LOG.ignore(x);
+            return false;
+        }
+    }
+
+    /**
+     * @param executor the Executor to inspect
+     * @return the Executor used to run blocking tasks in virtual threads
+     * if the given Executor is {@link Configurable}, otherwise null
+     */
+    public static Executor getVirtualThreadsExecutor(Executor executor)
+    {
+        if (executor instanceof Configurable)
+            return ((Configurable)executor).getVirtualThreadsExecutor();
+        return null;
+    }
+
+    /**
+     * <p>Implemented by components that may run blocking tasks in virtual threads.</p>
+     * <p>Tasks that are submitted via {@link Executor#execute(Runnable)} to such
+     * components still run in platform threads: only components that know that
+     * a task may block, for example execution strategies that check the task's
+     * {@link Invocable.InvocationType}, use {@link #getVirtualThreadsExecutor()}.</p>
+     */
+    public interface Configurable
+    {
+        /**
+         * @return the Executor to use to run blocking tasks in virtual threads,
+         * or null if blocking tasks must run in platform threads
+         */
+        Executor getVirtualThreadsExecutor();
+    }
+
+    private VirtualThreads()
+    {
+    }
+}
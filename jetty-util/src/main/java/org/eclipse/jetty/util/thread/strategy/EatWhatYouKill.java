@@ -34,6 +34,7 @@ import org.eclipse.jetty.util.log.Logger;
 import org.eclipse.jetty.util.thread.ExecutionStrategy;
 import org.eclipse.jetty.util.thread.Invocable;
 import org.eclipse.jetty.util.thread.TryExecutor;
+import org.eclipse.jetty.util.thread.VirtualThreads;
 
 /**
  * <p>A strategy where the thread that produces will run the resulting task if it
@@ -52,6 +53,9 @@ import org.eclipse.jetty.util.thread.TryExecutor;
  * indicated it is non-blocking, then this strategy will dispatch the execution of
  * the task and immediately continue production. When operating in this pattern, the
  * sub-strategy is called ProduceExecuteConsume (PEC).</p>
+ * <p>If the executor is {@link VirtualThreads.Configurable} with virtual threads,
+ * then blocking tasks are always executed in a virtual thread with the PEC mode,
+ * so that the producer remains on its platform thread and no reserved thread is used.</p>
  */
 @ManagedObject("eat what you kill execution strategy")
 public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrategy, Runnable
@@ -205,7 +209,17 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
         }
 
         Mode mode;
-        if (nonBlocking)
+        Executor virtualThreads = null;
+        if (Invocable.getInvocationType(task) == Invocable.InvocationType.BLOCKING)
+            virtualThreads = VirtualThreads.getVirtualThreadsExecutor(_executor);
+
+        if (virtualThreads != null)
+        {
+            // The task is blocking and it can run in a virtual thread, so there is
+            // no need to consume it in this thread nor to use a reserved thread.
+            mode = Mode.PRODUCE_EXECUTE_CONSUME;
+        }
+        else if (nonBlocking)
         {
             // The calling thread cannot block, so we only have a choice between PC and PEC modes,
             // based on the invocation type of the task
@@ -305,7 +319,7 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
 
             case PRODUCE_EXECUTE_CONSUME:
                 _pecMode.increment();
-                execute(task);
+                execute(virtualThreads == null ? _executor : virtualThreads, task);
                 return true;
 
             case EXECUTE_PRODUCE_CONSUME:
@@ -366,11 +380,11 @@ public class EatWhatYouKill extends ContainerLifeCycle implements ExecutionStrat
         }
     }
 
-    private void execute(Runnable task)
+    private void execute(Executor executor, Runnable task)
     {
         try
         {
-            _executor.execute(task);
+            executor.execute(task);
         }
         catch (RejectedExecutionException e)
         {
@@ -0,0 +1,251 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.eclipse.jetty.util.thread.IdleStrategy;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentArrayBlockingQueueTest
+{
+    public static Stream<IdleStrategy> strategies()
+    {
+        return Stream.of(IdleStrategy.SPIN, IdleStrategy.YIELD, IdleStrategy.PARK);
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    public void testWrap(IdleStrategy strategy)
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(3, strategy);
+        assertEquals(4, queue.getCapacity());
+
+        for (int i = 0; i < 3 * queue.getCapacity(); i++)
+        {
+            assertTrue(queue.offer("one"));
+            assertTrue(queue.offer("two"));
+            assertTrue(queue.offer("three"));
+            assertEquals(3, queue.size());
+            assertEquals("one", queue.peek());
+            assertEquals("[one, two, three]", new ArrayList<>(queue).toString());
+
+            assertEquals("one", queue.poll());
+            assertEquals("two", queue.poll());
+            assertEquals("three", queue.poll());
+            assertNull(queue.poll());
+            assertNull(queue.peek());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    public void testLimit(IdleStrategy strategy) throws Exception
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(2, strategy);
+
+        assertTrue(queue.offer("0"));
+        assertTrue(queue.offer("1"));
+        assertFalse(queue.offer("2"));
+        assertFalse(queue.offer("2", 10, TimeUnit.MILLISECONDS));
+        assertEquals(0, queue.remainingCapacity());
+
+        assertEquals("0", queue.poll());
+        assertTrue(queue.offer("2"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    public void testPollTimeout(IdleStrategy strategy) throws Exception
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(8, strategy);
+
+        long start = System.nanoTime();
+        assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertThat(elapsed, lessThan(5000L));
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    public void testTakeIsWokenUp(IdleStrategy strategy) throws Exception
+    {
+        ConcurrentArrayBlockingQueue<String> queue = new ConcurrentArrayBlockingQueue<>(8, strategy);
+
+        AtomicReference<String> taken = new AtomicReference<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                taken.set(queue.take());
+            }
+            catch (Throwable x)
+            {
+                failure.set(x);
+            }
+            finally
+            {
+                latch.countDown();
+            }
+        });
+        thread.start();
+        try
+        {
+            // Let the consumer park.
+            Thread.sleep(500);
+            queue.offer("element");
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertNull(failure.get());
+            assertEquals("element", taken.get());
+        }
+        finally
+        {
+            thread.interrupt();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    public void testConcurrentProducersConsumers(IdleStrategy strategy) throws Exception
+    {
+        int producers = 4;
+        int consumers = 4;
+        int count = 10000;
+        ConcurrentArrayBlockingQueue<Integer> queue = new ConcurrentArrayBlockingQueue<>(64, strategy);
+        Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(producers * count);
+        // Records the first failure and releases the test thread.
+        Consumer<Throwable> fail = x ->
+        {
+            failure.compareAndSet(null, x);
+            while (latch.getCount() > 0)
+            {
+                latch.countDown();
+            }
+        };
+
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < consumers; ++c)
+        {
+            threads.add(new Thread(() ->
+            {
+                try
+                {
+                    while (true)
+                    {
+                        Integer element = queue.poll(30, TimeUnit.SECONDS);
+                        assertNotNull(element);
+                        if (element < 0)
+                            break;
+                        assertTrue(consumed.add(element));
+                        latch.countDown();
+                    }
+                }
+                catch (Throwable x)
+                {
+                    fail.accept(x);
+                }
+            }));
+        }
+        for (int p = 0; p < producers; ++p)
+        {
+            int base = p * count;
+            threads.add(new Thread(() ->
+            {
+                try
+                {
+                    for (int i = 0; i < count; ++i)
+                    {
+                        assertTrue(queue.offer(base + i, 30, TimeUnit.SECONDS));
+                    }
+                }
+                catch (Throwable x)
+                {
+                    fail.accept(x);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        try
+        {
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertNull(failure.get());
+            assertEquals(producers * count, consumed.size());
+            for (int c = 0; c < consumers; ++c)
+            {
+                assertTrue(queue.offer(-1, 5, TimeUnit.SECONDS));
+            }
+            for (Thread thread : threads)
+            {
+                thread.join(5000);
+                assertFalse(thread.isAlive());
+            }
+            assertNull(failure.get());
+        }
+        finally
+        {
+            threads.forEach(Thread::interrupt);
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("strategies")
+    public void testQueuedThreadPool(IdleStrategy strategy) throws Exception
+    {
+        QueuedThreadPool pool = new QueuedThreadPool(16, 4, new ConcurrentArrayBlockingQueue<>(1024, strategy));
+        pool.start();
+        try
+        {
+            int jobs = 1000;
+            CountDownLatch latch = new CountDownLatch(jobs);
+            for (int i = 0; i < jobs; ++i)
+            {
+                pool.execute(latch::countDown);
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            pool.stop();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UrlEncodedParserTest
+{
+    public static Stream<Arguments> forms()
+    {
+        List<Arguments> forms = new ArrayList<>();
+        for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1})
+        {
+            forms.add(Arguments.of("", charset));
+            forms.add(Arguments.of("a=1&b=2&a=3", charset));
+            forms.add(Arguments.of("&&a=1&&flag&c=", charset));
+            forms.add(Arguments.of("=value&a=b=c", charset));
+            forms.add(Arguments.of("na+me=va+lue&n%61me=%41%20x", charset));
+        }
+        forms.add(Arguments.of("caf%E9=cr%E8me", StandardCharsets.ISO_8859_1));
+        forms.add(Arguments.of("caf%C3%A9=cr%C3%A8me&euro=%E2%82%AC", StandardCharsets.UTF_8));
+        return forms.stream();
+    }
+
+    @ParameterizedTest
+    @MethodSource("forms")
+    public void testSameAsDecodeTo(String form, Charset charset) throws Exception
+    {
+        byte[] bytes = form.getBytes(StandardCharsets.US_ASCII);
+        MultiMap<String> expected = new MultiMap<>();
+        UrlEncoded.decodeTo(new ByteArrayInputStream(bytes), expected, charset, -1, -1);
+
+        // Split the content at every position, also within % encodings.
+        for (int split = 0; split <= bytes.length; ++split)
+        {
+            MultiMap<String> parsed = new MultiMap<>();
+            UrlEncodedParser parser = new UrlEncodedParser(parsed::add, charset, -1, -1);
+            parser.parse(ByteBuffer.wrap(bytes, 0, split), false);
+            parser.parse(ByteBuffer.wrap(bytes, split, bytes.length - split), true);
+            assertEquals(expected, parsed, "split=" + split);
+        }
+    }
+
+    @Test
+    public void testParametersAreNotifiedIncrementally()
+    {
+        List<String> names = new ArrayList<>();
+        UrlEncodedParser parser = new UrlEncodedParser((name, value) -> names.add(name), StandardCharsets.UTF_8, -1, -1);
+        parser.parse(BufferUtil.toBuffer("first=1&sec"), false);
+        assertThat(names, contains("first"));
+        parser.parse(BufferUtil.toBuffer("ond=2&third"), false);
+        assertThat(names, contains("first", "second"));
+        parser.parse(BufferUtil.EMPTY_BUFFER, true);
+        assertThat(names, contains("first", "second", "third"));
+    }
+
+    @Test
+    public void testLimits()
+    {
+        UrlEncodedParser tooLong = new UrlEncodedParser((name, value) -> {}, StandardCharsets.UTF_8, 8, -1);
+        assertThrows(IllegalStateException.class, () -> tooLong.parse(BufferUtil.toBuffer("a=1&b=2&c=3"), true));
+
+        UrlEncodedParser tooManyKeys = new UrlEncodedParser((name, value) -> {}, StandardCharsets.UTF_8, -1, 2);
+        assertThrows(IllegalStateException.class, () -> tooManyKeys.parse(BufferUtil.toBuffer("a=1&b=2&c=3"), true));
+    }
+
+    @Test
+    public void testBadEncoding()
+    {
+        UrlEncodedParser badHex = new UrlEncodedParser((name, value) -> {}, StandardCharsets.UTF_8, -1, -1);
+        assertThrows(IllegalArgumentException.class, () -> badHex.parse(BufferUtil.toBuffer("a=%ZZ"), true));
+
+        UrlEncodedParser incomplete = new UrlEncodedParser((name, value) -> {}, StandardCharsets.UTF_8, -1, -1);
+        assertThrows(IllegalArgumentException.class, () -> incomplete.parse(BufferUtil.toBuffer("a=%4"), true));
+
+        assertThrows(IllegalArgumentException.class, () -> new UrlEncodedParser((name, value) -> {}, StandardCharsets.UTF_16, -1, -1));
+    }
+}
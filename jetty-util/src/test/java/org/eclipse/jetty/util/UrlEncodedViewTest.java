@@ -0,0 +1,92 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UrlEncodedViewTest
+{
+    public static Stream<String> queries()
+    {
+        return Stream.of(
+            "",
+            "a=1",
+            "a=1&b=2&a=3",
+            "&&a=1&&",
+            "flag&a=",
+            "=value&a=b=c",
+            "na+me=va+lue&n%61me=%E2%82%AC",
+            "caf%C3%A9=cr%C3%A8me&x=%2B%26%3D"
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("queries")
+    public void testSameAsDecodeUtf8To(String query)
+    {
+        MultiMap<String> expected = new MultiMap<>();
+        UrlEncoded.decodeUtf8To(query, expected);
+
+        UrlEncodedView view = new UrlEncodedView(query);
+        MultiMap<String> decoded = new MultiMap<>();
+        view.decodeTo(decoded);
+        assertEquals(expected, decoded);
+
+        for (String name : expected.keySet())
+        {
+            assertEquals(expected.getValue(name, 0), view.getValue(name), name);
+            assertEquals(expected.getValues(name), view.getValues(name), name);
+        }
+        assertThat(view.getValue("missing"), nullValue());
+        assertThat(view.getValues("missing"), nullValue());
+    }
+
+    @Test
+    public void testLookup()
+    {
+        UrlEncodedView view = new UrlEncodedView("id=42&name=J%C3%BCrgen&tag=a&tag=b&empty");
+        assertThat(view.size(), is(5));
+        assertThat(view.getValue("id"), is("42"));
+        assertThat(view.getValue("name"), is("Jürgen"));
+        assertThat(view.getValues("tag"), is(Arrays.asList("a", "b")));
+        assertThat(view.getValue("empty"), is(""));
+        assertThat(view.getValue("i"), nullValue());
+    }
+
+    @Test
+    public void testOnlyRequestedValuesAreDecoded()
+    {
+        UrlEncodedView view = new UrlEncodedView("id=42&bad=%ZZ&utf8=aaa%E7bbb");
+        assertThat(view.getValue("id"), is("42"));
+        assertThrows(IllegalArgumentException.class, () -> view.getValue("bad"));
+        assertThrows(IllegalArgumentException.class, () -> view.getValue("utf8"));
+        assertThrows(IllegalArgumentException.class, () -> new UrlEncodedView("a=%4").getValue("a"));
+    }
+}
@@ -0,0 +1,196 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.util.thread.strategy.EatWhatYouKill;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadPoolTest
+{
+    private final ExecutorService virtualThreads = Executors.newCachedThreadPool(task -> new Thread(task, "virtual-" + task.hashCode()));
+    private VirtualThreadPool pool;
+    private EatWhatYouKill ewyk;
+
+    @AfterEach
+    public void dispose() throws Exception
+    {
+        if (ewyk != null)
+            ewyk.stop();
+        if (pool != null)
+            pool.stop();
+        virtualThreads.shutdownNow();
+    }
+
+    @Test
+    public void testBlockingTasksRunInVirtualThreads() throws Exception
+    {
+        pool = new VirtualThreadPool();
+        pool.setVirtualThreadsExecutor(virtualThreads);
+        pool.start();
+
+        Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        AtomicReference<String> blocking = new AtomicReference<>();
+        AtomicReference<String> nonBlocking = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        tasks.offer(new Task(() ->
+        {
+            blocking.set(Thread.currentThread().getName());
+            latch.countDown();
+        }, Invocable.InvocationType.BLOCKING));
+        tasks.offer(new Task(() ->
+        {
+            nonBlocking.set(Thread.currentThread().getName());
+            latch.countDown();
+        }, Invocable.InvocationType.NON_BLOCKING));
+
+        ewyk = new EatWhatYouKill(tasks::poll, pool);
+        ewyk.start();
+        ewyk.dispatch();
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertThat(blocking.get(), startsWith("virtual-"));
+        // Non blocking tasks are consumed by the producer, in a platform thread.
+        assertThat(nonBlocking.get(), startsWith(pool.getName()));
+    }
+
+    @Test
+    public void testMaxVirtualThreads() throws Exception
+    {
+        int maxVirtualThreads = 2;
+        pool = new VirtualThreadPool(8, maxVirtualThreads);
+        pool.setVirtualThreadsExecutor(virtualThreads);
+        pool.start();
+        assertFalse(pool.isLowOnThreads());
+
+        CountDownLatch started = new CountDownLatch(maxVirtualThreads);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(2 * maxVirtualThreads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int i = 0; i < 2 * maxVirtualThreads; ++i)
+        {
+            pool.getVirtualThreadsExecutor().execute(() ->
+            {
+                try
+                {
+                    started.countDown();
+                    assertTrue(release.await(5, TimeUnit.SECONDS));
+                }
+                catch (Throwable x)
+                {
+                    failure.compareAndSet(null, x);
+                }
+                finally
+                {
+                    completed.countDown();
+                }
+            });
+        }
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(maxVirtualThreads, pool.getBusyVirtualThreads());
+        assertEquals(maxVirtualThreads, pool.getPendingVirtualThreads());
+        assertTrue(pool.isLowOnThreads());
+
+        release.countDown();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertNull(failure.get());
+        while (pool.getBusyVirtualThreads() > 0)
+        {
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.getPendingVirtualThreads());
+        assertFalse(pool.isLowOnThreads());
+    }
+
+    @Test
+    public void testWithoutVirtualThreads() throws Exception
+    {
+        pool = new VirtualThreadPool();
+        pool.setVirtualThreadsExecutor(null);
+        pool.start();
+
+        assertFalse(pool.isUseVirtualThreads());
+        assertNull(pool.getVirtualThreadsExecutor());
+        assertNull(VirtualThreads.getVirtualThreadsExecutor(pool));
+        assertNull(VirtualThreads.getVirtualThreadsExecutor(new QueuedThreadPool()));
+    }
+
+    @Test
+    public void testRealVirtualThreads() throws Exception
+    {
+        assumeTrue(VirtualThreads.areSupported());
+
+        pool = new VirtualThreadPool();
+        pool.start();
+        assertNotNull(pool.getVirtualThreadsExecutor());
+
+        AtomicBoolean virtual = new AtomicBoolean();
+        CountDownLatch latch = new CountDownLatch(1);
+        pool.getVirtualThreadsExecutor().execute(() ->
+        {
+            virtual.set(VirtualThreads.isVirtualThread());
+            latch.countDown();
+        });
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(virtual.get());
+    }
+
+    private static class Task implements Runnable, Invocable
+    {
+        private final Runnable task;
+        private final InvocationType invocationType;
+
+        private Task(Runnable task, InvocationType invocationType)
+        {
+            this.task = task;
+            this.invocationType = invocationType;
+        }
+
+        @Override
+        public void run()
+        {
+            task.run();
+        }
+
+        @Override
+        public InvocationType getInvocationType()
+        {
+            return invocationType;
+        }
+    }
+}
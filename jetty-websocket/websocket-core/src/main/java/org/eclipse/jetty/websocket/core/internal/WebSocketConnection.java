@@ -31,6 +31,7 @@ import org.eclipse.jetty.io.ByteBufferPool;
 import org.eclipse.jetty.io.Connection;
 import org.eclipse.jetty.io.EndPoint;
 import org.eclipse.jetty.io.RetainableByteBuffer;
+import org.eclipse.jetty.io.RetainableByteBufferPool;
 import org.eclipse.jetty.util.BufferUtil;
 import org.eclipse.jetty.util.Callback;
 import org.eclipse.jetty.util.component.Dumpable;
@@ -67,6 +68,7 @@ public class WebSocketConnection extends AbstractConnection implements Connectio
     private LongAdder bytesIn = new LongAdder();
 
     // Read / Parse variables
+    private final RetainableByteBufferPool retainableBufferPool;
     private RetainableByteBuffer networkBuffer;
     private boolean useInputDirectByteBuffers;
     private boolean useOutputDirectByteBuffers;
@@ -92,6 +94,7 @@ public class WebSocketConnection extends AbstractConnection implements Connectio
         Objects.requireNonNull(bufferPool, "ByteBufferPool");
 
         this.bufferPool = bufferPool;
+        this.retainableBufferPool = bufferPool.asRetainableByteBufferPool();
 
         this.coreSession = coreSession;
 
@@ -265,7 +268,7 @@ public class WebSocketConnection extends AbstractConnection implements Connectio
 
     private RetainableByteBuffer newNetworkBuffer(int capacity)
     {
-        return new RetainableByteBuffer(bufferPool, capacity, isUseInputDirectByteBuffers());
+        return retainableBufferPool.acquire(capacity, isUseInputDirectByteBuffers());
     }
 
     private void releaseNetworkBuffer()
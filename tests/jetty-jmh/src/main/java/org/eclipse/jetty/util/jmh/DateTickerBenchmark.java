@@ -0,0 +1,121 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.http.DateGenerator;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.PreEncodedHttpField;
+import org.eclipse.jetty.server.DateTicker;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.DateCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 7, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class DateTickerBenchmark
+{
+    DateTicker dateTicker = new DateTicker();
+    Server server = new Server();
+    DateCache logDateCache = new DateCache("dd/MMM/yyyy:HH:mm:ss ZZZ");
+    DateCache tickedLogDateCache = new DateCache("dd/MMM/yyyy:HH:mm:ss ZZZ");
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        dateTicker.addDateCaches(List.of(tickedLogDateCache));
+        dateTicker.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        dateTicker.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public HttpField testDateFieldFormatted()
+    {
+        return new PreEncodedHttpField(HttpHeader.DATE, DateGenerator.formatDate(System.currentTimeMillis()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public HttpField testDateFieldServer()
+    {
+        return server.getDateField();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public HttpField testDateFieldTicker()
+    {
+        return dateTicker.getDateField();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public String testLogDateCache()
+    {
+        return logDateCache.format(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public String testLogDateCacheTicked()
+    {
+        return tickedLogDateCache.format(System.currentTimeMillis());
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(DateTickerBenchmark.class.getSimpleName())
+            .warmupIterations(2)
+            .measurementIterations(3)
+            .forks(1)
+            .threads(400)
+            .warmupTime(new TimeValue(10000, TimeUnit.MILLISECONDS))
+            .measurementTime(new TimeValue(10000, TimeUnit.MILLISECONDS))
+            .build();
+
+        new Runner(opt).run();
+    }
+}
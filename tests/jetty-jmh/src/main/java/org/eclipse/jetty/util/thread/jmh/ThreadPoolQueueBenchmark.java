@@ -0,0 +1,137 @@
+//
+// ========================================================================
+// Copyright (c) 1995-2020 Mort Bay Consulting Pty Ltd and others.
+//
+// This program and the accompanying materials are made available under
+// the terms of the Eclipse Public License 2.0 which is available at
+// https://www.eclipse.org/legal/epl-2.0
+//
+// This Source Code may also be made available under the following
+// Secondary Licenses when the conditions for such availability set
+// forth in the Eclipse Public License, v. 2.0 are satisfied:
+// the Apache License v2.0 which is available at
+// https://www.apache.org/licenses/LICENSE-2.0
+//
+// SPDX-License-Identifier: EPL-2.0 OR Apache-2.0
+// ========================================================================
+//
+
+package org.eclipse.jetty.util.thread.jmh;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jetty.util.BlockingArrayQueue;
+import org.eclipse.jetty.util.ConcurrentArrayBlockingQueue;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.eclipse.jetty.util.thread.IdleStrategy;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@State(Scope.Benchmark)
+@Warmup(iterations = 8, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 3, time = 1000, timeUnit = TimeUnit.MILLISECONDS)
+public class ThreadPoolQueueBenchmark
+{
+    public enum Type
+    {
+        BLOCKING_ARRAY, CONCURRENT_ARRAY_SPIN, CONCURRENT_ARRAY_YIELD, CONCURRENT_ARRAY_PARK;
+    }
+
+    @Param({"BLOCKING_ARRAY", "CONCURRENT_ARRAY_SPIN", "CONCURRENT_ARRAY_YIELD", "CONCURRENT_ARRAY_PARK"})
+    Type type;
+
+    @Param({"200"})
+    int size;
+
+    QueuedThreadPool pool;
+
+    @Setup
+    public void buildPool()
+    {
+        BlockingQueue<Runnable> queue;
+        switch (type)
+        {
+            case BLOCKING_ARRAY:
+                queue = new BlockingArrayQueue<>(32768, 32768);
+                break;
+            case CONCURRENT_ARRAY_SPIN:
+                queue = new ConcurrentArrayBlockingQueue<>(32768, IdleStrategy.SPIN);
+                break;
+            case CONCURRENT_ARRAY_YIELD:
+                queue = new ConcurrentArrayBlockingQueue<>(32768, IdleStrategy.YIELD);
+                break;
+            case CONCURRENT_ARRAY_PARK:
+                queue = new ConcurrentArrayBlockingQueue<>(32768, IdleStrategy.PARK);
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+        pool = new QueuedThreadPool(size, size, queue);
+        pool.setReservedThreads(0);
+        LifeCycle.start(pool);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public void testFew() throws Exception
+    {
+        doJob();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public void testSome() throws Exception
+    {
+        doJob();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(200)
+    public void testMany() throws Exception
+    {
+        doJob();
+    }
+
+    @TearDown
+    public void shutdownPool()
+    {
+        LifeCycle.stop(pool);
+        pool = null;
+    }
+
+    void doJob() throws Exception
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        pool.execute(latch::countDown);
+        latch.await();
+    }
+
+    public static void main(String[] args) throws RunnerException
+    {
+        Options opt = new OptionsBuilder()
+            .include(ThreadPoolQueueBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+}